@@ -0,0 +1,59 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.ConfigManager;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration lookups done on every page action and wait, and the full re-read of all layers
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConfigManagerBenchmark {
+
+    @Benchmark
+    public String getProperty() {
+        return ConfigManager.getProperty("app.base.url");
+    }
+
+    @Benchmark
+    public String getMissingPropertyWithDefault() {
+        return ConfigManager.getProperty("benchmark.missing.key", "default");
+    }
+
+    @Benchmark
+    public int getIntProperty() {
+        return ConfigManager.getIntProperty("browser.implicit.wait", 10);
+    }
+
+    @Benchmark
+    public boolean getBooleanProperty() {
+        return ConfigManager.getBooleanProperty("proxy.enabled");
+    }
+
+    @Benchmark
+    public List<String> getListProperty() {
+        return ConfigManager.getListProperty("governor.browser.processes");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Set<String> reload() {
+        return ConfigManager.reload();
+    }
+}
@@ -0,0 +1,50 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.By;
+import pages.locators.DashboardPageLocators;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dynamic locators of DashboardPageLocators, built from text on every call
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LocatorBenchmark {
+
+    private String menuText = "Curve Manager";
+
+    @Benchmark
+    public By menuItemByText() {
+        return DashboardPageLocators.getMenuItemByText(menuText);
+    }
+
+    @Benchmark
+    public By subMenuItemByText() {
+        return DashboardPageLocators.getSubMenuItemByText(menuText);
+    }
+
+    @Benchmark
+    public By notificationByText() {
+        return DashboardPageLocators.getNotificationByText(menuText);
+    }
+
+    @Benchmark
+    public String staticLocatorToString() {
+        // By.toString is what logs, traces and the HTTP tier's locator mapping work with
+        return DashboardPageLocators.SEARCH_BOX.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.PageFactory;
+import pages.DashboardPageFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Page object creation: PageFactory.initElements proxies every @FindBy field of DashboardPageFactory
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PageFactoryBenchmark {
+
+    private final WebDriver driver = new StubWebDriver();
+    private DashboardPageFactory page;
+
+    @Setup
+    public void createPage() {
+        page = new DashboardPageFactory(driver);
+    }
+
+    @Benchmark
+    public DashboardPageFactory initElements() {
+        PageFactory.initElements(driver, page);
+        return page;
+    }
+
+    @Benchmark
+    public DashboardPageFactory newPage() {
+        return new DashboardPageFactory(driver);
+    }
+}
@@ -0,0 +1,182 @@
+package benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files benchmark by benchmark. A benchmark regressed when it got
+ * worse by more than the threshold (slower for time modes, fewer operations for throughput) and
+ * by more than the two runs' score errors together, so noise alone does not fail a comparison.
+ */
+public class ResultsComparison {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResultsComparison.class);
+
+    private final Map<String, Score> baseline;
+    private final Map<String, Score> current;
+
+    /**
+     * Constructor
+     * @param baseline Results of the reference run
+     * @param current Results of the run to check
+     */
+    public ResultsComparison(Map<String, Score> baseline, Map<String, Score> current) {
+        this.baseline = baseline;
+        this.current = current;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: ResultsComparison <baseline.json> <results.json> [threshold percent]");
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        ResultsComparison comparison = new ResultsComparison(read(Paths.get(args[0])), read(Paths.get(args[1])));
+        for (String line : comparison.report(threshold)) {
+            logger.info(line);
+        }
+        List<String> regressions = comparison.regressions(threshold);
+        if (!regressions.isEmpty()) {
+            throw new IllegalStateException(regressions.size() + " benchmark(s) regressed by more than " + threshold + "%: " + regressions);
+        }
+    }
+
+    /**
+     * Reads a file written by JMH with -rf json
+     * @param file Result file
+     * @return Scores by benchmark name plus parameters, e.g. "benchmarks.ScreenshotViewerBenchmark.listScreenshots[screenshots=1000]"
+     * @throws IOException if the file cannot be read
+     */
+    public static Map<String, Score> read(Path file) throws IOException {
+        JsonArray results = JsonParser.parseString(new String(Files.readAllBytes(file), StandardCharsets.UTF_8)).getAsJsonArray();
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonElement element : results) {
+            JsonObject result = element.getAsJsonObject();
+            JsonObject metric = result.getAsJsonObject("primaryMetric");
+            scores.put(name(result), new Score(result.get("mode").getAsString(), metric.get("score").getAsDouble(),
+                    metric.get("scoreError").isJsonPrimitive() ? metric.get("scoreError").getAsDouble() : Double.NaN,
+                    metric.get("scoreUnit").getAsString()));
+        }
+        return scores;
+    }
+
+    private static String name(JsonObject result) {
+        String name = result.get("benchmark").getAsString();
+        if (!result.has("params")) {
+            return name;
+        }
+        List<String> params = new ArrayList<>();
+        Map<String, String> sorted = new TreeMap<>();
+        for (Map.Entry<String, JsonElement> param : result.getAsJsonObject("params").entrySet()) {
+            sorted.put(param.getKey(), param.getValue().getAsString());
+        }
+        for (Map.Entry<String, String> param : sorted.entrySet()) {
+            params.add(param.getKey() + "=" + param.getValue());
+        }
+        return name + "[" + String.join(",", params) + "]";
+    }
+
+    /**
+     * Works out how much worse a benchmark got
+     * @param name Benchmark name as returned by {@link #read(Path)}
+     * @return Percent worse (negative when it improved), or NaN if either run lacks the benchmark
+     */
+    public double percentWorse(String name) {
+        Score before = baseline.get(name);
+        Score after = current.get(name);
+        if (before == null || after == null || before.score == 0) {
+            return Double.NaN;
+        }
+        double change = (after.score - before.score) / before.score * 100;
+        // throughput: higher is better; average, sample and single-shot time: lower is better
+        return "thrpt".equals(after.mode) ? -change : change;
+    }
+
+    /**
+     * Lists the benchmarks that got worse by more than a threshold
+     * @param thresholdPercent Allowed change in percent
+     * @return Benchmark names
+     */
+    public List<String> regressions(double thresholdPercent) {
+        List<String> regressions = new ArrayList<>();
+        for (String name : current.keySet()) {
+            if (isRegression(name, thresholdPercent)) {
+                regressions.add(name);
+            }
+        }
+        return regressions;
+    }
+
+    private boolean isRegression(String name, double thresholdPercent) {
+        if (!(percentWorse(name) > thresholdPercent)) {
+            return false;
+        }
+        Score before = baseline.get(name);
+        Score after = current.get(name);
+        double errors = (Double.isNaN(before.error) ? 0 : before.error) + (Double.isNaN(after.error) ? 0 : after.error);
+        return Math.abs(after.score - before.score) > errors;
+    }
+
+    /**
+     * Describes both runs side by side
+     * @param thresholdPercent Allowed change in percent, for the REGRESSED marks
+     * @return Table lines: benchmark, baseline, current, unit and change
+     */
+    public List<String> report(double thresholdPercent) {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%-90s %14s %14s %-8s %9s", "Benchmark", "Baseline", "Current", "Unit", "Worse"));
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score before = baseline.get(entry.getKey());
+            double worse = percentWorse(entry.getKey());
+            lines.add(String.format("%-90s %14s %14.3f %-8s %9s%s", entry.getKey(),
+                    before == null ? "-" : String.format("%.3f", before.score), entry.getValue().score, entry.getValue().unit,
+                    Double.isNaN(worse) ? "new" : String.format("%+.1f%%", worse),
+                    isRegression(entry.getKey(), thresholdPercent) ? "  REGRESSED" : ""));
+        }
+        for (String name : baseline.keySet()) {
+            if (!current.containsKey(name)) {
+                lines.add(String.format("%-90s %14.3f %14s %-8s %9s", name, baseline.get(name).score, "-", baseline.get(name).unit, "removed"));
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Primary metric of one benchmark
+     */
+    public static final class Score {
+
+        final String mode;
+        final double score;
+        final double error;
+        final String unit;
+
+        /**
+         * Constructor
+         * @param mode JMH mode: thrpt, avgt, sample or ss
+         * @param score Score
+         * @param error Score error at 99.9%, NaN if unknown
+         * @param unit Unit, e.g. "ns/op"
+         */
+        public Score(String mode, double score, double error, String unit) {
+            this.mode = mode;
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.ScreenshotUtils;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Screenshot file names: String.format plus the replaceAll of special characters, run for every capture
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScreenshotNamingBenchmark {
+
+    private final LocalDateTime time = LocalDateTime.of(2024, 1, 15, 10, 30, 0);
+
+    @Benchmark
+    public String classAndMethodName() {
+        return ScreenshotUtils.fileName(time, "LoginTest", "testLoginPageElements");
+    }
+
+    @Benchmark
+    public String customNameWithSpecialCharacters() {
+        return ScreenshotUtils.fileName(time, "Dashboard: after login (user #1)");
+    }
+}
@@ -0,0 +1,90 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.ConfigManager;
+import utils.ScreenshotUtils;
+import utils.ScreenshotViewer;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ScreenshotViewer queries over a large synthetic screenshots directory: empty .png files named like
+ * real captures of 20 classes and 10 methods over 30 days, plus one other file per 10 screenshots
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScreenshotViewerBenchmark {
+
+    @Param({"1000", "10000"})
+    private int screenshots;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void createScreenshots() throws IOException {
+        // ScreenshotViewer reads screenshot.directory once, so every trial of this JVM uses the same directory
+        directory = Paths.get(System.getProperty("java.io.tmpdir"), "screenshot-viewer-benchmark");
+        System.setProperty("screenshot.directory", directory.toAbsolutePath().toString());
+        ConfigManager.reload();
+        deleteScreenshots();
+        Files.createDirectories(directory);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < screenshots; i++) {
+            String name = ScreenshotUtils.fileName(now.minusDays(i % 30).minusSeconds(i), "Test" + (i % 20), "testMethod" + (i % 10));
+            Files.createFile(directory.resolve(name));
+            if (i % 10 == 0) {
+                Files.createFile(directory.resolve("trace-" + i + ".json"));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteScreenshots() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<String> listScreenshots() {
+        return ScreenshotViewer.listScreenshots();
+    }
+
+    @Benchmark
+    public List<String> listScreenshotsForClass() {
+        return ScreenshotViewer.listScreenshotsForClass("Test7_");
+    }
+
+    @Benchmark
+    public List<String> listTodayScreenshots() {
+        return ScreenshotViewer.listTodayScreenshots();
+    }
+}
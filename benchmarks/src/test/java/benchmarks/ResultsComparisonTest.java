@@ -0,0 +1,58 @@
+package benchmarks;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class ResultsComparisonTest {
+
+    private static String result(String benchmark, String mode, double score, double error, String params) {
+        return "{\"benchmark\":\"" + benchmark + "\",\"mode\":\"" + mode + "\"," + params
+                + "\"primaryMetric\":{\"score\":" + score + ",\"scoreError\":" + error + ",\"scoreUnit\":\"ns/op\"}}";
+    }
+
+    private static Map<String, ResultsComparison.Score> read(String... results) throws IOException {
+        Path file = Files.createTempFile("jmh", ".json");
+        Files.write(file, ("[" + String.join(",", results) + "]").getBytes(StandardCharsets.UTF_8));
+        return ResultsComparison.read(file);
+    }
+
+    @Test(description = "Verify results are keyed by benchmark and parameters and slower time scores are regressions")
+    public void testTimeRegression() throws IOException {
+        Map<String, ResultsComparison.Score> baseline = read(
+                result("b.Viewer.list", "avgt", 100, 2, "\"params\":{\"screenshots\":\"1000\"},"),
+                result("b.Config.get", "avgt", 10, 0.1, ""));
+        Map<String, ResultsComparison.Score> current = read(
+                result("b.Viewer.list", "avgt", 130, 3, "\"params\":{\"screenshots\":\"1000\"},"),
+                result("b.Config.get", "avgt", 9, 0.1, ""),
+                result("b.Locator.menu", "avgt", 50, 1, ""));
+        ResultsComparison comparison = new ResultsComparison(baseline, current);
+        Assert.assertEquals(comparison.percentWorse("b.Viewer.list[screenshots=1000]"), 30.0, 0.001);
+        Assert.assertEquals(comparison.percentWorse("b.Config.get"), -10.0, 0.001);
+        Assert.assertTrue(Double.isNaN(comparison.percentWorse("b.Locator.menu")), "New benchmark has no baseline");
+        Assert.assertEquals(comparison.regressions(10), Collections.singletonList("b.Viewer.list[screenshots=1000]"));
+        List<String> report = comparison.report(10);
+        Assert.assertTrue(report.get(1).endsWith("REGRESSED"), report.get(1));
+        Assert.assertTrue(report.get(3).trim().endsWith("new"), report.get(3));
+    }
+
+    @Test(description = "Verify fewer operations are a regression for throughput, and changes within the score errors are not")
+    public void testThroughputAndNoise() throws IOException {
+        Map<String, ResultsComparison.Score> baseline = read(
+                result("b.Naming.file", "thrpt", 1000, 5, ""), result("b.Page.init", "avgt", 100, 20, ""));
+        Map<String, ResultsComparison.Score> current = read(
+                result("b.Naming.file", "thrpt", 800, 5, ""), result("b.Page.init", "avgt", 130, 20, ""));
+        ResultsComparison comparison = new ResultsComparison(baseline, current);
+        Assert.assertEquals(comparison.percentWorse("b.Naming.file"), 20.0, 0.001);
+        Assert.assertEquals(comparison.regressions(10), Arrays.asList("b.Naming.file"),
+                "A 30% change within errors of 20 + 20 should not count");
+    }
+}
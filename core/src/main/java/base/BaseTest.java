@@ -1,6 +1,10 @@
 package base;
 
+import com.gargoylesoftware.htmlunit.BrowserVersion;
+import com.gargoylesoftware.htmlunit.SilentCssErrorHandler;
+import com.gargoylesoftware.htmlunit.WebClient;
 import io.github.bonigarcia.wdm.WebDriverManager;
+import org.openqa.selenium.Capabilities;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
@@ -8,63 +12,182 @@ import org.openqa.selenium.edge.EdgeDriver;
 import org.openqa.selenium.edge.EdgeOptions;
 import org.openqa.selenium.firefox.FirefoxDriver;
 import org.openqa.selenium.firefox.FirefoxOptions;
+import org.openqa.selenium.htmlunit.HtmlUnitDriver;
 import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
 import org.testng.annotations.AfterTest;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Parameters;
 import org.testng.annotations.Optional;
+import pages.BasePage;
+import pages.http.HttpSession;
 import utils.ConfigManager;
 import utils.ScreenshotUtils;
+import utils.proxy.FilteringProxy;
+import utils.proxy.ProxyRules;
+import utils.remote.NodeScheduler;
+import utils.resources.ConcurrencyGovernor;
+import utils.resources.ProcessReaper;
+import utils.resources.ProfileTemplates;
+import utils.resources.ResourceAllocator;
+import utils.tracing.PhaseTimer;
+import utils.tracing.TracingWebDriver;
 
+import java.lang.annotation.Annotation;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
 
 public class BaseTest {
 
+    private static final Logger logger = LoggerFactory.getLogger(BaseTest.class);
+
     protected WebDriver driver;
     protected WebDriverWait wait;
-    private static final int IMPLICIT_WAIT = 10;
+    private static final int IMPLICIT_WAIT = ConfigManager.getIntProperty("browser.implicit.wait", 10);
     private static final int EXPLICIT_WAIT = 20;
+    // Pure-Java browser running inside the test JVM
+    private static final String IN_PROCESS_BROWSER = "htmlunit";
+    private Path browserProfile;
+    private NodeScheduler.Session remoteSession;
+    private ConcurrencyGovernor governor;
+    private ProcessReaper.SessionProcesses sessionProcesses;
+    private HttpSession httpSession;
+    private FilteringProxy filteringProxy;
+    private List<String> profileArguments = Collections.emptyList();
+    private String matrixProfile = "default";
+    // launch time of a local Chrome, for the start-up comparison of empty and template profiles
+    private long launchStartedMillis;
+    private boolean launchedFromTemplate;
 
-    @Parameters({"browser"})
+    @Parameters({"browser", "profile"})
     @BeforeTest
-    public void setUp(@Optional("chrome") String browserName) {
+    public void setUp(@Optional("chrome") String browserName, @Optional("default") String profile, ITestContext context) {
+        if (!needsBrowser(context)) {
+            logger.info("No test of {} in {} needs a browser; no browser started",
+                    getClass().getSimpleName(), context.getName());
+            return;
+        }
+        if (IN_PROCESS_BROWSER.equalsIgnoreCase(browserName) && anyAnnotated(context, RequiresRealBrowser.class)) {
+            browserName = ConfigManager.getProperty("htmlunit.fallback.browser", "chrome");
+            logger.info("{} has @RequiresRealBrowser tests; running it on {} instead of {}",
+                    context.getName(), browserName, IN_PROCESS_BROWSER);
+        }
+        boolean inProcess = IN_PROCESS_BROWSER.equalsIgnoreCase(browserName);
         try {
-            driver = createDriver("edge");
-            setupDriver();
+            // Extra browser arguments of a browser matrix profile, e.g. matrix.profile.mobile.arguments
+            profileArguments = ConfigManager.getListProperty("matrix.profile." + profile + ".arguments");
+            matrixProfile = profile;
+            // Local browsers wait for a slot while the host is under CPU or memory pressure
+            governor = NodeScheduler.isEnabled() || inProcess ? null : ConcurrencyGovernor.shared();
+            if (governor != null) {
+                governor.acquire();
+            }
+            // Local sessions load pages through a proxy that drops fonts, trackers and images the tests never check
+            if (ConfigManager.getBooleanProperty("proxy.enabled") && !NodeScheduler.isEnabled()) {
+                filteringProxy = new FilteringProxy(ProxyRules.forProfile(profile),
+                        ConfigManager.getBooleanProperty("proxy.measure.blocked"));
+                filteringProxy.start();
+            }
+            try (PhaseTimer.Timing timing = PhaseTimer.start(PhaseTimer.Phase.BROWSER_LAUNCH)) {
+                driver = createDriver(browserName);
+            }
+            // Driver and browser processes that outlive quit() are killed in tearDown
+            sessionProcesses = remoteSession == null ? ProcessReaper.track(driver) : null;
+            driver = TracingWebDriver.wrapIfEnabled(driver);
+            try (PhaseTimer.Timing timing = PhaseTimer.start(PhaseTimer.Phase.FIRST_NAVIGATION)) {
+                setupDriver();
+            }
+            if (launchStartedMillis > 0) {
+                ProfileTemplates.recordStartup(launchedFromTemplate, System.currentTimeMillis() - launchStartedMillis);
+                launchStartedMillis = 0;
+            }
             wait = new WebDriverWait(driver, EXPLICIT_WAIT);
         } catch (Exception e) {
-            System.err.println("Failed to initialize WebDriver: " + e.getMessage());
+            logger.error("Failed to initialize WebDriver: {}", e.getMessage());
+            launchStartedMillis = 0;
+            // tearDown does not run after a failed @BeforeTest, so whatever was started is released here
+            releaseSession();
             throw new RuntimeException("WebDriver initialization failed", e);
         }
     }
 
+    /**
+     * Each test class has its own driver, so only this class's tests selected for the block count
+     */
+    private boolean needsBrowser(ITestContext context) {
+        for (ITestNGMethod method : context.getAllTestMethods()) {
+            if (method.getRealClass() == getClass() && !isAnnotated(method, HttpOnly.class)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean anyAnnotated(ITestContext context, Class<? extends Annotation> annotation) {
+        for (ITestNGMethod method : context.getAllTestMethods()) {
+            if (isAnnotated(method, annotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAnnotated(ITestNGMethod method, Class<? extends Annotation> annotation) {
+        // getRealClass() returns a raw Class
+        Class<?> testClass = method.getRealClass();
+        return method.getConstructorOrMethod().getMethod().isAnnotationPresent(annotation)
+                || testClass.isAnnotationPresent(annotation);
+    }
+
+    /**
+     * Gets the HTTP client of this test class for {@link HttpOnly} checks, created on first use
+     * @return Session that keeps cookies between pages
+     */
+    protected HttpSession http() {
+        if (httpSession == null) {
+            httpSession = new HttpSession();
+        }
+        return httpSession;
+    }
+
     private WebDriver createDriver(String browserName) {
+        if (IN_PROCESS_BROWSER.equalsIgnoreCase(browserName)) {
+            // Runs inside this JVM even when remote.enabled is set: there is nothing to place on a node
+            return htmlUnitDriver();
+        }
+        if (NodeScheduler.isEnabled()) {
+            remoteSession = NodeScheduler.shared().acquire(remoteCapabilities(browserName));
+            return remoteSession.getDriver();
+        }
         switch (browserName.toLowerCase()) {
             case "chrome":
-                WebDriverManager.chromedriver().driverVersion("latest").setup();
-                ChromeOptions chromeOptions = new ChromeOptions();
-                // Remove headless mode for local testing
-                // chromeOptions.addArguments("--headless");
-                chromeOptions.addArguments("--no-sandbox");
-                chromeOptions.addArguments("--disable-dev-shm-usage");
-                chromeOptions.addArguments("--disable-gpu");
-                chromeOptions.addArguments("--window-size=1920,1080");
-                chromeOptions.addArguments("--disable-notifications");
-                chromeOptions.addArguments("--disable-popup-blocking");
-                chromeOptions.addArguments("--remote-debugging-port=9222");
-                chromeOptions.addArguments("--disable-web-security");
-                chromeOptions.addArguments("--allow-running-insecure-content");
-                return new ChromeDriver(chromeOptions);
+                resolveDriverBinary(WebDriverManager.chromedriver().driverVersion("latest"));
+                // Per-session port and profile so parallel browsers and JVMs on one host do not collide;
+                // with profile.template.enabled the profile is a copy of a warmed-up one
+                Path template = ProfileTemplates.template("chrome-" + matrixProfile, this::warmUpChromeProfile);
+                launchedFromTemplate = template != null;
+                launchStartedMillis = System.currentTimeMillis();
+                browserProfile = template != null ? ProfileTemplates.cloneOf(template) : ResourceAllocator.newBrowserProfile();
+                return new ChromeDriver(localChromeOptions(browserProfile));
 
             case "edge":
-                WebDriverManager.edgedriver().setup();
-                EdgeOptions edgeOptions = new EdgeOptions();
-                return new EdgeDriver(edgeOptions);
+                resolveDriverBinary(WebDriverManager.edgedriver());
+                return new EdgeDriver(edgeOptions());
 
             case "firefox":
-                WebDriverManager.firefoxdriver().setup();
+                resolveDriverBinary(WebDriverManager.firefoxdriver());
                 FirefoxOptions firefoxOptions = new FirefoxOptions();
                 firefoxOptions.addArguments("--start-maximized");
+                firefoxOptions.addArguments(profileArguments);
+                if (filteringProxy != null) {
+                    firefoxOptions.setProxy(filteringProxy.asSeleniumProxy());
+                    firefoxOptions.addPreference("network.proxy.allow_hijacking_localhost", true);
+                }
                 return new FirefoxDriver(firefoxOptions);
                 
             default:
@@ -72,33 +195,174 @@ public class BaseTest {
         }
     }
 
+    private static void resolveDriverBinary(WebDriverManager manager) {
+        try (PhaseTimer.Timing timing = PhaseTimer.start(PhaseTimer.Phase.DRIVER_RESOLUTION)) {
+            manager.setup();
+        }
+    }
+
+    private ChromeOptions localChromeOptions(Path userDataDir) {
+        ChromeOptions chromeOptions = new ChromeOptions();
+        // Remove headless mode for local testing
+        // chromeOptions.addArguments("--headless");
+        chromeOptions.addArguments("--no-sandbox");
+        chromeOptions.addArguments("--disable-dev-shm-usage");
+        chromeOptions.addArguments("--disable-gpu");
+        chromeOptions.addArguments("--window-size=1920,1080");
+        chromeOptions.addArguments("--disable-notifications");
+        chromeOptions.addArguments("--disable-popup-blocking");
+        chromeOptions.addArguments("--remote-debugging-port=" + ResourceAllocator.freePort());
+        chromeOptions.addArguments("--user-data-dir=" + userDataDir);
+        chromeOptions.addArguments("--disable-web-security");
+        chromeOptions.addArguments("--allow-running-insecure-content");
+        chromeOptions.addArguments(profileArguments);
+        if (filteringProxy != null) {
+            chromeOptions.setProxy(filteringProxy.asSeleniumProxy());
+            // Chrome bypasses proxies for localhost unless told otherwise
+            chromeOptions.addArguments("--proxy-bypass-list=<-loopback>");
+        }
+        return chromeOptions;
+    }
+
+    /**
+     * Runs Chrome once on an empty template directory: first-run setup, then the staging URL so its assets are cached
+     * @param templateDirectory Directory of the template being built
+     */
+    private void warmUpChromeProfile(Path templateDirectory) {
+        long started = System.currentTimeMillis();
+        WebDriver chrome = new ChromeDriver(localChromeOptions(templateDirectory));
+        ProcessReaper.SessionProcesses processes = ProcessReaper.track(chrome);
+        try {
+            chrome.manage().timeouts().pageLoadTimeout(60, java.util.concurrent.TimeUnit.SECONDS);
+            chrome.get(ConfigManager.getBaseUrl());
+            ProfileTemplates.recordStartup(false, System.currentTimeMillis() - started);
+        } finally {
+            if (processes != null) {
+                processes.refresh();
+            }
+            chrome.quit();
+            if (processes != null) {
+                processes.reap();
+            }
+        }
+    }
+
+    private WebDriver htmlUnitDriver() {
+        boolean javascript = ConfigManager.getBooleanProperty("htmlunit.javascript.enabled");
+        HtmlUnitDriver htmlUnit = new HtmlUnitDriver(BrowserVersion.BEST_SUPPORTED, javascript) {
+            @Override
+            protected WebClient modifyWebClient(WebClient client) {
+                // Like a real browser, keep going after script and CSS errors instead of failing the page load
+                client.getOptions().setThrowExceptionOnScriptError(false);
+                client.setCssErrorHandler(new SilentCssErrorHandler());
+                return client;
+            }
+        };
+        if (filteringProxy != null) {
+            htmlUnit.setProxySettings(filteringProxy.asSeleniumProxy());
+        }
+        return htmlUnit;
+    }
+
+    private Capabilities remoteCapabilities(String browserName) {
+        switch (browserName.toLowerCase()) {
+            case "chrome":
+                ChromeOptions chromeOptions = new ChromeOptions();
+                chromeOptions.addArguments("--no-sandbox");
+                chromeOptions.addArguments("--disable-dev-shm-usage");
+                chromeOptions.addArguments("--window-size=1920,1080");
+                chromeOptions.addArguments("--disable-notifications");
+                chromeOptions.addArguments("--disable-popup-blocking");
+                chromeOptions.addArguments(profileArguments);
+                return chromeOptions;
+            case "edge":
+                return edgeOptions();
+            case "firefox":
+                return new FirefoxOptions().addArguments(profileArguments);
+            default:
+                throw new IllegalArgumentException("Unsupported browser: " + browserName);
+        }
+    }
+
+    private EdgeOptions edgeOptions() {
+        if (!profileArguments.isEmpty()) {
+            // Legacy EdgeOptions in Selenium 3 take no command-line arguments
+            logger.warn("Browser profile arguments {} are not supported for Edge and are ignored", profileArguments);
+        }
+        EdgeOptions options = new EdgeOptions();
+        if (filteringProxy != null) {
+            options.setProxy(filteringProxy.asSeleniumProxy());
+        }
+        return options;
+    }
+
     private void setupDriver() {
         try {
             driver.manage().deleteAllCookies();
             driver.manage().window().maximize();
-            driver.manage().timeouts().implicitlyWait(IMPLICIT_WAIT, java.util.concurrent.TimeUnit.SECONDS);
+            BasePage.setImplicitWait(driver, java.time.Duration.ofSeconds(IMPLICIT_WAIT));
             driver.manage().timeouts().pageLoadTimeout(30, java.util.concurrent.TimeUnit.SECONDS);
             
             // Open the staging URL
             String baseUrl = ConfigManager.getBaseUrl();
-            System.out.println("Opening staging URL: " + baseUrl);
+            logger.info("Opening staging URL: {}", baseUrl);
             driver.get(baseUrl);
-            System.out.println("Successfully opened URL: " + driver.getCurrentUrl());
+            logger.info("Successfully opened URL: {}", driver.getCurrentUrl());
         } catch (Exception e) {
-            System.err.println("Error in setupDriver: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error in setupDriver: {}", e.getMessage(), e);
             throw e;
         }
     }
 
     @AfterTest
     public void tearDown() {
+        try (PhaseTimer.Timing timing = PhaseTimer.start(PhaseTimer.Phase.TEARDOWN)) {
+            releaseSession();
+        }
+    }
+
+    /**
+     * Quits the driver and releases everything its session holds: left-over processes, the remote node,
+     * the governor slot, the filtering proxy and the browser profile. Safe to call on a partly started session.
+     */
+    private void releaseSession() {
+        if (sessionProcesses != null) {
+            sessionProcesses.refresh();
+        }
         if (driver != null) {
             try {
                 driver.quit();
             } catch (Exception e) {
-                System.err.println("Error closing WebDriver: " + e.getMessage());
+                logger.error("Error closing WebDriver: {}", e.getMessage());
             }
+            driver = null;
+        }
+        if (sessionProcesses != null) {
+            sessionProcesses.reap();
+            sessionProcesses = null;
+        }
+        if (remoteSession != null) {
+            remoteSession.release();
+            remoteSession = null;
+        }
+        releaseGovernorSlot();
+        stopFilteringProxy();
+        ResourceAllocator.release(browserProfile);
+        browserProfile = null;
+    }
+
+    private void releaseGovernorSlot() {
+        if (governor != null) {
+            governor.release();
+            governor = null;
+        }
+    }
+
+    private void stopFilteringProxy() {
+        if (filteringProxy != null) {
+            filteringProxy.stop();
+            filteringProxy.report().forEach(line -> logger.info("{}", line));
+            filteringProxy = null;
         }
     }
     
@@ -129,8 +393,8 @@ public class BaseTest {
     protected String captureScreenshotOnAssertionFailure(String testMethodName, String assertionMessage) {
         String screenshotPath = captureScreenshot(testMethodName + "_assertion_failure");
         if (screenshotPath != null) {
-            System.err.println("Assertion failed: " + assertionMessage);
-            System.err.println("Screenshot saved: " + screenshotPath);
+            logger.error("Assertion failed: {}", assertionMessage);
+            logger.error("Screenshot saved: {}", screenshotPath);
         }
         return screenshotPath;
     }
@@ -140,8 +404,8 @@ public class BaseTest {
      */
     protected void openStagingUrl() {
         String baseUrl = ConfigManager.getBaseUrl();
-        System.out.println("Explicitly opening staging URL: " + baseUrl);
+        logger.info("Explicitly opening staging URL: {}", baseUrl);
         driver.get(baseUrl);
-        System.out.println("Successfully opened staging URL: " + driver.getCurrentUrl());
+        logger.info("Successfully opened staging URL: {}", driver.getCurrentUrl());
     }
 } 
\ No newline at end of file
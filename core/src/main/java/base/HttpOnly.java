@@ -0,0 +1,16 @@
+package base;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a test method, or every test method of a class, as checking only the served HTML.
+ * Such tests use {@link BaseTest#http()} instead of the driver; when every test of a class that runs
+ * in a &lt;test&gt; block is marked, BaseTest starts no browser for that class.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface HttpOnly {
+}
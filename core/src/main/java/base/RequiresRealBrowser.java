@@ -0,0 +1,16 @@
+package base;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a test method, or every test method of a class, as needing a real browser, e.g. for
+ * screenshots or layout checks. A &lt;test&gt; block configured for the in-process htmlunit
+ * driver that contains such a test runs on htmlunit.fallback.browser instead.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface RequiresRealBrowser {
+}
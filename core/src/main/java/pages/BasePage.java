@@ -1,11 +1,18 @@
 package pages;
 
 import org.openqa.selenium.By;
+import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.PageFactory;
+import org.openqa.selenium.support.ui.ExpectedCondition;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
+import utils.tracing.PhaseTimer;
+import utils.tracing.TraceRecorder;
+import utils.tracing.WaitProfiler;
+
+import java.time.Duration;
 
 /**
  * Base class for all page objects
@@ -15,6 +22,7 @@ public abstract class BasePage {
     
     protected WebDriver driver;
     protected WebDriverWait wait;
+    private PageElementLocators elementLocators;
     
     /**
      * Constructor that initializes PageFactory
@@ -34,7 +42,7 @@ public abstract class BasePage {
      * @return WebElement once visible
      */
     protected WebElement waitForElementVisible(WebElement element) {
-        return wait.until(ExpectedConditions.visibilityOf(element));
+        return until("waitForElementVisible", "visibilityOf", element, ExpectedConditions.visibilityOf(element));
     }
     
     /**
@@ -43,7 +51,7 @@ public abstract class BasePage {
      * @return WebElement once clickable
      */
     protected WebElement waitForElementClickable(WebElement element) {
-        return wait.until(ExpectedConditions.elementToBeClickable(element));
+        return until("waitForElementClickable", "elementToBeClickable", element, ExpectedConditions.elementToBeClickable(element));
     }
     
     /**
@@ -51,7 +59,7 @@ public abstract class BasePage {
      * @param title Expected page title
      */
     protected void waitForPageTitle(String title) {
-        wait.until(ExpectedConditions.titleIs(title));
+        until("waitForPageTitle", "titleIs", title, ExpectedConditions.titleIs(title));
     }
     
     /**
@@ -59,7 +67,9 @@ public abstract class BasePage {
      * @param element WebElement to click
      */
     protected void click(WebElement element) {
-        waitForElementClickable(element).click();
+        try (TraceRecorder.Span span = beginAction("click")) {
+            waitForElementClickable(element).click();
+        }
     }
     
     /**
@@ -68,9 +78,11 @@ public abstract class BasePage {
      * @param text Text to send
      */
     protected void sendKeys(WebElement element, String text) {
-        WebElement visibleElement = waitForElementVisible(element);
-        visibleElement.clear();
-        visibleElement.sendKeys(text);
+        try (TraceRecorder.Span span = beginAction("sendKeys")) {
+            WebElement visibleElement = waitForElementVisible(element);
+            visibleElement.clear();
+            visibleElement.sendKeys(text);
+        }
     }
     
     /**
@@ -79,7 +91,9 @@ public abstract class BasePage {
      * @return Text content of the element
      */
     protected String getText(WebElement element) {
-        return waitForElementVisible(element).getText();
+        try (TraceRecorder.Span span = beginAction("getText")) {
+            return waitForElementVisible(element).getText();
+        }
     }
     
     /**
@@ -88,7 +102,7 @@ public abstract class BasePage {
      * @return true if element is displayed, false otherwise
      */
     protected boolean isElementDisplayed(WebElement element) {
-        try {
+        try (TraceRecorder.Span span = beginAction("isElementDisplayed")) {
             return waitForElementVisible(element).isDisplayed();
         } catch (Exception e) {
             return false;
@@ -101,7 +115,7 @@ public abstract class BasePage {
      * @return WebElement once present
      */
     protected WebElement waitForElementPresent(WebElement element) {
-        return wait.until(ExpectedConditions.visibilityOf(element));
+        return until("waitForElementPresent", "visibilityOf", element, ExpectedConditions.visibilityOf(element));
     }
     
     /**
@@ -110,7 +124,7 @@ public abstract class BasePage {
      * @param text Text to wait for
      */
     protected void waitForTextToBePresent(WebElement element, String text) {
-        wait.until(ExpectedConditions.textToBePresentInElement(element, text));
+        until("waitForTextToBePresent", "textToBePresentInElement", element, ExpectedConditions.textToBePresentInElement(element, text));
     }
     
     /**
@@ -118,7 +132,7 @@ public abstract class BasePage {
      * @param element WebElement to wait for
      */
     protected void waitForElementToDisappear(WebElement element) {
-        wait.until(ExpectedConditions.invisibilityOf(element));
+        until("waitForElementToDisappear", "invisibilityOf", element, ExpectedConditions.invisibilityOf(element));
     }
     
     /**
@@ -144,7 +158,7 @@ public abstract class BasePage {
      * @return WebElement once visible
      */
     protected WebElement waitForElementVisible(By by) {
-        return wait.until(ExpectedConditions.visibilityOfElementLocated(by));
+        return until("waitForElementVisible", "visibilityOfElementLocated", by, ExpectedConditions.visibilityOfElementLocated(by));
     }
     
     /**
@@ -153,7 +167,7 @@ public abstract class BasePage {
      * @return WebElement once clickable
      */
     protected WebElement waitForElementClickable(By by) {
-        return wait.until(ExpectedConditions.elementToBeClickable(by));
+        return until("waitForElementClickable", "elementToBeClickable", by, ExpectedConditions.elementToBeClickable(by));
     }
     
     /**
@@ -161,7 +175,9 @@ public abstract class BasePage {
      * @param by By locator
      */
     protected void click(By by) {
-        waitForElementClickable(by).click();
+        try (TraceRecorder.Span span = beginAction("click")) {
+            waitForElementClickable(by).click();
+        }
     }
     
     /**
@@ -170,9 +186,11 @@ public abstract class BasePage {
      * @param text Text to send
      */
     protected void sendKeys(By by, String text) {
-        WebElement visibleElement = waitForElementVisible(by);
-        visibleElement.clear();
-        visibleElement.sendKeys(text);
+        try (TraceRecorder.Span span = beginAction("sendKeys")) {
+            WebElement visibleElement = waitForElementVisible(by);
+            visibleElement.clear();
+            visibleElement.sendKeys(text);
+        }
     }
     
     /**
@@ -181,7 +199,9 @@ public abstract class BasePage {
      * @return Text content of the element
      */
     protected String getText(By by) {
-        return waitForElementVisible(by).getText();
+        try (TraceRecorder.Span span = beginAction("getText")) {
+            return waitForElementVisible(by).getText();
+        }
     }
     
     /**
@@ -190,10 +210,104 @@ public abstract class BasePage {
      * @return true if element is displayed, false otherwise
      */
     protected boolean isElementDisplayed(By by) {
-        try {
+        try (TraceRecorder.Span span = beginAction("isElementDisplayed")) {
             return waitForElementVisible(by).isDisplayed();
         } catch (Exception e) {
             return false;
         }
     }
+
+    
+    // Fast negative checks: these bypass the implicit wait and never block for the explicit wait timeout
+    /**
+     * Check if an element is displayed right now, without waiting
+     * @param by By locator
+     * @return true if a matching element is displayed
+     */
+    protected boolean isPresentNow(By by) {
+        return FastChecks.isPresentNow(driver, by);
+    }
+    
+    /**
+     * Check that no element matching the locator is displayed, without waiting
+     * @param by By locator
+     * @return true if nothing matching is displayed right now
+     */
+    protected boolean isAbsent(By by) {
+        return FastChecks.isAbsent(driver, by);
+    }
+    
+    /**
+     * Wait a short, explicit window for an element to be removed or hidden
+     * @param by By locator
+     * @param within Maximum time to wait
+     * @return true if the element is absent within the window
+     */
+    protected boolean waitForAbsence(By by, Duration within) {
+        return FastChecks.waitForAbsence(driver, by, within);
+    }
+
+    /**
+     * Change the session's implicit wait; fast checks restore this value after bypassing it
+     * @param timeout Implicit wait
+     */
+    protected void setImplicitWait(Duration timeout) {
+        setImplicitWait(driver, timeout);
+    }
+    
+    /**
+     * Set a session's implicit wait so fast checks restore this value after bypassing it
+     * @param driver WebDriver instance
+     * @param timeout Implicit wait
+     */
+    public static void setImplicitWait(WebDriver driver, Duration timeout) {
+        FastChecks.setImplicitWait(driver, timeout);
+    }
+
+    /**
+     * Waits for a condition, recording the wait as a trace span and in the wait profiler
+     * @param waitName Name of the wait helper, e.g. "waitForPageTitle"
+     * @param conditionType ExpectedConditions factory used, e.g. "titleIs"
+     * @param target Locator, element or expected value being waited for
+     * @param condition Condition to wait for
+     * @return Value returned by the condition
+     */
+    private <T> T until(String waitName, String conditionType, Object target, ExpectedCondition<T> condition) {
+        // describing an element walks the page's fields, so only profiled or traced waits pay for it
+        String locator = WaitProfiler.isEnabled() || TraceRecorder.isEnabled() ? elementLocators().describe(target) : null;
+        WaitProfiler.Measurement measurement = WaitProfiler.start(waitName, conditionType, locator, BasePage.class.getName());
+        try (TraceRecorder.Span span = TraceRecorder.begin("wait", waitName, PhaseTimer.Phase.PAGE_ACTIONS)) {
+            span.arg("condition", conditionType).arg("locator", locator);
+            return wait.until(condition);
+        } catch (TimeoutException e) {
+            measurement.timedOut();
+            throw e;
+        } finally {
+            measurement.stop();
+        }
+    }
+    
+    /**
+     * Gets the locators of this page's element fields, indexed on first use
+     * @return Element locators
+     */
+    private PageElementLocators elementLocators() {
+        if (elementLocators == null) {
+            elementLocators = new PageElementLocators(this);
+        }
+        return elementLocators;
+    }
+    
+    /**
+     * Starts a trace span for a page action, named after the page-object method that issued it
+     * @param action Page action, e.g. "click"
+     * @return Open span
+     */
+    private static TraceRecorder.Span beginAction(String action) {
+        if (!TraceRecorder.isEnabled()) {
+            return TraceRecorder.begin("page", action, PhaseTimer.Phase.PAGE_ACTIONS);
+        }
+        return TraceRecorder.begin("page", TraceRecorder.callerOf(BasePage.class.getName()) + " -> " + action,
+                PhaseTimer.Phase.PAGE_ACTIONS);
+    }
 } 
\ No newline at end of file
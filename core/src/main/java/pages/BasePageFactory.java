@@ -1,10 +1,18 @@
 package pages;
 
+import org.openqa.selenium.By;
+import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.PageFactory;
+import org.openqa.selenium.support.ui.ExpectedCondition;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
+import utils.tracing.PhaseTimer;
+import utils.tracing.TraceRecorder;
+import utils.tracing.WaitProfiler;
+
+import java.time.Duration;
 
 /**
  * Advanced BasePage class using PageFactory
@@ -14,6 +22,7 @@ public abstract class BasePageFactory {
     
     protected WebDriver driver;
     protected WebDriverWait wait;
+    private PageElementLocators elementLocators;
     
     /**
      * Constructor that initializes PageFactory
@@ -33,7 +42,7 @@ public abstract class BasePageFactory {
      * @return WebElement once visible
      */
     protected WebElement waitForElementVisible(WebElement element) {
-        return wait.until(ExpectedConditions.visibilityOf(element));
+        return until("waitForElementVisible", "visibilityOf", element, ExpectedConditions.visibilityOf(element));
     }
     
     /**
@@ -42,7 +51,7 @@ public abstract class BasePageFactory {
      * @return WebElement once clickable
      */
     protected WebElement waitForElementClickable(WebElement element) {
-        return wait.until(ExpectedConditions.elementToBeClickable(element));
+        return until("waitForElementClickable", "elementToBeClickable", element, ExpectedConditions.elementToBeClickable(element));
     }
     
     /**
@@ -50,7 +59,7 @@ public abstract class BasePageFactory {
      * @param title Expected page title
      */
     protected void waitForPageTitle(String title) {
-        wait.until(ExpectedConditions.titleIs(title));
+        until("waitForPageTitle", "titleIs", title, ExpectedConditions.titleIs(title));
     }
     
     /**
@@ -58,7 +67,9 @@ public abstract class BasePageFactory {
      * @param element WebElement to click
      */
     protected void click(WebElement element) {
-        waitForElementClickable(element).click();
+        try (TraceRecorder.Span span = beginAction("click")) {
+            waitForElementClickable(element).click();
+        }
     }
     
     /**
@@ -67,9 +78,11 @@ public abstract class BasePageFactory {
      * @param text Text to send
      */
     protected void sendKeys(WebElement element, String text) {
-        WebElement visibleElement = waitForElementVisible(element);
-        visibleElement.clear();
-        visibleElement.sendKeys(text);
+        try (TraceRecorder.Span span = beginAction("sendKeys")) {
+            WebElement visibleElement = waitForElementVisible(element);
+            visibleElement.clear();
+            visibleElement.sendKeys(text);
+        }
     }
     
     /**
@@ -78,7 +91,9 @@ public abstract class BasePageFactory {
      * @return Text content of the element
      */
     protected String getText(WebElement element) {
-        return waitForElementVisible(element).getText();
+        try (TraceRecorder.Span span = beginAction("getText")) {
+            return waitForElementVisible(element).getText();
+        }
     }
     
     /**
@@ -87,7 +102,7 @@ public abstract class BasePageFactory {
      * @return true if element is displayed, false otherwise
      */
     protected boolean isElementDisplayed(WebElement element) {
-        try {
+        try (TraceRecorder.Span span = beginAction("isElementDisplayed")) {
             return waitForElementVisible(element).isDisplayed();
         } catch (Exception e) {
             return false;
@@ -100,7 +115,7 @@ public abstract class BasePageFactory {
      * @return WebElement once present
      */
     protected WebElement waitForElementPresent(WebElement element) {
-        return wait.until(ExpectedConditions.visibilityOf(element));
+        return until("waitForElementPresent", "visibilityOf", element, ExpectedConditions.visibilityOf(element));
     }
     
     /**
@@ -109,7 +124,7 @@ public abstract class BasePageFactory {
      * @param text Text to wait for
      */
     protected void waitForTextToBePresent(WebElement element, String text) {
-        wait.until(ExpectedConditions.textToBePresentInElement(element, text));
+        until("waitForTextToBePresent", "textToBePresentInElement", element, ExpectedConditions.textToBePresentInElement(element, text));
     }
     
     /**
@@ -117,7 +132,7 @@ public abstract class BasePageFactory {
      * @param element WebElement to wait for
      */
     protected void waitForElementToDisappear(WebElement element) {
-        wait.until(ExpectedConditions.invisibilityOf(element));
+        until("waitForElementToDisappear", "invisibilityOf", element, ExpectedConditions.invisibilityOf(element));
     }
     
     /**
@@ -135,4 +150,102 @@ public abstract class BasePageFactory {
     public String getCurrentUrl() {
         return driver.getCurrentUrl();
     }
+
+    
+    // Fast negative checks: resolved from the @FindBy locator, so the element proxy's implicit find is never triggered
+    /**
+     * Check if a page element is displayed right now, without waiting
+     * @param element PageFactory element field of this page
+     * @return true if the element is displayed
+     */
+    protected boolean isPresentNow(WebElement element) {
+        return FastChecks.isPresentNow(driver, locatorOf(element));
+    }
+    
+    /**
+     * Check that a page element is not displayed, without waiting
+     * @param element PageFactory element field of this page
+     * @return true if the element is missing or hidden right now
+     */
+    protected boolean isAbsent(WebElement element) {
+        return FastChecks.isAbsent(driver, locatorOf(element));
+    }
+    
+    /**
+     * Wait a short, explicit window for a page element to be removed or hidden
+     * @param element PageFactory element field of this page
+     * @param within Maximum time to wait
+     * @return true if the element is absent within the window
+     */
+    protected boolean waitForAbsence(WebElement element, Duration within) {
+        return FastChecks.waitForAbsence(driver, locatorOf(element), within);
+    }
+    
+    /**
+     * Change the session's implicit wait; fast checks restore this value after bypassing it
+     * @param timeout Implicit wait
+     */
+    protected void setImplicitWait(Duration timeout) {
+        FastChecks.setImplicitWait(driver, timeout);
+    }
+    
+    /**
+     * Get the @FindBy locator of a page element
+     * @param element PageFactory element field of this page
+     * @return By locator declared for the element
+     */
+    protected By locatorOf(WebElement element) {
+        By by = elementLocators().locatorOf(element);
+        if (by == null) {
+            throw new IllegalArgumentException("Element is not a PageFactory field of " + getClass().getSimpleName());
+        }
+        return by;
+    }
+
+    /**
+     * Waits for a condition, recording the wait as a trace span and in the wait profiler
+     * @param waitName Name of the wait helper, e.g. "waitForPageTitle"
+     * @param conditionType ExpectedConditions factory used, e.g. "titleIs"
+     * @param target Locator, element or expected value being waited for
+     * @param condition Condition to wait for
+     * @return Value returned by the condition
+     */
+    private <T> T until(String waitName, String conditionType, Object target, ExpectedCondition<T> condition) {
+        // describing an element walks the page's fields, so only profiled or traced waits pay for it
+        String locator = WaitProfiler.isEnabled() || TraceRecorder.isEnabled() ? elementLocators().describe(target) : null;
+        WaitProfiler.Measurement measurement = WaitProfiler.start(waitName, conditionType, locator, BasePageFactory.class.getName());
+        try (TraceRecorder.Span span = TraceRecorder.begin("wait", waitName, PhaseTimer.Phase.PAGE_ACTIONS)) {
+            span.arg("condition", conditionType).arg("locator", locator);
+            return wait.until(condition);
+        } catch (TimeoutException e) {
+            measurement.timedOut();
+            throw e;
+        } finally {
+            measurement.stop();
+        }
+    }
+    
+    /**
+     * Gets the locators of this page's element fields, indexed on first use
+     * @return Element locators
+     */
+    private PageElementLocators elementLocators() {
+        if (elementLocators == null) {
+            elementLocators = new PageElementLocators(this);
+        }
+        return elementLocators;
+    }
+    
+    /**
+     * Starts a trace span for a page action, named after the page-object method that issued it
+     * @param action Page action, e.g. "click"
+     * @return Open span
+     */
+    private static TraceRecorder.Span beginAction(String action) {
+        if (!TraceRecorder.isEnabled()) {
+            return TraceRecorder.begin("page", action, PhaseTimer.Phase.PAGE_ACTIONS);
+        }
+        return TraceRecorder.begin("page", TraceRecorder.callerOf(BasePageFactory.class.getName()) + " -> " + action,
+                PhaseTimer.Phase.PAGE_ACTIONS);
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,120 @@
+package pages;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.FluentWait;
+import utils.ConfigManager;
+import utils.tracing.TraceRecorder;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Presence and absence checks that do not pay for the session's implicit wait.
+ * The implicit wait is switched off for the duration of the check and restored afterwards to the value
+ * last set through {@link #setImplicitWait(WebDriver, Duration)}, or browser.implicit.wait if none was,
+ * and elements are looked up with findElements, which returns immediately when nothing matches.
+ * Shared by BasePage and BasePageFactory.
+ */
+final class FastChecks {
+
+    private static final int IMPLICIT_WAIT_SECONDS = ConfigManager.getIntProperty("browser.implicit.wait", 10);
+    private static final Duration POLLING_INTERVAL = Duration.ofMillis(100);
+
+    // Selenium 3 cannot read the implicit wait back from a session, so it is recorded when set
+    private static final Map<WebDriver, Long> implicitWaitMillis = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private FastChecks() {
+    }
+
+    /**
+     * Sets the session's implicit wait and records it, so checks restore it instead of the configured default
+     * @param driver WebDriver instance
+     * @param timeout Implicit wait
+     */
+    static void setImplicitWait(WebDriver driver, Duration timeout) {
+        driver.manage().timeouts().implicitlyWait(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        implicitWaitMillis.put(driver, timeout.toMillis());
+    }
+
+    /**
+     * Checks whether an element matching the locator is displayed right now
+     * @param driver WebDriver instance
+     * @param by By locator
+     * @return true if at least one matching element is displayed
+     */
+    static boolean isPresentNow(WebDriver driver, By by) {
+        try (TraceRecorder.Span span = TraceRecorder.begin("wait", "isPresentNow").arg("locator", by)) {
+            return withoutImplicitWait(driver, () -> anyDisplayed(driver, by));
+        }
+    }
+
+    /**
+     * Checks whether no element matching the locator is displayed right now
+     * @param driver WebDriver instance
+     * @param by By locator
+     * @return true if nothing matching is displayed
+     */
+    static boolean isAbsent(WebDriver driver, By by) {
+        return !isPresentNow(driver, by);
+    }
+
+    /**
+     * Waits up to the given window for every element matching the locator to be gone or hidden
+     * @param driver WebDriver instance
+     * @param by By locator
+     * @param within Maximum time to wait
+     * @return true if the element is absent within the window, false if it is still displayed
+     */
+    static boolean waitForAbsence(WebDriver driver, By by, Duration within) {
+        try (TraceRecorder.Span span = TraceRecorder.begin("wait", "waitForAbsence").arg("locator", by)) {
+            return withoutImplicitWait(driver, () -> {
+                try {
+                    return new FluentWait<>(driver)
+                            .withTimeout(within)
+                            .pollingEvery(POLLING_INTERVAL)
+                            .until(d -> !anyDisplayed(d, by));
+                } catch (TimeoutException e) {
+                    return false;
+                }
+            });
+        }
+    }
+
+    private static boolean anyDisplayed(WebDriver driver, By by) {
+        List<WebElement> elements = driver.findElements(by);
+        for (WebElement element : elements) {
+            try {
+                if (element.isDisplayed()) {
+                    return true;
+                }
+            } catch (WebDriverException e) {
+                // element went stale between the lookup and the check; it is no longer displayed
+            }
+        }
+        return false;
+    }
+
+    private static <T> T withoutImplicitWait(WebDriver driver, Supplier<T> check) {
+        Long recorded = implicitWaitMillis.get(driver);
+        long restoreMillis = recorded != null ? recorded : TimeUnit.SECONDS.toMillis(IMPLICIT_WAIT_SECONDS);
+        if (restoreMillis == 0) {
+            return check.get();
+        }
+        WebDriver.Timeouts timeouts = driver.manage().timeouts();
+        timeouts.implicitlyWait(0, TimeUnit.MILLISECONDS);
+        try {
+            return check.get();
+        } finally {
+            timeouts.implicitlyWait(restoreMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
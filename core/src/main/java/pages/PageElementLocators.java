@@ -0,0 +1,65 @@
+package pages;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.pagefactory.Annotations;
+
+import java.lang.reflect.Field;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Maps the PageFactory element proxies of a page object back to the By locators
+ * declared in their @FindBy annotations.
+ * Looking up the locator this way never touches the proxy, so it does not trigger
+ * the implicit find that calling any method (even toString) on the proxy would.
+ */
+final class PageElementLocators {
+
+    private final Map<WebElement, By> locators = new IdentityHashMap<>();
+
+    /**
+     * Indexes the WebElement fields of an initialized page object
+     * @param page Page object after PageFactory.initElements
+     */
+    PageElementLocators(Object page) {
+        for (Class<?> type = page.getClass(); type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (!WebElement.class.equals(field.getType())) {
+                    continue;
+                }
+                try {
+                    field.setAccessible(true);
+                    Object element = field.get(page);
+                    if (element != null) {
+                        locators.put((WebElement) element, new Annotations(field).buildBy());
+                    }
+                } catch (IllegalAccessException | RuntimeException e) {
+                    // Field is not a PageFactory element; leave it unmapped
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the locator of a page element
+     * @param element PageFactory element proxy
+     * @return Declared By locator, or null if the element is not a field of the page
+     */
+    By locatorOf(WebElement element) {
+        return locators.get(element);
+    }
+
+    /**
+     * Describes a wait target without touching element proxies
+     * @param target By locator, WebElement or expected value
+     * @return Human-readable description
+     */
+    String describe(Object target) {
+        if (target instanceof WebElement) {
+            By by = locatorOf((WebElement) target);
+            return by != null ? by.toString() : "unmapped element";
+        }
+        return String.valueOf(target);
+    }
+}
@@ -0,0 +1,113 @@
+package pages.http;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.openqa.selenium.By;
+
+import java.util.Locale;
+
+/**
+ * A page fetched by {@link HttpSession} and parsed without a browser.
+ * Answers static questions about the served HTML: title, presence, text and attributes of elements.
+ * No JavaScript runs and no stylesheet is applied, so "displayed" only means that the element and
+ * its ancestors are not hidden by a hidden attribute, type="hidden" or an inline display:none.
+ */
+public class HttpPage {
+
+    private final String url;
+    private final int statusCode;
+    private final Document document;
+
+    /**
+     * Constructor
+     * @param url Final URL after redirects
+     * @param statusCode HTTP status code
+     * @param document Parsed HTML
+     */
+    public HttpPage(String url, int statusCode, Document document) {
+        this.url = url;
+        this.statusCode = statusCode;
+        this.document = document;
+    }
+
+    public String getCurrentUrl() {
+        return url;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getTitle() {
+        return document.title();
+    }
+
+    public String getPageSource() {
+        return document.outerHtml();
+    }
+
+    /**
+     * Finds the elements matching a locator
+     * @param by Selenium locator; id, name, className, tagName, cssSelector, xpath, linkText and partialLinkText are supported
+     * @return Matching elements, empty if none
+     */
+    public Elements find(By by) {
+        return JsoupLocators.select(document, by);
+    }
+
+    /**
+     * Checks whether the served HTML contains an element
+     * @param by Locator
+     * @return true if at least one element matches
+     */
+    public boolean isPresent(By by) {
+        return !find(by).isEmpty();
+    }
+
+    /**
+     * Checks whether an element would be displayed, as far as the HTML alone tells
+     * @param by Locator
+     * @return true if a matching element is not statically hidden
+     */
+    public boolean isDisplayed(By by) {
+        for (Element element : find(by)) {
+            if (isStaticallyVisible(element)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the text of the first matching element
+     * @param by Locator
+     * @return Normalised text, or null if nothing matches
+     */
+    public String getText(By by) {
+        Elements elements = find(by);
+        return elements.isEmpty() ? null : elements.first().text();
+    }
+
+    /**
+     * Gets an attribute of the first matching element
+     * @param by Locator
+     * @param name Attribute name
+     * @return Attribute value, empty if the element lacks it, or null if nothing matches
+     */
+    public String getAttribute(By by, String name) {
+        Elements elements = find(by);
+        return elements.isEmpty() ? null : elements.first().attr(name);
+    }
+
+    private static boolean isStaticallyVisible(Element element) {
+        for (Element current = element; current != null; current = current.parent()) {
+            String style = current.attr("style").replace(" ", "").toLowerCase(Locale.ROOT);
+            if (current.hasAttr("hidden") || "hidden".equalsIgnoreCase(current.attr("type"))
+                    || style.contains("display:none") || style.contains("visibility:hidden")) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
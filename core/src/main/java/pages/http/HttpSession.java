@@ -0,0 +1,48 @@
+package pages.http;
+
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.ConfigManager;
+import utils.tracing.TraceRecorder;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fetches pages with a plain HTTP client instead of a browser, for checks on the served HTML
+ * that need no JavaScript. Follows redirects and keeps cookies between requests like a browser tab.
+ */
+public class HttpSession {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpSession.class);
+
+    private final Map<String, String> cookies = new HashMap<>();
+    private final int timeoutMillis = ConfigManager.getIntProperty("http.tier.timeout.seconds", 30) * 1000;
+    private final String userAgent = ConfigManager.getProperty("http.tier.user.agent", "Mozilla/5.0");
+
+    /**
+     * Fetches and parses a page
+     * @param url Page URL
+     * @return Parsed page, whatever its status code
+     * @throws IllegalStateException if the page cannot be fetched or is not HTML
+     */
+    public HttpPage open(String url) {
+        try (TraceRecorder.Span span = TraceRecorder.begin("http", "GET").arg("url", url)) {
+            Connection.Response response = Jsoup.connect(url)
+                    .cookies(cookies)
+                    .userAgent(userAgent)
+                    .timeout(timeoutMillis)
+                    .followRedirects(true)
+                    .ignoreHttpErrors(true)
+                    .execute();
+            cookies.putAll(response.cookies());
+            logger.info("Fetched {} ({})", response.url(), response.statusCode());
+            return new HttpPage(response.url().toString(), response.statusCode(), response.parse());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to fetch " + url + ": " + e.getMessage(), e);
+        }
+    }
+}
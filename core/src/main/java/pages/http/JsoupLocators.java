@@ -0,0 +1,64 @@
+package pages.http;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.select.Elements;
+import org.openqa.selenium.By;
+
+/**
+ * Runs Selenium {@link By} locators against a parsed jsoup document, so page objects can share
+ * their locators between the browser and the HTTP-only backend.
+ * The locator kind is read from By.toString(), e.g. "By.id: userName".
+ */
+final class JsoupLocators {
+
+    private JsoupLocators() {
+    }
+
+    /**
+     * Finds the elements matching a locator
+     * @param document Parsed page
+     * @param by Selenium locator
+     * @return Matching elements in document order
+     * @throws IllegalArgumentException for a locator kind that has no jsoup equivalent
+     */
+    static Elements select(Document document, By by) {
+        String description = by.toString();
+        int colon = description.indexOf(": ");
+        if (!description.startsWith("By.") || colon < 0) {
+            throw new IllegalArgumentException("Unsupported locator for HTTP-only pages: " + description);
+        }
+        String kind = description.substring("By.".length(), colon);
+        String value = description.substring(colon + 2);
+        switch (kind) {
+            case "id":
+                return document.getElementsByAttributeValue("id", value);
+            case "name":
+                return document.getElementsByAttributeValue("name", value);
+            case "className":
+                return document.getElementsByClass(value);
+            case "tagName":
+                return document.getElementsByTag(value);
+            case "cssSelector":
+                return document.select(value);
+            case "xpath":
+                return document.selectXpath(value);
+            case "linkText":
+                return linksWithText(document, value, true);
+            case "partialLinkText":
+                return linksWithText(document, value, false);
+            default:
+                throw new IllegalArgumentException("Unsupported locator for HTTP-only pages: " + description);
+        }
+    }
+
+    private static Elements linksWithText(Document document, String text, boolean exact) {
+        Elements links = new Elements();
+        for (org.jsoup.nodes.Element link : document.getElementsByTag("a")) {
+            String linkText = link.text().trim();
+            if (exact ? linkText.equals(text) : linkText.contains(text)) {
+                links.add(link);
+            }
+        }
+        return links;
+    }
+}
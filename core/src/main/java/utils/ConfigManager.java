@@ -1,59 +1,137 @@
 package utils;
 
-import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 
+/**
+ * Static access to the current {@link ConfigSnapshot}.
+ * The snapshot merges config.properties, config-&lt;env&gt;.properties (selected with -Denv=dev),
+ * environment variables and system properties. Reads go through a volatile reference and never lock;
+ * with config.reload.enabled=true a {@link ConfigWatcher} swaps in a new snapshot when a file changes.
+ */
 public class ConfigManager {
     
-    private static Properties properties;
     private static final String CONFIG_FILE = "config.properties";
+    private static final String PROFILE_PROPERTY = "env";
+    private static final String DIRECTORY_PROPERTY = "config.directory";
+    
+    private static volatile ConfigSnapshot snapshot;
     
     static {
-        loadProperties();
+        List<Path> files = new ArrayList<>();
+        snapshot = load(files);
+        List<String> problems = snapshot.validate();
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("Invalid configuration: " + String.join("; ", problems));
+        }
+        if (snapshot.getBoolean("config.reload.enabled")) {
+            ConfigWatcher.start(files);
+        }
     }
     
-    private static void loadProperties() {
-        properties = new Properties();
+    private static ConfigSnapshot load(List<Path> files) {
+        String profileName = System.getProperty(PROFILE_PROPERTY, "").trim();
+        Properties base = loadFile(CONFIG_FILE, files);
+        Properties profile = profileName.isEmpty() ? new Properties()
+                : loadFile("config-" + profileName + ".properties", files);
+        return new ConfigSnapshot(base, profileName, profile, System.getenv(),
+                (Properties) System.getProperties().clone());
+    }
+    
+    private static Properties loadFile(String name, List<Path> files) {
+        Properties properties = new Properties();
         try {
-            // Try to load from classpath first
-            java.io.InputStream is = ConfigManager.class.getClassLoader().getResourceAsStream(CONFIG_FILE);
-            if (is != null) {
+            URL url = locate(name);
+            try (InputStream is = url.openStream()) {
                 properties.load(is);
-                is.close();
-            } else {
-                // Fallback to file system path
-                FileInputStream fis = new FileInputStream("src/main/resources/" + CONFIG_FILE);
-                properties.load(fis);
-                fis.close();
             }
-        } catch (IOException e) {
+            if ("file".equals(url.getProtocol())) {
+                files.add(Paths.get(url.toURI()));
+            }
+        } catch (IOException | URISyntaxException e) {
             throw new RuntimeException("Failed to load configuration file: " + e.getMessage());
         }
+        return properties;
+    }
+    
+    private static URL locate(String name) throws IOException {
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        if (directory != null) {
+            return Paths.get(directory, name).toUri().toURL();
+        }
+        // Try the classpath first, then the source tree
+        URL url = ConfigManager.class.getClassLoader().getResource(name);
+        if (url != null) {
+            return url;
+        }
+        Path path = Paths.get("src/main/resources/" + name);
+        if (!Files.exists(path)) {
+            throw new FileNotFoundException(name);
+        }
+        return path.toUri().toURL();
+    }
+    
+    /**
+     * Gets the snapshot in effect; hold on to it when several values must be read consistently
+     * @return Current snapshot
+     */
+    public static ConfigSnapshot snapshot() {
+        return snapshot;
+    }
+    
+    /**
+     * Reloads every layer and swaps in the new snapshot if it is valid
+     * @return Keys whose values changed
+     * @throws IllegalStateException if the new configuration is invalid; the current snapshot is kept
+     */
+    public static Set<String> reload() {
+        ConfigSnapshot next = load(new ArrayList<>());
+        List<String> problems = next.validate();
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("Invalid configuration: " + String.join("; ", problems));
+        }
+        Set<String> changed = next.changedKeys(snapshot);
+        snapshot = next;
+        return changed;
     }
     
     public static String getProperty(String key) {
-        return properties.getProperty(key);
+        return snapshot.get(key);
     }
     
     public static String getProperty(String key, String defaultValue) {
-        return properties.getProperty(key, defaultValue);
+        String value = getProperty(key);
+        return value != null ? value : defaultValue;
     }
     
     public static int getIntProperty(String key) {
-        return Integer.parseInt(getProperty(key));
+        return snapshot.getInt(key);
     }
     
     public static int getIntProperty(String key, int defaultValue) {
-        try {
-            return Integer.parseInt(getProperty(key));
-        } catch (NumberFormatException e) {
-            return defaultValue;
-        }
+        return snapshot.getInt(key, defaultValue);
+    }
+    
+    public static double getDoubleProperty(String key, double defaultValue) {
+        return snapshot.getDouble(key, defaultValue);
     }
     
     public static boolean getBooleanProperty(String key) {
-        return Boolean.parseBoolean(getProperty(key));
+        return snapshot.getBoolean(key);
+    }
+    
+    public static List<String> getListProperty(String key) {
+        return snapshot.getList(key);
     }
     
     // Convenience methods for common properties
@@ -72,4 +150,4 @@ public class ConfigManager {
     public static String getDefaultBrowser() {
         return getProperty("browser.default", "chrome");
     }
-} 
\ No newline at end of file
+}
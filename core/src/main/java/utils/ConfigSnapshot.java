@@ -0,0 +1,235 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Immutable view of the configuration, merged from layers in increasing priority:
+ * config.properties, the profile file (config-&lt;env&gt;.properties), environment variables
+ * and system properties. Integer, double, boolean and list values are parsed once when
+ * the snapshot is built, so reads are plain map lookups.
+ */
+public final class ConfigSnapshot {
+
+    private static final String SYSTEM = "system property";
+
+    private final String profile;
+    private final Map<String, String> values;
+    private final Map<String, String> sources;
+    private final Map<String, Integer> ints = new HashMap<>();
+    private final Map<String, Double> doubles = new HashMap<>();
+    private final Map<String, Boolean> booleans = new HashMap<>();
+    private final Map<String, List<String>> lists = new HashMap<>();
+    private final List<String> problems = new ArrayList<>();
+
+    /**
+     * Constructor
+     * @param base Values of config.properties; their types are the types the other layers must keep
+     * @param profileName Selected profile, e.g. "dev", or empty for none
+     * @param profile Values of the profile file
+     * @param environment Environment variables; only keys known from the files are taken,
+     *                    named in upper case with dots replaced by underscores (BROWSER_IMPLICIT_WAIT)
+     * @param system System properties
+     */
+    public ConfigSnapshot(Properties base, String profileName, Properties profile,
+                          Map<String, String> environment, Properties system) {
+        this.profile = profileName == null ? "" : profileName;
+        Map<String, String> merged = new LinkedHashMap<>();
+        Map<String, String> origin = new HashMap<>();
+        put(merged, origin, base, "config.properties");
+        put(merged, origin, profile, "config-" + this.profile + ".properties");
+        for (String key : new ArrayList<>(merged.keySet())) {
+            String value = environment.get(environmentName(key));
+            if (value != null) {
+                merged.put(key, value);
+                origin.put(key, "environment " + environmentName(key));
+            }
+        }
+        put(merged, origin, system, SYSTEM);
+        this.values = Collections.unmodifiableMap(merged);
+        this.sources = Collections.unmodifiableMap(origin);
+
+        for (Map.Entry<String, String> entry : merged.entrySet()) {
+            parse(entry.getKey(), entry.getValue());
+        }
+        for (String key : base.stringPropertyNames()) {
+            check(key, base.getProperty(key).trim(), merged.get(key).trim());
+        }
+    }
+
+    /**
+     * Gets the environment variable that overrides a key
+     * @param key Property key, e.g. "browser.implicit.wait"
+     * @return Variable name, e.g. "BROWSER_IMPLICIT_WAIT"
+     */
+    public static String environmentName(String key) {
+        return key.toUpperCase().replaceAll("[^A-Z0-9]", "_");
+    }
+
+    private static void put(Map<String, String> merged, Map<String, String> origin, Properties layer, String source) {
+        for (String key : layer.stringPropertyNames()) {
+            merged.put(key, layer.getProperty(key));
+            origin.put(key, source);
+        }
+    }
+
+    private void parse(String key, String value) {
+        String trimmed = value.trim();
+        try {
+            ints.put(key, Integer.parseInt(trimmed));
+        } catch (NumberFormatException e) {
+            // not an integer
+        }
+        try {
+            doubles.put(key, Double.parseDouble(trimmed));
+        } catch (NumberFormatException e) {
+            // not a number
+        }
+        booleans.put(key, Boolean.parseBoolean(trimmed));
+        List<String> items = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (!item.trim().isEmpty()) {
+                items.add(item.trim());
+            }
+        }
+        lists.put(key, Collections.unmodifiableList(items));
+    }
+
+    private void check(String key, String baseValue, String value) {
+        if (isInteger(baseValue) && !isInteger(value)) {
+            problems.add(key + "=" + value + " (from " + sources.get(key) + ") is not an integer");
+        } else if (isNumber(baseValue) && !isNumber(value)) {
+            problems.add(key + "=" + value + " (from " + sources.get(key) + ") is not a number");
+        } else if (isBoolean(baseValue) && !isBoolean(value)) {
+            problems.add(key + "=" + value + " (from " + sources.get(key) + ") is not true or false");
+        }
+    }
+
+    private static boolean isInteger(String value) {
+        return value.matches("[-+]?\\d+");
+    }
+
+    private static boolean isNumber(String value) {
+        return value.matches("[-+]?\\d+(\\.\\d+)?");
+    }
+
+    private static boolean isBoolean(String value) {
+        return "true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value);
+    }
+
+    /**
+     * Lists values whose type differs from the type of the same key in config.properties
+     * @return Problems, empty if the snapshot is valid
+     */
+    public List<String> validate() {
+        return Collections.unmodifiableList(problems);
+    }
+
+    public String getProfile() {
+        return profile;
+    }
+
+    /**
+     * Gets a raw value
+     * @param key Property key
+     * @return Value, or null if no layer defines the key
+     */
+    public String get(String key) {
+        return values.get(key);
+    }
+
+    /**
+     * Gets the layer a value came from
+     * @param key Property key
+     * @return Source description, e.g. "config-dev.properties" or "system property", or null
+     */
+    public String sourceOf(String key) {
+        return sources.get(key);
+    }
+
+    /**
+     * Gets an integer value
+     * @param key Property key
+     * @return Parsed value
+     * @throws NumberFormatException if the key is missing or not an integer
+     */
+    public int getInt(String key) {
+        Integer value = ints.get(key);
+        if (value == null) {
+            throw new NumberFormatException(key + "=" + values.get(key) + " is not an integer");
+        }
+        return value;
+    }
+
+    /**
+     * Gets an integer value
+     * @param key Property key
+     * @param defaultValue Value used when the key is missing or not an integer
+     * @return Parsed value or the default
+     */
+    public int getInt(String key, int defaultValue) {
+        Integer value = ints.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * Gets a decimal value
+     * @param key Property key
+     * @param defaultValue Value used when the key is missing or not a number
+     * @return Parsed value or the default
+     */
+    public double getDouble(String key, double defaultValue) {
+        Double value = doubles.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * Gets a boolean value
+     * @param key Property key
+     * @return true only if the value is "true", ignoring case
+     */
+    public boolean getBoolean(String key) {
+        return Boolean.TRUE.equals(booleans.get(key));
+    }
+
+    /**
+     * Gets a comma-separated value as a list
+     * @param key Property key
+     * @return Trimmed, non-empty items; empty if the key is missing
+     */
+    public List<String> getList(String key) {
+        List<String> value = lists.get(key);
+        return value != null ? value : Collections.<String>emptyList();
+    }
+
+    /**
+     * Lists the keys whose values differ between two snapshots; keys set only by system properties
+     * are ignored, since the JVM sets some of those lazily
+     * @param other Snapshot to compare with
+     * @return Changed, added and removed keys, sorted
+     */
+    public Set<String> changedKeys(ConfigSnapshot other) {
+        Set<String> keys = new TreeSet<>(values.keySet());
+        keys.addAll(other.values.keySet());
+        Set<String> changed = new TreeSet<>();
+        for (String key : keys) {
+            boolean systemOnly = !isFileOrEnvironment(sourceOf(key)) && !isFileOrEnvironment(other.sourceOf(key));
+            if (!systemOnly && !Objects.equals(values.get(key), other.values.get(key))) {
+                changed.add(key);
+            }
+        }
+        return changed;
+    }
+
+    private static boolean isFileOrEnvironment(String source) {
+        return source != null && !SYSTEM.equals(source);
+    }
+}
@@ -0,0 +1,107 @@
+package utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Watches the loaded configuration files and calls {@link ConfigManager#reload()} when one changes,
+ * for long soak runs. Values cached in static fields at class load keep their first value.
+ */
+final class ConfigWatcher implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigWatcher.class);
+    private static final long SETTLE_MILLIS = 250;
+
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Set<Path> files = new HashSet<>();
+
+    private ConfigWatcher(List<Path> files) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        for (Path file : files) {
+            Path absolute = file.toAbsolutePath().normalize();
+            this.files.add(absolute);
+            Path directory = absolute.getParent();
+            if (!directories.containsValue(directory)) {
+                directories.put(directory.register(watchService,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE), directory);
+            }
+        }
+    }
+
+    /**
+     * Starts watching on a daemon thread
+     * @param files Configuration files that were loaded from the file system
+     */
+    static void start(List<Path> files) {
+        if (files.isEmpty()) {
+            logger.warn("config.reload.enabled is set, but the configuration was not loaded from files; not watching");
+            return;
+        }
+        try {
+            Thread thread = new Thread(new ConfigWatcher(files), "config-watcher");
+            thread.setDaemon(true);
+            thread.start();
+            logger.info("Watching {} for configuration changes", files);
+        } catch (IOException e) {
+            logger.warn("Could not watch configuration files: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = isConfigChange(key);
+                if (changed) {
+                    // editors often write a file in several steps; let them finish and drop the follow-up events
+                    Thread.sleep(SETTLE_MILLIS);
+                    WatchKey pending;
+                    while ((pending = watchService.poll()) != null) {
+                        pending.pollEvents();
+                        pending.reset();
+                    }
+                    reload();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean isConfigChange(WatchKey key) {
+        Path directory = directories.get(key);
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (directory != null && event.context() instanceof Path
+                    && files.contains(directory.resolve((Path) event.context()))) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    private static void reload() {
+        try {
+            Set<String> changed = ConfigManager.reload();
+            logger.info("Configuration reloaded; changed keys: {}", changed);
+        } catch (RuntimeException e) {
+            logger.warn("Configuration not reloaded, keeping the current values: {}", e.getMessage());
+        }
+    }
+}
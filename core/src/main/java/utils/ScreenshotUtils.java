@@ -5,12 +5,14 @@ import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import utils.resources.ResourceAllocator;
+import utils.tracing.PhaseTimer;
+import utils.tracing.TraceRecorder;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -19,7 +21,8 @@ import java.util.List;
 public class ScreenshotUtils {
     
     private static final Logger logger = LoggerFactory.getLogger(ScreenshotUtils.class);
-    private static final String SCREENSHOT_DIR = "screenshots";
+    private static final Path SCREENSHOT_DIR =
+            ResourceAllocator.artifactPath(ConfigManager.getProperty("screenshot.directory", "screenshots"));
     private static final String SCREENSHOT_FORMAT = "png";
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
     
@@ -35,27 +38,28 @@ public class ScreenshotUtils {
             logger.warn("WebDriver is null, cannot capture screenshot");
             return null;
         }
+        if (!(driver instanceof TakesScreenshot)) {
+            logger.warn("WebDriver renders no pixels (e.g. htmlunit), cannot capture screenshot");
+            return null;
+        }
         
-        try {
+        try (PhaseTimer.Timing timing = PhaseTimer.start(PhaseTimer.Phase.SCREENSHOTS)) {
             // Create screenshots directory if it doesn't exist
             createScreenshotDirectory();
             
             // Generate filename with timestamp
-            String timestamp = LocalDateTime.now().format(DATE_FORMATTER);
-            String fileName = String.format("%s_%s_%s.%s", 
-                className, testName, timestamp, SCREENSHOT_FORMAT);
+            String fileName = fileName(LocalDateTime.now(), className, testName);
             
-            // Remove special characters from filename
-            fileName = fileName.replaceAll("[^a-zA-Z0-9._-]", "_");
-            
-            Path screenshotPath = Paths.get(SCREENSHOT_DIR, fileName);
+            Path screenshotPath = SCREENSHOT_DIR.resolve(fileName);
             
             // Capture screenshot
-            TakesScreenshot ts = (TakesScreenshot) driver;
-            File screenshotFile = ts.getScreenshotAs(OutputType.FILE);
-            
-            // Copy file to destination
-            Files.copy(screenshotFile.toPath(), screenshotPath);
+            try (TraceRecorder.Span span = TraceRecorder.begin("screenshot", fileName)) {
+                TakesScreenshot ts = (TakesScreenshot) driver;
+                File screenshotFile = ts.getScreenshotAs(OutputType.FILE);
+                
+                // Copy file to destination
+                Files.copy(screenshotFile.toPath(), screenshotPath);
+            }
             
             logger.info("Screenshot captured successfully: {}", screenshotPath.toString());
             return screenshotPath.toString();
@@ -69,6 +73,17 @@ public class ScreenshotUtils {
         }
     }
     
+    /**
+     * Builds a screenshot file name from name parts and a timestamp, with special characters replaced by '_'
+     * @param time Capture time
+     * @param nameParts Parts joined with '_', e.g. test class and method name
+     * @return File name such as "LoginTest_testLogin_2024-01-15_10-30-00.png"
+     */
+    public static String fileName(LocalDateTime time, String... nameParts) {
+        String fileName = String.format("%s_%s.%s", String.join("_", nameParts), time.format(DATE_FORMATTER), SCREENSHOT_FORMAT);
+        return fileName.replaceAll("[^a-zA-Z0-9._-]", "_");
+    }
+
     /**
      * Captures a screenshot with a custom filename
      * @param driver WebDriver instance
@@ -80,26 +95,28 @@ public class ScreenshotUtils {
             logger.warn("WebDriver is null, cannot capture screenshot");
             return null;
         }
+        if (!(driver instanceof TakesScreenshot)) {
+            logger.warn("WebDriver renders no pixels (e.g. htmlunit), cannot capture screenshot");
+            return null;
+        }
         
-        try {
+        try (PhaseTimer.Timing timing = PhaseTimer.start(PhaseTimer.Phase.SCREENSHOTS)) {
             // Create screenshots directory if it doesn't exist
             createScreenshotDirectory();
             
             // Generate filename with timestamp
-            String timestamp = LocalDateTime.now().format(DATE_FORMATTER);
-            String fileName = String.format("%s_%s.%s", customName, timestamp, SCREENSHOT_FORMAT);
+            String fileName = fileName(LocalDateTime.now(), customName);
             
-            // Remove special characters from filename
-            fileName = fileName.replaceAll("[^a-zA-Z0-9._-]", "_");
-            
-            Path screenshotPath = Paths.get(SCREENSHOT_DIR, fileName);
+            Path screenshotPath = SCREENSHOT_DIR.resolve(fileName);
             
             // Capture screenshot
-            TakesScreenshot ts = (TakesScreenshot) driver;
-            File screenshotFile = ts.getScreenshotAs(OutputType.FILE);
-            
-            // Copy file to destination
-            Files.copy(screenshotFile.toPath(), screenshotPath);
+            try (TraceRecorder.Span span = TraceRecorder.begin("screenshot", fileName)) {
+                TakesScreenshot ts = (TakesScreenshot) driver;
+                File screenshotFile = ts.getScreenshotAs(OutputType.FILE);
+                
+                // Copy file to destination
+                Files.copy(screenshotFile.toPath(), screenshotPath);
+            }
             
             logger.info("Screenshot captured successfully: {}", screenshotPath.toString());
             return screenshotPath.toString();
@@ -117,7 +134,7 @@ public class ScreenshotUtils {
      * Creates the screenshots directory if it doesn't exist
      */
     private static void createScreenshotDirectory() throws IOException {
-        Path screenshotDir = Paths.get(SCREENSHOT_DIR);
+        Path screenshotDir = SCREENSHOT_DIR;
         if (!Files.exists(screenshotDir)) {
             Files.createDirectories(screenshotDir);
             logger.info("Created screenshots directory: {}", screenshotDir.toString());
@@ -129,8 +146,15 @@ public class ScreenshotUtils {
      * @param daysToKeep Number of days to keep screenshots
      */
     public static void cleanupOldScreenshots(int daysToKeep) {
+        // every worker's screenshots, not only this one's, so no worker directory grows forever
+        for (Path screenshotDir : ResourceAllocator.allArtifactPaths(
+                ConfigManager.getProperty("screenshot.directory", "screenshots"))) {
+            cleanupOldScreenshots(screenshotDir, daysToKeep);
+        }
+    }
+    
+    private static void cleanupOldScreenshots(Path screenshotDir, int daysToKeep) {
         try {
-            Path screenshotDir = Paths.get(SCREENSHOT_DIR);
             if (!Files.exists(screenshotDir)) {
                 return;
             }
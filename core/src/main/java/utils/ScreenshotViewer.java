@@ -2,11 +2,11 @@ package utils;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import utils.resources.ResourceAllocator;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -18,33 +18,33 @@ import java.util.List;
 public class ScreenshotViewer {
     
     private static final Logger logger = LoggerFactory.getLogger(ScreenshotViewer.class);
-    private static final String SCREENSHOT_DIR = "screenshots";
+    private static final String SCREENSHOT_DIRECTORY = ConfigManager.getProperty("screenshot.directory", "screenshots");
     
     /**
-     * Lists all screenshots in the screenshots directory
+     * Lists all screenshots in the screenshots directory of every worker
      * @return List of screenshot file paths
      */
     public static List<String> listScreenshots() {
-        try {
-            Path screenshotDir = Paths.get(SCREENSHOT_DIR);
+        List<String> screenshots = new ArrayList<>();
+        for (Path screenshotDir : ResourceAllocator.allArtifactPaths(SCREENSHOT_DIRECTORY)) {
             if (!Files.exists(screenshotDir)) {
-                logger.info("Screenshots directory does not exist");
-                return new ArrayList<>();
+                continue;
             }
-            
-            List<String> screenshots = new ArrayList<>();
-            for (Path path : Files.newDirectoryStream(screenshotDir)) {
-                if (path.toString().endsWith(".png")) {
-                    screenshots.add(path.toString());
+            try {
+                for (Path path : Files.newDirectoryStream(screenshotDir)) {
+                    if (path.toString().endsWith(".png")) {
+                        screenshots.add(path.toString());
+                    }
                 }
+            } catch (IOException e) {
+                logger.error("Error listing screenshots in {}: {}", screenshotDir, e.getMessage());
             }
-            screenshots.sort(String::compareTo);
-            return screenshots;
-                
-        } catch (IOException e) {
-            logger.error("Error listing screenshots: {}", e.getMessage());
-            return new ArrayList<>();
         }
+        if (screenshots.isEmpty()) {
+            logger.info("No screenshots found");
+        }
+        screenshots.sort(String::compareTo);
+        return screenshots;
     }
     
     /**
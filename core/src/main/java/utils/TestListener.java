@@ -2,16 +2,46 @@ package utils;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.testng.IExecutionListener;
 import org.testng.ITestContext;
 import org.testng.ITestListener;
 import org.testng.ITestResult;
+import utils.history.TestHistoryRecorder;
+import utils.history.TestOutcome;
+import utils.logging.StdoutRedirector;
+import utils.logging.TestLogCapture;
+import utils.reporting.AsyncReportWriter;
+import utils.resources.ConcurrencyGovernor;
+import utils.resources.ProfileTemplates;
+import utils.retry.DeferredRetries;
+import utils.retry.SmartRetryAnalyzer;
 
-public class TestListener implements ITestListener {
+import java.nio.file.Path;
+
+public class TestListener implements ITestListener, IExecutionListener {
     
     private static final Logger logger = LoggerFactory.getLogger(TestListener.class);
     
+    private static final boolean CAPTURE_STDOUT = Boolean.parseBoolean(ConfigManager.getProperty("log.capture.stdout", "true"));
+    // Result attribute holding the id of the result's log capture; concurrent invocations of a test each have one
+    private static final String LOG_INVOCATION_ATTRIBUTE = "log.invocation";
+    
+    private final TestHistoryRecorder historyRecorder = new TestHistoryRecorder();
+    
+    @Override
+    public void onExecutionStart() {
+        AsyncReportWriter.executionStarted();
+    }
+    
+    @Override
+    public void onExecutionFinish() {
+        // the last report page and the index are complete when TestNG returns, not only at JVM exit
+        AsyncReportWriter.executionFinished();
+    }
+    
     @Override
     public void onTestStart(ITestResult result) {
+        result.setAttribute(LOG_INVOCATION_ATTRIBUTE, TestLogCapture.begin(TestHistoryRecorder.testIdOf(result)));
         logger.info("Starting test: {} in class: {}", 
                    result.getName(), result.getTestClass().getName());
     }
@@ -20,6 +50,10 @@ public class TestListener implements ITestListener {
     public void onTestSuccess(ITestResult result) {
         logger.info("Test PASSED: {} in class: {}", 
                    result.getName(), result.getTestClass().getName());
+        recordHistory(result, TestOutcome.Status.PASS);
+        TestLogCapture.end(logInvocationOf(result), false);
+        AsyncReportWriter.submit(result, TestOutcome.Status.PASS);
+        ConcurrencyGovernor.testFinished();
     }
     
     @Override
@@ -27,15 +61,35 @@ public class TestListener implements ITestListener {
         logger.error("Test FAILED: {} in class: {}", 
                     result.getName(), result.getTestClass().getName());
         logger.error("Failure reason: {}", result.getThrowable().getMessage());
+        recordHistory(result, TestOutcome.Status.FAIL);
         
         // Capture screenshot on failure
         captureScreenshotOnFailure(result);
+        
+        saveTestLog(result);
+        AsyncReportWriter.submit(result, TestOutcome.Status.FAIL);
+        ConcurrencyGovernor.testFinished();
     }
     
     @Override
     public void onTestSkipped(ITestResult result) {
+        if (result.getAttribute(SmartRetryAnalyzer.DEFERRED_ATTRIBUTE) != null) {
+            // A failure deferred to the retry block: keep its evidence, the retry decides the outcome
+            logger.warn("Test FAILED, retry deferred: {} in class: {}",
+                       result.getName(), result.getTestClass().getName());
+            recordHistory(result, TestOutcome.Status.FAIL);
+            captureScreenshotOnFailure(result);
+            saveTestLog(result);
+            AsyncReportWriter.submit(result, TestOutcome.Status.SKIP);
+            ConcurrencyGovernor.testFinished();
+            return;
+        }
         logger.warn("Test SKIPPED: {} in class: {}", 
                    result.getName(), result.getTestClass().getName());
+        recordHistory(result, TestOutcome.Status.SKIP);
+        TestLogCapture.end(logInvocationOf(result), false);
+        AsyncReportWriter.submit(result, TestOutcome.Status.SKIP);
+        ConcurrencyGovernor.testFinished();
     }
     
     @Override
@@ -45,11 +99,16 @@ public class TestListener implements ITestListener {
         
         // Capture screenshot even for partial failures
         captureScreenshotOnFailure(result);
+        saveTestLog(result);
     }
     
     @Override
     public void onStart(ITestContext context) {
         logger.info("Starting test suite: {}", context.getName());
+        historyRecorder.onStart(context);
+        if (CAPTURE_STDOUT) {
+            StdoutRedirector.install();
+        }
         
         // Clean up old screenshots (keep last 7 days)
         ScreenshotUtils.cleanupOldScreenshots(7);
@@ -63,6 +122,46 @@ public class TestListener implements ITestListener {
                    context.getPassedTests().size(),
                    context.getFailedTests().size(),
                    context.getSkippedTests().size());
+        
+        // Report flakiness that the recorded history did not know about yet
+        historyRecorder.reportFlakiness(context);
+        logger.info(TestLogCapture.summary());
+        String governorSummary = ConcurrencyGovernor.summary();
+        if (governorSummary != null) {
+            logger.info(governorSummary);
+        }
+        String startupSummary = ProfileTemplates.summary();
+        if (startupSummary != null) {
+            logger.info(startupSummary);
+        }
+    }
+    
+    /**
+     * Appends an outcome to the test history; rows of the retry block stand for other tests,
+     * whose attempts the retry runs record themselves
+     * @param result Test result
+     * @param status Outcome to record
+     */
+    private void recordHistory(ITestResult result, TestOutcome.Status status) {
+        if (!DeferredRetries.class.equals(result.getMethod().getRealClass())) {
+            historyRecorder.record(result, status);
+        }
+    }
+    
+    private static String logInvocationOf(ITestResult result) {
+        return (String) result.getAttribute(LOG_INVOCATION_ATTRIBUTE);
+    }
+    
+    /**
+     * Writes the failed test's captured log to its own file; passing tests' logs are dropped
+     * @param result Test result of the failed test
+     */
+    private void saveTestLog(ITestResult result) {
+        Path testLog = TestLogCapture.end(logInvocationOf(result), true);
+        if (testLog != null) {
+            logger.info("Log of failed test {} saved: {}", result.getName(), testLog);
+            result.setAttribute("log", testLog.toString());
+        }
     }
     
     /**
@@ -0,0 +1,249 @@
+package utils.data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.ConfigManager;
+import utils.resources.ResourceAllocator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hands out test users so that each user is logged in by at most one session at a time.
+ * A lease blocks until a user is free and returns the user to the pool when closed:
+ * <pre>
+ * try (CredentialPool.Lease user = CredentialPool.shared().lease()) {
+ *     loginPage.login(user.getUsername(), user.getPassword());
+ * }
+ * </pre>
+ * Test JVMs running at once on one host (Gradle forks, shards, -Dworker.id) also hold an exclusive file lock
+ * per leased user in data.credentials.lock.dir, so they never log in as the same user either.
+ */
+public final class CredentialPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(CredentialPool.class);
+
+    private static final long LOCKED_RETRY_MILLIS = 100;
+
+    private static volatile CredentialPool shared;
+
+    private final LinkedBlockingQueue<String[]> available;
+    private final int size;
+    private final long timeoutMillis;
+    private final Path lockDirectory;
+
+    /**
+     * Constructor for a pool used by one JVM only
+     * @param credentials Username and password pairs
+     * @param timeoutMillis Maximum time {@link #lease()} waits for a free user
+     */
+    public CredentialPool(List<String[]> credentials, long timeoutMillis) {
+        this(credentials, timeoutMillis, null);
+    }
+
+    /**
+     * Constructor
+     * @param credentials Username and password pairs
+     * @param timeoutMillis Maximum time {@link #lease()} waits for a free user
+     * @param lockDirectory Directory of the per-user lock files shared with other JVMs, or null for none
+     */
+    public CredentialPool(List<String[]> credentials, long timeoutMillis, Path lockDirectory) {
+        if (credentials.isEmpty()) {
+            throw new IllegalArgumentException("Credential pool needs at least one user");
+        }
+        this.available = new LinkedBlockingQueue<>(credentials);
+        this.size = credentials.size();
+        this.timeoutMillis = timeoutMillis;
+        this.lockDirectory = lockDirectory;
+    }
+
+    /**
+     * Gets the pool built from data.credentials.file, or from test.username and test.password when no file is set.
+     * When the suite is split with ShardRunner, each shard JVM takes every shard.count-th user starting at
+     * shard.index; parallel Gradle forks share their users through lock files
+     * @return Shared pool
+     * @throws IllegalStateException if the file has fewer users than worker JVMs run at once
+     */
+    public static CredentialPool shared() {
+        if (shared == null) {
+            synchronized (CredentialPool.class) {
+                if (shared == null) {
+                    shared = fromConfig();
+                }
+            }
+        }
+        return shared;
+    }
+
+    private static CredentialPool fromConfig() {
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(ConfigManager.getIntProperty("data.credentials.lease.timeout.seconds", 300));
+        String file = ConfigManager.getProperty("data.credentials.file", "").trim();
+        List<String[]> credentials = new ArrayList<>();
+        if (file.isEmpty()) {
+            credentials.add(new String[]{ConfigManager.getUsername(), ConfigManager.getPassword()});
+            return new CredentialPool(credentials, timeoutMillis);
+        }
+        int shardIndex = ConfigManager.getIntProperty("shard.index", 0);
+        int shardCount = Math.max(1, ConfigManager.getIntProperty("shard.count", 1));
+        int users = 0;
+        RowIterator rows = DataFiles.open(file);
+        while (rows.hasNext()) {
+            Map<String, String> row = rows.next();
+            if (row.get("username") == null || row.get("password") == null) {
+                throw new IllegalArgumentException(file + " needs username and password columns");
+            }
+            if (users++ % shardCount == shardIndex) {
+                credentials.add(new String[]{row.get("username"), row.get("password")});
+            }
+        }
+        requireUserPerWorker(file, users, shardCount, Math.max(1, ConfigManager.getIntProperty("worker.forks", 1)));
+        logger.info("Credential pool loaded {} of the {} user(s) in {}", credentials.size(), users, file);
+
+        // any JVM with a worker id may run next to others on this host
+        if (ResourceAllocator.workerId().isEmpty()) {
+            return new CredentialPool(credentials, timeoutMillis);
+        }
+        String lockDirectory = ConfigManager.getProperty("data.credentials.lock.dir", "").trim();
+        return new CredentialPool(credentials, timeoutMillis, lockDirectory.isEmpty()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "selenium-credentials")
+                : Paths.get(lockDirectory));
+    }
+
+    /**
+     * Fails before any test starts when some worker JVM would get no user and wait out every lease timeout
+     * @param file Credentials file
+     * @param users Users in the file
+     * @param shardCount Shards the users are divided between (shard.count)
+     * @param forks Gradle test forks sharing each shard's users (worker.forks)
+     */
+    static void requireUserPerWorker(String file, int users, int shardCount, int forks) {
+        int workers = shardCount * forks;
+        if (users < workers) {
+            throw new IllegalStateException(file + " has " + users + " user(s), but " + workers
+                    + " worker JVM(s) run at once (shard.count=" + shardCount + ", worker.forks=" + forks
+                    + "); add at least " + (workers - users) + " more so each worker has one");
+        }
+    }
+
+    /**
+     * Leases a user, waiting until one is free
+     * @return Lease; close it when the session has logged out or quit
+     * @throws IllegalStateException if no user becomes free within the timeout
+     */
+    public Lease lease() {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        int lockedByOthers = 0;
+        try {
+            while (true) {
+                String[] credential = available.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                if (credential == null) {
+                    throw new IllegalStateException("No free test user after " + timeoutMillis + " ms; all " + size
+                            + " user(s) are leased. Add users to data.credentials.file or lower the parallelism");
+                }
+                if (lockDirectory == null) {
+                    return new Lease(credential, null);
+                }
+                FileChannel lock = tryLock(credential[0]);
+                if (lock != null) {
+                    return new Lease(credential, lock);
+                }
+                // another JVM has this user; once every free user was tried, wait before trying again
+                available.add(credential);
+                if (++lockedByOthers % size == 0) {
+                    if (System.currentTimeMillis() >= deadline) {
+                        throw new IllegalStateException("No free test user after " + timeoutMillis + " ms; all " + size
+                                + " user(s) are leased by this or other test JVMs. Add users to data.credentials.file"
+                                + " or lower the parallelism");
+                    }
+                    Thread.sleep(LOCKED_RETRY_MILLIS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a free test user", e);
+        }
+    }
+
+    private FileChannel tryLock(String username) {
+        FileChannel channel = null;
+        try {
+            Files.createDirectories(lockDirectory);
+            channel = FileChannel.open(lockDirectory.resolve(username.replaceAll("[^a-zA-Z0-9._-]", "_") + ".lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock = channel.tryLock();
+            if (lock != null) {
+                return channel;
+            }
+        } catch (OverlappingFileLockException e) {
+            // held by another pool of this JVM
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to lock test user " + username + " in " + lockDirectory, e);
+        }
+        closeQuietly(channel);
+        return null;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            // closing the channel releases its lock
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Failed to release a test user lock: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the number of users not currently leased
+     * @return Free users
+     */
+    public int available() {
+        return available.size();
+    }
+
+    /**
+     * One user leased to one session; closing it more than once has no further effect
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final String[] credential;
+        private final FileChannel lock;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(String[] credential, FileChannel lock) {
+            this.credential = credential;
+            this.lock = lock;
+        }
+
+        public String getUsername() {
+            return credential[0];
+        }
+
+        public String getPassword() {
+            return credential[1];
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                closeQuietly(lock);
+                available.add(credential);
+            }
+        }
+    }
+}
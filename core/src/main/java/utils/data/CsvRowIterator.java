@@ -0,0 +1,109 @@
+package utils.data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams the rows of a CSV file whose first line holds the column names.
+ * Fields may be quoted with double quotes; quoted fields can contain commas, line breaks
+ * and doubled quotes. Blank lines are skipped and missing trailing fields are empty.
+ */
+class CsvRowIterator extends RowIterator {
+
+    private final BufferedReader reader;
+    private final String name;
+    private List<String> header;
+    private int lineNumber;
+
+    /**
+     * Constructor
+     * @param reader Reader positioned at the header line
+     * @param name File name used in error messages
+     */
+    CsvRowIterator(BufferedReader reader, String name) {
+        this.reader = reader;
+        this.name = name;
+    }
+
+    @Override
+    protected Map<String, String> readRow() throws IOException {
+        if (header == null) {
+            header = readRecord();
+            if (header == null) {
+                return null;
+            }
+        }
+        List<String> fields = readRecord();
+        if (fields == null) {
+            return null;
+        }
+        if (fields.size() > header.size()) {
+            throw new IOException(name + ":" + lineNumber + ": " + fields.size() + " fields, header has " + header.size());
+        }
+        Map<String, String> row = new LinkedHashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            row.put(header.get(i), i < fields.size() ? fields.get(i) : "");
+        }
+        return row;
+    }
+
+    private List<String> readRecord() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            lineNumber++;
+            if (line == null) {
+                return null;
+            }
+        } while (line.trim().isEmpty());
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted) {
+                    fields.add(field.toString());
+                    return fields;
+                }
+                // a quoted field continues on the next line
+                line = reader.readLine();
+                lineNumber++;
+                if (line == null) {
+                    throw new IOException(name + ":" + lineNumber + ": unterminated quoted field");
+                }
+                field.append('\n');
+                i = 0;
+                continue;
+            }
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c == '"' && i < line.length() && line.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,19 @@
+package utils.data;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Names the CSV or JSON file that {@link DataProviders} streams rows from for a test method
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface DataFile {
+
+    /**
+     * @return File name ending in .csv or .json, resolved against data.directory and then the classpath
+     */
+    String value();
+}
@@ -0,0 +1,76 @@
+package utils.data;
+
+import com.google.gson.stream.JsonReader;
+import utils.ConfigManager;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Opens data files as lazily-read row iterators.
+ * A file name is looked up in data.directory first and then on the classpath.
+ */
+public final class DataFiles {
+
+    private DataFiles() {
+    }
+
+    /**
+     * Opens every row of a data file
+     * @param name File name ending in .csv or .json
+     * @return Row iterator; closes the file when exhausted
+     */
+    public static RowIterator open(String name) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(openStream(name), StandardCharsets.UTF_8));
+        String lowerName = name.toLowerCase();
+        if (lowerName.endsWith(".csv")) {
+            return new CsvRowIterator(reader, name);
+        } else if (lowerName.endsWith(".json")) {
+            return new JsonRowIterator(new JsonReader(reader));
+        }
+        try {
+            reader.close();
+        } catch (IOException e) {
+            // unsupported anyway
+        }
+        throw new IllegalArgumentException("Unsupported data file type: " + name);
+    }
+
+    /**
+     * Opens this worker's share of the rows of a data file, as set by data.shard.index and data.shard.count
+     * @param name File name ending in .csv or .json
+     * @return Row iterator over every data.shard.count-th row starting at data.shard.index
+     */
+    public static RowIterator openShard(String name) {
+        int count = ConfigManager.getIntProperty("data.shard.count", 1);
+        int index = ConfigManager.getIntProperty("data.shard.index", 0);
+        if (index < 0 || (count > 1 && index >= count)) {
+            throw new IllegalArgumentException("data.shard.index " + index + " is outside 0.." + (count - 1));
+        }
+        return open(name).shard(index, count);
+    }
+
+    private static InputStream openStream(String name) {
+        try {
+            Path file = Paths.get(ConfigManager.getProperty("data.directory", "testdata")).resolve(name);
+            if (Files.isRegularFile(file)) {
+                return Files.newInputStream(file);
+            }
+            InputStream resource = DataFiles.class.getClassLoader().getResourceAsStream(name);
+            if (resource == null) {
+                throw new FileNotFoundException(name + " not found in " + file.getParent() + " or on the classpath");
+            }
+            return resource;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
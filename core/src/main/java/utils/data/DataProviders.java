@@ -0,0 +1,63 @@
+package utils.data;
+
+import org.testng.annotations.DataProvider;
+
+import java.lang.reflect.Method;
+import java.util.Iterator;
+
+/**
+ * TestNG data providers that stream the rows of the file named by {@link DataFile}.
+ * Each invocation receives one row as a Map&lt;String, String&gt; of column name to value:
+ * <pre>
+ * &#64;Test(dataProvider = "rows", dataProviderClass = DataProviders.class)
+ * &#64;DataFile("curves.csv")
+ * public void testCurve(Map&lt;String, String&gt; row) { ... }
+ * </pre>
+ */
+public final class DataProviders {
+
+    private DataProviders() {
+    }
+
+    /**
+     * Streams rows one invocation at a time; only the current row is in memory
+     * @param method Test method annotated with {@link DataFile}
+     * @return Lazily-read parameters
+     */
+    @DataProvider(name = "rows")
+    public static Iterator<Object[]> rows(Method method) {
+        return parameters(method);
+    }
+
+    /**
+     * Runs rows concurrently on the suite's data-provider-thread-count threads.
+     * TestNG queues one task per row before starting them, so a parallel provider holds this
+     * worker's rows in memory; combine it with data.shard.count for very large files
+     * @param method Test method annotated with {@link DataFile}
+     * @return Lazily-read parameters
+     */
+    @DataProvider(name = "parallelRows", parallel = true)
+    public static Iterator<Object[]> parallelRows(Method method) {
+        return parameters(method);
+    }
+
+    private static Iterator<Object[]> parameters(Method method) {
+        DataFile dataFile = method.getAnnotation(DataFile.class);
+        if (dataFile == null) {
+            throw new IllegalArgumentException(method.getDeclaringClass().getSimpleName() + "." + method.getName()
+                    + " uses a streaming data provider but has no @DataFile");
+        }
+        RowIterator rows = DataFiles.openShard(dataFile.value());
+        return new Iterator<Object[]>() {
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
+
+            @Override
+            public Object[] next() {
+                return new Object[]{rows.next()};
+            }
+        };
+    }
+}
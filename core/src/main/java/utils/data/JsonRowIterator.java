@@ -0,0 +1,61 @@
+package utils.data;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Streams the objects of a JSON file holding a top-level array of flat objects.
+ * Values are returned as strings; nested objects and arrays are skipped.
+ */
+class JsonRowIterator extends RowIterator {
+
+    private final JsonReader reader;
+    private boolean started;
+
+    /**
+     * Constructor
+     * @param reader JSON reader positioned before the top-level array
+     */
+    JsonRowIterator(JsonReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    protected Map<String, String> readRow() throws IOException {
+        if (!started) {
+            reader.beginArray();
+            started = true;
+        }
+        if (!reader.hasNext()) {
+            reader.endArray();
+            return null;
+        }
+        Map<String, String> row = new LinkedHashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            JsonToken token = reader.peek();
+            if (token == JsonToken.NULL) {
+                reader.nextNull();
+                row.put(key, "");
+            } else if (token == JsonToken.BOOLEAN) {
+                row.put(key, String.valueOf(reader.nextBoolean()));
+            } else if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+                row.put(key, reader.nextString());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return row;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,92 @@
+package utils.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily reads one data row at a time from a file; only the current row is held in memory.
+ * The underlying reader is closed when the last row has been read, or by {@link #close()}.
+ */
+public abstract class RowIterator implements Iterator<Map<String, String>>, Closeable {
+
+    private Map<String, String> next;
+    private boolean done;
+
+    /**
+     * Reads the next row from the source
+     * @return Column name to value, or null at the end of the data
+     * @throws IOException if the source cannot be read or is malformed
+     */
+    protected abstract Map<String, String> readRow() throws IOException;
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            try {
+                next = readRow();
+            } catch (IOException e) {
+                closeQuietly();
+                throw new UncheckedIOException(e);
+            }
+            if (next == null) {
+                done = true;
+                closeQuietly();
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Map<String, String> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Map<String, String> row = next;
+        next = null;
+        return row;
+    }
+
+    /**
+     * Keeps only every count-th row starting at index, so workers reading the same file get disjoint rows
+     * @param index Zero-based worker index
+     * @param count Number of workers; 1 keeps every row
+     * @return Iterator over this worker's rows
+     */
+    public RowIterator shard(int index, int count) {
+        if (count <= 1) {
+            return this;
+        }
+        RowIterator rows = this;
+        return new RowIterator() {
+            private long position;
+
+            @Override
+            protected Map<String, String> readRow() {
+                while (rows.hasNext()) {
+                    Map<String, String> row = rows.next();
+                    if (position++ % count == index) {
+                        return row;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public void close() throws IOException {
+                rows.close();
+            }
+        };
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            // nothing more to read either way
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package utils.history;
+
+import utils.ConfigManager;
+import utils.matrix.BrowserMatrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes a flip rate and failure signature per test method from recorded history.
+ * A flip is a PASS followed by a FAIL or vice versa; skips are ignored. A test is
+ * considered flaky when it has enough recent runs and its flip rate reaches the threshold,
+ * or when it is listed in flaky.quarantine.tests.
+ */
+public class FlakinessDetector {
+
+    private static volatile FlakinessDetector current;
+
+    private final Map<String, TestStats> stats = new LinkedHashMap<>();
+    private final Set<String> quarantined;
+    private final int minRuns;
+    private final double flipThreshold;
+
+    /**
+     * Constructor
+     * @param history Recorded outcomes, oldest first
+     * @param window Number of most recent runs per test to consider
+     * @param minRuns Minimum runs in the window before a test can be classified as flaky
+     * @param flipThreshold Flip rate at or above which a test is flaky
+     * @param quarantined Test ids that are always treated as flaky
+     */
+    public FlakinessDetector(List<TestOutcome> history, int window, int minRuns, double flipThreshold,
+                             Collection<String> quarantined) {
+        this.minRuns = minRuns;
+        this.flipThreshold = flipThreshold;
+        this.quarantined = new HashSet<>(quarantined);
+
+        Map<String, List<TestOutcome>> byTest = new LinkedHashMap<>();
+        for (TestOutcome outcome : history) {
+            if (outcome.getStatus() != TestOutcome.Status.SKIP) {
+                byTest.computeIfAbsent(outcome.getTestId(), id -> new ArrayList<>()).add(outcome);
+            }
+        }
+        for (Map.Entry<String, List<TestOutcome>> entry : byTest.entrySet()) {
+            List<TestOutcome> runs = entry.getValue();
+            List<TestOutcome> recent = runs.subList(Math.max(0, runs.size() - window), runs.size());
+            stats.put(entry.getKey(), new TestStats(entry.getKey(), recent));
+        }
+    }
+
+    /**
+     * Gets the detector built from the configured history store; built once per JVM
+     * @return Shared detector
+     */
+    public static FlakinessDetector current() {
+        if (current == null) {
+            synchronized (FlakinessDetector.class) {
+                if (current == null) {
+                    current = fromHistory(TestHistoryStore.fromConfig().loadAll());
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Builds a detector over the given history using the flaky.* settings
+     * @param history Recorded outcomes, oldest first
+     * @return Detector
+     */
+    public static FlakinessDetector fromHistory(List<TestOutcome> history) {
+        return new FlakinessDetector(history,
+                ConfigManager.getIntProperty("flaky.window", 20),
+                ConfigManager.getIntProperty("flaky.min.runs", 5),
+                ConfigManager.getDoubleProperty("flaky.flip.threshold", 0.2),
+                ConfigManager.getListProperty("flaky.quarantine.tests"));
+    }
+
+    /**
+     * Checks whether a test is known to be flaky
+     * @param testId Test id, e.g. "LoginTest.testSuccessfulLogin" or "LoginTest.testSuccessfulLogin [firefox/default]"
+     * @return true if the test is quarantined, with or without its browser and profile, or its flip rate reaches the threshold
+     */
+    public boolean isFlaky(String testId) {
+        if (quarantined.contains(testId) || quarantined.contains(BrowserMatrix.withoutCombination(testId))) {
+            return true;
+        }
+        TestStats testStats = stats.get(testId);
+        return testStats != null && testStats.getRuns() >= minRuns && testStats.getFlipRate() >= flipThreshold;
+    }
+
+    /**
+     * Lists the ids under which a test method is flaky, for callers that do not know the browser and profile yet
+     * @param methodId Method id, e.g. "LoginTest.testSuccessfulLogin"
+     * @return The method id itself and every browser/profile id of the method that is flaky
+     */
+    public List<String> flakyIdsOf(String methodId) {
+        List<String> flakyIds = new ArrayList<>();
+        if (isFlaky(methodId)) {
+            flakyIds.add(methodId);
+        }
+        for (String testId : stats.keySet()) {
+            if (!testId.equals(methodId) && BrowserMatrix.withoutCombination(testId).equals(methodId) && isFlaky(testId)) {
+                flakyIds.add(testId);
+            }
+        }
+        return flakyIds;
+    }
+
+    /**
+     * Checks whether a test has enough history and has always passed
+     * @param testId Test id
+     * @return true if every recorded run in the window passed
+     */
+    public boolean isStable(String testId) {
+        TestStats testStats = stats.get(testId);
+        return testStats != null && testStats.getRuns() >= minRuns && testStats.getFailures() == 0;
+    }
+
+    /**
+     * Gets the statistics of one test
+     * @param testId Test id
+     * @return Statistics, or null if the test has no recorded runs
+     */
+    public TestStats statsFor(String testId) {
+        return stats.get(testId);
+    }
+
+    /**
+     * Lists all flaky tests, highest flip rate first
+     * @return Statistics of flaky tests
+     */
+    public List<TestStats> flakyTests() {
+        List<TestStats> flaky = new ArrayList<>();
+        for (TestStats testStats : stats.values()) {
+            if (isFlaky(testStats.getTestId())) {
+                flaky.add(testStats);
+            }
+        }
+        flaky.sort((a, b) -> Double.compare(b.getFlipRate(), a.getFlipRate()));
+        return flaky;
+    }
+
+    /**
+     * Builds a failure signature that stays the same across runs of the same failure:
+     * exception type, first line of the message with numbers and ids masked, and the
+     * first stack frame outside the JDK, Selenium and TestNG
+     * @param throwable Failure cause
+     * @return Failure signature
+     */
+    public static String signatureOf(Throwable throwable) {
+        if (throwable == null) {
+            return "";
+        }
+        String message = throwable.getMessage() == null ? "" : throwable.getMessage();
+        int newline = message.indexOf('\n');
+        if (newline >= 0) {
+            message = message.substring(0, newline);
+        }
+        message = message.replaceAll("[0-9a-fA-F]{8,}", "#").replaceAll("\\d+", "#").trim();
+        if (message.length() > 120) {
+            message = message.substring(0, 120);
+        }
+
+        String frame = "";
+        for (StackTraceElement element : throwable.getStackTrace()) {
+            String className = element.getClassName();
+            if (!isFrameworkFrame(className)) {
+                frame = className.substring(className.lastIndexOf('.') + 1) + "." + element.getMethodName();
+                break;
+            }
+        }
+        return throwable.getClass().getSimpleName() + "@" + frame + ": " + message;
+    }
+
+    private static boolean isFrameworkFrame(String className) {
+        for (String prefix : Arrays.asList("java.", "javax.", "sun.", "jdk.", "org.openqa.", "org.testng.", "com.sun.")) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Flip rate, failure count and dominant failure signature of one test
+     */
+    public static class TestStats {
+
+        private final String testId;
+        private final int runs;
+        private final int failures;
+        private final int flips;
+        private final long averageDurationMillis;
+        private final TestOutcome.Status lastStatus;
+        private final String dominantSignature;
+
+        TestStats(String testId, List<TestOutcome> recent) {
+            this.testId = testId;
+            this.runs = recent.size();
+
+            int failureCount = 0;
+            int flipCount = 0;
+            long totalDuration = 0L;
+            TestOutcome.Status previous = null;
+            Map<String, Integer> signatures = new HashMap<>();
+            for (TestOutcome outcome : recent) {
+                if (outcome.getStatus() == TestOutcome.Status.FAIL) {
+                    failureCount++;
+                    signatures.merge(outcome.getSignature(), 1, Integer::sum);
+                }
+                if (previous != null && previous != outcome.getStatus()) {
+                    flipCount++;
+                }
+                previous = outcome.getStatus();
+                totalDuration += outcome.getDurationMillis();
+            }
+            this.failures = failureCount;
+            this.flips = flipCount;
+            this.averageDurationMillis = runs == 0 ? 0L : totalDuration / runs;
+            this.lastStatus = previous;
+            this.dominantSignature = signatures.isEmpty() ? ""
+                    : Collections.max(signatures.entrySet(), Map.Entry.comparingByValue()).getKey();
+        }
+
+        public String getTestId() {
+            return testId;
+        }
+
+        public int getRuns() {
+            return runs;
+        }
+
+        public int getFailures() {
+            return failures;
+        }
+
+        public int getFlips() {
+            return flips;
+        }
+
+        /**
+         * Gets the share of consecutive runs whose outcome differed
+         * @return Flips divided by the number of run transitions, 0 for a single run
+         */
+        public double getFlipRate() {
+            return runs < 2 ? 0.0 : (double) flips / (runs - 1);
+        }
+
+        public long getAverageDurationMillis() {
+            return averageDurationMillis;
+        }
+
+        public TestOutcome.Status getLastStatus() {
+            return lastStatus;
+        }
+
+        public String getDominantSignature() {
+            return dominantSignature;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: flip rate %.2f (%d flips, %d/%d failed) %s",
+                    testId, getFlipRate(), flips, failures, runs, dominantSignature);
+        }
+    }
+}
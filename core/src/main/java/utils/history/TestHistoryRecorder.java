@@ -0,0 +1,143 @@
+package utils.history;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import utils.ConfigManager;
+import utils.matrix.BrowserMatrix;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records every test outcome into the {@link TestHistoryStore} and, at the end of each
+ * &lt;test&gt; block, reports flakiness that the history did not know about yet.
+ * Driven by {@link utils.TestListener}.
+ */
+public class TestHistoryRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(TestHistoryRecorder.class);
+    private static final boolean ENABLED = Boolean.parseBoolean(ConfigManager.getProperty("history.enabled", "true"));
+    private static final int RECORDS_PER_TEST = ConfigManager.getIntProperty("history.max.records.per.test", 50);
+    // Shard JVMs share one history directory, so only the launcher compacts it
+    private static final boolean COMPACT = Boolean.parseBoolean(ConfigManager.getProperty("history.compact", "true"));
+
+    private final TestHistoryStore store;
+    private final Map<String, List<TestOutcome.Status>> currentRun = new ConcurrentHashMap<>();
+    private final Set<String> compactedSuites = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    /**
+     * Constructor using the configured history store
+     */
+    public TestHistoryRecorder() {
+        this(TestHistoryStore.fromConfig());
+    }
+
+    /**
+     * Constructor
+     * @param store History store to record into
+     */
+    public TestHistoryRecorder(TestHistoryStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Builds the history id of a test
+     * @param result Test result
+     * @return Declaring class name and method name, e.g. "LoginTest.testSuccessfulLogin", followed by the
+     * browser and profile when the &lt;test&gt; block sets them, e.g. "LoginTest.testSuccessfulLogin [firefox/default]"
+     */
+    public static String testIdOf(ITestResult result) {
+        return testIdOf(result.getMethod(), result.getTestContext());
+    }
+
+    /**
+     * Builds the history id of a test method run in a &lt;test&gt; block
+     * @param method TestNG method
+     * @param context Test context of the block, may be null
+     * @return Method id followed by the block's browser and profile, if it sets them
+     */
+    public static String testIdOf(ITestNGMethod method, ITestContext context) {
+        return testIdOf(method) + BrowserMatrix.combinationSuffixOf(context != null ? context.getCurrentXmlTest() : null);
+    }
+
+    /**
+     * Builds the id of a test method regardless of where it runs
+     * @param method TestNG method
+     * @return Test class name and method name; a test inherited by several classes gets one id per class
+     */
+    public static String testIdOf(ITestNGMethod method) {
+        return method.getRealClass().getName() + "." + method.getMethodName();
+    }
+
+    /**
+     * Prepares the suite's history file, trimming it to the configured size once per run
+     * @param context Test context that is starting
+     */
+    public void onStart(ITestContext context) {
+        String suiteName = context.getSuite().getName();
+        if (ENABLED && COMPACT && compactedSuites.add(suiteName)) {
+            store.compact(suiteName, RECORDS_PER_TEST);
+        }
+    }
+
+    /**
+     * Records the outcome of a finished test
+     * @param result Test result
+     * @param status Outcome reported by TestNG
+     */
+    public void record(ITestResult result, TestOutcome.Status status) {
+        if (!ENABLED) {
+            return;
+        }
+        String testId = testIdOf(result);
+        String signature = status == TestOutcome.Status.FAIL ? FlakinessDetector.signatureOf(result.getThrowable()) : "";
+        store.append(new TestOutcome(System.currentTimeMillis(), result.getTestContext().getSuite().getName(),
+                BrowserMatrix.blockNameOf(result.getTestContext().getCurrentXmlTest()), testId, status,
+                result.getEndMillis() - result.getStartMillis(), signature));
+        currentRun.computeIfAbsent(testId, id -> Collections.synchronizedList(new ArrayList<>())).add(status);
+    }
+
+    /**
+     * Logs known flaky failures, tests that flipped within this run and tests whose
+     * updated history now crosses the flakiness threshold
+     * @param context Test context that finished
+     */
+    public void reportFlakiness(ITestContext context) {
+        if (!ENABLED) {
+            return;
+        }
+        FlakinessDetector before = FlakinessDetector.current();
+        FlakinessDetector after = FlakinessDetector.fromHistory(store.load(context.getSuite().getName()));
+
+        for (ITestNGMethod method : context.getAllTestMethods()) {
+            String testId = testIdOf(method, context);
+            List<TestOutcome.Status> statuses = currentRun.get(testId);
+            if (statuses == null) {
+                continue;
+            }
+            boolean failed = statuses.contains(TestOutcome.Status.FAIL);
+            boolean passed = statuses.contains(TestOutcome.Status.PASS);
+
+            if (before.isFlaky(testId)) {
+                if (failed) {
+                    logger.warn("Known flaky test {} {} in this run: {}", testId,
+                            passed ? "recovered on retry" : "failed", before.statsFor(testId));
+                }
+            } else if (failed && passed) {
+                logger.warn("NEW flaky test {}: failed and passed within this run", testId);
+            } else if (after.isFlaky(testId)) {
+                logger.warn("NEW flaky test {}: {}", testId, after.statsFor(testId));
+            } else if (failed && before.isStable(testId)) {
+                logger.warn("Previously stable test {} failed: regression or new flakiness ({})",
+                        testId, after.statsFor(testId).getDominantSignature());
+            }
+        }
+    }
+}
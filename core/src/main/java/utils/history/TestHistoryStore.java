@@ -0,0 +1,162 @@
+package utils.history;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.ConfigManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only local store of test outcomes, one tab-separated file per suite.
+ * Each finished test appends a single line; {@link #compact(String, int)} trims
+ * the file to the most recent records per test so it stays small.
+ */
+public class TestHistoryStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(TestHistoryStore.class);
+    private static final String FILE_EXTENSION = ".tsv";
+
+    private final Path directory;
+
+    /**
+     * Constructor
+     * @param directory Directory holding the history files
+     */
+    public TestHistoryStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Creates a store in the directory configured by history.directory
+     * @return History store
+     */
+    public static TestHistoryStore fromConfig() {
+        return new TestHistoryStore(Paths.get(ConfigManager.getProperty("history.directory", "test-history")));
+    }
+
+    /**
+     * Gets the history file of a suite
+     * @param suiteName TestNG suite name
+     * @return Path to the suite's history file
+     */
+    public Path fileFor(String suiteName) {
+        return directory.resolve(suiteName.replaceAll("[^a-zA-Z0-9._-]", "_") + FILE_EXTENSION);
+    }
+
+    /**
+     * Appends an outcome to its suite's history file
+     * @param outcome Outcome to record
+     */
+    public synchronized void append(TestOutcome outcome) {
+        try {
+            Files.createDirectories(directory);
+            Files.write(fileFor(outcome.getSuite()),
+                    Collections.singletonList(outcome.toLine()), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            logger.warn("Failed to record test history for {}: {}", outcome.getTestId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the history of one suite, oldest record first
+     * @param suiteName TestNG suite name
+     * @return Recorded outcomes
+     */
+    public List<TestOutcome> load(String suiteName) {
+        return read(fileFor(suiteName));
+    }
+
+    /**
+     * Loads the history of every suite in the store
+     * @return Recorded outcomes of all suites
+     */
+    public List<TestOutcome> loadAll() {
+        List<TestOutcome> outcomes = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return outcomes;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_EXTENSION)) {
+            for (Path file : files) {
+                outcomes.addAll(read(file));
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to read test history from {}: {}", directory, e.getMessage());
+        }
+        return outcomes;
+    }
+
+    /**
+     * Rewrites a suite's history keeping only the most recent records of each test
+     * @param suiteName TestNG suite name
+     * @param recordsPerTest Number of records to keep per test
+     */
+    public synchronized void compact(String suiteName, int recordsPerTest) {
+        Path file = fileFor(suiteName);
+        List<TestOutcome> outcomes = read(file);
+        Map<String, Deque<TestOutcome>> latest = new LinkedHashMap<>();
+        for (TestOutcome outcome : outcomes) {
+            Deque<TestOutcome> records = latest.computeIfAbsent(outcome.getTestId(), id -> new ArrayDeque<>());
+            records.addLast(outcome);
+            if (records.size() > recordsPerTest) {
+                records.removeFirst();
+            }
+        }
+
+        List<TestOutcome> kept = new ArrayList<>();
+        for (Deque<TestOutcome> records : latest.values()) {
+            kept.addAll(records);
+        }
+        if (kept.size() == outcomes.size()) {
+            return;
+        }
+        kept.sort((a, b) -> Long.compare(a.getTimestamp(), b.getTimestamp()));
+
+        List<String> lines = new ArrayList<>(kept.size());
+        for (TestOutcome outcome : kept) {
+            lines.add(outcome.toLine());
+        }
+        try {
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            logger.info("Compacted test history {} from {} to {} records", file, outcomes.size(), kept.size());
+        } catch (IOException e) {
+            logger.warn("Failed to compact test history {}: {}", file, e.getMessage());
+        }
+    }
+
+    private List<TestOutcome> read(Path file) {
+        List<TestOutcome> outcomes = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return outcomes;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                TestOutcome outcome = TestOutcome.fromLine(line);
+                if (outcome != null) {
+                    outcomes.add(outcome);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to read test history {}: {}", file, e.getMessage());
+        }
+        return outcomes;
+    }
+}
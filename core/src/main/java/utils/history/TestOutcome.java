@@ -0,0 +1,108 @@
+package utils.history;
+
+/**
+ * One recorded execution of a test method.
+ * Stored as a single tab-separated line in the suite's history file.
+ */
+public class TestOutcome {
+
+    /**
+     * Result of a single test execution
+     */
+    public enum Status {
+        PASS, FAIL, SKIP
+    }
+
+    private static final int FIELD_COUNT = 7;
+
+    private final long timestamp;
+    private final String suite;
+    private final String xmlTest;
+    private final String testId;
+    private final Status status;
+    private final long durationMillis;
+    private final String signature;
+
+    /**
+     * Constructor
+     * @param timestamp Epoch millis when the test finished
+     * @param suite TestNG suite name
+     * @param xmlTest Name of the &lt;test&gt; block the method ran in
+     * @param testId Fully qualified class name and method, e.g. "LoginTest.testSuccessfulLogin"
+     * @param status Outcome
+     * @param durationMillis Execution time in milliseconds
+     * @param signature Failure signature, or empty for passes and skips
+     */
+    public TestOutcome(long timestamp, String suite, String xmlTest, String testId,
+                       Status status, long durationMillis, String signature) {
+        this.timestamp = timestamp;
+        this.suite = suite;
+        this.xmlTest = xmlTest;
+        this.testId = testId;
+        this.status = status;
+        this.durationMillis = durationMillis;
+        this.signature = signature == null ? "" : signature;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getSuite() {
+        return suite;
+    }
+
+    public String getXmlTest() {
+        return xmlTest;
+    }
+
+    public String getTestId() {
+        return testId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
+    /**
+     * Serializes the outcome as one history line
+     * @return Tab-separated line without a line terminator
+     */
+    public String toLine() {
+        return timestamp + "\t" + clean(suite) + "\t" + clean(xmlTest) + "\t" + clean(testId) + "\t"
+                + status + "\t" + durationMillis + "\t" + clean(signature);
+    }
+
+    /**
+     * Parses a history line
+     * @param line Line written by {@link #toLine()}
+     * @return Parsed outcome, or null if the line is malformed
+     */
+    public static TestOutcome fromLine(String line) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length != FIELD_COUNT) {
+            return null;
+        }
+        try {
+            return new TestOutcome(Long.parseLong(fields[0]), fields[1], fields[2], fields[3],
+                    Status.valueOf(fields[4]), Long.parseLong(fields[5]), fields[6]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String clean(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+    }
+}
@@ -0,0 +1,100 @@
+package utils.impact;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the classes a compiled class refers to straight from its constant pool:
+ * class entries (superclass, interfaces, instantiations, static calls, casts) and the
+ * type descriptors of fields, methods and generic signatures. Annotation values such as
+ * {@code @FindBy} strings are not references and are ignored.
+ */
+public final class ClassReferences {
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final Pattern DESCRIPTOR_TYPE = Pattern.compile("L([\\w/$]+)[;<]");
+
+    private ClassReferences() {
+    }
+
+    /**
+     * Reads the referenced class names of a class file
+     * @param classFile Class file contents
+     * @return Binary class names with dots, e.g. "pages.LoginPage", excluding arrays and primitives
+     * @throws IOException If the stream is not a valid class file
+     */
+    public static Set<String> read(InputStream classFile) throws IOException {
+        DataInputStream in = new DataInputStream(classFile);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+
+        int count = in.readUnsignedShort();
+        String[] utf8 = new String[count];
+        int[] classNameIndexes = new int[count];
+        int classCount = 0;
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1:
+                    utf8[i] = in.readUTF();
+                    break;
+                case 7:
+                    classNameIndexes[classCount++] = in.readUnsignedShort();
+                    break;
+                case 8:
+                case 16:
+                case 19:
+                case 20:
+                    in.readUnsignedShort();
+                    break;
+                case 15:
+                    in.readUnsignedByte();
+                    in.readUnsignedShort();
+                    break;
+                case 3:
+                case 4:
+                case 9:
+                case 10:
+                case 11:
+                case 12:
+                case 17:
+                case 18:
+                    in.readInt();
+                    break;
+                case 5:
+                case 6:
+                    // long and double take two constant pool slots
+                    in.readLong();
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+
+        Set<String> references = new TreeSet<>();
+        for (int i = 0; i < classCount; i++) {
+            String name = utf8[classNameIndexes[i]];
+            if (name != null && !name.startsWith("[")) {
+                references.add(name.replace('/', '.'));
+            }
+        }
+        for (String value : utf8) {
+            if (value != null && (value.startsWith("(") || value.startsWith("L") || value.contains("<"))) {
+                Matcher matcher = DESCRIPTOR_TYPE.matcher(value);
+                while (matcher.find()) {
+                    references.add(matcher.group(1).replace('/', '.'));
+                }
+            }
+        }
+        return references;
+    }
+}
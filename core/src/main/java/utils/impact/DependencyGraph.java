@@ -0,0 +1,105 @@
+package utils.impact;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Class-level dependency graph of the project's compiled classes.
+ * Nested and anonymous classes are folded into their top-level class, so the graph is
+ * keyed by source file, and only references between project classes are kept.
+ */
+public class DependencyGraph {
+
+    private static final Logger logger = LoggerFactory.getLogger(DependencyGraph.class);
+
+    private final Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+
+    /**
+     * Builds the graph from class output directories
+     * @param classDirectories Directories such as build/classes/java/main; missing ones are skipped
+     * @return Dependency graph
+     * @throws IOException If a class file cannot be read
+     */
+    public static DependencyGraph build(Collection<Path> classDirectories) throws IOException {
+        Map<String, Set<String>> raw = new HashMap<>();
+        for (Path directory : classDirectories) {
+            if (!Files.isDirectory(directory)) {
+                continue;
+            }
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".class"))::iterator) {
+                    String className = topLevel(directory.relativize(file).toString()
+                            .replace(file.getFileSystem().getSeparator(), ".").replaceAll("\\.class$", ""));
+                    if (className.endsWith("package-info") || className.endsWith("module-info")) {
+                        continue;
+                    }
+                    try (InputStream in = Files.newInputStream(file)) {
+                        raw.computeIfAbsent(className, name -> new HashSet<>()).addAll(ClassReferences.read(in));
+                    }
+                }
+            }
+        }
+
+        DependencyGraph graph = new DependencyGraph();
+        for (Map.Entry<String, Set<String>> entry : raw.entrySet()) {
+            Set<String> projectReferences = new TreeSet<>();
+            for (String reference : entry.getValue()) {
+                String target = topLevel(reference);
+                if (raw.containsKey(target) && !target.equals(entry.getKey())) {
+                    projectReferences.add(target);
+                }
+            }
+            graph.dependencies.put(entry.getKey(), projectReferences);
+        }
+        logger.info("Built dependency graph of {} classes", graph.dependencies.size());
+        return graph;
+    }
+
+    /**
+     * Checks whether a class is part of the graph
+     * @param className Top-level class name, e.g. "pages.LoginPage"
+     * @return true if the class was found in the class directories
+     */
+    public boolean contains(String className) {
+        return dependencies.containsKey(className);
+    }
+
+    /**
+     * Gets every project class a class depends on, directly or transitively
+     * @param className Top-level class name
+     * @return Reachable classes, not including the class itself
+     */
+    public Set<String> transitiveDependencies(String className) {
+        Set<String> reached = new TreeSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.add(className);
+        while (!pending.isEmpty()) {
+            for (String next : dependencies.getOrDefault(pending.poll(), new HashSet<>())) {
+                if (!next.equals(className) && reached.add(next)) {
+                    pending.add(next);
+                }
+            }
+        }
+        return reached;
+    }
+
+    private static String topLevel(String className) {
+        int nested = className.indexOf('$');
+        return nested > 0 ? className.substring(0, nested) : className;
+    }
+}
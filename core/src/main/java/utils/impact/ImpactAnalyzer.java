@@ -0,0 +1,232 @@
+package utils.impact;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.xml.Parser;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlPackage;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+import utils.ConfigManager;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Selects the tests affected by a change and writes a TestNG suite containing only them.
+ * Changed files come from git (committed changes since the base ref, uncommitted and
+ * untracked files); changed Java sources are mapped to classes and a test class is selected
+ * when it is changed itself or depends on a changed class, directly or through page objects,
+ * locators and BaseTest. Any other change (resources, build files, suite xml, sources of
+ * classes the graph does not know) selects the full suite. Files matching
+ * impact.ignore.pattern never affect tests. &lt;packages&gt; entries are not resolved to classes,
+ * so a &lt;test&gt; block that lists packages always keeps them.
+ * Note that javac inlines compile-time String and primitive constants, so a change to such
+ * a constant is only seen through the class that declares it.
+ * Usage: ImpactAnalyzer &lt;suite.xml&gt; &lt;output suite.xml&gt; [base ref]
+ */
+public class ImpactAnalyzer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImpactAnalyzer.class);
+    private static final List<String> SOURCE_ROOTS = Arrays.asList("src/main/java/", "src/test/java/");
+
+    private final DependencyGraph graph;
+    private final Pattern ignored;
+
+    /**
+     * Constructor
+     * @param graph Dependency graph of the compiled project classes
+     * @param ignorePattern Regex of repository paths that never affect tests
+     */
+    public ImpactAnalyzer(DependencyGraph graph, String ignorePattern) {
+        this.graph = graph;
+        this.ignored = Pattern.compile(ignorePattern);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: ImpactAnalyzer <suite.xml> <output suite.xml> [base ref]");
+        }
+        String baseRef = args.length > 2 ? args[2] : ConfigManager.getProperty("impact.base.ref", "HEAD");
+
+        // Project modules may be on the class path as jars, so the build passes their class directories
+        String directories = System.getProperty("impact.class.directories", System.getProperty("java.class.path"));
+        List<Path> classDirectories = new ArrayList<>();
+        for (String entry : directories.split(File.pathSeparator)) {
+            if (Files.isDirectory(Paths.get(entry))) {
+                classDirectories.add(Paths.get(entry));
+            }
+        }
+        ImpactAnalyzer analyzer = new ImpactAnalyzer(DependencyGraph.build(classDirectories),
+                ConfigManager.getProperty("impact.ignore.pattern", "$^"));
+        Parser parser = new Parser(args[0]);
+        parser.setLoadClasses(false);
+        XmlSuite suite = parser.parseToList().get(0);
+        XmlSuite impacted = analyzer.select(suite, changedFiles(baseRef));
+
+        Path output = Paths.get(args[1]);
+        if (output.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(output.toAbsolutePath().getParent());
+        }
+        Files.write(output, impacted.toXml().getBytes(StandardCharsets.UTF_8));
+        logger.info("Wrote impacted suite to {}", output);
+    }
+
+    /**
+     * Restricts a suite to the test classes affected by the changed files
+     * @param suite Full suite
+     * @param changedFiles Changed paths relative to the repository root
+     * @return The full suite on unrecognised changes, otherwise a copy with only the affected
+     * classes, every package, and without &lt;test&gt; blocks that have neither left
+     */
+    public XmlSuite select(XmlSuite suite, List<String> changedFiles) {
+        Set<String> changedClasses = new LinkedHashSet<>();
+        for (String file : changedFiles) {
+            String path = file.replace('\\', '/');
+            if (ignored.matcher(path).matches()) {
+                continue;
+            }
+            String className = classNameOf(path);
+            if (className == null || !graph.contains(className)) {
+                logger.info("Unrecognised change {}: running the full suite", path);
+                return suite;
+            }
+            changedClasses.add(className);
+        }
+
+        Map<String, String> reasons = new LinkedHashMap<>();
+        XmlSuite impacted = (XmlSuite) suite.clone();
+        impacted.setTests(new ArrayList<>());
+        for (XmlTest test : suite.getTests()) {
+            List<XmlClass> classes = new ArrayList<>();
+            for (XmlClass xmlClass : test.getXmlClasses()) {
+                String reason = reasonFor(xmlClass.getName(), changedClasses);
+                if (reason != null) {
+                    classes.add(xmlClass);
+                    reasons.put(xmlClass.getName(), reason);
+                }
+            }
+            if (!test.getXmlPackages().isEmpty()) {
+                // packages are not resolved to classes here, so they run in full
+                logger.info("  {} runs its package(s) {} in full", test.getName(), packageNames(test));
+            }
+            if (!classes.isEmpty() || !test.getXmlPackages().isEmpty()) {
+                // XmlTest.clone() would register the copy with the original suite
+                XmlTest copy = new XmlTest(impacted);
+                copy.setName(test.getName());
+                copy.setParameters(test.getLocalParameters());
+                copy.setParallel(test.getParallel());
+                copy.setThreadCount(test.getThreadCount());
+                copy.setPreserveOrder(test.getPreserveOrder());
+                copy.setIncludedGroups(test.getIncludedGroups());
+                copy.setExcludedGroups(test.getExcludedGroups());
+                copy.setXmlClasses(classes);
+                copy.setXmlPackages(test.getXmlPackages());
+            }
+        }
+
+        logger.info("{} changed class(es) {} affect {} test class(es)", changedClasses.size(), changedClasses,
+                reasons.size());
+        for (Map.Entry<String, String> entry : reasons.entrySet()) {
+            logger.info("  {} <- {}", entry.getKey(), entry.getValue());
+        }
+        if (impacted.getTests().isEmpty()) {
+            logger.info("No test is affected by the changes {}; the impacted suite is empty and nothing needs to run",
+                    changedFiles);
+        }
+        return impacted;
+    }
+
+    private static List<String> packageNames(XmlTest test) {
+        List<String> names = new ArrayList<>();
+        for (XmlPackage xmlPackage : test.getXmlPackages()) {
+            names.add(xmlPackage.getName());
+        }
+        return names;
+    }
+
+    private String reasonFor(String testClass, Set<String> changedClasses) {
+        if (changedClasses.contains(testClass)) {
+            return "changed";
+        }
+        Set<String> dependencies = graph.transitiveDependencies(testClass);
+        for (String changed : changedClasses) {
+            if (dependencies.contains(changed)) {
+                return changed;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Maps a Java source path to its class name
+     * @param path Repository-relative path with forward slashes
+     * @return Class name, or null if the path is not a Java source under a known source root
+     */
+    static String classNameOf(String path) {
+        if (!path.endsWith(".java")) {
+            return null;
+        }
+        for (String root : SOURCE_ROOTS) {
+            int start = path.indexOf(root);
+            if (start >= 0) {
+                String relative = path.substring(start + root.length(), path.length() - ".java".length());
+                return relative.replace('/', '.');
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lists files changed since a git ref, including uncommitted and untracked files
+     * @param baseRef Git ref to compare against, e.g. "origin/main"
+     * @return Paths relative to the repository root
+     * @throws IOException If git cannot be run
+     */
+    static List<String> changedFiles(String baseRef) throws IOException {
+        Set<String> files = new LinkedHashSet<>();
+        files.addAll(git("diff", "--name-only", baseRef));
+        files.addAll(git("ls-files", "--others", "--exclude-standard", "--full-name"));
+        return new ArrayList<>(files);
+    }
+
+    private static List<String> git(String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(Arrays.asList(args));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    lines.add(line.trim());
+                }
+            }
+        }
+        try {
+            if (process.waitFor() != 0) {
+                throw new IOException("git " + String.join(" ", args) + " failed: " + String.join("\n", lines));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running git", e);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,35 @@
+package utils.logging;
+
+import ch.qos.logback.core.OutputStreamAppender;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * Console appender bound to the real standard output captured when logging starts.
+ * logback's ConsoleAppender writes through System.out, which {@link StdoutRedirector}
+ * replaces; writing to the original stream keeps every log line from being fed back
+ * into logging as test output.
+ */
+public class DirectConsoleAppender<E> extends OutputStreamAppender<E> {
+
+    private static final PrintStream ORIGINAL_OUT = System.out;
+
+    @Override
+    public void start() {
+        setOutputStream(new FilterOutputStream(ORIGINAL_OUT) {
+            @Override
+            public void write(byte[] buffer, int offset, int length) throws IOException {
+                out.write(buffer, offset, length);
+            }
+
+            @Override
+            public void close() throws IOException {
+                // never close the process's standard output
+                flush();
+            }
+        });
+        super.start();
+    }
+}
@@ -0,0 +1,110 @@
+package utils.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+
+/**
+ * Routes System.out and System.err written by a running test into logging, so prints
+ * from tests and page objects carry the test id, land in the per-test capture and no
+ * longer interleave with other threads mid-line. Output from threads that are not running
+ * a test passes through unchanged. Console logging goes through {@link DirectConsoleAppender};
+ * a re-entrancy guard also sends any write made while logging a redirected line straight to
+ * the original stream.
+ */
+public final class StdoutRedirector {
+
+    private static final Logger stdoutLogger = LoggerFactory.getLogger("stdout");
+    private static final Logger stderrLogger = LoggerFactory.getLogger("stderr");
+    private static final ThreadLocal<Boolean> logging = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private static boolean installed;
+
+    private StdoutRedirector() {
+    }
+
+    /**
+     * Replaces System.out and System.err; calling it again has no effect
+     */
+    public static synchronized void install() {
+        if (installed) {
+            return;
+        }
+        System.setOut(new PrintStream(new LineLoggingStream(System.out, false), true));
+        System.setErr(new PrintStream(new LineLoggingStream(System.err, true), true));
+        installed = true;
+    }
+
+    /**
+     * Buffers bytes per thread and logs each complete line, and the unfinished one on flush
+     */
+    private static final class LineLoggingStream extends OutputStream {
+
+        private final PrintStream original;
+        private final boolean error;
+        private final ThreadLocal<ByteArrayOutputStream> pendingLine = ThreadLocal.withInitial(ByteArrayOutputStream::new);
+
+        private LineLoggingStream(PrintStream original, boolean error) {
+            this.original = original;
+            this.error = error;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            if (logging.get() || MDC.get(TestLogCapture.MDC_KEY) == null) {
+                original.write(buffer, offset, length);
+                return;
+            }
+            ByteArrayOutputStream pending = pendingLine.get();
+            for (int i = offset; i < offset + length; i++) {
+                if (buffer[i] == '\n') {
+                    emit(pending);
+                } else if (buffer[i] != '\r') {
+                    pending.write(buffer[i]);
+                }
+            }
+        }
+
+        /**
+         * Logs this thread's unfinished line, if any, so output without a final newline is not lost
+         */
+        @Override
+        public void flush() {
+            ByteArrayOutputStream pending = pendingLine.get();
+            if (pending.size() > 0 && !logging.get()) {
+                emit(pending);
+            }
+            original.flush();
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+
+        private void emit(ByteArrayOutputStream pending) {
+            String text = new String(pending.toByteArray(), Charset.defaultCharset());
+            pending.reset();
+            logging.set(Boolean.TRUE);
+            try {
+                if (error) {
+                    stderrLogger.warn(text);
+                } else {
+                    stdoutLogger.info(text);
+                }
+            } finally {
+                logging.set(Boolean.FALSE);
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package utils.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import utils.ConfigManager;
+import utils.resources.ResourceAllocator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-test log capture. While a test runs, its thread carries the test id and a unique
+ * invocation id in the MDC, and every log line tagged with them - including System.out output
+ * redirected by {@link StdoutRedirector} - is kept in a bounded in-memory buffer of that invocation
+ * by {@link TestLogCaptureAppender}. Each invocation has its own buffer, so data provider rows,
+ * invocationCount runs and the same test in parallel &lt;test&gt; blocks never share one.
+ * When the test ends the buffer is written to its own file under logs/tests/ if the test failed
+ * and dropped otherwise.
+ */
+public final class TestLogCapture {
+
+    /**
+     * MDC key holding the id of the test running on the current thread
+     */
+    public static final String MDC_KEY = "testId";
+
+    /**
+     * MDC key holding the id of the test invocation running on the current thread
+     */
+    public static final String INVOCATION_MDC_KEY = "testInvocation";
+
+    private static final Logger logger = LoggerFactory.getLogger(TestLogCapture.class);
+    private static final int MAX_LINES = ConfigManager.getIntProperty("log.capture.max.lines", 2000);
+    private static final DateTimeFormatter FILE_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+
+    private static final Map<String, Buffer> buffers = new ConcurrentHashMap<>();
+    private static final AtomicLong invocations = new AtomicLong();
+    private static final AtomicInteger persistedTests = new AtomicInteger();
+    private static final AtomicInteger discardedTests = new AtomicInteger();
+    private static final AtomicLong discardedLines = new AtomicLong();
+    private static final AtomicLong truncatedLines = new AtomicLong();
+
+    private TestLogCapture() {
+    }
+
+    /**
+     * Starts capturing the current thread's log lines for one invocation of a test
+     * @param testId Test id, e.g. "LoginTest.testSuccessfulLogin"
+     * @return Invocation id to pass to {@link #end(String, boolean)}
+     */
+    public static String begin(String testId) {
+        long number = invocations.incrementAndGet();
+        String invocationId = testId + "#" + number;
+        buffers.put(invocationId, new Buffer(testId, number, MDC.get(MDC_KEY), MDC.get(INVOCATION_MDC_KEY)));
+        MDC.put(MDC_KEY, testId);
+        MDC.put(INVOCATION_MDC_KEY, invocationId);
+        return invocationId;
+    }
+
+    /**
+     * Stops capturing for a test invocation, writing its log to a file if it failed
+     * @param invocationId Invocation id returned by {@link #begin(String)}, may be null
+     * @param failed Whether the test failed
+     * @return Path to the written log file, or null if the log was dropped
+     */
+    public static Path end(String invocationId, boolean failed) {
+        Buffer buffer = invocationId != null ? buffers.remove(invocationId) : null;
+        if (buffer == null) {
+            return null;
+        }
+        // output printed without a final newline is still held by StdoutRedirector; log it while the MDC is this test's
+        System.out.flush();
+        System.err.flush();
+        // a test run inside another one, e.g. a deferred retry, hands the thread back to the outer test
+        restore(MDC_KEY, buffer.outerTestId);
+        restore(INVOCATION_MDC_KEY, buffer.outerInvocationId);
+        String testId = buffer.testId;
+        List<String> lines = buffer.drain();
+        truncatedLines.addAndGet(buffer.dropped);
+        if (!failed) {
+            discardedTests.incrementAndGet();
+            discardedLines.addAndGet(lines.size());
+            return null;
+        }
+        if (buffer.dropped > 0) {
+            lines.add(0, "... " + buffer.dropped + " earlier line(s) dropped (log.capture.max.lines=" + MAX_LINES + ")"
+                    + System.lineSeparator());
+        }
+        try {
+            Path directory = ResourceAllocator.artifactPath(ConfigManager.getProperty("log.directory", "logs")).resolve("tests");
+            Files.createDirectories(directory);
+            // the invocation number keeps failures of the same test within one second apart
+            String fileName = (testId + "_" + LocalDateTime.now().format(FILE_DATE_FORMATTER) + "_" + buffer.number + ".log")
+                    .replaceAll("[^a-zA-Z0-9._-]", "_");
+            Path file = directory.resolve(fileName);
+            Files.write(file, String.join("", lines).getBytes(StandardCharsets.UTF_8));
+            persistedTests.incrementAndGet();
+            return file;
+        } catch (IOException e) {
+            logger.warn("Failed to write log of {}: {}", testId, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void restore(String key, String value) {
+        if (value != null) {
+            MDC.put(key, value);
+        } else {
+            MDC.remove(key);
+        }
+    }
+
+    /**
+     * Adds a formatted log line to the buffer of a test invocation that is being captured
+     * @param invocationId Invocation id from the event's MDC
+     * @param line Formatted line including its line separator
+     */
+    static void append(String invocationId, String line) {
+        Buffer buffer = buffers.get(invocationId);
+        if (buffer != null) {
+            buffer.add(line);
+        }
+    }
+
+    /**
+     * Summarises what the capture kept and dropped so far
+     * @return One-line summary
+     */
+    public static String summary() {
+        return String.format("Per-test logs: %d failed test log(s) written, %d passing test log(s) dropped (%d lines), "
+                + "%d line(s) over the buffer limit", persistedTests.get(), discardedTests.get(), discardedLines.get(),
+                truncatedLines.get());
+    }
+
+    /**
+     * Bounded line buffer keeping the most recent lines of one test invocation
+     */
+    private static final class Buffer {
+
+        private final String testId;
+        private final long number;
+        private final String outerTestId;
+        private final String outerInvocationId;
+        private final Deque<String> lines = new ArrayDeque<>();
+        private long dropped;
+
+        Buffer(String testId, long number, String outerTestId, String outerInvocationId) {
+            this.testId = testId;
+            this.number = number;
+            this.outerTestId = outerTestId;
+            this.outerInvocationId = outerInvocationId;
+        }
+
+        synchronized void add(String line) {
+            if (lines.size() >= MAX_LINES) {
+                lines.removeFirst();
+                dropped++;
+            }
+            lines.addLast(line);
+        }
+
+        synchronized List<String> drain() {
+            List<String> drained = new ArrayList<>(lines);
+            lines.clear();
+            return drained;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package utils.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.encoder.Encoder;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Logback appender feeding {@link TestLogCapture}: events tagged with a test id in the MDC
+ * are formatted with the configured encoder and added to that test's buffer; other events
+ * are ignored. Configured in logback.xml.
+ */
+public class TestLogCaptureAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    private Encoder<ILoggingEvent> encoder;
+
+    public Encoder<ILoggingEvent> getEncoder() {
+        return encoder;
+    }
+
+    public void setEncoder(Encoder<ILoggingEvent> encoder) {
+        this.encoder = encoder;
+    }
+
+    @Override
+    public void start() {
+        if (encoder == null) {
+            addError("No encoder set for the appender named [" + name + "].");
+            return;
+        }
+        super.start();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        String invocationId = event.getMDCPropertyMap().get(TestLogCapture.INVOCATION_MDC_KEY);
+        if (invocationId != null) {
+            TestLogCapture.append(invocationId, new String(encoder.encode(event), StandardCharsets.UTF_8));
+        }
+    }
+}
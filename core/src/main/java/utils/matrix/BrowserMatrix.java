@@ -0,0 +1,279 @@
+package utils.matrix;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IAlterSuiteListener;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+import org.testng.SkipException;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+import utils.ConfigManager;
+import utils.resources.ResourceAllocator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs every &lt;test&gt; block once per browser and profile in matrix.browsers and matrix.profiles.
+ * {@link #expand(XmlSuite)} replaces each block with one copy per combination, named e.g.
+ * "LoginTests [firefox/default]", with the browser and profile parameters set, and runs the copies
+ * in parallel so the run takes about as long as the slowest browser. Each copy has its own
+ * test instances and therefore its own driver.
+ * As a listener it expands the suites it runs in, skips the remaining tests of a combination once it has
+ * more than matrix.failure.budget failures, and reports passed, failed and skipped counts per combination.
+ * A suite is expanded only once, so DurationScheduler, which expands before sharding, may be registered too.
+ * Register it in the &lt;listeners&gt; section of testng.xml.
+ */
+public class BrowserMatrix implements IAlterSuiteListener, ITestListener, IInvokedMethodListener, ISuiteListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(BrowserMatrix.class);
+    private static final String DEFAULT_PROFILE = "default";
+
+    // TestNG may create one listener instance per listener interface, so state is shared statically
+    private static final Map<String, Combination> combinations = new ConcurrentHashMap<>();
+    // XmlSuite equality depends on its mutable content, so expanded suites are tracked by identity
+    private static final Set<XmlSuite> expandedSuites =
+            Collections.newSetFromMap(Collections.synchronizedMap(new IdentityHashMap<>()));
+
+    @Override
+    public void alter(List<XmlSuite> suites) {
+        for (XmlSuite suite : suites) {
+            expand(suite);
+        }
+    }
+
+    /**
+     * Expands a suite into one copy of each &lt;test&gt; block per browser and profile;
+     * does nothing when matrix.browsers is empty
+     * @param suite Suite about to run
+     */
+    public static void expand(XmlSuite suite) {
+        expand(suite, ConfigManager.getListProperty("matrix.browsers"), ConfigManager.getListProperty("matrix.profiles"));
+    }
+
+    /**
+     * Expands a suite into one copy of each &lt;test&gt; block per browser and profile;
+     * a suite that was already expanded is left as it is
+     * @param suite Suite about to run
+     * @param browsers Browsers; nothing is expanded when empty
+     * @param profiles Profiles; empty means the default profile only
+     */
+    public static void expand(XmlSuite suite, List<String> browsers, List<String> profiles) {
+        if (browsers.isEmpty() || !expandedSuites.add(suite)) {
+            return;
+        }
+        if (profiles.isEmpty()) {
+            profiles = Collections.singletonList(DEFAULT_PROFILE);
+        }
+
+        List<XmlTest> original = new ArrayList<>(suite.getTests());
+        List<XmlTest> expanded = new ArrayList<>();
+        for (XmlTest test : original) {
+            for (String browser : browsers) {
+                for (String profile : profiles) {
+                    // XmlTest(suite) registers the copy with the suite; the final list is set below
+                    XmlTest copy = new XmlTest(suite);
+                    copy.setName(test.getName() + " [" + browser + "/" + profile + "]");
+                    Map<String, String> parameters = new HashMap<>(test.getLocalParameters());
+                    parameters.put("browser", browser);
+                    parameters.put("profile", profile);
+                    copy.setParameters(parameters);
+                    copy.setParallel(test.getParallel());
+                    copy.setThreadCount(test.getThreadCount());
+                    copy.setPreserveOrder(test.getPreserveOrder());
+                    copy.setIncludedGroups(test.getIncludedGroups());
+                    copy.setExcludedGroups(test.getExcludedGroups());
+                    copy.setXmlClasses(test.getXmlClasses());
+                    copy.setXmlPackages(test.getXmlPackages());
+                    expanded.add(copy);
+                }
+            }
+        }
+        suite.setTests(expanded);
+
+        int combinationCount = browsers.size() * profiles.size();
+        suite.setParallel(XmlSuite.ParallelMode.TESTS);
+        suite.setThreadCount(Math.max(1, suite.getThreadCount()) * combinationCount);
+        logger.info("Browser matrix {} x {}: {} <test> block(s) expanded to {}, thread-count {}",
+                browsers, profiles, original.size(), expanded.size(), suite.getThreadCount());
+    }
+
+    /**
+     * Gets the combination a test ran in
+     * @param context Test context of the &lt;test&gt; block
+     * @return "browser/profile", e.g. "firefox/default"
+     */
+    public static String combinationOf(ITestContext context) {
+        return combinationOf(context.getCurrentXmlTest());
+    }
+
+    /**
+     * Gets the combination a &lt;test&gt; block runs in
+     * @param test &lt;test&gt; block
+     * @return "browser/profile"; the configured browser and the default profile fill in missing parameters
+     */
+    public static String combinationOf(XmlTest test) {
+        String browser = test.getParameter("browser");
+        String profile = test.getParameter("profile");
+        return (browser != null ? browser : ConfigManager.getDefaultBrowser()) + "/"
+                + (profile != null ? profile : DEFAULT_PROFILE);
+    }
+
+    /**
+     * Gets the suffix that keeps history ids and block names of different combinations apart
+     * @param test &lt;test&gt; block, may be null
+     * @return " [browser/profile]" when the block has a browser or profile parameter, otherwise ""
+     */
+    public static String combinationSuffixOf(XmlTest test) {
+        if (test == null || (test.getParameter("browser") == null && test.getParameter("profile") == null)) {
+            return "";
+        }
+        return " [" + combinationOf(test) + "]";
+    }
+
+    /**
+     * Builds the name a &lt;test&gt; block's durations are recorded under, so runs of the same block
+     * on different browsers or profiles keep separate histories
+     * @param test &lt;test&gt; block
+     * @return Block name followed by its combination, unless it already ends with it as expanded copies do
+     */
+    public static String blockNameOf(XmlTest test) {
+        String suffix = combinationSuffixOf(test);
+        return test.getName().endsWith(suffix) ? test.getName() : test.getName() + suffix;
+    }
+
+    /**
+     * Strips the combination from a history id
+     * @param testId History id, e.g. "LoginTest.testSuccessfulLogin [firefox/default]"
+     * @return Method id, e.g. "LoginTest.testSuccessfulLogin"
+     */
+    public static String withoutCombination(String testId) {
+        int combination = testId.indexOf(" [");
+        return combination >= 0 ? testId.substring(0, combination) : testId;
+    }
+
+    private static Combination combination(ITestContext context) {
+        return combinations.computeIfAbsent(combinationOf(context), key -> new Combination());
+    }
+
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult testResult) {
+        int budget = ConfigManager.getIntProperty("matrix.failure.budget", 0);
+        if (budget <= 0 || !method.isTestMethod()) {
+            return;
+        }
+        Combination combination = combination(testResult.getTestContext());
+        if (combination.failed.get() > budget) {
+            throw new SkipException("Skipped: " + combinationOf(testResult.getTestContext())
+                    + " exceeded its failure budget of " + budget);
+        }
+    }
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult testResult) {
+    }
+
+    @Override
+    public void onTestStart(ITestResult result) {
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        combination(result.getTestContext()).passed.incrementAndGet();
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        combination(result.getTestContext()).failed.incrementAndGet();
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        combination(result.getTestContext()).skipped.incrementAndGet();
+    }
+
+    @Override
+    public void onTestFailedButWithinSuccessPercentage(ITestResult result) {
+        combination(result.getTestContext()).failed.incrementAndGet();
+    }
+
+    @Override
+    public void onStart(ITestContext context) {
+        combination(context).blockStarted(context.getStartDate().getTime());
+    }
+
+    @Override
+    public void onFinish(ITestContext context) {
+        combination(context).blockFinished(context.getEndDate().getTime());
+    }
+
+    @Override
+    public void onStart(ISuite suite) {
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        if (combinations.isEmpty() || ConfigManager.getListProperty("matrix.browsers").isEmpty()) {
+            return;
+        }
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%-30s %8s %8s %8s %10s", "Combination", "Passed", "Failed", "Skipped", "Seconds"));
+        for (Map.Entry<String, Combination> entry : new TreeMap<>(combinations).entrySet()) {
+            Combination combination = entry.getValue();
+            lines.add(String.format("%-30s %8d %8d %8d %10.1f", entry.getKey(), combination.passed.get(),
+                    combination.failed.get(), combination.skipped.get(), combination.elapsedMillis() / 1000.0));
+        }
+        logger.info("Browser matrix results for suite {}:\n{}", suite.getName(), String.join("\n", lines));
+
+        Path report = ResourceAllocator.artifactPath(ConfigManager.getProperty("matrix.report.file", "test-output/browser-matrix.txt"));
+        try {
+            Files.createDirectories(report.toAbsolutePath().getParent());
+            Files.write(report, lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            logger.warn("Failed to write browser matrix report {}: {}", report, e.getMessage());
+        }
+    }
+
+    /**
+     * Outcome counts and wall-clock span of one browser/profile combination
+     */
+    private static final class Combination {
+
+        private final AtomicInteger passed = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final AtomicLong firstStart = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong lastEnd = new AtomicLong();
+
+        void blockStarted(long startMillis) {
+            firstStart.accumulateAndGet(startMillis, Math::min);
+        }
+
+        void blockFinished(long endMillis) {
+            lastEnd.accumulateAndGet(endMillis, Math::max);
+        }
+
+        long elapsedMillis() {
+            return lastEnd.get() > firstStart.get() ? lastEnd.get() - firstStart.get() : 0L;
+        }
+    }
+}
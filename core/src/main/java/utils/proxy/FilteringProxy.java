@@ -0,0 +1,398 @@
+package utils.proxy;
+
+import org.openqa.selenium.Proxy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An HTTP proxy on localhost for one browser session that applies {@link ProxyRules}:
+ * denied requests get 403, stubbed ones an empty resource of the same type (a 1x1 GIF for images),
+ * and everything else is forwarded. HTTPS goes through opaque CONNECT tunnels, which are allowed or
+ * denied by host only: path rules such as "*.woff2" or "*.png" apply to plain-HTTP traffic alone,
+ * e.g. an application replayed by the StandInServer on http://localhost. Requests, bytes transferred and, with measureBlocked, the size of
+ * blocked resources are counted per page, taken from the Referer header.
+ * Each request uses its own upstream connection; keep-alive is not supported.
+ */
+public class FilteringProxy {
+
+    private static final Logger logger = LoggerFactory.getLogger(FilteringProxy.class);
+    private static final int MAX_HEAD_BYTES = 64 * 1024;
+    private static final int TIMEOUT_MILLIS = 60_000;
+    private static final byte[] TRANSPARENT_GIF = Base64.getDecoder().decode("R0lGODlhAQABAIAAAAAAAP///yH5BAEAAAAALAAAAAABAAEAAAIBRAA7");
+
+    private final ProxyRules rules;
+    private final boolean measureBlocked;
+    private final Map<String, PageStats> pages = new ConcurrentHashMap<>();
+
+    private ServerSocket serverSocket;
+    private ExecutorService executor;
+
+    /**
+     * Constructor
+     * @param rules Rules of the session's profile
+     * @param measureBlocked Whether to send a HEAD request for each blocked URL to learn the bytes saved
+     */
+    public FilteringProxy(ProxyRules rules, boolean measureBlocked) {
+        this.rules = rules;
+        this.measureBlocked = measureBlocked;
+    }
+
+    /**
+     * Starts accepting connections on a free localhost port
+     * @throws IOException if no port can be bound
+     */
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "filtering-proxy");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::acceptConnections);
+        logger.info("Filtering proxy listening on {}", getAddress());
+    }
+
+    /**
+     * Gets the proxy address for browser options
+     * @return "localhost:port"
+     */
+    public String getAddress() {
+        return "localhost:" + serverSocket.getLocalPort();
+    }
+
+    /**
+     * Gets the proxy as Selenium capabilities for HTTP and HTTPS
+     * @return Manual proxy pointing at this proxy
+     */
+    public Proxy asSeleniumProxy() {
+        return new Proxy().setHttpProxy(getAddress()).setSslProxy(getAddress());
+    }
+
+    /**
+     * Stops accepting connections and closes open ones
+     */
+    public void stop() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            logger.debug("Failed to close proxy socket: {}", e.getMessage());
+        }
+        executor.shutdownNow();
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket client = serverSocket.accept();
+                executor.execute(() -> handle(client));
+            } catch (SocketException e) {
+                return;
+            } catch (IOException e) {
+                logger.debug("Proxy accept failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void handle(Socket client) {
+        try (Socket socket = client) {
+            socket.setSoTimeout(TIMEOUT_MILLIS);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            String head = readHead(in);
+            if (head == null) {
+                return;
+            }
+            String[] lines = head.split("\r\n");
+            String[] requestLine = lines[0].split(" ");
+            if (requestLine.length < 3) {
+                respond(socket.getOutputStream(), "400 Bad Request", null, new byte[0]);
+                return;
+            }
+            if ("CONNECT".equalsIgnoreCase(requestLine[0])) {
+                tunnel(socket, in, requestLine[1]);
+            } else {
+                forward(socket, in, requestLine[0], requestLine[1], lines);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Proxy connection failed: {}", e.getMessage());
+        }
+    }
+
+    private void forward(Socket client, InputStream in, String method, String url, String[] lines) throws IOException {
+        OutputStream out = client.getOutputStream();
+        if (!url.startsWith("http://")) {
+            respond(out, "400 Bad Request", null, new byte[0]);
+            return;
+        }
+        String referer = header(lines, "Referer");
+        PageStats page = statsFor(referer != null ? referer : url);
+        ProxyRules.Decision decision = rules.decide(url);
+        if (decision != ProxyRules.Decision.ALLOW) {
+            block(out, page, url, decision);
+            return;
+        }
+
+        URI uri = URI.create(url);
+        try (Socket upstream = new Socket(uri.getHost(), uri.getPort() > 0 ? uri.getPort() : 80)) {
+            upstream.setSoTimeout(TIMEOUT_MILLIS);
+            StringBuilder request = new StringBuilder();
+            request.append(method).append(' ').append(uri.getRawPath().isEmpty() ? "/" : uri.getRawPath())
+                    .append(uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "").append(" HTTP/1.1\r\n");
+            for (int i = 1; i < lines.length; i++) {
+                String name = lines[i].split(":", 2)[0].trim().toLowerCase(Locale.ROOT);
+                if (!name.equals("proxy-connection") && !name.equals("connection") && !name.equals("keep-alive")) {
+                    request.append(lines[i]).append("\r\n");
+                }
+            }
+            request.append("Connection: close\r\n\r\n");
+            OutputStream upstreamOut = upstream.getOutputStream();
+            upstreamOut.write(request.toString().getBytes(StandardCharsets.ISO_8859_1));
+            String contentLength = header(lines, "Content-Length");
+            String transferEncoding = header(lines, "Transfer-Encoding");
+            if (transferEncoding != null && transferEncoding.toLowerCase(Locale.ROOT).contains("chunked")) {
+                copyChunked(in, upstreamOut);
+            } else if (contentLength != null) {
+                copy(in, upstreamOut, Long.parseLong(contentLength.trim()));
+            }
+            upstreamOut.flush();
+            long received = copy(upstream.getInputStream(), out, Long.MAX_VALUE);
+            page.allowed.incrementAndGet();
+            page.transferredBytes.addAndGet(received);
+        }
+    }
+
+    private void tunnel(Socket client, InputStream in, String hostAndPort) throws IOException {
+        OutputStream out = client.getOutputStream();
+        String url = "https://" + hostAndPort + "/";
+        PageStats page = statsFor(url);
+        if (rules.decide(url) != ProxyRules.Decision.ALLOW) {
+            // a tunnel cannot be stubbed; its content is encrypted
+            block(out, page, url, ProxyRules.Decision.DENY);
+            return;
+        }
+        int colon = hostAndPort.lastIndexOf(':');
+        try (Socket upstream = new Socket(hostAndPort.substring(0, colon), Integer.parseInt(hostAndPort.substring(colon + 1)))) {
+            upstream.setSoTimeout(TIMEOUT_MILLIS);
+            out.write("HTTP/1.1 200 Connection Established\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            executor.execute(() -> {
+                try {
+                    page.transferredBytes.addAndGet(copy(in, upstream.getOutputStream(), Long.MAX_VALUE));
+                    upstream.shutdownOutput();
+                } catch (IOException e) {
+                    logger.debug("Tunnel to {} closed: {}", hostAndPort, e.getMessage());
+                }
+            });
+            page.allowed.incrementAndGet();
+            page.transferredBytes.addAndGet(copy(upstream.getInputStream(), out, Long.MAX_VALUE));
+        }
+    }
+
+    private void block(OutputStream out, PageStats page, String url, ProxyRules.Decision decision) throws IOException {
+        if (decision == ProxyRules.Decision.STUB) {
+            page.stubbed.incrementAndGet();
+            String path = URI.create(url).getPath().toLowerCase(Locale.ROOT);
+            respond(out, "200 OK", stubType(path), stubBody(path));
+        } else {
+            page.blocked.incrementAndGet();
+            respond(out, "403 Forbidden", null, new byte[0]);
+        }
+        logger.debug("{} {}", decision, url);
+        if (measureBlocked && url.startsWith("http")) {
+            executor.execute(() -> page.savedBytes.addAndGet(contentLength(url)));
+        }
+    }
+
+    private static long contentLength(String url) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestMethod("HEAD");
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+            long length = connection.getContentLengthLong();
+            connection.disconnect();
+            return Math.max(0, length);
+        } catch (IOException | IllegalArgumentException e) {
+            return 0;
+        }
+    }
+
+    private static String stubType(String path) {
+        if (isImage(path)) {
+            return path.endsWith(".svg") ? "image/svg+xml" : "image/gif";
+        }
+        if (path.endsWith(".css")) {
+            return "text/css";
+        }
+        if (path.endsWith(".js")) {
+            return "application/javascript";
+        }
+        return path.endsWith(".json") ? "application/json" : "application/octet-stream";
+    }
+
+    private static byte[] stubBody(String path) {
+        if (path.endsWith(".svg")) {
+            return "<svg xmlns=\"http://www.w3.org/2000/svg\"/>".getBytes(StandardCharsets.UTF_8);
+        }
+        if (isImage(path)) {
+            return TRANSPARENT_GIF;
+        }
+        return path.endsWith(".json") ? "{}".getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+
+    private static boolean isImage(String path) {
+        return path.matches(".*\\.(png|jpe?g|gif|ico|webp|bmp|svg)$");
+    }
+
+    private static void respond(OutputStream out, String status, String contentType, byte[] body) throws IOException {
+        String head = "HTTP/1.1 " + status + "\r\n"
+                + (contentType != null ? "Content-Type: " + contentType + "\r\n" : "")
+                + "Content-Length: " + body.length + "\r\nX-Filtered-By: test-proxy\r\nConnection: close\r\n\r\n";
+        out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+        out.write(body);
+        out.flush();
+    }
+
+    private static String readHead(InputStream in) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        int lastFour = 0;
+        int b;
+        while ((b = in.read()) != -1) {
+            head.write(b);
+            // the head ends with an empty line: \r\n\r\n
+            lastFour = (lastFour << 8) | b;
+            if (lastFour == 0x0D0A0D0A) {
+                return new String(head.toByteArray(), StandardCharsets.ISO_8859_1).trim();
+            }
+            if (head.size() > MAX_HEAD_BYTES) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static String header(String[] lines, String name) {
+        for (int i = 1; i < lines.length; i++) {
+            String[] parts = lines[i].split(":", 2);
+            if (parts.length == 2 && parts[0].trim().equalsIgnoreCase(name)) {
+                return parts[1].trim();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Relays a chunked body as it is, chunk by chunk, up to and including the empty line after the last chunk
+     */
+    private static void copyChunked(InputStream in, OutputStream out) throws IOException {
+        long size;
+        do {
+            String sizeLine = readLine(in);
+            out.write((sizeLine + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            int extension = sizeLine.indexOf(';');
+            size = Long.parseLong((extension < 0 ? sizeLine : sizeLine.substring(0, extension)).trim(), 16);
+            // chunk data and its closing CRLF
+            if (size > 0 && copy(in, out, size + 2) < size + 2) {
+                throw new IOException("Chunked request body ended early");
+            }
+        } while (size > 0);
+        // optional trailer fields, then the empty line
+        String trailer;
+        do {
+            trailer = readLine(in);
+            out.write((trailer + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        } while (!trailer.isEmpty());
+        out.flush();
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1 || line.size() > MAX_HEAD_BYTES) {
+                throw new IOException("Chunked request body ended early");
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return new String(line.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    private static long copy(InputStream in, OutputStream out, long limit) throws IOException {
+        byte[] buffer = new byte[16 * 1024];
+        long total = 0;
+        int read;
+        while (total < limit && (read = in.read(buffer, 0, (int) Math.min(buffer.length, limit - total))) != -1) {
+            out.write(buffer, 0, read);
+            out.flush();
+            total += read;
+        }
+        return total;
+    }
+
+    private PageStats statsFor(String url) {
+        int query = url.indexOf('?');
+        return pages.computeIfAbsent(query < 0 ? url : url.substring(0, query), key -> new PageStats());
+    }
+
+    /**
+     * Describes the requests handled so far, one line per page
+     * @return Table lines: page, allowed, denied, stubbed, KB transferred, KB saved (when measured)
+     */
+    public List<String> report() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%-70s %8s %8s %8s %10s %10s", "Page", "Allowed", "Denied", "Stubbed", "KB in", "KB saved"));
+        long savedRequests = 0;
+        long transferred = 0;
+        long saved = 0;
+        for (Map.Entry<String, PageStats> entry : new TreeMap<>(pages).entrySet()) {
+            PageStats stats = entry.getValue();
+            lines.add(String.format("%-70s %8d %8d %8d %10d %10s", entry.getKey(), stats.allowed.get(), stats.blocked.get(),
+                    stats.stubbed.get(), stats.transferredBytes.get() / 1024,
+                    measureBlocked ? String.valueOf(stats.savedBytes.get() / 1024) : "-"));
+            savedRequests += stats.blocked.get() + stats.stubbed.get();
+            transferred += stats.transferredBytes.get();
+            saved += stats.savedBytes.get();
+        }
+        lines.add(String.format("Total: %d request(s) saved, %d KB transferred%s", savedRequests, transferred / 1024,
+                measureBlocked ? ", " + saved / 1024 + " KB saved" : ""));
+        return lines;
+    }
+
+    /**
+     * Request and byte counts of one page and the resources it loaded
+     */
+    private static final class PageStats {
+
+        private final AtomicInteger allowed = new AtomicInteger();
+        private final AtomicInteger blocked = new AtomicInteger();
+        private final AtomicInteger stubbed = new AtomicInteger();
+        private final AtomicLong transferredBytes = new AtomicLong();
+        private final AtomicLong savedBytes = new AtomicLong();
+    }
+}
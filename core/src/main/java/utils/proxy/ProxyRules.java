@@ -0,0 +1,93 @@
+package utils.proxy;
+
+import utils.ConfigManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Allow, deny and stub rules of one profile, as URL globs such as "*.woff2" or "*google-analytics.com*".
+ * Allow wins over deny and stub, so a profile can deny "*.png" and still allow "*logo.png".
+ * HTTPS requests are only seen as "https://host:port/" tunnels, so only host patterns apply to them;
+ * path patterns such as "*.png" filter plain-HTTP traffic only, e.g. the StandInServer's.
+ */
+public final class ProxyRules {
+
+    /**
+     * What happens to a request
+     */
+    public enum Decision {
+        ALLOW, DENY, STUB
+    }
+
+    private final List<Pattern> allow;
+    private final List<Pattern> deny;
+    private final List<Pattern> stub;
+
+    /**
+     * Constructor
+     * @param allow Globs always forwarded
+     * @param deny Globs answered with 403 Forbidden
+     * @param stub Globs answered with an empty resource of the same type
+     */
+    public ProxyRules(List<String> allow, List<String> deny, List<String> stub) {
+        this.allow = compile(allow);
+        this.deny = compile(deny);
+        this.stub = compile(stub);
+    }
+
+    /**
+     * Reads proxy.rules.&lt;profile&gt;.allow, .deny and .stub, each falling back to the default profile's list
+     * @param profile Browser profile name, e.g. "default" or "mobile"
+     * @return Rules of the profile
+     */
+    public static ProxyRules forProfile(String profile) {
+        return new ProxyRules(list(profile, "allow"), list(profile, "deny"), list(profile, "stub"));
+    }
+
+    private static List<String> list(String profile, String kind) {
+        String key = "proxy.rules." + profile + "." + kind;
+        return ConfigManager.snapshot().get(key) != null ? ConfigManager.getListProperty(key)
+                : ConfigManager.getListProperty("proxy.rules.default." + kind);
+    }
+
+    /**
+     * Decides what to do with a request; globs are matched with and without the query string
+     * @param url Absolute URL, or "https://host:port/" for a tunnel
+     * @return ALLOW, DENY or STUB
+     */
+    public Decision decide(String url) {
+        int query = url.indexOf('?');
+        String withoutQuery = query < 0 ? url : url.substring(0, query);
+        if (matches(allow, url, withoutQuery)) {
+            return Decision.ALLOW;
+        }
+        if (matches(deny, url, withoutQuery)) {
+            return Decision.DENY;
+        }
+        return matches(stub, url, withoutQuery) ? Decision.STUB : Decision.ALLOW;
+    }
+
+    private static boolean matches(List<Pattern> patterns, String url, String withoutQuery) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(url).matches() || pattern.matcher(withoutQuery).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Pattern> compile(List<String> globs) {
+        List<Pattern> patterns = new ArrayList<>();
+        for (String glob : globs) {
+            StringBuilder regex = new StringBuilder();
+            String[] parts = glob.trim().split("\\*", -1);
+            for (int i = 0; i < parts.length; i++) {
+                regex.append(i > 0 ? ".*" : "").append(Pattern.quote(parts[i]));
+            }
+            patterns.add(Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE));
+        }
+        return patterns;
+    }
+}
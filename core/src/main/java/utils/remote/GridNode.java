@@ -0,0 +1,123 @@
+package utils.remote;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+/**
+ * One WebDriver endpoint, such as a Selenium standalone server, with its session slots,
+ * session start-up latency and health. State is guarded by the owning {@link NodeScheduler}.
+ */
+public class GridNode {
+
+    private static final double LATENCY_WEIGHT = 0.3;
+
+    private final URL url;
+    private final int maxSessions;
+    private int activeSessions;
+    private long latencyMillis;
+    private int consecutiveFailures;
+    private long unhealthyUntil;
+
+    /**
+     * Constructor
+     * @param url WebDriver endpoint, e.g. http://localhost:4444/wd/hub
+     * @param maxSessions Number of sessions the node runs at once
+     */
+    public GridNode(URL url, int maxSessions) {
+        this.url = url;
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * Parses a node from configuration
+     * @param spec Endpoint URL, optionally followed by |slots, e.g. "http://host:4444/wd/hub|4"
+     * @param defaultSessions Slots used when the spec has none
+     * @return Node
+     */
+    public static GridNode parse(String spec, int defaultSessions) {
+        String[] parts = spec.trim().split("\\|");
+        try {
+            int sessions = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : defaultSessions;
+            return new GridNode(new URL(parts[0].trim()), sessions);
+        } catch (MalformedURLException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid remote node '" + spec + "': " + e.getMessage(), e);
+        }
+    }
+
+    public URL getUrl() {
+        return url;
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    public int getActiveSessions() {
+        return activeSessions;
+    }
+
+    /**
+     * Gets the smoothed time the node took to start recent sessions
+     * @return Latency in milliseconds, 0 until a session has started
+     */
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    /**
+     * Checks whether the node may receive sessions
+     * @param now Current time in epoch millis
+     * @return false while the node is cooling down after repeated failures
+     */
+    public boolean isHealthy(long now) {
+        return now >= unhealthyUntil;
+    }
+
+    long getUnhealthyUntil() {
+        return unhealthyUntil;
+    }
+
+    boolean hasFreeSlot() {
+        return activeSessions < maxSessions;
+    }
+
+    double load() {
+        return (double) activeSessions / maxSessions;
+    }
+
+    void reserve() {
+        activeSessions++;
+    }
+
+    void release() {
+        activeSessions--;
+    }
+
+    void recordSuccess(long startMillis) {
+        consecutiveFailures = 0;
+        latencyMillis = latencyMillis == 0 ? startMillis
+                : Math.round(LATENCY_WEIGHT * startMillis + (1 - LATENCY_WEIGHT) * latencyMillis);
+    }
+
+    /**
+     * Records a failed session start
+     * @param maxFailures Consecutive failures after which the node is taken out of rotation
+     * @param until Epoch millis until which an unhealthy node receives no sessions
+     * @return true if this failure made the node unhealthy
+     */
+    boolean recordFailure(int maxFailures, long until) {
+        consecutiveFailures++;
+        if (consecutiveFailures >= maxFailures) {
+            unhealthyUntil = until;
+            // after the cool-down a single further failure takes the node out again
+            consecutiveFailures = maxFailures - 1;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return url + " (" + activeSessions + "/" + maxSessions + " sessions, " + latencyMillis + " ms)";
+    }
+}
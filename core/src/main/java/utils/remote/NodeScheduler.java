@@ -0,0 +1,229 @@
+package utils.remote;
+
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.ConfigManager;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts RemoteWebDriver sessions on a set of WebDriver endpoints (remote.nodes).
+ * Each session goes to the healthy node with the lowest share of busy slots, then the lowest
+ * start-up latency. When every slot is busy, callers wait up to remote.queue.timeout.seconds.
+ * A node whose session starts fail remote.node.max.failures times in a row is skipped for
+ * remote.node.cooldown.seconds.
+ */
+public class NodeScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(NodeScheduler.class);
+
+    private static volatile NodeScheduler shared;
+
+    private final List<GridNode> nodes;
+    private final SessionFactory sessionFactory;
+    private final long queueTimeoutMillis;
+    private final int maxFailures;
+    private final long cooldownMillis;
+
+    /**
+     * Starts a WebDriver session on an endpoint
+     */
+    public interface SessionFactory {
+
+        /**
+         * @param url Node endpoint
+         * @param capabilities Requested capabilities
+         * @return New session
+         */
+        WebDriver create(URL url, Capabilities capabilities);
+    }
+
+    /**
+     * Constructor
+     * @param nodes Endpoints to schedule on
+     * @param sessionFactory Starts sessions, normally {@link RemoteWebDriver}
+     * @param queueTimeoutMillis Maximum time to wait for a free, healthy slot
+     * @param maxFailures Consecutive failed starts that take a node out of rotation
+     * @param cooldownMillis Time an unhealthy node is skipped
+     */
+    public NodeScheduler(List<GridNode> nodes, SessionFactory sessionFactory, long queueTimeoutMillis,
+                         int maxFailures, long cooldownMillis) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("No remote nodes configured");
+        }
+        this.nodes = new ArrayList<>(nodes);
+        this.sessionFactory = sessionFactory;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.maxFailures = maxFailures;
+        this.cooldownMillis = cooldownMillis;
+    }
+
+    /**
+     * Checks whether tests should run on remote nodes instead of local browsers
+     * @return Value of remote.enabled
+     */
+    public static boolean isEnabled() {
+        return ConfigManager.getBooleanProperty("remote.enabled");
+    }
+
+    /**
+     * Gets the scheduler for the configured remote.nodes; one per JVM
+     * @return Shared scheduler
+     */
+    public static NodeScheduler shared() {
+        if (shared == null) {
+            synchronized (NodeScheduler.class) {
+                if (shared == null) {
+                    List<GridNode> nodes = new ArrayList<>();
+                    int defaultSessions = ConfigManager.getIntProperty("remote.node.max.sessions", 1);
+                    for (String spec : ConfigManager.getListProperty("remote.nodes")) {
+                        nodes.add(GridNode.parse(spec, defaultSessions));
+                    }
+                    shared = new NodeScheduler(nodes, RemoteWebDriver::new,
+                            TimeUnit.SECONDS.toMillis(ConfigManager.getIntProperty("remote.queue.timeout.seconds", 600)),
+                            ConfigManager.getIntProperty("remote.node.max.failures", 3),
+                            TimeUnit.SECONDS.toMillis(ConfigManager.getIntProperty("remote.node.cooldown.seconds", 60)));
+                    logger.info("Remote WebDriver nodes: {}", nodes);
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Starts a session on the least-loaded healthy node, waiting for a free slot if necessary;
+     * a node that fails to start the session is charged a failure and the next node is tried
+     * @param capabilities Requested browser and options
+     * @return Session holding a node slot until {@link Session#release()}
+     * @throws IllegalStateException if no session could be started before the queue timeout,
+     *                               or every node failed maxFailures times for this request
+     */
+    public Session acquire(Capabilities capabilities) {
+        long deadline = System.currentTimeMillis() + queueTimeoutMillis;
+        int attemptsLeft = nodes.size() * maxFailures;
+        RuntimeException lastFailure = null;
+        while (true) {
+            GridNode node = attemptsLeft > 0 ? reserve(deadline) : null;
+            if (node == null) {
+                throw new IllegalStateException("Could not start a remote WebDriver session"
+                        + (attemptsLeft > 0 ? " within " + queueTimeoutMillis + " ms" : "") + ": " + describe(), lastFailure);
+            }
+            attemptsLeft--;
+            long start = System.currentTimeMillis();
+            try {
+                WebDriver driver = sessionFactory.create(node.getUrl(), capabilities);
+                succeeded(node, System.currentTimeMillis() - start);
+                logger.info("Started {} session on {}", capabilities.getBrowserName(), node.getUrl());
+                return new Session(driver, node);
+            } catch (RuntimeException e) {
+                lastFailure = e;
+                failed(node, e);
+            }
+        }
+    }
+
+    private synchronized GridNode reserve(long deadline) {
+        while (true) {
+            long now = System.currentTimeMillis();
+            GridNode best = null;
+            long nextRecovery = Long.MAX_VALUE;
+            for (GridNode node : nodes) {
+                if (!node.isHealthy(now)) {
+                    nextRecovery = Math.min(nextRecovery, node.getUnhealthyUntil());
+                } else if (node.hasFreeSlot() && (best == null || node.load() < best.load()
+                        || (node.load() == best.load() && node.getLatencyMillis() < best.getLatencyMillis()))) {
+                    best = node;
+                }
+            }
+            if (best != null) {
+                best.reserve();
+                return best;
+            }
+            if (now >= deadline) {
+                return null;
+            }
+            try {
+                // woken by a released slot, or when the first unhealthy node's cool-down ends
+                wait(Math.max(1, Math.min(deadline, nextRecovery) - now));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+    }
+
+    private synchronized void succeeded(GridNode node, long startMillis) {
+        node.recordSuccess(startMillis);
+    }
+
+    private synchronized void failed(GridNode node, RuntimeException e) {
+        node.release();
+        if (node.recordFailure(maxFailures, System.currentTimeMillis() + cooldownMillis)) {
+            logger.warn("Remote node {} marked unhealthy for {} s after repeated failures: {}",
+                    node.getUrl(), TimeUnit.MILLISECONDS.toSeconds(cooldownMillis), e.getMessage());
+        } else {
+            logger.warn("Could not start a session on {}: {}", node.getUrl(), e.getMessage());
+        }
+        notifyAll();
+    }
+
+    private synchronized void release(GridNode node) {
+        node.release();
+        notifyAll();
+    }
+
+    /**
+     * Describes the nodes' slots, latency and health
+     * @return One entry per node
+     */
+    public synchronized String describe() {
+        long now = System.currentTimeMillis();
+        List<String> states = new ArrayList<>();
+        for (GridNode node : nodes) {
+            states.add(node + (node.isHealthy(now) ? "" : " unhealthy"));
+        }
+        return states.toString();
+    }
+
+    /**
+     * A started session and the node slot it occupies
+     */
+    public final class Session {
+
+        private final WebDriver driver;
+        private final GridNode node;
+        private boolean released;
+
+        private Session(WebDriver driver, GridNode node) {
+            this.driver = driver;
+            this.node = node;
+        }
+
+        public WebDriver getDriver() {
+            return driver;
+        }
+
+        public GridNode getNode() {
+            return node;
+        }
+
+        /**
+         * Returns the slot to the node; call after quitting the driver. Further calls have no effect
+         */
+        public void release() {
+            synchronized (NodeScheduler.this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            NodeScheduler.this.release(node);
+        }
+    }
+}
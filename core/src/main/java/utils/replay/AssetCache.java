@@ -0,0 +1,304 @@
+package utils.replay;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An HTTP cache shared by every browser session that goes through a {@link StandInServer} in CACHE mode.
+ * Only 200 responses to GET requests that a shared cache may keep are stored: no-store, private,
+ * Set-Cookie and Vary (other than Accept-Encoding) responses pass through. An entry is fresh for
+ * s-maxage, max-age, Expires minus Date or, with only Last-Modified, a tenth of its age; stale and
+ * no-cache entries are revalidated with If-None-Match and If-Modified-Since. Entries are kept in memory
+ * up to maxBytes, least recently used first out; with a directory they are saved and reused by later runs.
+ */
+public final class AssetCache {
+
+    private static final Gson GSON = new Gson();
+    private static final String INDEX = "index.json";
+    private static final Pattern MAX_AGE = Pattern.compile("(?:^|,)\\s*(s-maxage|max-age)\\s*=\\s*\"?(\\d+)");
+
+    private final Path directory;
+    private final long maxBytes;
+    // access order, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private int hits;
+    private int revalidated;
+    private int misses;
+    private long savedBytes;
+
+    /**
+     * Constructor
+     * @param directory Directory the cache is saved to and loaded from, or null to keep it in memory for this run only
+     * @param maxBytes Largest total body size kept
+     */
+    public AssetCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Loads the entries saved by an earlier run; does nothing without a directory or saved index
+     * @throws IOException if the index or a body cannot be read
+     */
+    public synchronized void load() throws IOException {
+        if (directory == null || !Files.exists(directory.resolve(INDEX))) {
+            return;
+        }
+        List<Entry> saved;
+        try (Reader reader = Files.newBufferedReader(directory.resolve(INDEX), StandardCharsets.UTF_8)) {
+            saved = GSON.fromJson(reader, new TypeToken<List<Entry>>() { }.getType());
+        }
+        for (Entry entry : saved) {
+            Path body = directory.resolve(entry.bodyFile);
+            if (Files.exists(body)) {
+                entry.body = Files.readAllBytes(body);
+                add(entry);
+            }
+        }
+    }
+
+    /**
+     * Writes all entries to the directory, replacing what an earlier run saved; does nothing without a directory
+     * @throws IOException if the directory cannot be written
+     */
+    public synchronized void save() throws IOException {
+        if (directory == null) {
+            return;
+        }
+        Files.createDirectories(directory.resolve("bodies"));
+        Set<String> current = new HashSet<>();
+        for (Entry entry : entries.values()) {
+            if (entry.bodyFile == null) {
+                entry.bodyFile = "bodies/" + UUID.randomUUID() + ".bin";
+                Files.write(directory.resolve(entry.bodyFile), entry.body);
+            }
+            current.add(entry.bodyFile);
+        }
+        try (DirectoryStream<Path> bodies = Files.newDirectoryStream(directory.resolve("bodies"))) {
+            for (Path body : bodies) {
+                if (!current.contains("bodies/" + body.getFileName())) {
+                    Files.delete(body);
+                }
+            }
+        }
+        try (Writer writer = Files.newBufferedWriter(directory.resolve(INDEX), StandardCharsets.UTF_8)) {
+            GSON.toJson(new ArrayList<>(entries.values()), writer);
+        }
+    }
+
+    /**
+     * Looks up a request
+     * @param key Normalised request target
+     * @return Entry, fresh or stale, or null if none is stored
+     */
+    synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Counts a response served from a fresh entry
+     * @param entry Entry served
+     * @return Copy of the entry's headers to send
+     */
+    synchronized Map<String, List<String>> hit(Entry entry) {
+        hits++;
+        savedBytes += entry.body.length;
+        return new LinkedHashMap<>(entry.headers);
+    }
+
+    /**
+     * Renews a stale entry the server confirmed with 304 Not Modified and counts it
+     * @param entry Entry revalidated
+     * @param headers Headers of the 304 response, which replace the stored ones of the same name
+     * @param now Current time in milliseconds
+     * @return Copy of the entry's renewed headers to send
+     */
+    synchronized Map<String, List<String>> revalidated(Entry entry, Map<String, List<String>> headers, long now) {
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            entry.headers.keySet().removeIf(name -> name.equalsIgnoreCase(header.getKey()));
+            entry.headers.put(header.getKey(), header.getValue());
+        }
+        entry.expiresAtMillis = now + Math.max(0, lifetimeMillis(entry.headers, now));
+        revalidated++;
+        savedBytes += entry.body.length;
+        return new LinkedHashMap<>(entry.headers);
+    }
+
+    /**
+     * Counts a response fetched from the server and stores it if a shared cache may
+     * @param key Normalised request target
+     * @param status Response status
+     * @param headers Response headers
+     * @param body Response body
+     * @param now Current time in milliseconds
+     * @return True if the response was stored
+     */
+    synchronized boolean store(String key, int status, Map<String, List<String>> headers, byte[] body, long now) {
+        misses++;
+        long lifetime = status == 200 ? lifetimeMillis(headers, now) : -1;
+        if (lifetime < 0 || body.length > maxBytes) {
+            return false;
+        }
+        Entry entry = new Entry();
+        entry.key = key;
+        entry.status = status;
+        entry.headers = new LinkedHashMap<>(headers);
+        entry.expiresAtMillis = now + lifetime;
+        entry.body = body;
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            bytes -= previous.body.length;
+        }
+        add(entry);
+        return true;
+    }
+
+    private void add(Entry entry) {
+        entries.put(entry.key, entry);
+        bytes += entry.body.length;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().body.length;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Works out how long a response stays fresh
+     * @param headers Response headers
+     * @param now Current time in milliseconds, used when the response has no Date header
+     * @return Milliseconds, 0 if it must be revalidated on every use, or -1 if a shared cache must not store it
+     */
+    static long lifetimeMillis(Map<String, List<String>> headers, long now) {
+        String cacheControl = String.join(",", values(headers, "Cache-Control")).toLowerCase(Locale.ROOT);
+        if (cacheControl.contains("no-store") || cacheControl.contains("private") || !values(headers, "Set-Cookie").isEmpty()) {
+            return -1;
+        }
+        for (String vary : values(headers, "Vary")) {
+            for (String name : vary.split(",")) {
+                if (!name.trim().isEmpty() && !name.trim().equalsIgnoreCase("Accept-Encoding")) {
+                    return -1;
+                }
+            }
+        }
+        boolean validated = first(headers, "ETag") != null || first(headers, "Last-Modified") != null;
+        if (cacheControl.contains("no-cache")) {
+            return validated ? 0 : -1;
+        }
+        Matcher maxAge = MAX_AGE.matcher(cacheControl);
+        long lifetime = -1;
+        while (maxAge.find()) {
+            // s-maxage is meant for shared caches and wins over max-age
+            if (lifetime < 0 || maxAge.group(1).equals("s-maxage")) {
+                lifetime = Long.parseLong(maxAge.group(2)) * 1000;
+            }
+        }
+        if (lifetime >= 0) {
+            return lifetime;
+        }
+        long date = parseDate(first(headers, "Date"), now);
+        String expires = first(headers, "Expires");
+        if (expires != null) {
+            // an invalid date such as "0" means already expired
+            return Math.max(0, parseDate(expires, date) - date);
+        }
+        String lastModified = first(headers, "Last-Modified");
+        if (lastModified != null) {
+            return Math.max(0, (date - parseDate(lastModified, date)) / 10);
+        }
+        return validated ? 0 : -1;
+    }
+
+    private static long parseDate(String value, long fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return fallback;
+        }
+    }
+
+    private static List<String> values(Map<String, List<String>> headers, String name) {
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    private static String first(Map<String, List<String>> headers, String name) {
+        List<String> values = values(headers, name);
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    /**
+     * Summarises the cache use of this run
+     * @return One line: hits, revalidations, misses, hit rate, bytes not downloaded and size
+     */
+    public synchronized String summary() {
+        int requests = hits + revalidated + misses;
+        return String.format("Asset cache: %d hit(s), %d revalidated, %d miss(es), %.0f%% hit rate, %d KB not downloaded, %d entries (%d KB)",
+                hits, revalidated, misses, requests == 0 ? 0.0 : (hits + revalidated) * 100.0 / requests,
+                savedBytes / 1024, entries.size(), bytes / 1024);
+    }
+
+    /**
+     * One stored response; the body is written to bodies/ when the cache is saved
+     */
+    static final class Entry {
+
+        String key;
+        int status;
+        Map<String, List<String>> headers;
+        long expiresAtMillis;
+        String bodyFile;
+        transient byte[] body;
+
+        boolean isFresh(long now) {
+            return now < expiresAtMillis;
+        }
+
+        /**
+         * Gets the headers for a conditional request
+         * @return If-None-Match and If-Modified-Since from the stored validators, empty if there are none
+         */
+        Map<String, String> conditions() {
+            Map<String, String> conditions = new LinkedHashMap<>();
+            String etag = first(headers, "ETag");
+            String lastModified = first(headers, "Last-Modified");
+            if (etag != null) {
+                conditions.put("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                conditions.put("If-Modified-Since", lastModified);
+            }
+            return conditions;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package utils.replay;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One recorded request and its response, as stored in exchanges.json; the body is a separate file
+ */
+final class Exchange {
+
+    String method;
+    String target;
+    String requestBodySha1;
+    int status;
+    Map<String, List<String>> headers;
+    String body;
+    long elapsedMillis;
+
+    /**
+     * Gets the key replayed requests are matched on
+     * @param withBody Whether the request body is part of the key
+     * @return Method, normalised target and, optionally, the body hash
+     */
+    String key(boolean withBody) {
+        return method + " " + target + (withBody ? " " + requestBodySha1 : "");
+    }
+}
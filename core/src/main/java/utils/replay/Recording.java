@@ -0,0 +1,156 @@
+package utils.replay;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The exchanges of one recorded run: an exchanges.json index plus one body file per exchange
+ * under bodies/. Requests with the same key are replayed in recorded order, the last one repeating,
+ * so a page polled three times answers the way it did during recording.
+ */
+final class Recording {
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final String INDEX = "exchanges.json";
+
+    private final Path directory;
+    private Index index = new Index();
+    private final Map<String, Integer> cursors = new HashMap<>();
+    private final Map<String, byte[]> pendingBodies = new HashMap<>();
+
+    private Recording(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Starts an empty recording; nothing is written until {@link #save()}
+     * @param directory Directory to save to
+     * @param origin Scheme, host and port of the recorded application, e.g. "https://app.example.com"
+     * @return Empty recording
+     */
+    static Recording create(Path directory, String origin) {
+        Recording recording = new Recording(directory);
+        recording.index.origin = origin;
+        return recording;
+    }
+
+    /**
+     * Loads a saved recording
+     * @param directory Directory written by {@link #save()}
+     * @return Recording ready for replay
+     * @throws IOException if exchanges.json is missing or unreadable
+     */
+    static Recording load(Path directory) throws IOException {
+        Recording recording = new Recording(directory);
+        try (Reader reader = Files.newBufferedReader(directory.resolve(INDEX), StandardCharsets.UTF_8)) {
+            recording.index = GSON.fromJson(reader, Index.class);
+        }
+        return recording;
+    }
+
+    String getOrigin() {
+        return index.origin;
+    }
+
+    synchronized int size() {
+        return index.exchanges.size();
+    }
+
+    /**
+     * Adds an exchange and keeps its body in memory until saved
+     * @param exchange Exchange without a body file name
+     * @param body Response body
+     */
+    synchronized void add(Exchange exchange, byte[] body) {
+        exchange.body = String.format("bodies/%05d.bin", index.exchanges.size() + 1);
+        index.exchanges.add(exchange);
+        pendingBodies.put(exchange.body, body);
+    }
+
+    /**
+     * Finds the next exchange for a request: an exact match including the request body first,
+     * then one for the same method and target
+     * @param exact Key including the body hash
+     * @param loose Key without the body hash
+     * @return Exchange to replay, or null if none was recorded
+     */
+    synchronized Exchange next(String exact, String loose) {
+        Exchange exchange = next(exact, true);
+        return exchange != null ? exchange : next(loose, false);
+    }
+
+    private Exchange next(String key, boolean withBody) {
+        List<Exchange> matches = new ArrayList<>();
+        for (Exchange exchange : index.exchanges) {
+            if (exchange.key(withBody).equals(key)) {
+                matches.add(exchange);
+            }
+        }
+        if (matches.isEmpty()) {
+            return null;
+        }
+        int position = cursors.merge(key, 1, Integer::sum) - 1;
+        return matches.get(Math.min(position, matches.size() - 1));
+    }
+
+    /**
+     * Reads the body of an exchange
+     * @param exchange Recorded exchange
+     * @return Body bytes
+     * @throws IOException if the body file is missing
+     */
+    byte[] body(Exchange exchange) throws IOException {
+        synchronized (this) {
+            byte[] pending = pendingBodies.get(exchange.body);
+            if (pending != null) {
+                return pending;
+            }
+        }
+        return Files.readAllBytes(directory.resolve(exchange.body));
+    }
+
+    /**
+     * Writes the index and all bodies, replacing an earlier recording in the same directory
+     * @throws IOException if the directory cannot be written
+     */
+    synchronized void save() throws IOException {
+        Files.createDirectories(directory.resolve("bodies"));
+        Set<String> current = new HashSet<>();
+        for (Exchange exchange : index.exchanges) {
+            current.add(exchange.body);
+        }
+        try (DirectoryStream<Path> bodies = Files.newDirectoryStream(directory.resolve("bodies"))) {
+            for (Path body : bodies) {
+                if (!current.contains("bodies/" + body.getFileName())) {
+                    Files.delete(body);
+                }
+            }
+        }
+        for (Map.Entry<String, byte[]> body : pendingBodies.entrySet()) {
+            Files.write(directory.resolve(body.getKey()), body.getValue());
+        }
+        pendingBodies.clear();
+        try (Writer writer = Files.newBufferedWriter(directory.resolve(INDEX), StandardCharsets.UTF_8)) {
+            GSON.toJson(index, writer);
+        }
+    }
+
+    private static final class Index {
+        String origin;
+        List<Exchange> exchanges = new ArrayList<>();
+    }
+}
@@ -0,0 +1,86 @@
+package utils.replay;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IExecutionListener;
+import utils.ConfigManager;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Starts a {@link StandInServer} when the TestNG run starts and points app.base.url at it.
+ * replay.mode=record captures a run against the real application into replay.directory;
+ * replay.mode=replay serves that recording offline; replay.mode=cache forwards to the real application
+ * and serves repeated static assets from one {@link AssetCache} for all sessions of the run, saved to
+ * replay.cache.directory when set. The server stops, and a recording or cache is saved, when the run finishes,
+ * after the deferred retries; nested runs such as those retries share the server of the outer run.
+ * Register it in the &lt;listeners&gt; section of testng.xml.
+ */
+public class ReplayListener implements IExecutionListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplayListener.class);
+    private static final String BASE_URL_KEY = "app.base.url";
+
+    private static StandInServer server;
+    private static String previousBaseUrl;
+    private static int runningExecutions;
+
+    @Override
+    public void onExecutionStart() {
+        StandInServer.Mode mode = StandInServer.Mode.valueOf(
+                ConfigManager.getProperty("replay.mode", "off").trim().toUpperCase(Locale.ROOT));
+        if (mode == StandInServer.Mode.OFF) {
+            return;
+        }
+        synchronized (ReplayListener.class) {
+            if (runningExecutions++ > 0) {
+                return;
+            }
+            try {
+                server = mode == StandInServer.Mode.CACHE ? cachingServer() : new StandInServer(mode, ConfigManager.getBaseUrl(),
+                        Paths.get(ConfigManager.getProperty("replay.directory", "testdata/recordings/default")),
+                        ConfigManager.getIntProperty("replay.latency.millis", 0),
+                        ConfigManager.getListProperty("replay.ignore.parameters"));
+                server.start(ConfigManager.getIntProperty("replay.port", 0));
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to start the stand-in server: " + e.getMessage(), e);
+            }
+            // system properties are the top configuration layer
+            previousBaseUrl = System.getProperty(BASE_URL_KEY);
+            System.setProperty(BASE_URL_KEY, server.getBaseUrl());
+            ConfigManager.reload();
+            logger.info("app.base.url now points at the stand-in server: {}", ConfigManager.getBaseUrl());
+        }
+    }
+
+    private static StandInServer cachingServer() throws IOException {
+        String directory = ConfigManager.getProperty("replay.cache.directory", "").trim();
+        AssetCache cache = new AssetCache(directory.isEmpty() ? null : Paths.get(directory),
+                ConfigManager.getIntProperty("replay.cache.max.mb", 512) * 1024L * 1024L);
+        cache.load();
+        return new StandInServer(ConfigManager.getBaseUrl(), cache, ConfigManager.getListProperty("replay.ignore.parameters"));
+    }
+
+    @Override
+    public void onExecutionFinish() {
+        synchronized (ReplayListener.class) {
+            if (server == null || --runningExecutions > 0) {
+                return;
+            }
+            try {
+                server.stop();
+            } catch (IOException e) {
+                logger.warn("Failed to save the recording or cache: {}", e.getMessage());
+            }
+            server = null;
+            if (previousBaseUrl != null) {
+                System.setProperty(BASE_URL_KEY, previousBaseUrl);
+            } else {
+                System.clearProperty(BASE_URL_KEY);
+            }
+            ConfigManager.reload();
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package utils.replay;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local stand-in for the application under test, listening on localhost.
+ * In RECORD mode it forwards every request to the real application, passes the response back
+ * and keeps the exchange; {@link #stop()} saves them. In REPLAY mode it answers from a saved
+ * recording after a fixed or the recorded latency, without touching the network. In CACHE mode it
+ * forwards like RECORD but answers repeated GETs of static assets from an {@link AssetCache} shared by
+ * every session, so each new browser profile does not download the same bundles again.
+ * Absolute links, redirects and cookies are rewritten from the application's origin to the
+ * stand-in's, so a browser pointed at {@link #getBaseUrl()} never leaves it.
+ */
+public class StandInServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(StandInServer.class);
+    private static final Set<String> HOP_BY_HOP = new HashSet<>(Arrays.asList("connection", "keep-alive", "proxy-connection",
+            "transfer-encoding", "te", "trailer", "upgrade", "content-length", "content-encoding", "host", "accept-encoding"));
+
+    /**
+     * What the stand-in does with a request
+     */
+    public enum Mode {
+        OFF, RECORD, REPLAY, CACHE
+    }
+
+    private final Mode mode;
+    private final URI baseUrl;
+    private final Path directory;
+    private final long latencyMillis;
+    private final Set<String> ignoredParameters;
+    private final AtomicInteger served = new AtomicInteger();
+    private final AtomicInteger unmatched = new AtomicInteger();
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private Recording recording;
+    private AssetCache cache;
+    private String origin;
+    private String localOrigin;
+
+    /**
+     * Constructor
+     * @param mode RECORD or REPLAY
+     * @param baseUrl The application's real base URL, e.g. app.base.url; only used when recording
+     * @param directory Recording directory
+     * @param latencyMillis Delay before each replayed response; negative replays the recorded latency
+     * @param ignoredParameters Query parameters left out when matching requests, e.g. cache busters
+     */
+    public StandInServer(Mode mode, String baseUrl, Path directory, long latencyMillis, List<String> ignoredParameters) {
+        if (mode == Mode.OFF) {
+            throw new IllegalArgumentException("A stand-in server needs mode RECORD, REPLAY or CACHE");
+        }
+        this.mode = mode;
+        this.baseUrl = URI.create(baseUrl);
+        this.directory = directory;
+        this.latencyMillis = latencyMillis;
+        this.ignoredParameters = new HashSet<>(ignoredParameters);
+    }
+
+    /**
+     * Constructor for CACHE mode
+     * @param baseUrl The application's real base URL, e.g. app.base.url
+     * @param cache Cache to answer from; may be shared with other stand-ins
+     * @param ignoredParameters Query parameters left out of cache keys, e.g. cache busters
+     */
+    public StandInServer(String baseUrl, AssetCache cache, List<String> ignoredParameters) {
+        this(Mode.CACHE, baseUrl, null, 0, ignoredParameters);
+        this.cache = cache;
+    }
+
+    /**
+     * Starts listening on localhost
+     * @param port Port, or 0 for any free port
+     * @throws IOException if the recording cannot be loaded or the port cannot be bound
+     */
+    public void start(int port) throws IOException {
+        if (mode == Mode.CACHE) {
+            origin = originOf(baseUrl);
+        } else if (mode == Mode.RECORD) {
+            origin = originOf(baseUrl);
+            recording = Recording.create(directory, origin);
+        } else {
+            recording = Recording.load(directory);
+            origin = recording.getOrigin();
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/", this::handle);
+        // browsers open several connections at once
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stand-in-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+        localOrigin = "http://localhost:" + server.getAddress().getPort();
+        if (mode == Mode.CACHE) {
+            logger.info("Stand-in server caching assets of {} at {}", origin, localOrigin);
+        } else {
+            logger.info("Stand-in server {} {} at {} ({} exchange(s) in {})", mode == Mode.RECORD ? "recording" : "replaying",
+                    origin, localOrigin, recording.size(), directory);
+        }
+    }
+
+    /**
+     * Gets the base URL to point tests at
+     * @return The application's base URL with its origin replaced by the stand-in's
+     */
+    public String getBaseUrl() {
+        return localOrigin + baseUrl.getRawPath() + (baseUrl.getRawQuery() != null ? "?" + baseUrl.getRawQuery() : "");
+    }
+
+    /**
+     * Stops the server; in RECORD mode the recording is saved, in CACHE mode the cache
+     * @throws IOException if the recording or cache cannot be written
+     */
+    public void stop() throws IOException {
+        server.stop(0);
+        executor.shutdownNow();
+        if (mode == Mode.CACHE) {
+            cache.save();
+            logger.info("Stand-in server served {} response(s); {}", served.get(), cache.summary());
+        } else if (mode == Mode.RECORD) {
+            recording.save();
+            logger.info("Stand-in server recorded {} exchange(s) to {}", recording.size(), directory);
+        } else {
+            logger.info("Stand-in server replayed {} response(s), {} request(s) had no recording", served.get(), unmatched.get());
+        }
+    }
+
+    private void handle(HttpExchange http) throws IOException {
+        try {
+            byte[] requestBody = readAll(http.getRequestBody());
+            String target = http.getRequestURI().getRawPath()
+                    + (http.getRequestURI().getRawQuery() != null ? "?" + http.getRequestURI().getRawQuery() : "");
+            Exchange exchange;
+            byte[] body;
+            if (mode == Mode.RECORD) {
+                long start = System.currentTimeMillis();
+                exchange = new Exchange();
+                body = forward(http, target, requestBody, exchange, null);
+                exchange.elapsedMillis = System.currentTimeMillis() - start;
+                exchange.method = http.getRequestMethod();
+                exchange.target = normalise(target);
+                exchange.requestBodySha1 = sha1(requestBody);
+                recording.add(exchange, body);
+            } else if (mode == Mode.CACHE) {
+                exchange = new Exchange();
+                body = throughCache(http, target, requestBody, exchange);
+            } else {
+                String key = http.getRequestMethod() + " " + normalise(target);
+                exchange = recording.next(key + " " + sha1(requestBody), key);
+                if (exchange == null) {
+                    unmatched.incrementAndGet();
+                    logger.warn("No recorded response for {} {}", http.getRequestMethod(), target);
+                    send(http, 404, new Headers(), new byte[0]);
+                    return;
+                }
+                body = recording.body(exchange);
+                pause(latencyMillis >= 0 ? latencyMillis : exchange.elapsedMillis);
+            }
+            served.incrementAndGet();
+            Headers headers = new Headers();
+            for (Map.Entry<String, List<String>> header : exchange.headers.entrySet()) {
+                if (!HOP_BY_HOP.contains(header.getKey().toLowerCase(Locale.ROOT))) {
+                    for (String value : header.getValue()) {
+                        headers.add(header.getKey(), rewriteHeader(header.getKey(), value));
+                    }
+                }
+            }
+            send(http, exchange.status, headers, isText(headers.getFirst("Content-Type")) ? rewriteBody(body) : body);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Stand-in server failed on {} {}: {}", http.getRequestMethod(), http.getRequestURI(), e.getMessage());
+            send(http, 502, new Headers(), new byte[0]);
+        } finally {
+            http.close();
+        }
+    }
+
+    private byte[] throughCache(HttpExchange http, String target, byte[] requestBody, Exchange exchange) throws IOException {
+        if (!"GET".equals(http.getRequestMethod())) {
+            return forward(http, target, requestBody, exchange, null);
+        }
+        String key = normalise(target);
+        long now = System.currentTimeMillis();
+        AssetCache.Entry cached = cache.get(key);
+        if (cached != null && cached.isFresh(now)) {
+            exchange.status = cached.status;
+            exchange.headers = cache.hit(cached);
+            return cached.body;
+        }
+        Map<String, String> conditions = cached != null ? cached.conditions() : null;
+        byte[] body = forward(http, target, requestBody, exchange,
+                conditions != null && !conditions.isEmpty() ? conditions : null);
+        if (cached != null && exchange.status == 304 && !cached.conditions().isEmpty()) {
+            exchange.headers = cache.revalidated(cached, exchange.headers, now);
+            exchange.status = cached.status;
+            return cached.body;
+        }
+        cache.store(key, exchange.status, exchange.headers, body, now);
+        return body;
+    }
+
+    private byte[] forward(HttpExchange http, String target, byte[] requestBody, Exchange exchange,
+                           Map<String, String> conditions) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(origin + target).openConnection();
+        // redirects are recorded and passed to the browser like any other response
+        connection.setInstanceFollowRedirects(false);
+        connection.setRequestMethod(http.getRequestMethod());
+        for (Map.Entry<String, List<String>> header : http.getRequestHeaders().entrySet()) {
+            String name = header.getKey().toLowerCase(Locale.ROOT);
+            // when revalidating a cache entry its validators replace the browser's
+            boolean replaced = conditions != null && (name.startsWith("if-") || name.equals("cache-control") || name.equals("pragma"));
+            if (!HOP_BY_HOP.contains(name) && !replaced) {
+                for (String value : header.getValue()) {
+                    connection.addRequestProperty(header.getKey(), value.replace(localOrigin, origin));
+                }
+            }
+        }
+        if (conditions != null) {
+            conditions.forEach(connection::setRequestProperty);
+        }
+        if (requestBody.length > 0) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(requestBody);
+            }
+        }
+        exchange.status = connection.getResponseCode();
+        exchange.headers = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+            if (header.getKey() != null) {
+                exchange.headers.put(header.getKey(), new ArrayList<>(header.getValue()));
+            }
+        }
+        InputStream in = exchange.status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        return in == null ? new byte[0] : readAll(in);
+    }
+
+    private String rewriteHeader(String name, String value) {
+        if ("location".equalsIgnoreCase(name)) {
+            return value.replace(origin, localOrigin);
+        }
+        if ("set-cookie".equalsIgnoreCase(name)) {
+            // the cookie must stick to localhost, which is plain HTTP
+            return value.replaceAll("(?i);\\s*domain=[^;]*", "").replaceAll("(?i);\\s*secure", "");
+        }
+        return value;
+    }
+
+    private byte[] rewriteBody(byte[] body) {
+        // ISO-8859-1 maps every byte to one char, so non-ASCII content survives the round trip
+        String text = new String(body, StandardCharsets.ISO_8859_1);
+        return text.replace(origin, localOrigin).getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static boolean isText(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("text/") || type.contains("javascript") || type.contains("json") || type.contains("xml");
+    }
+
+    /**
+     * Drops the session id path parameter and the ignored query parameters
+     */
+    String normalise(String target) {
+        String path = target.replaceAll("(?i);jsessionid=[^?]*", "");
+        int question = path.indexOf('?');
+        if (question < 0 || ignoredParameters.isEmpty()) {
+            return path;
+        }
+        List<String> kept = new ArrayList<>();
+        for (String parameter : path.substring(question + 1).split("&")) {
+            if (!ignoredParameters.contains(parameter.split("=", 2)[0])) {
+                kept.add(parameter);
+            }
+        }
+        return path.substring(0, question) + (kept.isEmpty() ? "" : "?" + String.join("&", kept));
+    }
+
+    private static void send(HttpExchange http, int status, Headers headers, byte[] body) throws IOException {
+        http.getResponseHeaders().putAll(headers);
+        boolean noBody = body.length == 0 || "HEAD".equals(http.getRequestMethod()) || status == 204 || status == 304;
+        http.sendResponseHeaders(status, noBody ? -1 : body.length);
+        if (!noBody) {
+            try (OutputStream out = http.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static void pause(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String originOf(URI uri) {
+        return uri.getScheme() + "://" + uri.getRawAuthority();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static String sha1(byte[] data) {
+        if (data.length == 0) {
+            return "";
+        }
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-1").digest(data)) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package utils.reporting;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.ITestResult;
+import utils.ConfigManager;
+import utils.history.TestOutcome;
+import utils.resources.ResourceAllocator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the ExtentReports HTML report on a background thread.
+ * Test threads only enqueue a snapshot of each finished test (see {@link utils.TestListener}),
+ * so report generation adds nothing to test time. The report is paged: every
+ * report.page.size tests start a new page-N.html, and index.html links all pages with
+ * their pass/fail/skip counts. A full page is written and dropped from memory, keeping only
+ * its counts, so memory does not grow with the size of the run. The current page and the index are
+ * rewritten every report.flush.interval.seconds while tests run, and for the last time when the
+ * TestNG run finishes (see {@link #executionFinished()}) or, failing that, when the JVM exits.
+ */
+public final class AsyncReportWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncReportWriter.class);
+    private static final boolean ENABLED = Boolean.parseBoolean(ConfigManager.getProperty("report.enabled", "true"));
+    private static final Path OUTPUT_DIR = ResourceAllocator.artifactPath(
+            ConfigManager.getProperty("report.directory", "test-output/extent"));
+    private static final int PAGE_SIZE = Math.max(1, ConfigManager.getIntProperty("report.page.size", 250));
+    private static final long FLUSH_INTERVAL_MILLIS =
+            TimeUnit.SECONDS.toMillis(ConfigManager.getIntProperty("report.flush.interval.seconds", 15));
+    private static final long SHUTDOWN_TIMEOUT_MILLIS =
+            TimeUnit.SECONDS.toMillis(ConfigManager.getIntProperty("report.shutdown.timeout.seconds", 60));
+
+    private static final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private static final Object END_OF_RUN = new Object();
+    private static Thread worker;
+    private static boolean shutdownHookAdded;
+    private static int runningExecutions;
+    private static volatile long lastEventMillis;
+
+    private AsyncReportWriter() {
+    }
+
+    /**
+     * Queues a finished test for the report; never blocks the calling test thread
+     * @param result Test result
+     * @param status Outcome
+     */
+    public static void submit(ITestResult result, TestOutcome.Status status) {
+        if (!ENABLED) {
+            return;
+        }
+        startWorker();
+        lastEventMillis = System.currentTimeMillis();
+        queue.add(new ReportEvent(result, status));
+    }
+
+    /**
+     * Marks the start of a TestNG run; runs nested in it, such as deferred retries, only count
+     */
+    public static synchronized void executionStarted() {
+        runningExecutions++;
+    }
+
+    /**
+     * Writes the last page and the index and waits for them when the outermost TestNG run finishes,
+     * so the report is complete before anything else reads it; a later run in the same JVM starts a new report
+     */
+    public static void executionFinished() {
+        synchronized (AsyncReportWriter.class) {
+            if (runningExecutions > 0 && --runningExecutions > 0) {
+                return;
+            }
+        }
+        finish();
+    }
+
+    private static synchronized void startWorker() {
+        if (worker != null) {
+            return;
+        }
+        worker = new Thread(AsyncReportWriter::run, "extent-report-writer");
+        worker.setDaemon(true);
+        worker.start();
+        if (!shutdownHookAdded) {
+            Runtime.getRuntime().addShutdownHook(new Thread(AsyncReportWriter::finish, "extent-report-shutdown"));
+            shutdownHookAdded = true;
+        }
+    }
+
+    private static synchronized void finish() {
+        if (worker == null) {
+            return;
+        }
+        queue.add(END_OF_RUN);
+        try {
+            worker.join(SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        worker = null;
+    }
+
+    private static void run() {
+        // only the counts of full pages are kept; their tests are already written
+        List<ReportPage.Summary> fullPages = new ArrayList<>();
+        ReportPage page = null;
+        long lastFlushMillis = System.currentTimeMillis();
+        try {
+            Files.createDirectories(OUTPUT_DIR);
+            while (true) {
+                Object next = queue.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (next == END_OF_RUN) {
+                    break;
+                }
+                if (next instanceof ReportEvent) {
+                    if (page != null && page.size() >= PAGE_SIZE) {
+                        page.flush();
+                        fullPages.add(page.summary());
+                        page = null;
+                    }
+                    if (page == null) {
+                        int number = fullPages.size() + 1;
+                        page = new ReportPage(OUTPUT_DIR.resolve("page-" + number + ".html"), "Test Report - page " + number);
+                    }
+                    page.add((ReportEvent) next);
+                }
+                if (page != null && System.currentTimeMillis() - lastFlushMillis >= FLUSH_INTERVAL_MILLIS) {
+                    page.flush();
+                    writeIndex(fullPages, page);
+                    lastFlushMillis = System.currentTimeMillis();
+                }
+            }
+            if (page != null) {
+                page.flush();
+                writeIndex(fullPages, page);
+                logger.info("Test report written to {} ({} page(s)) {} ms after the last test",
+                        OUTPUT_DIR.resolve("index.html"), fullPages.size() + 1, System.currentTimeMillis() - lastEventMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Failed to write test report: {}", e.getMessage());
+        }
+    }
+
+    private static void writeIndex(List<ReportPage.Summary> fullPages, ReportPage currentPage) throws IOException {
+        List<ReportPage.Summary> pages = new ArrayList<>(fullPages);
+        pages.add(currentPage.summary());
+        int passed = 0;
+        int failed = 0;
+        int skipped = 0;
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; i < pages.size(); i++) {
+            ReportPage.Summary page = pages.get(i);
+            passed += page.getPassed();
+            failed += page.getFailed();
+            skipped += page.getSkipped();
+            rows.append(String.format("<tr class=\"%s\"><td><a href=\"%s\">Page %d</a></td><td>%d</td><td>%d</td><td>%d</td></tr>%n",
+                    page.worstStatus().name().toLowerCase(), page.getFile().getFileName(), i + 1,
+                    page.getPassed(), page.getFailed(), page.getSkipped()));
+        }
+        String html = "<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"><title>Test Report</title>\n"
+                + "<style>body{font-family:sans-serif}td,th{padding:4px 12px;text-align:left}"
+                + ".fail td:first-child{border-left:4px solid #e53935}.skip td:first-child{border-left:4px solid #fb8c00}"
+                + ".pass td:first-child{border-left:4px solid #43a047}</style></head><body>\n"
+                + String.format("<h1>Test Report</h1>%n<p>%d passed, %d failed, %d skipped</p>%n", passed, failed, skipped)
+                + "<table><tr><th>Page</th><th>Passed</th><th>Failed</th><th>Skipped</th></tr>\n"
+                + rows + "</table>\n</body></html>\n";
+        Path temp = OUTPUT_DIR.resolve("index.html.tmp");
+        Files.write(temp, html.getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, OUTPUT_DIR.resolve("index.html"), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
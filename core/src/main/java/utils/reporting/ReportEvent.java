@@ -0,0 +1,37 @@
+package utils.reporting;
+
+import org.testng.ITestResult;
+import utils.history.TestHistoryRecorder;
+import utils.history.TestOutcome;
+
+/**
+ * Snapshot of a finished test, taken on the test thread and rendered later by the report thread
+ */
+final class ReportEvent {
+
+    final String testId;
+    final String name;
+    final String description;
+    final String category;
+    final TestOutcome.Status status;
+    final long startMillis;
+    final long endMillis;
+    final Throwable throwable;
+    final String screenshot;
+    final String log;
+
+    ReportEvent(ITestResult result, TestOutcome.Status status) {
+        this.testId = TestHistoryRecorder.testIdOf(result);
+        this.name = result.getTestClass().getRealClass().getSimpleName() + "." + result.getName();
+        this.description = result.getMethod().getDescription();
+        this.category = result.getTestContext().getName();
+        this.status = status;
+        this.startMillis = result.getStartMillis();
+        this.endMillis = result.getEndMillis();
+        this.throwable = result.getThrowable();
+        Object screenshotAttribute = result.getAttribute("screenshot");
+        this.screenshot = screenshotAttribute != null ? screenshotAttribute.toString() : null;
+        Object logAttribute = result.getAttribute("log");
+        this.log = logAttribute != null ? logAttribute.toString() : null;
+    }
+}
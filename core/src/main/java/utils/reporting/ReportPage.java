@@ -0,0 +1,154 @@
+package utils.reporting;
+
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.reporter.ExtentSparkReporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.history.TestOutcome;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Date;
+
+/**
+ * One page of the HTML report: an ExtentReports instance holding at most report.page.size
+ * tests, so no single report model grows with the size of the run
+ */
+final class ReportPage {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportPage.class);
+
+    private final Path file;
+    private final ExtentReports extent = new ExtentReports();
+    private int passed;
+    private int failed;
+    private int skipped;
+    private boolean dirty;
+
+    ReportPage(Path file, String title) {
+        this.file = file;
+        ExtentSparkReporter reporter = new ExtentSparkReporter(file.toString());
+        reporter.config().setDocumentTitle(title);
+        reporter.config().setReportName(title);
+        extent.attachReporter(reporter);
+    }
+
+    /**
+     * Adds a finished test to the page
+     * @param event Test snapshot
+     */
+    void add(ReportEvent event) {
+        ExtentTest test = extent.createTest(event.name, event.description);
+        test.getModel().setStartTime(new Date(event.startMillis));
+        test.getModel().setEndTime(new Date(event.endMillis));
+        test.assignCategory(event.category);
+
+        switch (event.status) {
+            case PASS:
+                test.pass("Passed");
+                passed++;
+                break;
+            case FAIL:
+                if (event.throwable != null) {
+                    test.fail(event.throwable);
+                } else {
+                    test.fail("Failed");
+                }
+                failed++;
+                break;
+            default:
+                if (event.throwable != null) {
+                    test.skip(event.throwable);
+                } else {
+                    test.skip("Skipped");
+                }
+                skipped++;
+                break;
+        }
+        if (event.screenshot != null) {
+            try {
+                // Linked by relative path, not embedded, so pages stay small and portable with the artifacts
+                test.addScreenCaptureFromPath(relativeLink(event.screenshot));
+            } catch (IOException e) {
+                logger.warn("Failed to link screenshot {}: {}", event.screenshot, e.getMessage());
+            }
+        }
+        if (event.log != null) {
+            test.info("<a href=\"" + relativeLink(event.log) + "\">Test log</a>");
+        }
+        dirty = true;
+    }
+
+    /**
+     * Writes the page if tests were added since the last write
+     */
+    void flush() {
+        if (dirty) {
+            extent.flush();
+            dirty = false;
+        }
+    }
+
+    int size() {
+        return passed + failed + skipped;
+    }
+
+    /**
+     * Gets what the index needs of this page, which is all that is kept once the page is full and written
+     * @return File and counts of the page
+     */
+    Summary summary() {
+        return new Summary(file, passed, failed, skipped);
+    }
+
+    private String relativeLink(String screenshot) {
+        Path target = Paths.get(screenshot).toAbsolutePath().normalize();
+        Path from = file.toAbsolutePath().normalize().getParent();
+        try {
+            return from.relativize(target).toString().replace('\\', '/');
+        } catch (IllegalArgumentException e) {
+            // different roots (e.g. another drive), fall back to the absolute path
+            return target.toUri().toString();
+        }
+    }
+
+    /**
+     * File name and counts of a page, for the index
+     */
+    static final class Summary {
+
+        private final Path file;
+        private final int passed;
+        private final int failed;
+        private final int skipped;
+
+        private Summary(Path file, int passed, int failed, int skipped) {
+            this.file = file;
+            this.passed = passed;
+            this.failed = failed;
+            this.skipped = skipped;
+        }
+
+        int getPassed() {
+            return passed;
+        }
+
+        int getFailed() {
+            return failed;
+        }
+
+        int getSkipped() {
+            return skipped;
+        }
+
+        Path getFile() {
+            return file;
+        }
+
+        TestOutcome.Status worstStatus() {
+            return failed > 0 ? TestOutcome.Status.FAIL : skipped > 0 ? TestOutcome.Status.SKIP : TestOutcome.Status.PASS;
+        }
+    }
+}
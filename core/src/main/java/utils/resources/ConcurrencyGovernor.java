@@ -0,0 +1,167 @@
+package utils.resources;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.ConfigManager;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits how many local browser sessions run at once, and moves the limit at runtime with host pressure.
+ * Every governor.interval.seconds it samples the load average, available memory and browser RSS and
+ * lets {@link GovernorPolicy} lower or raise the limit between governor.min.sessions and governor.max.sessions.
+ * A session over the limit waits in {@link #acquire()} until another session ends; running sessions
+ * are never stopped. Limit changes, their reasons and the test throughput are logged.
+ */
+public final class ConcurrencyGovernor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyGovernor.class);
+    private static final boolean ENABLED = Boolean.parseBoolean(ConfigManager.getProperty("governor.enabled", "true"));
+
+    private static volatile ConcurrencyGovernor shared;
+
+    private final GovernorPolicy policy;
+    private final List<String> browserProcesses;
+    private final AtomicInteger testsFinished = new AtomicInteger();
+    private int limit;
+    private int active;
+    private int waiting;
+    private int lowestLimit;
+    private int highestLimit;
+    private int lastTestsFinished;
+    private long lastSampleMillis = System.currentTimeMillis();
+
+    private ConcurrencyGovernor(GovernorPolicy policy, List<String> browserProcesses) {
+        this.policy = policy;
+        this.browserProcesses = browserProcesses;
+        this.limit = policy.getMaxSessions();
+        this.lowestLimit = limit;
+        this.highestLimit = limit;
+    }
+
+    /**
+     * Gets the governor of this JVM, starting its sampler on first use
+     * @return Shared governor, or null when governor.enabled is false
+     */
+    public static ConcurrencyGovernor shared() {
+        if (!ENABLED) {
+            return null;
+        }
+        if (shared == null) {
+            synchronized (ConcurrencyGovernor.class) {
+                if (shared == null) {
+                    int maxSessions = ConfigManager.getIntProperty("governor.max.sessions", 0);
+                    GovernorPolicy policy = new GovernorPolicy(
+                            Math.max(1, ConfigManager.getIntProperty("governor.min.sessions", 1)),
+                            maxSessions > 0 ? maxSessions : Runtime.getRuntime().availableProcessors(),
+                            ConfigManager.getDoubleProperty("governor.load.high", 1.0),
+                            ConfigManager.getDoubleProperty("governor.load.low", 0.7),
+                            ConfigManager.getIntProperty("governor.memory.reserve.mb", 1024),
+                            ConfigManager.getIntProperty("governor.session.memory.mb", 500));
+                    shared = new ConcurrencyGovernor(policy, ConfigManager.getListProperty("governor.browser.processes"));
+                    shared.startSampling(ConfigManager.getIntProperty("governor.interval.seconds", 10));
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Counts a finished test towards the logged throughput
+     */
+    public static void testFinished() {
+        ConcurrencyGovernor governor = shared;
+        if (governor != null) {
+            governor.testsFinished.incrementAndGet();
+        }
+    }
+
+    private void startSampling(int intervalSeconds) {
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "concurrency-governor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleWithFixedDelay(this::sample, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        logger.info("Concurrency governor allows {} to {} browser session(s), sampling every {}s",
+                policy.getMinSessions(), policy.getMaxSessions(), intervalSeconds);
+    }
+
+    /**
+     * Waits until a session slot is free and takes it
+     * @throws IllegalStateException if interrupted while waiting
+     */
+    public synchronized void acquire() {
+        if (active >= limit) {
+            logger.info("Browser session waiting: {} of {} allowed session(s) running", active, limit);
+        }
+        waiting++;
+        try {
+            while (active >= limit) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a browser session slot", e);
+        } finally {
+            waiting--;
+        }
+        active++;
+    }
+
+    /**
+     * Returns a session slot taken by {@link #acquire()}
+     */
+    public synchronized void release() {
+        active--;
+        notifyAll();
+    }
+
+    private void sample() {
+        try {
+            double load = HostMetrics.loadPerCore();
+            long availableMb = HostMetrics.availableMemoryMb();
+            long browserMb = HostMetrics.browserRssMb(browserProcesses);
+            long now = System.currentTimeMillis();
+            int finished = testsFinished.get();
+            double testsPerMinute = (finished - lastTestsFinished) * 60000.0 / Math.max(1, now - lastSampleMillis);
+            lastTestsFinished = finished;
+            lastSampleMillis = now;
+
+            synchronized (this) {
+                int next = policy.next(limit, load, availableMb, browserMb, active, waiting);
+                String status = String.format("active %d, waiting %d, load %.2f/core, %d MB available, browsers %d MB, %.1f tests/min",
+                        active, waiting, load, availableMb, browserMb, testsPerMinute);
+                if (next != limit) {
+                    logger.info("Browser session limit {} -> {} ({}); {}", limit, next, policy.reason(), status);
+                    limit = next;
+                    lowestLimit = Math.min(lowestLimit, limit);
+                    highestLimit = Math.max(highestLimit, limit);
+                    notifyAll();
+                } else {
+                    logger.debug("Browser session limit {} ({}); {}", limit, policy.reason(), status);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Concurrency governor sample failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Summarises the limits used so far
+     * @return One line for the end-of-run log, or null if no local session has used the governor
+     */
+    public static String summary() {
+        ConcurrencyGovernor governor = shared;
+        return governor == null ? null : governor.describe();
+    }
+
+    private synchronized String describe() {
+        return String.format("Concurrency governor: session limit ranged %d to %d (now %d), %d test(s) finished",
+                lowestLimit, highestLimit, limit, testsFinished.get());
+    }
+}
@@ -0,0 +1,89 @@
+package utils.resources;
+
+/**
+ * Decides the next session limit of {@link ConcurrencyGovernor} from one sample of host pressure:
+ * halve it when memory is nearly exhausted, lower it by one when load or memory is over the
+ * limits, and raise it by one when sessions are waiting and there is room for another browser.
+ */
+final class GovernorPolicy {
+
+    private final int minSessions;
+    private final int maxSessions;
+    private final double loadHigh;
+    private final double loadLow;
+    private final long memoryReserveMb;
+    private final long defaultSessionMb;
+
+    private String reason = "";
+
+    /**
+     * Constructor
+     * @param minSessions Lowest limit
+     * @param maxSessions Highest limit
+     * @param loadHigh Load per core above which the limit is lowered
+     * @param loadLow Load per core below which the limit may be raised
+     * @param memoryReserveMb Available memory to keep free; below it the limit is lowered, below half of it halved
+     * @param defaultSessionMb Memory assumed per session before browser RSS has been measured
+     */
+    GovernorPolicy(int minSessions, int maxSessions, double loadHigh, double loadLow,
+                   long memoryReserveMb, long defaultSessionMb) {
+        this.minSessions = minSessions;
+        this.maxSessions = Math.max(minSessions, maxSessions);
+        this.loadHigh = loadHigh;
+        this.loadLow = loadLow;
+        this.memoryReserveMb = memoryReserveMb;
+        this.defaultSessionMb = defaultSessionMb;
+    }
+
+    /**
+     * Computes the next limit
+     * @param limit Current limit
+     * @param loadPerCore Load average per core, negative if unknown
+     * @param availableMb Available memory in MB, negative if unknown
+     * @param browserRssMb Resident memory of all browser processes in MB, negative if unknown
+     * @param activeSessions Sessions currently running
+     * @param waitingSessions Sessions waiting for a slot
+     * @return New limit between the minimum and maximum
+     */
+    int next(int limit, double loadPerCore, long availableMb, long browserRssMb, int activeSessions, int waitingSessions) {
+        int next = limit;
+        if (availableMb >= 0 && availableMb < memoryReserveMb / 2) {
+            next = limit / 2;
+            reason = "memory critical: " + availableMb + " MB available";
+        } else if (availableMb >= 0 && availableMb < memoryReserveMb) {
+            next = limit - 1;
+            reason = "memory low: " + availableMb + " MB available";
+        } else if (loadPerCore > loadHigh) {
+            next = limit - 1;
+            reason = String.format("load %.2f per core", loadPerCore);
+        } else if (waitingSessions > 0 && activeSessions >= limit && loadPerCore < loadLow) {
+            long sessionMb = browserRssMb > 0 && activeSessions > 0 ? browserRssMb / activeSessions : defaultSessionMb;
+            if (availableMb < 0 || availableMb - sessionMb >= memoryReserveMb) {
+                next = limit + 1;
+                reason = String.format("headroom: load %.2f per core, %d MB available, ~%d MB per session",
+                        Math.max(0, loadPerCore), availableMb, sessionMb);
+            } else {
+                reason = "no memory for another session of ~" + sessionMb + " MB";
+            }
+        } else {
+            reason = "steady";
+        }
+        return Math.max(minSessions, Math.min(maxSessions, next));
+    }
+
+    /**
+     * Gets the reason for the last decision
+     * @return Short description
+     */
+    String reason() {
+        return reason;
+    }
+
+    int getMaxSessions() {
+        return maxSessions;
+    }
+
+    int getMinSessions() {
+        return minSessions;
+    }
+}
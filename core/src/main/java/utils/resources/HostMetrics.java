@@ -0,0 +1,98 @@
+package utils.resources;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads host load, available memory and the resident memory of browser processes.
+ * Uses /proc on Linux and the platform MXBean elsewhere; values that cannot be read are negative.
+ */
+final class HostMetrics {
+
+    private static final Path PROC = Paths.get("/proc");
+    private static final long MB = 1024L * 1024L;
+
+    private HostMetrics() {
+    }
+
+    /**
+     * Gets the one-minute load average divided by the number of cores
+     * @return Load per core, or -1 where the platform has no load average (Windows)
+     */
+    static double loadPerCore() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        double load = os.getSystemLoadAverage();
+        return load < 0 ? -1 : load / os.getAvailableProcessors();
+    }
+
+    /**
+     * Gets the memory available to new processes without swapping
+     * @return MemAvailable from /proc/meminfo, else free physical memory, in MB; -1 if unknown
+     */
+    @SuppressWarnings("deprecation")
+    static long availableMemoryMb() {
+        try {
+            for (String line : Files.readAllLines(PROC.resolve("meminfo"), StandardCharsets.UTF_8)) {
+                if (line.startsWith("MemAvailable:")) {
+                    return kilobytes(line) / 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // not Linux; fall back to the MXBean
+        }
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getFreePhysicalMemorySize() / MB;
+        }
+        return -1;
+    }
+
+    /**
+     * Sums the resident memory of browser and driver processes
+     * @param processNames Process names to count, e.g. chrome, chromedriver, firefox
+     * @return Total RSS in MB, or -1 where /proc is not available
+     */
+    static long browserRssMb(Collection<String> processNames) {
+        if (!Files.isDirectory(PROC)) {
+            return -1;
+        }
+        long totalKb = 0;
+        try (DirectoryStream<Path> processes = Files.newDirectoryStream(PROC, "[0-9]*")) {
+            for (Path process : processes) {
+                totalKb += rssKb(process, processNames);
+            }
+        } catch (IOException e) {
+            return -1;
+        }
+        return totalKb / 1024;
+    }
+
+    private static long rssKb(Path process, Collection<String> processNames) {
+        try {
+            List<String> status = Files.readAllLines(process.resolve("status"), StandardCharsets.UTF_8);
+            if (status.isEmpty() || !processNames.contains(status.get(0).substring("Name:".length()).trim())) {
+                return 0;
+            }
+            for (String line : status) {
+                if (line.startsWith("VmRSS:")) {
+                    return kilobytes(line);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // the process exited while we were reading it
+        }
+        return 0;
+    }
+
+    private static long kilobytes(String line) {
+        return Long.parseLong(line.replaceAll("[^0-9]", ""));
+    }
+}
@@ -0,0 +1,16 @@
+package utils.resources;
+
+import ch.qos.logback.core.PropertyDefinerBase;
+import utils.ConfigManager;
+
+/**
+ * Supplies the log directory to logback.xml, so each worker logs under its own artifact root.
+ * Used as &lt;define name="LOG_DIR" class="utils.resources.LogDirectoryDefiner"/&gt;.
+ */
+public class LogDirectoryDefiner extends PropertyDefinerBase {
+
+    @Override
+    public String getPropertyValue() {
+        return ResourceAllocator.artifactPath(ConfigManager.getProperty("log.directory", "logs")).toString();
+    }
+}
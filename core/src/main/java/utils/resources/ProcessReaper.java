@@ -0,0 +1,331 @@
+package utils.resources;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.HttpCommandExecutor;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import utils.ConfigManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the driver and browser processes each local session starts, and kills the ones left behind.
+ * {@link #track(WebDriver)} finds the driver process by its --port argument and follows its process tree;
+ * {@link SessionProcesses#reap()} kills whatever survives driver.quit(). The tracked processes are also
+ * listed in a registry file under process.reaper.registry.dir, so the next run on the host kills what a
+ * crashed JVM left behind. Orphaned drivers (parent pid 1) of the same user that no registry lists, possibly
+ * another tool's, are only killed at suite start with process.reaper.kill.orphan.drivers=true. A shutdown hook
+ * kills this JVM's remaining processes, and a watcher reports zombie processes during the run.
+ * Works where /proc is available (Linux); elsewhere it does nothing.
+ * Register it in the &lt;listeners&gt; section of testng.xml.
+ */
+public class ProcessReaper implements ISuiteListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessReaper.class);
+    private static final boolean ENABLED = Boolean.parseBoolean(ConfigManager.getProperty("process.reaper.enabled", "true"))
+            && ProcessTable.isSupported();
+    private static final int JVM_PID = Integer.parseInt(ResourceAllocator.processId());
+
+    private static final Set<SessionProcesses> sessions = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private static final Set<ProcessTable.Entry> zombies = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private static final AtomicInteger leakedProcesses = new AtomicInteger();
+    private static final AtomicInteger orphansKilled = new AtomicInteger();
+    private static final AtomicLong reclaimedKb = new AtomicLong();
+    private static final AtomicBoolean orphansReaped = new AtomicBoolean();
+    private static final AtomicBoolean watching = new AtomicBoolean();
+
+    static {
+        if (ENABLED) {
+            Runtime.getRuntime().addShutdownHook(new Thread(ProcessReaper::killRemaining, "process-reaper"));
+        }
+    }
+
+    /**
+     * Starts tracking the processes of a local session; call right after creating the driver
+     * @param driver Local ChromeDriver, EdgeDriver or FirefoxDriver, before any wrapping
+     * @return Tracked processes, or null if the reaper is off or the driver process was not found
+     */
+    public static SessionProcesses track(WebDriver driver) {
+        int port = driverPort(driver);
+        return port > 0 ? track(port) : null;
+    }
+
+    static SessionProcesses track(int driverPort) {
+        if (!ENABLED) {
+            return null;
+        }
+        ProcessTable table = ProcessTable.read();
+        for (ProcessTable.Entry entry : table.all()) {
+            if (entry.ppid == JVM_PID && ProcessTable.commandLine(entry.pid).contains("--port=" + driverPort)) {
+                SessionProcesses session = new SessionProcesses(entry);
+                session.refresh(table);
+                sessions.add(session);
+                startWatching();
+                writeRegistry();
+                return session;
+            }
+        }
+        logger.debug("No driver process listening on port {} found below pid {}", driverPort, JVM_PID);
+        return null;
+    }
+
+    private static int driverPort(WebDriver driver) {
+        if (driver instanceof RemoteWebDriver) {
+            CommandExecutor executor = ((RemoteWebDriver) driver).getCommandExecutor();
+            if (executor instanceof HttpCommandExecutor) {
+                return ((HttpCommandExecutor) executor).getAddressOfRemoteServer().getPort();
+            }
+        }
+        return -1;
+    }
+
+    private static void startWatching() {
+        if (!watching.compareAndSet(false, true)) {
+            return;
+        }
+        int intervalSeconds = ConfigManager.getIntProperty("process.reaper.interval.seconds", 30);
+        ScheduledExecutorService watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "process-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watcher.scheduleWithFixedDelay(ProcessReaper::watch, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Follows new browser child processes and reports zombies among this JVM's processes
+     */
+    static void watch() {
+        try {
+            ProcessTable table = ProcessTable.read();
+            Set<ProcessTable.Entry> ours = table.treeOf(JVM_PID);
+            for (SessionProcesses session : sessions) {
+                session.refresh(table);
+                ours.addAll(session.alive(table));
+            }
+            for (ProcessTable.Entry entry : ours) {
+                if (entry.isZombie() && zombies.add(entry)) {
+                    ProcessTable.Entry parent = table.get(entry.ppid);
+                    logger.warn("Zombie process {}, not reaped by its parent {}", entry, parent != null ? parent : entry.ppid);
+                }
+            }
+            writeRegistry();
+        } catch (RuntimeException e) {
+            logger.warn("Process watcher failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onStart(ISuite suite) {
+        if (ENABLED && orphansReaped.compareAndSet(false, true)) {
+            // killing unregistered drivers by name may hit other tools' sessions of the same user, so it is opt-in
+            boolean byName = Boolean.parseBoolean(ConfigManager.getProperty("process.reaper.kill.orphan.drivers", "false"));
+            reapOrphans(registryDirectory(), byName
+                    ? ConfigManager.getListProperty("process.reaper.orphan.drivers") : Collections.<String>emptyList());
+        }
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        if (ENABLED) {
+            logger.info(summary());
+        }
+    }
+
+    /**
+     * Kills the processes of earlier runs whose JVM is gone and, if driver names are given, orphaned drivers of the current user
+     * @param registryDirectory Directory of the per-JVM registry files
+     * @param driverNames Driver process names; one of these whose parent is pid 1 is killed with its process tree.
+     *                    Empty to kill only registered processes
+     */
+    static void reapOrphans(Path registryDirectory, List<String> driverNames) {
+        ProcessTable table = ProcessTable.read();
+        Set<ProcessTable.Entry> orphans = new LinkedHashSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(registryDirectory, "*.pids")) {
+            for (Path file : files) {
+                String[] owner = file.getFileName().toString().replace(".pids", "").split("-");
+                if (owner.length == 2 && table.isAlive(Integer.parseInt(owner[0]), Long.parseLong(owner[1]))) {
+                    continue;
+                }
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    String[] fields = line.split(" ", 3);
+                    if (fields.length == 3 && table.isAlive(Integer.parseInt(fields[0]), Long.parseLong(fields[1]))) {
+                        orphans.add(table.get(Integer.parseInt(fields[0])));
+                    }
+                }
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException | RuntimeException e) {
+            // no registry yet
+        }
+        for (ProcessTable.Entry entry : table.all()) {
+            if (entry.ppid == 1 && driverNames.contains(entry.name) && ProcessTable.isOwnedByCurrentUser(entry.pid)) {
+                orphans.addAll(table.treeOf(entry.pid));
+            }
+        }
+        if (orphans.isEmpty()) {
+            return;
+        }
+        long kb = kill(orphans);
+        orphansKilled.addAndGet(orphans.size());
+        reclaimedKb.addAndGet(kb);
+        logger.warn("Killed {} process(es) left behind by earlier runs, {} MB reclaimed: {}", orphans.size(), kb / 1024, orphans);
+    }
+
+    private static long kill(Set<ProcessTable.Entry> processes) {
+        long kb = 0;
+        for (ProcessTable.Entry entry : processes) {
+            if (ProcessTable.kill(entry.pid)) {
+                kb += entry.rssKb;
+            }
+        }
+        return kb;
+    }
+
+    private static void killRemaining() {
+        ProcessTable table = ProcessTable.read();
+        Set<ProcessTable.Entry> remaining = new LinkedHashSet<>();
+        for (SessionProcesses session : sessions) {
+            session.refresh(table);
+            remaining.addAll(session.alive(table));
+        }
+        if (!remaining.isEmpty()) {
+            kill(remaining);
+            logger.warn("Killed {} browser process(es) still running at JVM exit: {}", remaining.size(), remaining);
+        }
+        sessions.clear();
+        writeRegistry();
+    }
+
+    /**
+     * Summarises the processes this JVM has cleaned up
+     * @return One line for the end-of-run log
+     */
+    public static String summary() {
+        return String.format("Process reaper: %d leaked process(es) killed after quit, %d orphan(s) of earlier runs killed, "
+                        + "%d MB reclaimed, %d zombie(s) seen", leakedProcesses.get(), orphansKilled.get(),
+                reclaimedKb.get() / 1024, zombies.size());
+    }
+
+    private static Path registryDirectory() {
+        String configured = ConfigManager.getProperty("process.reaper.registry.dir", "").trim();
+        return configured.isEmpty() ? Paths.get(System.getProperty("java.io.tmpdir"), "selenium-processes") : Paths.get(configured);
+    }
+
+    private static synchronized void writeRegistry() {
+        ProcessTable.Entry jvm = ProcessTable.read().get(JVM_PID);
+        if (jvm == null) {
+            return;
+        }
+        Path file = registryDirectory().resolve(JVM_PID + "-" + jvm.startTicks + ".pids");
+        List<String> lines = new ArrayList<>();
+        for (SessionProcesses session : sessions) {
+            for (ProcessTable.Entry entry : session.known()) {
+                lines.add(entry.pid + " " + entry.startTicks + " " + entry.name);
+            }
+        }
+        try {
+            if (lines.isEmpty()) {
+                Files.deleteIfExists(file);
+                return;
+            }
+            Files.createDirectories(file.getParent());
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temporary, lines, StandardCharsets.UTF_8);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to write process registry {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * The driver process of one session and every process it has started
+     */
+    public static final class SessionProcesses {
+
+        private final ProcessTable.Entry driver;
+        private final Set<ProcessTable.Entry> known = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+        private SessionProcesses(ProcessTable.Entry driver) {
+            this.driver = driver;
+        }
+
+        /**
+         * Records the browser processes started since the last refresh; call right before driver.quit(),
+         * because processes that outlive their driver are no longer found below it
+         */
+        public void refresh() {
+            refresh(ProcessTable.read());
+        }
+
+        void refresh(ProcessTable table) {
+            known.addAll(table.treeOf(driver.pid));
+        }
+
+        Set<ProcessTable.Entry> known() {
+            return known;
+        }
+
+        Set<ProcessTable.Entry> alive(ProcessTable table) {
+            Set<ProcessTable.Entry> alive = new LinkedHashSet<>();
+            for (ProcessTable.Entry entry : known) {
+                // a zombie has already exited and holds no memory; only its parent can reap it
+                if (table.isAlive(entry.pid, entry.startTicks) && !table.get(entry.pid).isZombie()) {
+                    alive.add(table.get(entry.pid));
+                }
+            }
+            return alive;
+        }
+
+        /**
+         * Waits up to process.reaper.exit.wait.millis for the session's processes to exit after driver.quit(),
+         * then kills the survivors and counts them as leaked
+         * @return Number of processes killed
+         */
+        public int reap() {
+            long deadline = System.currentTimeMillis() + ConfigManager.getIntProperty("process.reaper.exit.wait.millis", 2000);
+            Set<ProcessTable.Entry> alive = alive(ProcessTable.read());
+            while (!alive.isEmpty() && System.currentTimeMillis() < deadline) {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                alive = alive(ProcessTable.read());
+            }
+            sessions.remove(this);
+            if (!alive.isEmpty()) {
+                long kb = kill(alive);
+                leakedProcesses.addAndGet(alive.size());
+                reclaimedKb.addAndGet(kb);
+                logger.warn("Killed {} process(es) of driver {} still running after quit, {} MB reclaimed: {}",
+                        alive.size(), driver, kb / 1024, alive);
+            }
+            writeRegistry();
+            return alive.size();
+        }
+    }
+}
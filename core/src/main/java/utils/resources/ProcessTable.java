@@ -0,0 +1,231 @@
+package utils.resources;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Snapshot of the processes on this host, read from /proc/&lt;pid&gt;/stat on Linux.
+ * A process is identified by its pid and start time so that a reused pid is never mistaken for it.
+ */
+final class ProcessTable {
+
+    private static final Path PROC = Paths.get("/proc");
+    // RSS in /proc/<pid>/stat is counted in pages, which are 16K or 64K on some ARM and POWER kernels
+    private static final long PAGE_KB = pageSizeKb();
+
+    private final Map<Integer, Entry> entries;
+
+    private ProcessTable(Map<Integer, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Checks whether process tables can be read on this platform
+     * @return True where /proc exists
+     */
+    static boolean isSupported() {
+        return Files.isDirectory(PROC.resolve("self"));
+    }
+
+    /**
+     * Reads the current process table
+     * @return Snapshot, empty where /proc is not available
+     */
+    static ProcessTable read() {
+        Map<Integer, Entry> entries = new HashMap<>();
+        try (DirectoryStream<Path> processes = Files.newDirectoryStream(PROC, "[0-9]*")) {
+            for (Path process : processes) {
+                Entry entry = readEntry(process);
+                if (entry != null) {
+                    entries.put(entry.pid, entry);
+                }
+            }
+        } catch (IOException e) {
+            // no /proc: an empty table
+        }
+        return new ProcessTable(entries);
+    }
+
+    private static long pageSizeKb() {
+        try {
+            Process getconf = new ProcessBuilder("getconf", "PAGESIZE").redirectErrorStream(true).start();
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(getconf.getInputStream(), StandardCharsets.UTF_8))) {
+                String line = reader.readLine();
+                if (getconf.waitFor() == 0 && line != null) {
+                    return Math.max(1, Long.parseLong(line.trim()) / 1024);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // no getconf: assume the common 4K pages
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 4;
+    }
+
+    private static Entry readEntry(Path process) {
+        try {
+            String stat = new String(Files.readAllBytes(process.resolve("stat")), StandardCharsets.UTF_8);
+            // "pid (name) state ppid ..."; the name may itself contain spaces and parentheses
+            int open = stat.indexOf('(');
+            int close = stat.lastIndexOf(')');
+            String[] fields = stat.substring(close + 2).trim().split(" ");
+            return new Entry(Integer.parseInt(stat.substring(0, open).trim()), Integer.parseInt(fields[1]),
+                    stat.substring(open + 1, close), fields[0].charAt(0), Long.parseLong(fields[19]),
+                    Long.parseLong(fields[21]) * PAGE_KB);
+        } catch (IOException | RuntimeException e) {
+            // the process exited while we were reading it
+            return null;
+        }
+    }
+
+    /**
+     * Gets a process
+     * @param pid Process id
+     * @return Entry, or null if no such process is running
+     */
+    Entry get(int pid) {
+        return entries.get(pid);
+    }
+
+    /**
+     * Gets all processes
+     * @return Entries of this snapshot
+     */
+    Collection<Entry> all() {
+        return entries.values();
+    }
+
+    /**
+     * Checks whether a process recorded earlier is still running, and not a new process with a reused pid
+     * @param pid Process id
+     * @param startTicks Start time recorded with the pid
+     * @return True if the same process is still running
+     */
+    boolean isAlive(int pid, long startTicks) {
+        Entry entry = entries.get(pid);
+        return entry != null && entry.startTicks == startTicks;
+    }
+
+    /**
+     * Collects a process and all processes below it
+     * @param pid Root process id
+     * @return The root, if running, followed by its descendants
+     */
+    Set<Entry> treeOf(int pid) {
+        Map<Integer, Set<Entry>> children = new HashMap<>();
+        for (Entry entry : entries.values()) {
+            children.computeIfAbsent(entry.ppid, key -> new LinkedHashSet<>()).add(entry);
+        }
+        Set<Entry> tree = new LinkedHashSet<>();
+        Deque<Entry> pending = new ArrayDeque<>();
+        if (entries.containsKey(pid)) {
+            pending.add(entries.get(pid));
+        }
+        while (!pending.isEmpty()) {
+            Entry entry = pending.poll();
+            if (tree.add(entry)) {
+                pending.addAll(children.getOrDefault(entry.pid, new LinkedHashSet<>()));
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * Reads the command line of a process
+     * @param pid Process id
+     * @return Arguments joined by spaces, or an empty string if unreadable
+     */
+    static String commandLine(int pid) {
+        try {
+            byte[] raw = Files.readAllBytes(PROC.resolve(String.valueOf(pid)).resolve("cmdline"));
+            return new String(raw, StandardCharsets.UTF_8).replace('\0', ' ').trim();
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Checks whether a process belongs to the same user as this JVM
+     * @param pid Process id
+     * @return True if both /proc entries have the same owner
+     */
+    static boolean isOwnedByCurrentUser(int pid) {
+        try {
+            return Files.getOwner(PROC.resolve(String.valueOf(pid))).equals(Files.getOwner(PROC.resolve("self")));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Sends SIGKILL to a process
+     * @param pid Process id
+     * @return True if kill succeeded
+     */
+    static boolean kill(int pid) {
+        try {
+            return new ProcessBuilder("kill", "-KILL", String.valueOf(pid)).start().waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * One process: ids, name, state (R, S, Z, ...), start time in clock ticks since boot and resident memory
+     */
+    static final class Entry {
+
+        final int pid;
+        final int ppid;
+        final String name;
+        final char state;
+        final long startTicks;
+        final long rssKb;
+
+        Entry(int pid, int ppid, String name, char state, long startTicks, long rssKb) {
+            this.pid = pid;
+            this.ppid = ppid;
+            this.name = name;
+            this.state = state;
+            this.startTicks = startTicks;
+            this.rssKb = rssKb;
+        }
+
+        boolean isZombie() {
+            return state == 'Z';
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Entry && ((Entry) other).pid == pid && ((Entry) other).startTicks == startTicks;
+        }
+
+        @Override
+        public int hashCode() {
+            return pid * 31 + Long.hashCode(startTicks);
+        }
+
+        @Override
+        public String toString() {
+            return name + "(" + pid + ")";
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package utils.resources;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.ConfigManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Warmed-up browser profiles that sessions start from instead of an empty directory.
+ * A template is built once per key by a warm-up session (first-run setup done, application assets in
+ * the disk cache), gets profile.template.chrome.preferences merged into Default/Preferences and is reused,
+ * also by other JVMs and later runs, for profile.template.max.age.hours. Each session gets its own copy,
+ * made with copy-on-write reflinks where the file system supports them, which is deleted like any other
+ * profile. Browser start-up times with empty and cloned profiles are summarised at the end of the run.
+ */
+public final class ProfileTemplates {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProfileTemplates.class);
+    private static final boolean ENABLED = ConfigManager.getBooleanProperty("profile.template.enabled");
+    private static final String READY_MARKER = ".template-ready";
+    private static final Gson GSON = new GsonBuilder().create();
+    // lock and state files a browser leaves in a profile that must not be copied into a new session
+    private static final Set<String> NOT_CLONED = new HashSet<>(Arrays.asList(
+            READY_MARKER, "SingletonLock", "SingletonSocket", "SingletonCookie", "lockfile", "parent.lock"));
+
+    private static final Map<String, Path> templates = new HashMap<>();
+    private static final Set<String> failed = new HashSet<>();
+    private static final Startups cold = new Startups();
+    private static final Startups warm = new Startups();
+    private static final Startups clones = new Startups();
+
+    private ProfileTemplates() {
+    }
+
+    /**
+     * Gets the template for a key, building it on first use unless a current one already exists
+     * @param key Browser and matrix profile, e.g. "chrome-default"
+     * @param warmUp Runs a browser once on the given empty directory and quits it
+     * @return Template directory, or null when templates are off or the template could not be built
+     */
+    public static synchronized Path template(String key, Consumer<Path> warmUp) {
+        if (!ENABLED || failed.contains(key)) {
+            return null;
+        }
+        Path template = templates.get(key);
+        if (template != null) {
+            return template;
+        }
+        Path root = ResourceAllocator.profileRoot().resolve("templates");
+        long maxAgeMillis = TimeUnit.HOURS.toMillis(ConfigManager.getIntProperty("profile.template.max.age.hours", 24));
+        // other JVMs on the host build the same template; the first one builds, the others wait and reuse it
+        try (FileChannel channel = openLock(root, key); FileLock lock = channel.lock()) {
+            template = current(root, key, maxAgeMillis);
+            if (template == null) {
+                template = build(root, key, warmUp);
+                removeVersionsOlderThan(root, key, 2 * maxAgeMillis);
+            } else {
+                logger.info("Reusing browser profile template {}", template);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to build browser profile template {}, sessions start with an empty profile: {}", key, e.getMessage());
+            failed.add(key);
+            return null;
+        }
+        templates.put(key, template);
+        return template;
+    }
+
+    private static FileChannel openLock(Path root, String key) throws IOException {
+        Files.createDirectories(root);
+        return FileChannel.open(root.resolve(key + ".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    private static Path current(Path root, String key, long maxAgeMillis) throws IOException {
+        Path newest = null;
+        try (DirectoryStream<Path> versions = Files.newDirectoryStream(root, key + "-*")) {
+            for (Path version : versions) {
+                Path marker = version.resolve(READY_MARKER);
+                if (Files.exists(marker)
+                        && System.currentTimeMillis() - Files.getLastModifiedTime(marker).toMillis() < maxAgeMillis
+                        && (newest == null || version.getFileName().toString().compareTo(newest.getFileName().toString()) > 0)) {
+                    newest = version;
+                }
+            }
+        }
+        return newest;
+    }
+
+    private static Path build(Path root, String key, Consumer<Path> warmUp) throws IOException {
+        // a new version directory, so JVMs still cloning an older template are not disturbed
+        Path template = root.resolve(String.format("%s-%013d", key, System.currentTimeMillis()));
+        Files.createDirectories(template);
+        logger.info("Building browser profile template {}", template);
+        try {
+            warmUp.accept(template);
+            mergePreferences(template.resolve("Default").resolve("Preferences"),
+                    ConfigManager.getListProperty("profile.template.chrome.preferences"));
+            Files.write(template.resolve(READY_MARKER), new byte[0]);
+        } catch (IOException | RuntimeException e) {
+            ResourceAllocator.deleteRecursively(template);
+            throw e;
+        }
+        return template;
+    }
+
+    private static void removeVersionsOlderThan(Path root, String key, long ageMillis) throws IOException {
+        try (DirectoryStream<Path> versions = Files.newDirectoryStream(root, key + "-*")) {
+            for (Path version : versions) {
+                if (Files.isDirectory(version)
+                        && System.currentTimeMillis() - Files.getLastModifiedTime(version).toMillis() > ageMillis) {
+                    ResourceAllocator.deleteRecursively(version);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets preferences in a Chrome Preferences file, keeping everything else in it
+     * @param preferences Preferences file, created if missing
+     * @param settings Dotted paths and values, e.g. "profile.default_content_setting_values.notifications=2"
+     * @throws IOException if the file cannot be read or written
+     */
+    static void mergePreferences(Path preferences, List<String> settings) throws IOException {
+        if (settings.isEmpty()) {
+            return;
+        }
+        JsonObject root = Files.exists(preferences)
+                ? JsonParser.parseString(new String(Files.readAllBytes(preferences), StandardCharsets.UTF_8)).getAsJsonObject()
+                : new JsonObject();
+        for (String setting : settings) {
+            String[] pathAndValue = setting.split("=", 2);
+            if (pathAndValue.length < 2) {
+                continue;
+            }
+            String[] path = pathAndValue[0].trim().split("\\.");
+            JsonObject parent = root;
+            for (int i = 0; i < path.length - 1; i++) {
+                JsonElement child = parent.get(path[i]);
+                if (child == null || !child.isJsonObject()) {
+                    child = new JsonObject();
+                    parent.add(path[i], child);
+                }
+                parent = child.getAsJsonObject();
+            }
+            parent.add(path[path.length - 1], jsonValue(pathAndValue[1].trim()));
+        }
+        Files.createDirectories(preferences.getParent());
+        Files.write(preferences, GSON.toJson(root).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static JsonPrimitive jsonValue(String value) {
+        if (value.equals("true") || value.equals("false")) {
+            return new JsonPrimitive(Boolean.parseBoolean(value));
+        }
+        try {
+            return new JsonPrimitive(Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            return new JsonPrimitive(value);
+        }
+    }
+
+    /**
+     * Creates a session profile as a copy of a template; it is deleted by {@link ResourceAllocator#release(Path)}
+     * @param template Directory returned by {@link #template(String, Consumer)}
+     * @return New profile directory
+     */
+    public static Path cloneOf(Path template) {
+        long started = System.currentTimeMillis();
+        Path profile = ResourceAllocator.newBrowserProfile();
+        try {
+            copy(template, profile);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to copy browser profile template " + template, e);
+        }
+        clones.add(System.currentTimeMillis() - started);
+        return profile;
+    }
+
+    static void copy(Path template, Path target) throws IOException {
+        if (File.separatorChar == '/' && reflinkCopy(template, target)) {
+            for (String name : NOT_CLONED) {
+                Files.deleteIfExists(target.resolve(name));
+            }
+            return;
+        }
+        Files.walkFileTree(template, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(template.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (!NOT_CLONED.contains(file.getFileName().toString()) && !Files.isSymbolicLink(file)) {
+                    Files.copy(file, target.resolve(template.relativize(file).toString()),
+                            StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static boolean reflinkCopy(Path template, Path target) {
+        // cp shares the data blocks on btrfs and XFS and falls back to a plain copy elsewhere
+        try {
+            Process copy = new ProcessBuilder("cp", "-a", "--reflink=auto", template + "/.", target.toString())
+                    .redirectErrorStream(true).redirectOutput(new File("/dev/null")).start();
+            return copy.waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Records how long a browser took from launch to its first page
+     * @param fromTemplate Whether the session started from a template clone rather than an empty profile
+     * @param millis Launch to first page load in milliseconds
+     */
+    public static void recordStartup(boolean fromTemplate, long millis) {
+        (fromTemplate ? warm : cold).add(millis);
+    }
+
+    /**
+     * Compares start-up times with empty and cloned profiles
+     * @return One line for the end-of-run log, or null if no start-up was recorded
+     */
+    public static String summary() {
+        if (cold.count() == 0 && warm.count() == 0) {
+            return null;
+        }
+        return String.format("Browser start-up to first page: %s with an empty profile, %s from a template (of which cloning %s)",
+                cold, warm, clones);
+    }
+
+    /**
+     * Count and total of one kind of start-up
+     */
+    private static final class Startups {
+
+        private int count;
+        private long totalMillis;
+
+        synchronized void add(long millis) {
+            count++;
+            totalMillis += millis;
+        }
+
+        synchronized int count() {
+            return count;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return count == 0 ? "none" : String.format("%d x avg %d ms", count, totalMillis / count);
+        }
+    }
+}
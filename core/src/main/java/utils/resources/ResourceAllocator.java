@@ -0,0 +1,211 @@
+package utils.resources;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.ConfigManager;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out the host resources a browser session needs so that several JVMs and several
+ * browsers per JVM can share one machine: free TCP ports, throw-away browser profile
+ * directories and a per-worker artifact root for screenshots, logs and reports.
+ * A worker is whatever -Dworker.id names, a shard started with -Dshard.index, or a Gradle test fork
+ * when forks run in parallel (worker.forks above 1, set by the build); any other run, including a
+ * single Gradle fork, has no worker id and keeps the usual relative directories.
+ */
+public final class ResourceAllocator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceAllocator.class);
+    private static final String WORKER_ID = resolveWorkerId();
+    private static final Path ARTIFACT_ROOT = resolveArtifactRoot();
+
+    private static final Set<Integer> allocatedPorts = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private static final Set<Path> profiles = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            for (Path profile : profiles) {
+                deleteRecursively(profile);
+            }
+        }, "browser-profile-cleanup"));
+    }
+
+    private ResourceAllocator() {
+    }
+
+    /**
+     * Gets the id of this worker
+     * @return Worker id such as "fork-3" or "shard-2", or an empty string for a single-JVM run
+     */
+    public static String workerId() {
+        return WORKER_ID;
+    }
+
+    /**
+     * Gets the directory all artifacts of this worker are written under
+     * @return artifacts.root, plus workers/&lt;worker id&gt; when artifacts.per.worker is on and a worker id is known
+     */
+    public static Path artifactRoot() {
+        return ARTIFACT_ROOT;
+    }
+
+    /**
+     * Resolves a configured output path against this worker's artifact root
+     * @param configuredPath Path from config.properties, e.g. "screenshots"
+     * @return The path itself if absolute, otherwise the path under the artifact root
+     */
+    public static Path artifactPath(String configuredPath) {
+        Path path = Paths.get(configuredPath);
+        return path.isAbsolute() ? path : ARTIFACT_ROOT.resolve(path).normalize();
+    }
+
+    /**
+     * Lists where a configured output path lives for every worker that has written to artifacts.root,
+     * so that retention and viewers see the artifacts of all workers
+     * @param configuredPath Path from config.properties, e.g. "screenshots"
+     * @return The path itself if absolute, otherwise the path under artifacts.root followed by the path
+     *         under each workers/&lt;worker id&gt; directory
+     */
+    public static List<Path> allArtifactPaths(String configuredPath) {
+        Path path = Paths.get(configuredPath);
+        if (path.isAbsolute()) {
+            return Collections.singletonList(path);
+        }
+        Path root = Paths.get(ConfigManager.getProperty("artifacts.root", "."));
+        List<Path> paths = new ArrayList<>();
+        paths.add(root.resolve(path).normalize());
+        Path workers = root.resolve("workers");
+        if (Files.isDirectory(workers)) {
+            try (DirectoryStream<Path> workerRoots = Files.newDirectoryStream(workers, Files::isDirectory)) {
+                for (Path workerRoot : workerRoots) {
+                    paths.add(workerRoot.resolve(path).normalize());
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to list worker directories under {}: {}", workers, e.getMessage());
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Finds a TCP port that is free right now and has not been handed out by this JVM before
+     * @return Free local port
+     */
+    public static int freePort() {
+        for (int attempt = 0; attempt < 20; attempt++) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                socket.setReuseAddress(true);
+                int port = socket.getLocalPort();
+                if (allocatedPorts.add(port)) {
+                    return port;
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to probe for a free port: {}", e.getMessage());
+            }
+        }
+        throw new IllegalStateException("No free local port available");
+    }
+
+    /**
+     * Creates an empty browser profile directory owned by this worker; it is deleted by
+     * {@link #release(Path)} or when the JVM exits
+     * @return New profile directory
+     */
+    public static Path newBrowserProfile() {
+        Path root = profileRoot();
+        try {
+            Files.createDirectories(root);
+            String owner = WORKER_ID.isEmpty() ? "pid" + processId() : WORKER_ID;
+            Path profile = Files.createTempDirectory(root, owner + "-");
+            profiles.add(profile);
+            return profile;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to create browser profile directory under " + root, e);
+        }
+    }
+
+    /**
+     * Deletes a profile directory created by {@link #newBrowserProfile()}
+     * @param profile Profile directory, may be null
+     */
+    public static void release(Path profile) {
+        if (profile != null && profiles.remove(profile)) {
+            deleteRecursively(profile);
+        }
+    }
+
+    /**
+     * Gets the parent directory of browser profiles
+     * @return browser.profile.root, or selenium-profiles under the system temp directory
+     */
+    static Path profileRoot() {
+        String configuredRoot = ConfigManager.getProperty("browser.profile.root", "").trim();
+        return configuredRoot.isEmpty()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "selenium-profiles")
+                : Paths.get(configuredRoot);
+    }
+
+    private static String resolveWorkerId() {
+        String explicit = ConfigManager.getProperty("worker.id", "").trim();
+        if (!explicit.isEmpty()) {
+            return explicit;
+        }
+        if (System.getProperty("shard.index") != null || ConfigManager.getIntProperty("shard.count", 1) > 1) {
+            return "shard-" + (ConfigManager.getIntProperty("shard.index", 0) + 1);
+        }
+        // Gradle numbers every test JVM, even the only one, so forks count as workers only when several run at once
+        String gradleWorker = System.getProperty("org.gradle.test.worker");
+        return gradleWorker != null && ConfigManager.getIntProperty("worker.forks", 1) > 1 ? "fork-" + gradleWorker : "";
+    }
+
+    private static Path resolveArtifactRoot() {
+        Path root = Paths.get(ConfigManager.getProperty("artifacts.root", "."));
+        boolean perWorker = Boolean.parseBoolean(ConfigManager.getProperty("artifacts.per.worker", "true"));
+        return perWorker && !WORKER_ID.isEmpty() ? root.resolve("workers").resolve(WORKER_ID) : root;
+    }
+
+    static String processId() {
+        // RuntimeMXBean name is "pid@host" on HotSpot
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        int at = name.indexOf('@');
+        return at > 0 ? name.substring(0, at) : name;
+    }
+
+    static void deleteRecursively(Path directory) {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.deleteIfExists(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    Files.deleteIfExists(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Failed to delete browser profile {}: {}", directory, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package utils.retry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IAlterSuiteListener;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestNGListener;
+import org.testng.ITestResult;
+import org.testng.TestNG;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlInclude;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+import utils.history.FlakinessDetector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The tests of the "Deferred retries" block added by {@link DeferredRetryRunner}: one invocation per
+ * queued failure, run in parallel once the rest of the suite has finished. Each attempt runs the failed
+ * test and its prerequisites in a nested TestNG run with the suite's listeners, so BaseTest opens a fresh
+ * browser session. A recovered test's original result is dropped from the run; a test that keeps failing
+ * fails here with its last failure.
+ */
+public class DeferredRetries {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeferredRetries.class);
+
+    @DataProvider(name = "queuedRetries", parallel = true)
+    public Object[][] queuedRetries(ITestContext context) throws InterruptedException {
+        DeferredRetryRunner.awaitOtherBlocks(context.getSuite().getName());
+        List<DeferredRetryQueue.QueuedRetry> retries = DeferredRetryQueue.drain(context.getSuite().getName());
+        if (!retries.isEmpty()) {
+            logger.info("Retrying {} failed test(s) on fresh sessions", retries.size());
+        }
+        Object[][] rows = new Object[retries.size()][];
+        for (int i = 0; i < retries.size(); i++) {
+            rows[i] = new Object[]{retries.get(i)};
+        }
+        return rows;
+    }
+
+    @Test(dataProvider = "queuedRetries", description = "Retry a failed test on a fresh session")
+    public void retry(DeferredRetryQueue.QueuedRetry retry) {
+        Throwable lastFailure = null;
+        for (int attempt = 1; attempt <= RetryPolicy.maxRetries(); attempt++) {
+            AttemptOutcome outcome = runAttempt(retry, attempt);
+            if (outcome.passed()) {
+                for (ITestResult original : retry.originals) {
+                    original.getTestContext().getSkippedTests().removeResult(original);
+                }
+                logger.info("Retried test {} passed on a fresh session (attempt {})", retry.testId, attempt);
+                return;
+            }
+            lastFailure = outcome.failure;
+            logger.warn("Retried test {} failed again (attempt {} of {}): {}", retry.testId, attempt,
+                    RetryPolicy.maxRetries(), FlakinessDetector.signatureOf(lastFailure));
+            if (lastFailure != null && !RetryPolicy.isRetryable(retry.testId, lastFailure)) {
+                break;
+            }
+        }
+        throw new AssertionError(retry.testId + " still fails after deferred retries", lastFailure);
+    }
+
+    private AttemptOutcome runAttempt(DeferredRetryQueue.QueuedRetry retry, int attempt) {
+        XmlSuite suite = new XmlSuite();
+        // named like the original suite, so outcomes land in the same history file
+        suite.setName(retry.suiteName);
+        XmlTest xmlTest = new XmlTest(suite);
+        xmlTest.setName(retry.xmlTest.getName() + " (retry " + attempt + ")");
+        xmlTest.setParameters(retry.xmlTest.getAllParameters());
+        List<XmlInclude> includes = new ArrayList<>();
+        for (String methodName : retry.includedMethods) {
+            includes.add(new XmlInclude(methodName));
+        }
+        XmlClass xmlClass = new XmlClass(retry.className);
+        xmlClass.setIncludedMethods(includes);
+        xmlTest.setXmlClasses(Collections.singletonList(xmlClass));
+
+        AttemptOutcome outcome = new AttemptOutcome(retry);
+        TestNG testng = new TestNG();
+        testng.setXmlSuites(Collections.singletonList(suite));
+        testng.setUseDefaultListeners(false);
+        testng.setVerbose(0);
+        for (ITestNGListener listener : suiteListeners(retry.xmlTest.getSuite())) {
+            testng.addListener(listener);
+        }
+        testng.addListener((ITestNGListener) outcome);
+        testng.run();
+        return outcome;
+    }
+
+    /**
+     * Creates the listeners of the original suite, except the ones that alter suites (the retry runs exactly
+     * the queued test) and the deferring runner itself (a retry's failure is final)
+     */
+    private static List<ITestNGListener> suiteListeners(XmlSuite original) {
+        List<ITestNGListener> listeners = new ArrayList<>();
+        for (String className : original.getListeners()) {
+            try {
+                Class<?> listenerClass = Class.forName(className);
+                if (IAlterSuiteListener.class.isAssignableFrom(listenerClass)
+                        || DeferredRetryRunner.class.equals(listenerClass)) {
+                    continue;
+                }
+                listeners.add((ITestNGListener) listenerClass.getDeclaredConstructor().newInstance());
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                logger.warn("Listener {} not used for retries: {}", className, e.getMessage());
+            }
+        }
+        return listeners;
+    }
+
+    /**
+     * Outcome of the retried method in one attempt; a prerequisite failing skips it, which counts as a failure
+     */
+    private static final class AttemptOutcome implements ITestListener {
+
+        private final String className;
+        private final String methodName;
+        private volatile boolean succeeded;
+        private volatile boolean failed;
+        private volatile Throwable failure;
+
+        private AttemptOutcome(DeferredRetryQueue.QueuedRetry retry) {
+            this.className = retry.className;
+            this.methodName = retry.methodName;
+        }
+
+        boolean passed() {
+            return succeeded && !failed;
+        }
+
+        private boolean isRetried(ITestResult result) {
+            return result.getMethod().getRealClass().getName().equals(className)
+                    && result.getMethod().getMethodName().equals(methodName);
+        }
+
+        private void failed(ITestResult result) {
+            if (isRetried(result)) {
+                failed = true;
+                failure = result.getThrowable();
+            }
+        }
+
+        @Override
+        public void onTestSuccess(ITestResult result) {
+            if (isRetried(result)) {
+                succeeded = true;
+            }
+        }
+
+        @Override
+        public void onTestFailure(ITestResult result) {
+            failed(result);
+        }
+
+        @Override
+        public void onTestSkipped(ITestResult result) {
+            failed(result);
+        }
+
+        @Override
+        public void onTestFailedButWithinSuccessPercentage(ITestResult result) {
+            failed(result);
+        }
+
+        @Override
+        public void onTestStart(ITestResult result) {
+        }
+
+        @Override
+        public void onStart(ITestContext context) {
+        }
+
+        @Override
+        public void onFinish(ITestContext context) {
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package utils.retry;
+
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.xml.XmlTest;
+import utils.history.TestHistoryRecorder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Failures waiting to be retried in the retry block at the end of the run,
+ * one entry per test and &lt;test&gt; block.
+ */
+public final class DeferredRetryQueue {
+
+    private static final Map<String, QueuedRetry> pending = new LinkedHashMap<>();
+
+    private DeferredRetryQueue() {
+    }
+
+    /**
+     * Queues a failed test for retry; further failures of the same test in the same &lt;test&gt; block,
+     * e.g. other data provider rows, join the queued retry, which re-runs the whole method
+     * @param result Failed test result
+     */
+    static synchronized void offer(ITestResult result) {
+        String testId = TestHistoryRecorder.testIdOf(result);
+        String key = result.getTestContext().getSuite().getName() + "/" + result.getTestContext().getName() + "/" + testId;
+        QueuedRetry retry = pending.get(key);
+        if (retry == null) {
+            retry = new QueuedRetry(testId, result);
+            pending.put(key, retry);
+        }
+        retry.originals.add(result);
+    }
+
+    /**
+     * Removes and returns the queued retries of a suite
+     * @param suiteName Suite name
+     * @return Queued retries in failure order
+     */
+    static synchronized List<QueuedRetry> drain(String suiteName) {
+        List<QueuedRetry> batch = new ArrayList<>();
+        Iterator<QueuedRetry> retries = pending.values().iterator();
+        while (retries.hasNext()) {
+            QueuedRetry retry = retries.next();
+            if (retry.suiteName.equals(suiteName)) {
+                batch.add(retry);
+                retries.remove();
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * A failed test waiting for its retry
+     */
+    static final class QueuedRetry {
+
+        final String testId;
+        final String suiteName;
+        final String className;
+        final String methodName;
+        final XmlTest xmlTest;
+        final Set<String> includedMethods = new LinkedHashSet<>();
+        final List<ITestResult> originals = new ArrayList<>();
+
+        private QueuedRetry(String testId, ITestResult result) {
+            ITestNGMethod method = result.getMethod();
+            this.testId = testId;
+            this.suiteName = result.getTestContext().getSuite().getName();
+            this.className = method.getRealClass().getName();
+            this.methodName = method.getMethodName();
+            this.xmlTest = result.getTestContext().getCurrentXmlTest();
+            includePrerequisites(method, result.getTestContext().getAllTestMethods());
+            includedMethods.add(methodName);
+        }
+
+        /**
+         * A fresh session starts from the login page, so methods the failed test builds on
+         * (dependsOnMethods, or lower priorities in a priority-ordered class) run again first
+         */
+        private void includePrerequisites(ITestNGMethod failed, ITestNGMethod[] allMethods) {
+            List<String> dependencies = Arrays.asList(failed.getMethodsDependedUpon());
+            for (ITestNGMethod candidate : allMethods) {
+                if (!candidate.getRealClass().equals(failed.getRealClass()) || candidate.equals(failed)) {
+                    continue;
+                }
+                String qualifiedName = candidate.getRealClass().getName() + "." + candidate.getMethodName();
+                if (dependencies.contains(qualifiedName) || candidate.getPriority() < failed.getPriority()) {
+                    includedMethods.add(candidate.getMethodName());
+                }
+            }
+        }
+
+        /**
+         * Shown as the parameter of the retry in reports
+         */
+        @Override
+        public String toString() {
+            return testId + " [" + xmlTest.getName() + "]";
+        }
+    }
+}
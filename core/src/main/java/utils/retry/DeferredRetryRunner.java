@@ -0,0 +1,130 @@
+package utils.retry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+import org.testng.SkipException;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Defers retryable failures to a final &lt;test&gt; block of the same run.
+ * When a test fails with a failure {@link RetryPolicy} considers worth retrying, the failure is queued
+ * and reported as skipped, so the worker moves on instead of retrying on the same (possibly broken)
+ * browser session. {@link #appendRetryBlock(XmlSuite)} adds the "Deferred retries" block, which runs
+ * {@link DeferredRetries} once every other block of the suite has finished: each queued test is re-run
+ * on a fresh session, with the suite's listeners, up to test.retry.count times. The retry's outcome is the
+ * test's final result in TestNG's reports, the exit code and the Gradle build.
+ * Register it in the &lt;listeners&gt; section of testng.xml next to DurationScheduler, which adds the block.
+ */
+public class DeferredRetryRunner implements IInvokedMethodListener, ITestListener {
+
+    /**
+     * Name of the &lt;test&gt; block that runs the deferred retries
+     */
+    public static final String RETRY_BLOCK_NAME = "Deferred retries";
+
+    private static final Logger logger = LoggerFactory.getLogger(DeferredRetryRunner.class);
+
+    // Blocks of each suite still running; TestNG may create one listener instance per interface
+    private static final Map<String, CountDownLatch> runningBlocks = new ConcurrentHashMap<>();
+
+    /**
+     * Appends the retry block to a suite that lists this listener, after the suite has been expanded,
+     * sharded and ordered; does nothing when test.retry.count is 0
+     * @param suite Suite about to run
+     */
+    public static void appendRetryBlock(XmlSuite suite) {
+        if (RetryPolicy.maxRetries() <= 0 || !suite.getListeners().contains(DeferredRetryRunner.class.getName())
+                || hasRetryBlock(suite)) {
+            return;
+        }
+        runningBlocks.put(suite.getName(), new CountDownLatch(suite.getTests().size()));
+        XmlTest retryBlock = new XmlTest(suite);
+        retryBlock.setName(RETRY_BLOCK_NAME);
+        retryBlock.setXmlClasses(Collections.singletonList(new XmlClass(DeferredRetries.class.getName())));
+    }
+
+    private static boolean hasRetryBlock(XmlSuite suite) {
+        for (XmlTest test : suite.getTests()) {
+            if (RETRY_BLOCK_NAME.equals(test.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Waits until every other block of the suite has finished, so that all failures are queued
+     * @param suiteName Suite name
+     * @throws InterruptedException If interrupted while waiting
+     */
+    static void awaitOtherBlocks(String suiteName) throws InterruptedException {
+        CountDownLatch latch = runningBlocks.get(suiteName);
+        if (latch != null) {
+            latch.await();
+        }
+    }
+
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult testResult) {
+    }
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult testResult) {
+        // runs before TestNG settles the result, so a status changed here is what listeners and reports see
+        if (!method.isTestMethod() || testResult.getStatus() != ITestResult.FAILURE
+                || testResult.getThrowable() instanceof SkipException
+                || !(testResult.getMethod().getRetryAnalyzer() instanceof SmartRetryAnalyzer)
+                || testResult.getMethod().getRealClass().equals(DeferredRetries.class)
+                || !hasRetryBlock(testResult.getTestContext().getSuite().getXmlSuite())) {
+            return;
+        }
+        SmartRetryAnalyzer analyzer = (SmartRetryAnalyzer) testResult.getMethod().getRetryAnalyzer();
+        if (analyzer.defer(testResult)) {
+            testResult.setStatus(ITestResult.SKIP);
+        }
+    }
+
+    @Override
+    public void onFinish(ITestContext context) {
+        CountDownLatch latch = runningBlocks.get(context.getSuite().getName());
+        if (latch != null && !RETRY_BLOCK_NAME.equals(context.getName())) {
+            latch.countDown();
+        }
+    }
+
+    @Override
+    public void onStart(ITestContext context) {
+    }
+
+    @Override
+    public void onTestStart(ITestResult result) {
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+    }
+
+    @Override
+    public void onTestFailedButWithinSuccessPercentage(ITestResult result) {
+    }
+}
@@ -0,0 +1,43 @@
+package utils.retry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IAnnotationTransformer;
+import org.testng.annotations.ITestAnnotation;
+import utils.ConfigManager;
+import utils.history.FlakinessDetector;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Applies the retry and flaky-test policy to every test method before the suite runs.
+ * Tests get {@link SmartRetryAnalyzer} when test.retry.count is above zero; with
+ * flaky.quarantine.mode=disable known flaky tests are not run at all until they are fixed.
+ * Register it in the &lt;listeners&gt; section of testng.xml.
+ */
+public class RetryAnnotationTransformer implements IAnnotationTransformer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetryAnnotationTransformer.class);
+    private static final String QUARANTINE_MODE = ConfigManager.getProperty("flaky.quarantine.mode", "retry");
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void transform(ITestAnnotation annotation, Class testClass, Constructor testConstructor, Method testMethod) {
+        if (testMethod == null || testMethod.getDeclaringClass().equals(DeferredRetries.class)) {
+            return;
+        }
+        String testId = testMethod.getDeclaringClass().getName() + "." + testMethod.getName();
+        // the browser and profile are not known before the suite runs, so flaky on any of them disables the method
+        List<String> flakyIds = FlakinessDetector.current().flakyIdsOf(testId);
+        if ("disable".equalsIgnoreCase(QUARANTINE_MODE) && !flakyIds.isEmpty()) {
+            annotation.setEnabled(false);
+            logger.warn("Quarantined known flaky test {}: flaky as {}", testId, flakyIds);
+            return;
+        }
+        if (RetryPolicy.maxRetries() > 0 && annotation.getRetryAnalyzer() == null) {
+            annotation.setRetryAnalyzer(SmartRetryAnalyzer.class);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package utils.retry;
+
+import utils.ConfigManager;
+import utils.history.FlakinessDetector;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Decides which failures are worth retrying.
+ * Only failures with a transient signature (stale element, timeout, lost or crashed session)
+ * and failures of tests the history marks as flaky are retried; assertion failures never are.
+ */
+public final class RetryPolicy {
+
+    private static final int MAX_RETRIES = ConfigManager.getIntProperty("test.retry.count", 0);
+    private static final List<String> TRANSIENT_EXCEPTIONS =
+            ConfigManager.getListProperty("test.retry.transient.exceptions");
+    private static final Pattern TRANSIENT_MESSAGES = Pattern.compile(
+            ConfigManager.getProperty("test.retry.transient.messages", "$^"), Pattern.CASE_INSENSITIVE);
+
+    private RetryPolicy() {
+    }
+
+    /**
+     * Gets the number of times a failed test may be retried (test.retry.count)
+     * @return Maximum retries per test
+     */
+    public static int maxRetries() {
+        return MAX_RETRIES;
+    }
+
+    /**
+     * Checks whether a failure looks transient: any exception in the cause chain is one of
+     * test.retry.transient.exceptions or its message matches test.retry.transient.messages
+     * @param failure Failure cause
+     * @return true if the failure is likely to pass on a fresh session
+     */
+    public static boolean isTransient(Throwable failure) {
+        if (failure == null || failure instanceof AssertionError) {
+            return false;
+        }
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (TRANSIENT_EXCEPTIONS.contains(cause.getClass().getSimpleName())) {
+                return true;
+            }
+            if (cause.getMessage() != null && TRANSIENT_MESSAGES.matcher(cause.getMessage()).find()) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a failed test should be retried
+     * @param testId Test id, e.g. "LoginTest.testSuccessfulLogin"
+     * @param failure Failure cause
+     * @return true if the failure is transient or the test is known to be flaky
+     */
+    public static boolean isRetryable(String testId, Throwable failure) {
+        return isTransient(failure) || FlakinessDetector.current().isFlaky(testId);
+    }
+}
@@ -0,0 +1,50 @@
+package utils.retry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IRetryAnalyzer;
+import org.testng.ITestResult;
+import utils.history.FlakinessDetector;
+import utils.history.TestHistoryRecorder;
+
+/**
+ * Retry analyzer wired to test.retry.count.
+ * Instead of retrying inline, which would keep a parallel worker busy re-running the test
+ * on the same (possibly broken) browser session, {@link DeferredRetryRunner} hands eligible
+ * failures to {@link #defer(ITestResult)} as soon as they happen: they are reported as skipped
+ * and re-run on a fresh session in the retry block at the end of the run, whose outcome is
+ * the test's final result. TestNG itself therefore only asks about failures that are not retried.
+ */
+public class SmartRetryAnalyzer implements IRetryAnalyzer {
+
+    /**
+     * Result attribute marking a failure that was deferred to the retry block
+     */
+    public static final String DEFERRED_ATTRIBUTE = "retry.deferred";
+
+    private static final Logger logger = LoggerFactory.getLogger(SmartRetryAnalyzer.class);
+
+    /**
+     * Queues a failure for the retry block if it is worth retrying
+     * @param result Failed test result
+     * @return true if the failure was queued and should be reported as skipped
+     */
+    boolean defer(ITestResult result) {
+        String testId = TestHistoryRecorder.testIdOf(result);
+        Throwable failure = result.getThrowable();
+        if (RetryPolicy.maxRetries() <= 0 || !RetryPolicy.isRetryable(testId, failure)) {
+            return false;
+        }
+        DeferredRetryQueue.offer(result);
+        result.setAttribute(DEFERRED_ATTRIBUTE, Boolean.TRUE);
+        logger.warn("Queued {} for retry at the end of the run (up to {} attempt(s)): {}", testId,
+                RetryPolicy.maxRetries(), FlakinessDetector.signatureOf(failure));
+        return true;
+    }
+
+    @Override
+    public boolean retry(ITestResult result) {
+        // retryable failures were already deferred; retrying inline would reuse the broken session
+        return false;
+    }
+}
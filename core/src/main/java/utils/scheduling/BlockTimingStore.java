@@ -0,0 +1,145 @@
+package utils.scheduling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.ConfigManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Wall-clock durations of whole &lt;test&gt; blocks, including browser start-up and teardown,
+ * stored next to the test history as one tab-separated "timestamp, block, millis" line per run.
+ * Each run appends; {@link #compact(String, int)} trims the file to the most recent samples of each block.
+ */
+public class BlockTimingStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlockTimingStore.class);
+    private static final String FILE_EXTENSION = ".blocks";
+
+    private final Path directory;
+
+    /**
+     * Constructor
+     * @param directory Directory holding the timing files
+     */
+    public BlockTimingStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Creates a store in the directory configured by history.directory
+     * @return Timing store
+     */
+    public static BlockTimingStore fromConfig() {
+        return new BlockTimingStore(Paths.get(ConfigManager.getProperty("history.directory", "test-history")));
+    }
+
+    /**
+     * Appends the duration of one &lt;test&gt; block
+     * @param suiteName TestNG suite name
+     * @param blockName &lt;test&gt; name
+     * @param durationMillis Wall-clock duration
+     */
+    public synchronized void append(String suiteName, String blockName, long durationMillis) {
+        String line = System.currentTimeMillis() + "\t" + blockName.replace('\t', ' ') + "\t" + durationMillis;
+        try {
+            Files.createDirectories(directory);
+            Files.write(fileFor(suiteName), Collections.singletonList(line), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            logger.warn("Failed to record duration of {}: {}", blockName, e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the recorded durations of a suite's blocks, oldest first
+     * @param suiteName TestNG suite name
+     * @return Durations in milliseconds per block name
+     */
+    public Map<String, List<Long>> load(String suiteName) {
+        Map<String, List<Long>> durations = new LinkedHashMap<>();
+        Path file = fileFor(suiteName);
+        if (!Files.exists(file)) {
+            return durations;
+        }
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] fields = line.split("\t");
+                if (fields.length == 3) {
+                    try {
+                        durations.computeIfAbsent(fields[1], name -> new ArrayList<>()).add(Long.parseLong(fields[2]));
+                    } catch (NumberFormatException e) {
+                        // skip malformed line
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to read block durations {}: {}", file, e.getMessage());
+        }
+        return durations;
+    }
+
+    /**
+     * Rewrites a suite's timings keeping only the most recent samples of each block
+     * @param suiteName TestNG suite name
+     * @param samplesPerBlock Number of samples to keep per block
+     */
+    public synchronized void compact(String suiteName, int samplesPerBlock) {
+        Path file = fileFor(suiteName);
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            Map<String, Deque<Integer>> latest = new HashMap<>();
+            for (int i = 0; i < lines.size(); i++) {
+                String[] fields = lines.get(i).split("\t");
+                if (fields.length == 3) {
+                    Deque<Integer> samples = latest.computeIfAbsent(fields[1], name -> new ArrayDeque<>());
+                    samples.addLast(i);
+                    if (samples.size() > samplesPerBlock) {
+                        samples.removeFirst();
+                    }
+                }
+            }
+            Set<Integer> keptLines = new HashSet<>();
+            latest.values().forEach(keptLines::addAll);
+            if (keptLines.size() == lines.size()) {
+                return;
+            }
+            // malformed lines are dropped along with the old samples; the rest keeps its order
+            List<String> kept = new ArrayList<>(keptLines.size());
+            for (int i = 0; i < lines.size(); i++) {
+                if (keptLines.contains(i)) {
+                    kept.add(lines.get(i));
+                }
+            }
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temp, kept, StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            logger.info("Compacted block durations {} from {} to {} samples", file, lines.size(), kept.size());
+        } catch (IOException e) {
+            logger.warn("Failed to compact block durations {}: {}", file, e.getMessage());
+        }
+    }
+
+    private Path fileFor(String suiteName) {
+        return directory.resolve(suiteName.replaceAll("[^a-zA-Z0-9._-]", "_") + FILE_EXTENSION);
+    }
+}
@@ -0,0 +1,129 @@
+package utils.scheduling;
+
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlTest;
+import utils.ConfigManager;
+import utils.history.TestHistoryStore;
+import utils.history.TestOutcome;
+import utils.matrix.BrowserMatrix;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates how long each &lt;test&gt; block will take from local history.
+ * The mean of the block's most recent recorded wall-clock durations is used when available;
+ * otherwise the sum of the average durations of the methods the block has run before;
+ * blocks with no history at all get the median estimate of the known blocks.
+ */
+public class DurationEstimator {
+
+    private static final int WINDOW = ConfigManager.getIntProperty("scheduler.history.window", 10);
+
+    private final Map<String, List<Long>> blockDurations;
+    private final Map<String, Long> methodDurations = new HashMap<>();
+    private final Map<String, Long> methodTotalsByBlock = new HashMap<>();
+
+    /**
+     * Constructor
+     * @param blockDurations Recorded block durations, oldest first
+     * @param methodHistory Recorded test method outcomes, oldest first
+     */
+    public DurationEstimator(Map<String, List<Long>> blockDurations, List<TestOutcome> methodHistory) {
+        this.blockDurations = blockDurations;
+
+        Map<String, List<Long>> byMethod = new LinkedHashMap<>();
+        Map<String, String> blockOfMethod = new HashMap<>();
+        for (TestOutcome outcome : methodHistory) {
+            if (outcome.getStatus() != TestOutcome.Status.SKIP) {
+                byMethod.computeIfAbsent(outcome.getTestId(), id -> new ArrayList<>()).add(outcome.getDurationMillis());
+                blockOfMethod.put(outcome.getTestId(), outcome.getXmlTest());
+            }
+        }
+        for (Map.Entry<String, List<Long>> entry : byMethod.entrySet()) {
+            long average = recentMean(entry.getValue());
+            methodDurations.put(entry.getKey(), average);
+            methodTotalsByBlock.merge(blockOfMethod.get(entry.getKey()), average, Long::sum);
+        }
+    }
+
+    /**
+     * Creates an estimator over the configured history directory
+     * @param suiteName TestNG suite name
+     * @return Duration estimator
+     */
+    public static DurationEstimator forSuite(String suiteName) {
+        return new DurationEstimator(BlockTimingStore.fromConfig().load(suiteName),
+                TestHistoryStore.fromConfig().load(suiteName));
+    }
+
+    /**
+     * Estimates every block of a suite
+     * @param tests &lt;test&gt; blocks in declaration order
+     * @return Estimated milliseconds per block name, in declaration order
+     */
+    public Map<String, Long> estimate(List<XmlTest> tests) {
+        Map<String, Long> estimates = new LinkedHashMap<>();
+        List<String> unknown = new ArrayList<>();
+        for (XmlTest test : tests) {
+            Long estimate = estimateKnown(test);
+            if (estimate == null) {
+                unknown.add(test.getName());
+            }
+            estimates.put(test.getName(), estimate);
+        }
+        long fallback = median(new ArrayList<>(estimates.values()));
+        for (String name : unknown) {
+            estimates.put(name, fallback);
+        }
+        return estimates;
+    }
+
+    private Long estimateKnown(XmlTest test) {
+        String blockName = BrowserMatrix.blockNameOf(test);
+        List<Long> recorded = blockDurations.get(blockName);
+        if (recorded != null && !recorded.isEmpty()) {
+            return recentMean(recorded);
+        }
+        if (methodTotalsByBlock.containsKey(blockName)) {
+            return methodTotalsByBlock.get(blockName);
+        }
+        // Block was renamed or is new: fall back to the history of its classes' methods on the same browser and profile
+        String combination = BrowserMatrix.combinationSuffixOf(test);
+        long total = 0L;
+        boolean found = false;
+        for (XmlClass xmlClass : test.getXmlClasses()) {
+            for (Map.Entry<String, Long> entry : methodDurations.entrySet()) {
+                String testId = entry.getKey();
+                if (testId.startsWith(xmlClass.getName() + ".")
+                        && testId.substring(BrowserMatrix.withoutCombination(testId).length()).equals(combination)) {
+                    total += entry.getValue();
+                    found = true;
+                }
+            }
+        }
+        return found ? total : null;
+    }
+
+    private static long recentMean(List<Long> values) {
+        List<Long> recent = values.subList(Math.max(0, values.size() - WINDOW), values.size());
+        long total = 0L;
+        for (long value : recent) {
+            total += value;
+        }
+        return recent.isEmpty() ? 0L : total / recent.size();
+    }
+
+    private static long median(List<Long> values) {
+        values.removeAll(Collections.singleton(null));
+        if (values.isEmpty()) {
+            return 0L;
+        }
+        Collections.sort(values);
+        return values.get(values.size() / 2);
+    }
+}
@@ -0,0 +1,177 @@
+package utils.scheduling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IAlterSuiteListener;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+import utils.ConfigManager;
+import utils.matrix.BrowserMatrix;
+import utils.retry.DeferredRetryRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reorders the &lt;test&gt; blocks of a parallel="tests" suite longest first, by duration
+ * from local history, so the slowest blocks start immediately and short ones fill in
+ * behind them. TestNG hands blocks to its thread pool in list order, which makes this a
+ * longest-processing-time-first schedule over thread-count workers.
+ * Records each block's wall-clock time for the next run and logs expected versus actual
+ * makespan when the suite finishes. Methods inside a block keep their priority order.
+ * Before scheduling, the suite is expanded by {@link BrowserMatrix} and cut down to this JVM's shard;
+ * afterwards {@link DeferredRetryRunner} appends its retry block.
+ * Register it in the &lt;listeners&gt; section of testng.xml.
+ */
+public class DurationScheduler implements IAlterSuiteListener, ISuiteListener, ITestListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(DurationScheduler.class);
+    private static final boolean ENABLED = Boolean.parseBoolean(ConfigManager.getProperty("scheduler.enabled", "true"));
+    private static final boolean COMPACT = Boolean.parseBoolean(ConfigManager.getProperty("history.compact", "true"));
+    private static final int SAMPLES_PER_BLOCK = ConfigManager.getIntProperty("scheduler.max.samples.per.block", 50);
+
+    // TestNG may create one listener instance per listener interface, so state is shared statically
+    private static final Map<String, Schedule> schedules = new ConcurrentHashMap<>();
+
+    private final BlockTimingStore timings = BlockTimingStore.fromConfig();
+
+    @Override
+    public void alter(List<XmlSuite> suites) {
+        // TestNG runs alter-suite listeners in no fixed order, so the matrix is expanded here, before sharding;
+        // BrowserMatrix's own alter then leaves the suite alone
+        for (XmlSuite suite : suites) {
+            BrowserMatrix.expand(suite);
+            ShardPlanner.applyShard(suite);
+            if (COMPACT) {
+                timings.compact(suite.getName(), SAMPLES_PER_BLOCK);
+            }
+        }
+        if (ENABLED) {
+            schedule(suites);
+        }
+        // the retry block runs after every other block, so it is added once the order is final
+        for (XmlSuite suite : suites) {
+            DeferredRetryRunner.appendRetryBlock(suite);
+        }
+    }
+
+    private void schedule(List<XmlSuite> suites) {
+        for (XmlSuite suite : suites) {
+            int workers = suite.getParallel() == XmlSuite.ParallelMode.TESTS ? Math.max(1, suite.getThreadCount()) : 1;
+            Map<String, Long> estimates = DurationEstimator.forSuite(suite.getName()).estimate(suite.getTests());
+            schedules.put(suite.getName(), new Schedule(estimates, LongestFirstPlanner.plan(estimates, workers)));
+            if (workers < 2 || suite.getTests().size() < 2) {
+                continue;
+            }
+            if (!estimates.values().stream().anyMatch(estimate -> estimate > 0)) {
+                logger.info("No duration history for suite {} yet; keeping declaration order", suite.getName());
+                continue;
+            }
+
+            List<XmlTest> ordered = new ArrayList<>();
+            for (String name : LongestFirstPlanner.longestFirst(estimates)) {
+                for (XmlTest test : suite.getTests()) {
+                    if (test.getName().equals(name)) {
+                        ordered.add(test);
+                    }
+                }
+            }
+            suite.setTests(ordered);
+            logger.info("Scheduled {} <test> blocks longest first on {} workers: {}", ordered.size(), workers,
+                    LongestFirstPlanner.longestFirst(estimates));
+        }
+    }
+
+    @Override
+    public void onStart(ISuite suite) {
+        Schedule schedule = schedules.get(suite.getName());
+        if (schedule != null) {
+            schedule.startMillis = System.currentTimeMillis();
+        }
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        Schedule schedule = schedules.get(suite.getName());
+        if (schedule == null || schedule.startMillis == 0L) {
+            return;
+        }
+        long actualMakespan = System.currentTimeMillis() - schedule.startMillis;
+        LongestFirstPlanner.Plan plan = schedule.plan;
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Suite %s on %d worker(s): expected makespan %.1fs, actual %.1fs%n",
+                suite.getName(), plan.getWorkers(), plan.getMakespan() / 1000.0, actualMakespan / 1000.0));
+        for (int worker = 0; worker < plan.getWorkers(); worker++) {
+            for (String block : plan.itemsOf(worker)) {
+                Long actual = schedule.actualMillis.get(block);
+                report.append(String.format("  worker %d  %-30s expected %7.1fs  actual %s%n", worker + 1, block,
+                        schedule.estimates.get(block) / 1000.0,
+                        actual == null ? "not run" : String.format("%.1fs", actual / 1000.0)));
+            }
+        }
+        logger.info(report.toString().trim());
+    }
+
+    @Override
+    public void onFinish(ITestContext context) {
+        if (DeferredRetryRunner.RETRY_BLOCK_NAME.equals(context.getName())) {
+            // its length depends on the failures of the run, not on the block
+            return;
+        }
+        long duration = context.getEndDate().getTime() - context.getStartDate().getTime();
+        String suiteName = context.getSuite().getName();
+        timings.append(suiteName, BrowserMatrix.blockNameOf(context.getCurrentXmlTest()), duration);
+        Schedule schedule = schedules.get(suiteName);
+        if (schedule != null) {
+            schedule.actualMillis.put(context.getName(), duration);
+        }
+    }
+
+    @Override
+    public void onStart(ITestContext context) {
+    }
+
+    @Override
+    public void onTestStart(ITestResult result) {
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+    }
+
+    @Override
+    public void onTestFailedButWithinSuccessPercentage(ITestResult result) {
+    }
+
+    /**
+     * Estimates, plan and measured durations of one suite run
+     */
+    private static final class Schedule {
+
+        private final Map<String, Long> estimates;
+        private final LongestFirstPlanner.Plan plan;
+        private final Map<String, Long> actualMillis = new ConcurrentHashMap<>();
+        private volatile long startMillis;
+
+        private Schedule(Map<String, Long> estimates, LongestFirstPlanner.Plan plan) {
+            this.estimates = estimates;
+            this.plan = plan;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package utils.scheduling;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Longest-processing-time-first bin packing.
+ * Items are taken longest first and each goes to the currently least-loaded worker.
+ * Ties are broken by declaration order and worker index, so the same estimates always
+ * produce the same plan.
+ */
+public final class LongestFirstPlanner {
+
+    private LongestFirstPlanner() {
+    }
+
+    /**
+     * Orders items longest first, keeping declaration order among equal estimates
+     * @param estimates Estimated milliseconds per item, in declaration order
+     * @return Item names, longest first
+     */
+    public static List<String> longestFirst(Map<String, Long> estimates) {
+        List<String> names = new ArrayList<>(estimates.keySet());
+        // List.sort is stable, so equal estimates keep their declaration order
+        names.sort((a, b) -> Long.compare(estimates.get(b), estimates.get(a)));
+        return names;
+    }
+
+    /**
+     * Assigns items to workers
+     * @param estimates Estimated milliseconds per item, in declaration order
+     * @param workers Number of workers
+     * @return Plan with the items of each worker and the expected makespan
+     */
+    public static Plan plan(Map<String, Long> estimates, int workers) {
+        int count = Math.max(1, workers);
+        List<List<String>> assignments = new ArrayList<>(count);
+        long[] loads = new long[count];
+        for (int i = 0; i < count; i++) {
+            assignments.add(new ArrayList<>());
+        }
+        for (String name : longestFirst(estimates)) {
+            int target = 0;
+            for (int i = 1; i < count; i++) {
+                if (loads[i] < loads[target]) {
+                    target = i;
+                }
+            }
+            assignments.get(target).add(name);
+            loads[target] += estimates.get(name);
+        }
+        return new Plan(assignments, loads);
+    }
+
+    /**
+     * Items per worker and the resulting loads
+     */
+    public static final class Plan {
+
+        private final List<List<String>> assignments;
+        private final long[] loads;
+
+        private Plan(List<List<String>> assignments, long[] loads) {
+            this.assignments = assignments;
+            this.loads = loads;
+        }
+
+        /**
+         * Gets the items assigned to a worker, in execution order
+         * @param worker Worker index, from 0
+         * @return Item names
+         */
+        public List<String> itemsOf(int worker) {
+            return Collections.unmodifiableList(assignments.get(worker));
+        }
+
+        /**
+         * Gets the estimated busy time of a worker
+         * @param worker Worker index, from 0
+         * @return Milliseconds
+         */
+        public long loadOf(int worker) {
+            return loads[worker];
+        }
+
+        public int getWorkers() {
+            return loads.length;
+        }
+
+        /**
+         * Gets the expected wall-clock time of the whole plan
+         * @return Load of the busiest worker in milliseconds
+         */
+        public long getMakespan() {
+            long makespan = 0L;
+            for (long load : loads) {
+                makespan = Math.max(makespan, load);
+            }
+            return makespan;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package utils.scheduling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+import utils.ConfigManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Splits a suite's &lt;test&gt; blocks into shards balanced by historical duration.
+ * The assignment is a longest-first plan over the shard count, so the same suite and
+ * history always produce the same shards. A shard JVM started with -Dshard.index and
+ * -Dshard.count keeps only its own blocks; -Dshard.plan points to the plan written by
+ * {@link ShardRunner} so every shard uses exactly the same assignment.
+ */
+public final class ShardPlanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardPlanner.class);
+
+    private ShardPlanner() {
+    }
+
+    /**
+     * Assigns every block to a shard
+     * @param estimates Estimated milliseconds per block name, in declaration order
+     * @param shardCount Number of shards
+     * @return Shard index per block name, in declaration order
+     */
+    public static Map<String, Integer> assign(Map<String, Long> estimates, int shardCount) {
+        LongestFirstPlanner.Plan plan = LongestFirstPlanner.plan(estimates, shardCount);
+        Map<String, Integer> shards = new LinkedHashMap<>();
+        for (String block : estimates.keySet()) {
+            for (int shard = 0; shard < plan.getWorkers(); shard++) {
+                if (plan.itemsOf(shard).contains(block)) {
+                    shards.put(block, shard);
+                }
+            }
+        }
+        return shards;
+    }
+
+    /**
+     * Assigns the blocks of a suite to shards using the configured history
+     * @param suite Parsed suite
+     * @param shardCount Number of shards
+     * @return Shard index per block name
+     */
+    public static Map<String, Integer> assign(XmlSuite suite, int shardCount) {
+        return assign(DurationEstimator.forSuite(suite.getName()).estimate(suite.getTests()), shardCount);
+    }
+
+    /**
+     * Removes the blocks that belong to other shards when this JVM runs one shard
+     * (shard.count above 1); does nothing otherwise
+     * @param suite Suite about to run
+     */
+    public static void applyShard(XmlSuite suite) {
+        int shardCount = ConfigManager.getIntProperty("shard.count", 1);
+        if (shardCount < 2) {
+            return;
+        }
+        int shardIndex = ConfigManager.getIntProperty("shard.index", 0);
+        String planFile = ConfigManager.getProperty("shard.plan");
+        Map<String, Integer> plan = planFile != null ? read(Paths.get(planFile)) : assign(suite, shardCount);
+
+        List<XmlTest> kept = new ArrayList<>();
+        for (XmlTest test : suite.getTests()) {
+            Integer shard = plan.get(test.getName());
+            if (shard == null) {
+                // Block added after the plan was written: place it by name so every shard agrees
+                shard = Math.floorMod(test.getName().hashCode(), shardCount);
+            }
+            if (shard == shardIndex) {
+                kept.add(test);
+            }
+        }
+        suite.setTests(kept);
+        logger.info("Shard {} of {} runs {} <test> block(s) of suite {}", shardIndex + 1, shardCount, kept.size(),
+                suite.getName());
+    }
+
+    /**
+     * Writes a shard assignment
+     * @param shards Shard index per block name
+     * @param file Plan file
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(Map<String, Integer> shards, Path file) throws IOException {
+        Properties plan = new Properties();
+        for (Map.Entry<String, Integer> entry : shards.entrySet()) {
+            plan.setProperty(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (OutputStream out = Files.newOutputStream(file)) {
+            plan.store(out, "Shard index per <test> block");
+        }
+    }
+
+    /**
+     * Reads a shard assignment written by {@link #write(Map, Path)}
+     * @param file Plan file
+     * @return Shard index per block name, empty if the file cannot be read
+     */
+    public static Map<String, Integer> read(Path file) {
+        Map<String, Integer> shards = new LinkedHashMap<>();
+        Properties plan = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            plan.load(in);
+        } catch (IOException e) {
+            logger.warn("Failed to read shard plan {}: {}", file, e.getMessage());
+            return shards;
+        }
+        for (String block : plan.stringPropertyNames()) {
+            try {
+                shards.put(block, Integer.parseInt(plan.getProperty(block).trim()));
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring invalid shard index for {} in {}", block, file);
+            }
+        }
+        return shards;
+    }
+}
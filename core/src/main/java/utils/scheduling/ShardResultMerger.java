@@ -0,0 +1,115 @@
+package utils.scheduling;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Combines the testng-results.xml files of several shards into one.
+ * Counters on the root element are summed; &lt;suite&gt; elements with the same name are
+ * merged into one, keeping every shard's &lt;test&gt; elements, and the suite duration is the
+ * longest shard's, since shards run side by side.
+ */
+public final class ShardResultMerger {
+
+    private static final String[] COUNTERS = {"total", "passed", "failed", "skipped", "ignored"};
+
+    private ShardResultMerger() {
+    }
+
+    /**
+     * Merges shard result files
+     * @param resultFiles testng-results.xml of each shard; missing files are skipped
+     * @param output Merged testng-results.xml to write
+     * @return Summed counters of the merged results, keyed by "total", "passed", "failed", "skipped" and "ignored"
+     * @throws Exception If a result file cannot be parsed or the output cannot be written
+     */
+    public static Map<String, Integer> merge(List<Path> resultFiles, Path output) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        DocumentBuilder builder = factory.newDocumentBuilder();
+
+        Document merged = builder.newDocument();
+        Element root = merged.createElement("testng-results");
+        merged.appendChild(root);
+        Map<String, Integer> totals = new LinkedHashMap<>();
+        for (String counter : COUNTERS) {
+            totals.put(counter, 0);
+        }
+        Map<String, Element> suites = new LinkedHashMap<>();
+
+        for (Path file : resultFiles) {
+            if (!Files.exists(file)) {
+                continue;
+            }
+            Element shardRoot = builder.parse(file.toFile()).getDocumentElement();
+            for (String counter : COUNTERS) {
+                String value = shardRoot.getAttribute(counter);
+                if (!value.isEmpty()) {
+                    totals.merge(counter, Integer.parseInt(value), Integer::sum);
+                }
+            }
+            NodeList children = shardRoot.getChildNodes();
+            for (int i = 0; i < children.getLength(); i++) {
+                Node child = children.item(i);
+                if (child instanceof Element && "suite".equals(child.getNodeName())) {
+                    mergeSuite(merged, root, suites, (Element) child);
+                }
+            }
+        }
+        for (Map.Entry<String, Integer> counter : totals.entrySet()) {
+            root.setAttribute(counter.getKey(), String.valueOf(counter.getValue()));
+        }
+
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+        transformer.transform(new DOMSource(merged), new StreamResult(output.toFile()));
+        return totals;
+    }
+
+    private static void mergeSuite(Document merged, Element root, Map<String, Element> suites, Element shardSuite) {
+        String name = shardSuite.getAttribute("name");
+        Element suite = suites.get(name);
+        if (suite == null) {
+            suite = (Element) merged.importNode(shardSuite, true);
+            root.appendChild(suite);
+            suites.put(name, suite);
+            return;
+        }
+        long duration = Math.max(parseLong(suite.getAttribute("duration-ms")), parseLong(shardSuite.getAttribute("duration-ms")));
+        suite.setAttribute("duration-ms", String.valueOf(duration));
+        if (shardSuite.getAttribute("started-at").compareTo(suite.getAttribute("started-at")) < 0) {
+            suite.setAttribute("started-at", shardSuite.getAttribute("started-at"));
+        }
+        if (shardSuite.getAttribute("finished-at").compareTo(suite.getAttribute("finished-at")) > 0) {
+            suite.setAttribute("finished-at", shardSuite.getAttribute("finished-at"));
+        }
+        NodeList tests = shardSuite.getElementsByTagName("test");
+        for (int i = 0; i < tests.getLength(); i++) {
+            suite.appendChild(merged.importNode(tests.item(i), true));
+        }
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+}
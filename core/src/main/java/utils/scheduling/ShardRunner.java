@@ -0,0 +1,137 @@
+package utils.scheduling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.xml.Parser;
+import org.testng.xml.XmlSuite;
+import utils.ConfigManager;
+import utils.history.TestHistoryStore;
+import utils.matrix.BrowserMatrix;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a TestNG suite as N shards, one JVM per shard, and merges the results.
+ * Each shard runs in its own working directory (shard-1, shard-2, ... under the output
+ * directory), so screenshots/, logs/ and test-output/ never collide; the test history is
+ * shared so durations from every shard feed the next plan. The merged
+ * testng-results.xml is written to merged/ under the output directory.
+ * Usage: ShardRunner &lt;suite.xml&gt; &lt;output directory&gt; [shard count]
+ */
+public final class ShardRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRunner.class);
+
+    private final Path suiteFile;
+    private final Path outputDirectory;
+    private final int shardCount;
+
+    /**
+     * Constructor
+     * @param suiteFile TestNG suite xml
+     * @param outputDirectory Directory for the shard working directories and merged results
+     * @param shardCount Number of shards
+     */
+    public ShardRunner(Path suiteFile, Path outputDirectory, int shardCount) {
+        this.suiteFile = suiteFile.toAbsolutePath();
+        this.outputDirectory = outputDirectory.toAbsolutePath();
+        this.shardCount = Math.max(1, shardCount);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: ShardRunner <suite.xml> <output directory> [shard count]");
+        }
+        int shardCount = args.length > 2 ? Integer.parseInt(args[2])
+                : ConfigManager.getIntProperty("shard.count", Runtime.getRuntime().availableProcessors());
+        System.exit(new ShardRunner(Paths.get(args[0]), Paths.get(args[1]), shardCount).run());
+    }
+
+    /**
+     * Plans the shards, runs them side by side and merges their results
+     * @return 0 if every shard passed, 1 otherwise
+     * @throws Exception If the suite cannot be parsed or the results cannot be merged
+     */
+    public int run() throws Exception {
+        XmlSuite suite = new Parser(suiteFile.toString()).parseToList().get(0);
+        BrowserMatrix.expand(suite);
+        Path historyDirectory = Paths.get(ConfigManager.getProperty("history.directory", "test-history")).toAbsolutePath();
+        new TestHistoryStore(historyDirectory).compact(suite.getName(),
+                ConfigManager.getIntProperty("history.max.records.per.test", 50));
+        new BlockTimingStore(historyDirectory).compact(suite.getName(),
+                ConfigManager.getIntProperty("scheduler.max.samples.per.block", 50));
+
+        int shards = Math.min(shardCount, Math.max(1, suite.getTests().size()));
+        Map<String, Integer> plan = ShardPlanner.assign(suite, shards);
+        Path planFile = outputDirectory.resolve("shard-plan.properties");
+        ShardPlanner.write(plan, planFile);
+        logger.info("Running suite {} as {} shard(s): {}", suite.getName(), shards, plan);
+
+        List<Process> processes = new ArrayList<>();
+        List<Path> resultFiles = new ArrayList<>();
+        long startMillis = System.currentTimeMillis();
+        for (int shard = 0; shard < shards; shard++) {
+            Path workingDirectory = outputDirectory.resolve("shard-" + (shard + 1));
+            Files.createDirectories(workingDirectory);
+            Files.deleteIfExists(workingDirectory.resolve("test-output").resolve("testng-results.xml"));
+            resultFiles.add(workingDirectory.resolve("test-output").resolve("testng-results.xml"));
+
+            List<String> command = new ArrayList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.add("-cp");
+            command.add(absoluteClassPath());
+            command.add("-Dshard.index=" + shard);
+            command.add("-Dshard.count=" + shards);
+            command.add("-Dshard.plan=" + planFile);
+            command.add("-Dhistory.directory=" + historyDirectory);
+            command.add("-Dhistory.compact=false");
+            // Shards must expand the browser matrix exactly as the plan did
+            command.add("-Dmatrix.browsers=" + String.join(",", ConfigManager.getListProperty("matrix.browsers")));
+            command.add("-Dmatrix.profiles=" + String.join(",", ConfigManager.getListProperty("matrix.profiles")));
+            // The working directory already isolates this shard's artifacts
+            command.add("-Dartifacts.per.worker=false");
+            command.add("org.testng.TestNG");
+            command.add("-d");
+            command.add("test-output");
+            command.add(suiteFile.toString());
+
+            File console = workingDirectory.resolve("console.log").toFile();
+            processes.add(new ProcessBuilder(command)
+                    .directory(workingDirectory.toFile())
+                    .redirectErrorStream(true)
+                    .redirectOutput(console)
+                    .start());
+            logger.info("Started shard {} in {}", shard + 1, workingDirectory);
+        }
+
+        int exitCode = 0;
+        for (int shard = 0; shard < processes.size(); shard++) {
+            int shardExit = processes.get(shard).waitFor();
+            logger.info("Shard {} finished with exit code {} after {}s", shard + 1, shardExit,
+                    (System.currentTimeMillis() - startMillis) / 1000);
+            if (shardExit != 0) {
+                exitCode = 1;
+            }
+        }
+
+        Path merged = outputDirectory.resolve("merged").resolve("testng-results.xml");
+        Map<String, Integer> totals = ShardResultMerger.merge(resultFiles, merged);
+        logger.info("Merged results of {} shard(s) into {}: {}", shards, merged, totals);
+        return exitCode;
+    }
+
+    // Shards run in their own working directory, so relative class path entries must be resolved first
+    private static String absoluteClassPath() {
+        List<String> entries = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            entries.add(Paths.get(entry).toAbsolutePath().toString());
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+}
@@ -0,0 +1,221 @@
+package utils.throughput;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.xml.Parser;
+import org.w3c.dom.Element;
+import utils.ConfigManager;
+import utils.tracing.PhaseTimer;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a TestNG suite N times against the stand-in server replaying replay.directory, one JVM per run
+ * (run-1, run-2, ... under the output directory), and reports tests per minute and the time of each
+ * {@link PhaseTimer.Phase}. The report is compared with throughput.baseline or, if that is empty, the most
+ * recent earlier report of the suite, and saved under throughput.reports.directory; regressed reports go to
+ * its regressed subdirectory so they never become the baseline.
+ * Usage: ThroughputHarness &lt;suite.xml&gt; &lt;output directory&gt; [runs]
+ */
+public final class ThroughputHarness {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThroughputHarness.class);
+    private static final DateTimeFormatter FILE_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+    private static final String REGRESSED_DIRECTORY = "regressed";
+
+    private final Path suiteFile;
+    private final Path outputDirectory;
+    private final int runs;
+
+    /**
+     * Constructor
+     * @param suiteFile TestNG suite xml
+     * @param outputDirectory Directory for the run working directories
+     * @param runs Number of runs
+     */
+    public ThroughputHarness(Path suiteFile, Path outputDirectory, int runs) {
+        this.suiteFile = suiteFile.toAbsolutePath();
+        this.outputDirectory = outputDirectory.toAbsolutePath();
+        this.runs = Math.max(1, runs);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: ThroughputHarness <suite.xml> <output directory> [runs]");
+        }
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : ConfigManager.getIntProperty("throughput.runs", 3);
+        System.exit(new ThroughputHarness(Paths.get(args[0]), Paths.get(args[1]), runs).run());
+    }
+
+    /**
+     * Runs the suite, compares the report with the baseline and saves it
+     * @return 0 if throughput did not regress beyond throughput.regression.percent, 1 otherwise
+     * @throws Exception If the suite cannot be parsed, a run cannot be started or has failed tests, or the report cannot be saved
+     */
+    public int run() throws Exception {
+        Path recording = Paths.get(ConfigManager.getProperty("replay.directory", "testdata/recordings/default")).toAbsolutePath();
+        if (!Files.exists(recording.resolve("exchanges.json"))) {
+            throw new IllegalStateException("No recording in " + recording
+                    + "; record one first by running the suite with -Dreplay.mode=record");
+        }
+        String suiteName = new Parser(suiteFile.toString()).parseToList().get(0).getName();
+        LocalDateTime now = LocalDateTime.now();
+        ThroughputReport report = new ThroughputReport(suiteName, now.toString());
+        logger.info("Running suite {} {} time(s) against the recording in {}", suiteName, runs, recording);
+
+        for (int run = 1; run <= runs; run++) {
+            ThroughputReport.Run result = runOnce(run, recording);
+            if (result.failed > 0) {
+                // failure handling (screenshots, retries, skipped dependants) would distort the timings
+                throw new IllegalStateException("Run " + run + " had " + result.failed + " failed test(s), so it is not a valid"
+                        + " measurement and no report is saved; see " + outputDirectory.resolve("run-" + run).resolve("console.log"));
+            }
+            report.add(result);
+        }
+        report.lines().forEach(line -> logger.info("{}", line));
+
+        Path reportsDirectory = Paths.get(ConfigManager.getProperty("throughput.reports.directory", "throughput-reports"));
+        return saveAndCompare(report, reportsDirectory, now.format(FILE_DATE_FORMATTER));
+    }
+
+    /**
+     * Compares a report with the baseline and saves it. A report that regressed is saved under
+     * &lt;reports directory&gt;/regressed, where it is never taken as the baseline of a later run.
+     * @param report Report of this run
+     * @param reportsDirectory throughput.reports.directory
+     * @param timestamp Sortable time stamp for the file name
+     * @return 0 if throughput did not regress beyond throughput.regression.percent, 1 otherwise
+     * @throws IOException If the baseline cannot be read or the report cannot be saved
+     */
+    static int saveAndCompare(ThroughputReport report, Path reportsDirectory, String timestamp) throws IOException {
+        String fileName = reportPrefix(report.getSuite()) + timestamp + ".json";
+        ThroughputReport baseline = baseline(reportsDirectory, report.getSuite());
+        if (baseline == null) {
+            saveReport(report, reportsDirectory.resolve(fileName));
+            logger.info("No baseline to compare with; this report is the baseline of the next run");
+            return 0;
+        }
+        List<String> regressions = report.regressionsAgainst(baseline,
+                ConfigManager.getDoubleProperty("throughput.regression.percent", 15.0),
+                ConfigManager.getDoubleProperty("throughput.regression.min.millis", 50.0));
+        if (regressions.isEmpty()) {
+            saveReport(report, reportsDirectory.resolve(fileName));
+            logger.info("No regression against the baseline of {}: {} vs {} tests/min", baseline.getCreatedAt(),
+                    String.format("%.1f", report.getTestsPerMinute()), String.format("%.1f", baseline.getTestsPerMinute()));
+            return 0;
+        }
+        // kept for inspection, but out of baseline()'s reach so a rerun is still compared with the faster numbers
+        saveReport(report, reportsDirectory.resolve(REGRESSED_DIRECTORY).resolve(fileName));
+        logger.error("Slower than the baseline of {}:", baseline.getCreatedAt());
+        regressions.forEach(line -> logger.error("  {}", line));
+        return 1;
+    }
+
+    private static void saveReport(ThroughputReport report, Path reportFile) throws IOException {
+        report.save(reportFile);
+        logger.info("Throughput report written to {}", reportFile.toAbsolutePath());
+    }
+
+    private ThroughputReport.Run runOnce(int run, Path recording) throws Exception {
+        Path workingDirectory = outputDirectory.resolve("run-" + run);
+        Path results = workingDirectory.resolve("test-output").resolve("testng-results.xml");
+        Path phases = workingDirectory.resolve("phases.json");
+        Files.createDirectories(workingDirectory);
+        Files.deleteIfExists(results);
+        Files.deleteIfExists(phases);
+
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(absoluteClassPath());
+        command.add("-Dreplay.mode=replay");
+        command.add("-Dreplay.directory=" + recording);
+        command.add("-Dphase.report.file=" + phases);
+        // The working directory already isolates this run's artifacts
+        command.add("-Dartifacts.per.worker=false");
+        command.add("org.testng.TestNG");
+        command.add("-d");
+        command.add("test-output");
+        command.add(suiteFile.toString());
+
+        long startMillis = System.currentTimeMillis();
+        int exitCode = new ProcessBuilder(command)
+                .directory(workingDirectory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(workingDirectory.resolve("console.log").toFile())
+                .start()
+                .waitFor();
+        long wallMillis = System.currentTimeMillis() - startMillis;
+        if (!Files.exists(results)) {
+            throw new IllegalStateException("Run " + run + " exited with " + exitCode + " without results; see "
+                    + workingDirectory.resolve("console.log"));
+        }
+        Element root = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(results.toFile()).getDocumentElement();
+        logger.info("Run {} finished with exit code {} after {}s", run, exitCode, wallMillis / 1000);
+        return new ThroughputReport.Run(run, count(root, "total"), count(root, "failed"), count(root, "skipped"),
+                wallMillis, readPhases(phases));
+    }
+
+    private static int count(Element root, String counter) {
+        String value = root.getAttribute(counter);
+        return value.isEmpty() ? 0 : Integer.parseInt(value);
+    }
+
+    private static Map<String, PhaseTimer.PhaseTotal> readPhases(Path phases) throws IOException {
+        if (!Files.exists(phases)) {
+            return new LinkedHashMap<>();
+        }
+        try (Reader reader = Files.newBufferedReader(phases, StandardCharsets.UTF_8)) {
+            return new Gson().fromJson(reader, new TypeToken<LinkedHashMap<String, PhaseTimer.PhaseTotal>>() { }.getType());
+        }
+    }
+
+    private static ThroughputReport baseline(Path reportsDirectory, String suiteName) throws IOException {
+        String configured = ConfigManager.getProperty("throughput.baseline", "").trim();
+        if (!configured.isEmpty()) {
+            return ThroughputReport.load(Paths.get(configured));
+        }
+        if (!Files.isDirectory(reportsDirectory)) {
+            return null;
+        }
+        // file names end in a sortable timestamp, so the greatest is the most recent
+        Path latest = null;
+        try (DirectoryStream<Path> reports = Files.newDirectoryStream(reportsDirectory, reportPrefix(suiteName) + "*.json")) {
+            for (Path report : reports) {
+                if (latest == null || report.getFileName().toString().compareTo(latest.getFileName().toString()) > 0) {
+                    latest = report;
+                }
+            }
+        }
+        return latest == null ? null : ThroughputReport.load(latest);
+    }
+
+    private static String reportPrefix(String suiteName) {
+        return "throughput_" + suiteName.replaceAll("[^A-Za-z0-9_-]", "_") + "_";
+    }
+
+    // Runs start in their own working directory, so relative class path entries must be resolved first
+    private static String absoluteClassPath() {
+        List<String> entries = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            entries.add(Paths.get(entry).toAbsolutePath().toString());
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+}
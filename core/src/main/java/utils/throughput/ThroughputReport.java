@@ -0,0 +1,207 @@
+package utils.throughput;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import utils.tracing.PhaseTimer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of running a suite several times: tests per minute and the time per phase of each run, and their
+ * medians, so one slow run does not decide the outcome. Phase times are per test, which keeps reports of
+ * suites that gained or lost tests comparable. Saved as JSON; any saved report can serve as the baseline
+ * of a later one.
+ */
+public final class ThroughputReport {
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private final String suite;
+    private final String createdAt;
+    private final List<Run> runs = new ArrayList<>();
+    private double testsPerMinute;
+    private final Map<String, Double> phaseMillisPerTest = new LinkedHashMap<>();
+
+    /**
+     * Constructor
+     * @param suite Name of the suite measured
+     * @param createdAt Time of the measurement, also used in the file name
+     */
+    public ThroughputReport(String suite, String createdAt) {
+        this.suite = suite;
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Adds a run and updates the medians
+     * @param run Measured run
+     */
+    public void add(Run run) {
+        runs.add(run);
+        List<Double> rates = new ArrayList<>();
+        for (Run each : runs) {
+            rates.add(each.testsPerMinute());
+        }
+        testsPerMinute = median(rates);
+        phaseMillisPerTest.clear();
+        for (PhaseTimer.Phase phase : PhaseTimer.Phase.values()) {
+            List<Double> perTest = new ArrayList<>();
+            for (Run each : runs) {
+                perTest.add(each.phaseMillisPerTest(phase.name()));
+            }
+            phaseMillisPerTest.put(phase.name(), median(perTest));
+        }
+    }
+
+    private static double median(List<Double> values) {
+        List<Double> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        int middle = sorted.size() / 2;
+        return sorted.size() % 2 == 1 ? sorted.get(middle) : (sorted.get(middle - 1) + sorted.get(middle)) / 2;
+    }
+
+    public String getSuite() {
+        return suite;
+    }
+
+    public String getCreatedAt() {
+        return createdAt;
+    }
+
+    public List<Run> getRuns() {
+        return runs;
+    }
+
+    public double getTestsPerMinute() {
+        return testsPerMinute;
+    }
+
+    /**
+     * Gets the median time of a phase
+     * @param phase Phase name, see {@link PhaseTimer.Phase}
+     * @return Milliseconds per test, 0 if the phase was never entered
+     */
+    public double getPhaseMillisPerTest(String phase) {
+        Double millis = phaseMillisPerTest.get(phase);
+        return millis == null ? 0.0 : millis;
+    }
+
+    /**
+     * Compares this report with an earlier one
+     * @param baseline Earlier report
+     * @param thresholdPercent Largest slowdown that is not a regression
+     * @param minMillisPerTest Phase slowdowns below this many milliseconds per test are ignored as noise
+     * @return One line per regression, empty if there is none
+     */
+    public List<String> regressionsAgainst(ThroughputReport baseline, double thresholdPercent, double minMillisPerTest) {
+        List<String> regressions = new ArrayList<>();
+        if (baseline.testsPerMinute > 0 && testsPerMinute < baseline.testsPerMinute * (1 - thresholdPercent / 100)) {
+            regressions.add(String.format("Throughput dropped from %.1f to %.1f tests/min (%+.0f%%)",
+                    baseline.testsPerMinute, testsPerMinute, change(baseline.testsPerMinute, testsPerMinute)));
+        }
+        for (PhaseTimer.Phase phase : PhaseTimer.Phase.values()) {
+            double before = baseline.getPhaseMillisPerTest(phase.name());
+            double now = getPhaseMillisPerTest(phase.name());
+            if (now - before >= minMillisPerTest && now > before * (1 + thresholdPercent / 100)) {
+                regressions.add(String.format("%s rose from %.0f to %.0f ms/test (%s)",
+                        phase.name(), before, now, before == 0 ? "new" : String.format("%+.0f%%", change(before, now))));
+            }
+        }
+        return regressions;
+    }
+
+    private static double change(double before, double now) {
+        return (now - before) * 100 / before;
+    }
+
+    /**
+     * Formats the report for the log
+     * @return Lines: one per run, then the median time of each phase
+     */
+    public List<String> lines() {
+        List<String> lines = new ArrayList<>();
+        for (Run run : runs) {
+            lines.add(String.format("Run %d: %d test(s), %d failed, %d skipped in %.1fs = %.1f tests/min",
+                    run.run, run.tests, run.failed, run.skipped, run.wallMillis / 1000.0, run.testsPerMinute()));
+        }
+        lines.add(String.format("Median: %.1f tests/min", testsPerMinute));
+        for (Map.Entry<String, Double> phase : phaseMillisPerTest.entrySet()) {
+            lines.add(String.format("  %-18s %8.0f ms/test", phase.getKey(), phase.getValue()));
+        }
+        return lines;
+    }
+
+    /**
+     * Writes the report as JSON
+     * @param file File to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            GSON.toJson(this, writer);
+        }
+    }
+
+    /**
+     * Reads a saved report
+     * @param file File written by {@link #save(Path)}
+     * @return Report
+     * @throws IOException if the file cannot be read
+     */
+    public static ThroughputReport load(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return GSON.fromJson(reader, ThroughputReport.class);
+        }
+    }
+
+    /**
+     * One run of the suite
+     */
+    public static final class Run {
+
+        final int run;
+        final int tests;
+        final int failed;
+        final int skipped;
+        final long wallMillis;
+        final Map<String, PhaseTimer.PhaseTotal> phases;
+
+        /**
+         * Constructor
+         * @param run Run number, from 1
+         * @param tests Test methods run
+         * @param failed Test methods failed
+         * @param skipped Test methods skipped
+         * @param wallMillis Time from starting the test JVM to its exit
+         * @param phases Phase totals the test JVM wrote
+         */
+        public Run(int run, int tests, int failed, int skipped, long wallMillis, Map<String, PhaseTimer.PhaseTotal> phases) {
+            this.run = run;
+            this.tests = tests;
+            this.failed = failed;
+            this.skipped = skipped;
+            this.wallMillis = wallMillis;
+            this.phases = phases;
+        }
+
+        double testsPerMinute() {
+            return wallMillis == 0 ? 0.0 : tests * 60_000.0 / wallMillis;
+        }
+
+        double phaseMillisPerTest(String phase) {
+            PhaseTimer.PhaseTotal total = phases.get(phase);
+            return total == null || tests == 0 ? 0.0 : total.getMillis() / tests;
+        }
+    }
+}
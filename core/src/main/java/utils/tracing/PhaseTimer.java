@@ -0,0 +1,181 @@
+package utils.tracing;
+
+import com.google.gson.GsonBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.ConfigManager;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Adds up where a run spends its time: resolving driver binaries, launching browsers, the first page load,
+ * logging in, page-object actions, screenshots and tearing sessions down. Time is exclusive: a phase
+ * started inside another pauses the outer one, except that page actions inside a phase (e.g. the clicks
+ * of a login) count towards that phase. Timing is off unless phase.report.file is set; the totals are
+ * then written there as JSON when the JVM exits. Disabled timings cost a single field read.
+ */
+public final class PhaseTimer {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhaseTimer.class);
+    private static final String REPORT_FILE = ConfigManager.getProperty("phase.report.file", "").trim();
+    private static final boolean ENABLED = !REPORT_FILE.isEmpty();
+
+    private static final Timing NOOP_TIMING = new Timing(null, null, 0L);
+    private static final AtomicLongArray totalNanos = new AtomicLongArray(Phase.values().length);
+    private static final AtomicLongArray counts = new AtomicLongArray(Phase.values().length);
+    private static final ThreadLocal<Timing> open = new ThreadLocal<>();
+
+    /**
+     * Phases of a browser test, in the order a session goes through them
+     */
+    public enum Phase {
+        DRIVER_RESOLUTION,
+        BROWSER_LAUNCH,
+        FIRST_NAVIGATION,
+        LOGIN,
+        PAGE_ACTIONS,
+        SCREENSHOTS,
+        TEARDOWN
+    }
+
+    static {
+        if (ENABLED) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> write(Paths.get(REPORT_FILE)), "phase-report-writer"));
+        }
+    }
+
+    private PhaseTimer() {
+    }
+
+    /**
+     * Checks whether phases are being timed in this run
+     * @return true if phase.report.file is set
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Starts timing a phase on this thread; close it (ideally with try-with-resources) to add it to the totals
+     * @param phase Phase entered
+     * @return Open timing, or a no-op timing when timing is disabled or the phase is already counted by an outer one
+     */
+    public static Timing start(Phase phase) {
+        if (!ENABLED) {
+            return NOOP_TIMING;
+        }
+        Timing outer = open.get();
+        if (outer != null && (outer.phase == phase || phase == Phase.PAGE_ACTIONS)) {
+            return NOOP_TIMING;
+        }
+        long now = System.nanoTime();
+        if (outer != null) {
+            outer.pause(now);
+        }
+        Timing timing = new Timing(phase, outer, now);
+        open.set(timing);
+        return timing;
+    }
+
+    /**
+     * Gets the totals so far
+     * @return Milliseconds and count per phase, keyed by phase name, in phase order
+     */
+    public static Map<String, PhaseTotal> totals() {
+        Map<String, PhaseTotal> totals = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) {
+            totals.put(phase.name(), new PhaseTotal(totalNanos.get(phase.ordinal()) / 1_000_000.0, counts.get(phase.ordinal())));
+        }
+        return totals;
+    }
+
+    /**
+     * Writes the totals as a JSON object keyed by phase name
+     * @param file File to write
+     */
+    static void write(Path file) {
+        try {
+            if (file.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+            }
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                new GsonBuilder().setPrettyPrinting().create().toJson(totals(), writer);
+            }
+        } catch (IOException e) {
+            logger.error("Failed to write phase timings to {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Time spent in one phase and how often it was entered
+     */
+    public static final class PhaseTotal {
+
+        final double millis;
+        final long count;
+
+        /**
+         * Constructor
+         * @param millis Total milliseconds
+         * @param count Times the phase was entered
+         */
+        public PhaseTotal(double millis, long count) {
+            this.millis = millis;
+            this.count = count;
+        }
+
+        public double getMillis() {
+            return millis;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * An open phase; adds its time, minus the time of phases nested in it, when closed
+     */
+    public static final class Timing implements AutoCloseable {
+
+        private final Phase phase;
+        private final Timing outer;
+        private long resumedNanos;
+        private long elapsedNanos;
+        private boolean closed;
+
+        private Timing(Phase phase, Timing outer, long startNanos) {
+            this.phase = phase;
+            this.outer = outer;
+            this.resumedNanos = startNanos;
+        }
+
+        private void pause(long now) {
+            elapsedNanos += now - resumedNanos;
+        }
+
+        @Override
+        public void close() {
+            if (phase == null || closed) {
+                return;
+            }
+            closed = true;
+            long now = System.nanoTime();
+            pause(now);
+            totalNanos.addAndGet(phase.ordinal(), elapsedNanos);
+            counts.incrementAndGet(phase.ordinal());
+            open.set(outer);
+            if (outer != null) {
+                outer.resumedNanos = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package utils.tracing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+import utils.ConfigManager;
+import utils.resources.ResourceAllocator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records timed spans (WebDriver commands, waits, page-object actions, screenshots)
+ * and writes them as a Chrome trace-event JSON file that loads in chrome://tracing or Perfetto.
+ * Tracing is disabled unless trace.enabled=true; disabled spans cost a single field read.
+ */
+public final class TraceRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(TraceRecorder.class);
+    private static final DateTimeFormatter FILE_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+
+    private static final boolean ENABLED = ConfigManager.getBooleanProperty("trace.enabled");
+    private static final int MAX_EVENTS = ConfigManager.getIntProperty("trace.max.events", 500000);
+    private static final String OUTPUT_DIR = ConfigManager.getProperty("trace.output.directory", "test-output/traces");
+
+    private static final long PID = currentPid();
+    private static final long BASE_EPOCH_MICROS = System.currentTimeMillis() * 1000L;
+    private static final long BASE_NANOS = System.nanoTime();
+
+    private static final TraceBuffer buffer = new TraceBuffer(MAX_EVENTS);
+
+    private static final String[] INFRASTRUCTURE_PREFIXES = {
+            "java.", "javax.", "sun.", "jdk.", "com.sun.", "org.openqa.", "utils.tracing."
+    };
+
+    private static final Span NOOP_SPAN = new Span(null, null, 0L);
+
+    static {
+        if (ENABLED) {
+            Runtime.getRuntime().addShutdownHook(new Thread(TraceRecorder::writeTrace, "trace-writer"));
+            logger.info("WebDriver tracing enabled, trace will be written to {}", OUTPUT_DIR);
+        }
+    }
+
+    private TraceRecorder() {
+    }
+
+    /**
+     * Checks whether tracing is enabled for this run
+     * @return true if spans are being recorded
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Starts a span; close it (ideally with try-with-resources) to record it
+     * @param category Span category, e.g. "webdriver", "wait", "page", "screenshot"
+     * @param name Span name shown on the timeline
+     * @return Open span, or a no-op span when tracing is disabled
+     */
+    public static Span begin(String category, String name) {
+        if (!ENABLED) {
+            return NOOP_SPAN;
+        }
+        return new Span(category, name, System.nanoTime());
+    }
+
+    /**
+     * Starts a span that also times a {@link PhaseTimer.Phase} while it is open
+     * @param category Span category
+     * @param name Span name shown on the timeline
+     * @param phase Phase the span's time counts towards
+     * @return Open span, or a no-op span when neither tracing nor phase timing is enabled
+     */
+    public static Span begin(String category, String name, PhaseTimer.Phase phase) {
+        if (!PhaseTimer.isEnabled()) {
+            return begin(category, name);
+        }
+        Span span = ENABLED ? new Span(category, name, System.nanoTime()) : new Span(null, null, 0L);
+        span.timing = PhaseTimer.start(phase);
+        return span;
+    }
+
+    /**
+     * Finds the first stack frame outside the given framework classes, the JDK, Selenium
+     * and generated proxies, e.g. "LoginPage.enterUsername" for a sendKeys issued by LoginPage
+     * @param skippedClassNames Fully qualified class names to skip
+     * @return Simple class name and method of the caller, or "unknown"
+     */
+    public static String callerOf(String... skippedClassNames) {
+        StackTraceElement[] stack = new Throwable().getStackTrace();
+        for (StackTraceElement frame : stack) {
+            String className = frame.getClassName();
+            if (isInfrastructure(className) || isSkipped(className, skippedClassNames)) {
+                continue;
+            }
+            int lastDot = className.lastIndexOf('.');
+            return className.substring(lastDot + 1) + "." + frame.getMethodName();
+        }
+        return "unknown";
+    }
+
+    private static boolean isInfrastructure(String className) {
+        for (String prefix : INFRASTRUCTURE_PREFIXES) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return className.contains("$Proxy");
+    }
+
+    private static boolean isSkipped(String className, String[] skippedClassNames) {
+        for (String skipped : skippedClassNames) {
+            if (className.equals(skipped)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resolves the TestNG test currently running on this thread
+     * @return "Class.method" of the running test, or null outside of a test method
+     */
+    public static String currentTestId() {
+        ITestResult result = Reporter.getCurrentTestResult();
+        if (result == null || result.getMethod() == null) {
+            return null;
+        }
+        return result.getTestClass().getRealClass().getSimpleName() + "." + result.getMethod().getMethodName();
+    }
+
+    private static void record(Span span, long endNanos) {
+        buffer.add(span.category, span.name, span.startNanos, endNanos, span.args);
+    }
+
+    private static long toMicros(long nanos) {
+        return BASE_EPOCH_MICROS + (nanos - BASE_NANOS) / 1000L;
+    }
+
+    /**
+     * Writes all recorded spans to a trace-event JSON file
+     * @return Path to the written trace, or null if nothing was written
+     */
+    public static synchronized String writeTrace() {
+        if (!ENABLED || buffer.size() == 0) {
+            return null;
+        }
+        try {
+            Path outputDir = ResourceAllocator.artifactPath(OUTPUT_DIR);
+            Files.createDirectories(outputDir);
+            String fileName = String.format("trace_%d_%s.json", PID, LocalDateTime.now().format(FILE_DATE_FORMATTER));
+            Path tracePath = outputDir.resolve(fileName);
+
+            try (BufferedWriter writer = Files.newBufferedWriter(tracePath, StandardCharsets.UTF_8)) {
+                buffer.writeJson(writer);
+            }
+
+            if (buffer.dropped() > 0) {
+                logger.warn("Trace buffer limit of {} events reached, {} events were dropped",
+                        MAX_EVENTS, buffer.dropped());
+            }
+            logger.info("Trace with {} events written to {}", buffer.size(), tracePath);
+            return tracePath.toString();
+        } catch (IOException e) {
+            logger.error("Failed to write trace file: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean writeSeparator(Writer writer, boolean first) throws IOException {
+        if (!first) {
+            writer.write(",\n");
+        }
+        return false;
+    }
+
+    /**
+     * Quotes and escapes a string as a JSON string literal
+     * @param value Raw value
+     * @return JSON string literal
+     */
+    static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder(value.length() + 2);
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static long currentPid() {
+        String jvmName = ManagementFactory.getRuntimeMXBean().getName();
+        try {
+            return Long.parseLong(jvmName.substring(0, jvmName.indexOf('@')));
+        } catch (RuntimeException e) {
+            return 1L;
+        }
+    }
+
+    /**
+     * An open span; records a complete ("X") trace event when closed
+     */
+    public static final class Span implements AutoCloseable {
+
+        private final String category;
+        private final String name;
+        private final long startNanos;
+        private Map<String, String> args;
+        private PhaseTimer.Timing timing;
+        private boolean closed;
+
+        private Span(String category, String name, long startNanos) {
+            this.category = category;
+            this.name = name;
+            this.startNanos = startNanos;
+            if (name != null) {
+                String testId = currentTestId();
+                if (testId != null) {
+                    arg("test", testId);
+                }
+            }
+        }
+
+        /**
+         * Attaches an argument shown in the trace viewer's details pane
+         * @param key Argument name
+         * @param value Argument value
+         * @return This span
+         */
+        public Span arg(String key, Object value) {
+            if (name == null) {
+                return this;
+            }
+            if (args == null) {
+                args = new LinkedHashMap<>();
+            }
+            args.put(key, String.valueOf(value));
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (timing != null) {
+                timing.close();
+            }
+            if (name == null || closed) {
+                return;
+            }
+            closed = true;
+            record(this, System.nanoTime());
+        }
+    }
+
+    /**
+     * Recorded events of one trace, capped at a maximum number of events
+     */
+    static final class TraceBuffer {
+
+        private final int maxEvents;
+        private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+        private final Map<Long, String> threadNames = new ConcurrentHashMap<>();
+        private final AtomicInteger eventCount = new AtomicInteger();
+        private final AtomicLong droppedEvents = new AtomicLong();
+
+        /**
+         * Constructor
+         * @param maxEvents Events kept; later ones are counted as dropped (trace.max.events)
+         */
+        TraceBuffer(int maxEvents) {
+            this.maxEvents = maxEvents;
+        }
+
+        /**
+         * Records a complete event on the current thread
+         * @param category Span category
+         * @param name Span name
+         * @param startNanos System.nanoTime() at the start
+         * @param endNanos System.nanoTime() at the end
+         * @param args Span arguments, may be null
+         */
+        void add(String category, String name, long startNanos, long endNanos, Map<String, String> args) {
+            if (eventCount.incrementAndGet() > maxEvents) {
+                droppedEvents.incrementAndGet();
+                return;
+            }
+            Thread thread = Thread.currentThread();
+            threadNames.putIfAbsent(thread.getId(), thread.getName());
+            events.add(new Event(category, name, toMicros(startNanos),
+                    Math.max(0L, (endNanos - startNanos) / 1000L), thread.getId(), args));
+        }
+
+        int size() {
+            return events.size();
+        }
+
+        long dropped() {
+            return droppedEvents.get();
+        }
+
+        /**
+         * Writes the thread names and events as a trace-event JSON document
+         * @param writer Destination
+         * @throws IOException if writing fails
+         */
+        void writeJson(Writer writer) throws IOException {
+            writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+            boolean first = true;
+            for (Map.Entry<Long, String> thread : threadNames.entrySet()) {
+                first = writeSeparator(writer, first);
+                writer.write("{\"ph\":\"M\",\"name\":\"thread_name\",\"pid\":" + PID
+                        + ",\"tid\":" + thread.getKey()
+                        + ",\"args\":{\"name\":" + quote(thread.getValue()) + "}}");
+            }
+            for (Event event : events) {
+                first = writeSeparator(writer, first);
+                event.writeJson(writer);
+            }
+            writer.write("\n]}\n");
+        }
+    }
+
+    private static final class Event {
+
+        private final String category;
+        private final String name;
+        private final long timestampMicros;
+        private final long durationMicros;
+        private final long threadId;
+        private final Map<String, String> args;
+
+        private Event(String category, String name, long timestampMicros, long durationMicros,
+                      long threadId, Map<String, String> args) {
+            this.category = category;
+            this.name = name;
+            this.timestampMicros = timestampMicros;
+            this.durationMicros = durationMicros;
+            this.threadId = threadId;
+            this.args = args;
+        }
+
+        private void writeJson(Writer writer) throws IOException {
+            writer.write("{\"ph\":\"X\",\"cat\":" + quote(category)
+                    + ",\"name\":" + quote(name)
+                    + ",\"pid\":" + PID
+                    + ",\"tid\":" + threadId
+                    + ",\"ts\":" + timestampMicros
+                    + ",\"dur\":" + durationMicros);
+            if (args != null && !args.isEmpty()) {
+                writer.write(",\"args\":{");
+                boolean first = true;
+                for (Map.Entry<String, String> arg : args.entrySet()) {
+                    if (!first) {
+                        writer.write(",");
+                    }
+                    first = false;
+                    writer.write(quote(arg.getKey()) + ":" + quote(arg.getValue()));
+                }
+                writer.write("}");
+            }
+            writer.write("}");
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package utils.tracing;
+
+import org.openqa.selenium.Alert;
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Decorates a WebDriver so that every command it issues - including commands on the
+ * elements, navigation, options and target locators it hands out - is recorded as a
+ * "webdriver" span by {@link TraceRecorder}; find commands are also reported to
+ * {@link WaitProfiler} so implicit-wait time can be attributed.
+ * The decorator implements every public interface of the wrapped object, so casts such as
+ * (TakesScreenshot) driver or (JavascriptExecutor) driver keep working.
+ */
+public final class TracingWebDriver {
+
+    private static final Class<?>[] WRAPPED_TYPES = {
+            WebDriver.class, WebElement.class, WebDriver.Options.class, WebDriver.Timeouts.class,
+            WebDriver.Navigation.class, WebDriver.TargetLocator.class, WebDriver.Window.class, Alert.class
+    };
+
+    private TracingWebDriver() {
+    }
+
+    /**
+     * Wraps the driver in a tracing decorator when tracing or wait profiling is enabled
+     * @param driver WebDriver to wrap
+     * @return Tracing driver, or the driver itself if neither is enabled
+     */
+    public static WebDriver wrapIfEnabled(WebDriver driver) {
+        if (!(TraceRecorder.isEnabled() || WaitProfiler.isEnabled()) || driver == null) {
+            return driver;
+        }
+        return (WebDriver) wrap(driver, "driver");
+    }
+
+    /**
+     * Returns the undecorated object behind a tracing proxy
+     * @param object Possibly decorated object
+     * @return The wrapped object, or the argument itself if it is not decorated
+     */
+    public static Object unwrap(Object object) {
+        if (object != null && Proxy.isProxyClass(object.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(object);
+            if (handler instanceof TracingHandler) {
+                return ((TracingHandler) handler).target;
+            }
+        }
+        return object;
+    }
+
+    /**
+     * Wraps any object in a tracing decorator, whether or not tracing is enabled
+     * @param target Object to decorate
+     * @param kind Span name prefix, e.g. "driver"
+     * @return Proxy implementing every public interface of the target
+     */
+    static Object wrap(Object target, String kind) {
+        Set<Class<?>> interfaces = new LinkedHashSet<>();
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            collectPublicInterfaces(type, interfaces);
+        }
+        return Proxy.newProxyInstance(TracingWebDriver.class.getClassLoader(),
+                interfaces.toArray(new Class<?>[0]), new TracingHandler(target, kind));
+    }
+
+    private static void collectPublicInterfaces(Class<?> type, Set<Class<?>> interfaces) {
+        for (Class<?> candidate : type.getInterfaces()) {
+            if (Modifier.isPublic(candidate.getModifiers())) {
+                interfaces.add(candidate);
+            }
+            collectPublicInterfaces(candidate, interfaces);
+        }
+    }
+
+    private static String kindOf(Object result) {
+        if (result instanceof WebDriver) {
+            return "driver";
+        } else if (result instanceof WebElement) {
+            return "element";
+        } else if (result instanceof WebDriver.Navigation) {
+            return "navigate";
+        } else if (result instanceof WebDriver.TargetLocator) {
+            return "switchTo";
+        } else if (result instanceof WebDriver.Timeouts) {
+            return "timeouts";
+        } else if (result instanceof WebDriver.Window) {
+            return "window";
+        } else if (result instanceof Alert) {
+            return "alert";
+        }
+        return "manage";
+    }
+
+    private static Object wrapResult(Object result) {
+        if (result == null || Proxy.isProxyClass(result.getClass())) {
+            return result;
+        }
+        if (result instanceof List) {
+            List<?> list = (List<?>) result;
+            if (list.isEmpty() || !(list.get(0) instanceof WebElement)) {
+                return result;
+            }
+            List<Object> wrapped = new ArrayList<>(list.size());
+            for (Object item : list) {
+                wrapped.add(wrapResult(item));
+            }
+            return wrapped;
+        }
+        for (Class<?> type : WRAPPED_TYPES) {
+            if (type.isInstance(result)) {
+                return wrap(result, kindOf(result));
+            }
+        }
+        return result;
+    }
+
+    private static Object[] unwrapArgs(Object[] args) {
+        if (args == null) {
+            return null;
+        }
+        Object[] unwrapped = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            if (arg instanceof Object[]) {
+                // varargs such as executeScript(script, elements...); clone keeps the array's component type
+                Object[] items = ((Object[]) arg).clone();
+                for (int j = 0; j < items.length; j++) {
+                    items[j] = unwrap(items[j]);
+                }
+                arg = items;
+            } else if (arg instanceof List) {
+                List<Object> items = new ArrayList<>();
+                for (Object item : (List<?>) arg) {
+                    items.add(unwrap(item));
+                }
+                arg = items;
+            } else {
+                arg = unwrap(arg);
+            }
+            unwrapped[i] = arg;
+        }
+        return unwrapped;
+    }
+
+    private static final class TracingHandler implements InvocationHandler {
+
+        private final Object target;
+        private final String kind;
+
+        private TracingHandler(Object target, String kind) {
+            this.target = target;
+            this.kind = kind;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return target.equals(unwrap(args[0]));
+                    case "hashCode":
+                        return target.hashCode();
+                    default:
+                        return method.invoke(target, args);
+                }
+            }
+
+            TraceRecorder.Span span = TraceRecorder.begin("webdriver", kind + "." + method.getName());
+            if (args != null && args.length > 0 && args[0] instanceof By) {
+                span.arg("by", args[0]);
+            } else if (args != null && args.length > 0 && args[0] instanceof String && "get".equals(method.getName())) {
+                span.arg("url", args[0]);
+            }
+            boolean find = method.getName().startsWith("findElement");
+            boolean notFound = false;
+            long startNanos = System.nanoTime();
+            try {
+                return wrapResult(method.invoke(target, unwrapArgs(args)));
+            } catch (InvocationTargetException e) {
+                notFound = e.getCause() instanceof NoSuchElementException;
+                span.arg("error", e.getCause().getClass().getSimpleName());
+                throw e.getCause();
+            } finally {
+                span.close();
+                if (find) {
+                    WaitProfiler.recordFind(method.getName(), String.valueOf(args != null ? args[0] : null),
+                            System.nanoTime() - startNanos, notFound);
+                }
+            }
+        }
+    }
+}
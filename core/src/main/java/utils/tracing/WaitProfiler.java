@@ -0,0 +1,253 @@
+package utils.tracing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.ConfigManager;
+import utils.resources.ResourceAllocator;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Attributes suite runtime to individual waits.
+ * Every explicit wait in BasePage/BasePageFactory is measured together with its condition type,
+ * locator, outcome and calling page-object method; implicit-wait time spent inside findElement
+ * calls is attributed to the enclosing explicit wait, or recorded on its own when the find was
+ * issued directly. A ranked report is logged and written to a file when the JVM exits.
+ * Disabled unless wait.profiler.enabled=true.
+ */
+public final class WaitProfiler {
+
+    private static final Logger logger = LoggerFactory.getLogger(WaitProfiler.class);
+
+    private static final boolean ENABLED = ConfigManager.getBooleanProperty("wait.profiler.enabled");
+    private static final long IMPLICIT_THRESHOLD_NANOS =
+            ConfigManager.getIntProperty("wait.profiler.implicit.threshold.ms", 250) * 1000000L;
+    private static final int REPORT_ROWS = ConfigManager.getIntProperty("wait.profiler.report.rows", 25);
+    private static final String OUTPUT_FILE = ConfigManager.getProperty("wait.profiler.output", "test-output/wait-profile.txt");
+
+    private static final Map<String, WaitStats> stats = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Measurement> activeWait = new ThreadLocal<>();
+    private static final Measurement NOOP_MEASUREMENT = new Measurement(null, null, null, null);
+
+    static {
+        if (ENABLED) {
+            Runtime.getRuntime().addShutdownHook(new Thread(WaitProfiler::report, "wait-profiler-report"));
+            logger.info("Wait profiler enabled, report will be written to {}", OUTPUT_FILE);
+        }
+    }
+
+    private WaitProfiler() {
+    }
+
+    /**
+     * Checks whether wait profiling is enabled for this run
+     * @return true if waits are being measured
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Starts measuring an explicit wait; stop the returned measurement when the wait ends
+     * @param waitName Wait helper name, e.g. "waitForPageTitle"
+     * @param conditionType ExpectedConditions factory used, e.g. "titleIs"
+     * @param locator Description of the locator or expected value
+     * @param frameworkClassNames Classes to skip when resolving the calling method
+     * @return Running measurement, or a no-op measurement when profiling is disabled
+     */
+    public static Measurement start(String waitName, String conditionType, String locator,
+                                    String... frameworkClassNames) {
+        if (!ENABLED) {
+            return NOOP_MEASUREMENT;
+        }
+        Measurement measurement = new Measurement(TraceRecorder.callerOf(frameworkClassNames),
+                waitName, conditionType, locator);
+        measurement.outer = activeWait.get();
+        activeWait.set(measurement);
+        return measurement;
+    }
+
+    /**
+     * Records the time a findElement/findElements call spent in the driver, which includes
+     * any implicit wait configured on the session
+     * @param command Driver command, e.g. "findElement"
+     * @param locator Locator that was searched for
+     * @param elapsedNanos Time the command took
+     * @param notFound true if the command ended with NoSuchElementException
+     */
+    public static void recordFind(String command, String locator, long elapsedNanos, boolean notFound) {
+        if (!ENABLED) {
+            return;
+        }
+        Measurement enclosing = activeWait.get();
+        if (enclosing != null) {
+            enclosing.implicitNanos += elapsedNanos;
+            return;
+        }
+        if (elapsedNanos >= IMPLICIT_THRESHOLD_NANOS || notFound) {
+            record(TraceRecorder.callerOf(), "implicitWait", command, locator, elapsedNanos, 0L, notFound);
+        }
+    }
+
+    /**
+     * Adds one finished wait to the statistics of its wait site
+     * @param caller Page-object method that waited, e.g. "LoginPage.login"
+     * @param waitName Wait helper name, or "implicitWait" for a direct find
+     * @param conditionType Condition type, or the driver command of a direct find
+     * @param locator Description of the locator or expected value
+     * @param elapsedNanos Time the wait took
+     * @param implicitNanos Part of it spent in implicit waits
+     * @param timedOut true if the wait timed out or the element was not found
+     */
+    static void record(String caller, String waitName, String conditionType, String locator,
+                       long elapsedNanos, long implicitNanos, boolean timedOut) {
+        String key = caller + " \u2192 " + waitName + " [" + conditionType + "]";
+        stats.computeIfAbsent(key, WaitStats::new).add(locator, elapsedNanos, implicitNanos, timedOut);
+    }
+
+    /**
+     * Builds the ranked report of waits by total time waited
+     * @return Report lines, most expensive wait first
+     */
+    public static List<String> buildReport() {
+        long wallNanos = Math.max(1L, (System.currentTimeMillis()
+                - ManagementFactory.getRuntimeMXBean().getStartTime()) * 1000000L);
+        List<WaitStats> ranked = new ArrayList<>(stats.values());
+        Collections.sort(ranked, (a, b) -> Long.compare(b.totalNanos, a.totalNanos));
+
+        long totalWaitNanos = 0L;
+        for (WaitStats waitStats : ranked) {
+            totalWaitNanos += waitStats.totalNanos;
+        }
+
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.ROOT, "=== Wait profile: %.1fs waited over %.1fs wall time ===",
+                totalWaitNanos / 1e9, wallNanos / 1e9));
+        int rank = 0;
+        for (WaitStats waitStats : ranked) {
+            if (++rank > REPORT_ROWS) {
+                lines.add(String.format("... %d more wait sites", ranked.size() - REPORT_ROWS));
+                break;
+            }
+            lines.add(waitStats.format(rank, Math.max(1L, totalWaitNanos)));
+        }
+        return lines;
+    }
+
+    /**
+     * Logs the ranked wait report and writes it to the configured output file
+     */
+    public static synchronized void report() {
+        if (!ENABLED || stats.isEmpty()) {
+            return;
+        }
+        List<String> lines = buildReport();
+        for (String line : lines) {
+            logger.info(line);
+        }
+        try {
+            Path outputPath = ResourceAllocator.artifactPath(OUTPUT_FILE);
+            if (outputPath.getParent() != null) {
+                Files.createDirectories(outputPath.getParent());
+            }
+            Files.write(outputPath, lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            logger.error("Failed to write wait profile: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * A running explicit-wait measurement
+     */
+    public static final class Measurement {
+
+        private final String caller;
+        private final String waitName;
+        private final String conditionType;
+        private final String locator;
+        private final long startNanos = System.nanoTime();
+        private Measurement outer;
+        private long implicitNanos;
+        private boolean timedOut;
+
+        private Measurement(String caller, String waitName, String conditionType, String locator) {
+            this.caller = caller;
+            this.waitName = waitName;
+            this.conditionType = conditionType;
+            this.locator = locator;
+        }
+
+        /**
+         * Marks the wait as having timed out
+         */
+        public void timedOut() {
+            timedOut = true;
+        }
+
+        /**
+         * Stops the measurement and records it
+         */
+        public void stop() {
+            if (waitName == null) {
+                return;
+            }
+            activeWait.set(outer);
+            if (outer != null) {
+                // nested wait: time is already part of the enclosing wait, and so is its implicit-wait time
+                outer.implicitNanos += implicitNanos;
+                return;
+            }
+            record(caller, waitName, conditionType, locator, System.nanoTime() - startNanos, implicitNanos, timedOut);
+        }
+    }
+
+    private static final class WaitStats {
+
+        private static final int MAX_LOCATORS = 3;
+
+        private final String key;
+        private final Set<String> locators = new LinkedHashSet<>();
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private long implicitNanos;
+        private long timeouts;
+
+        private WaitStats(String key) {
+            this.key = key;
+        }
+
+        private synchronized void add(String locator, long elapsedNanos, long implicitPartNanos, boolean timedOut) {
+            count++;
+            totalNanos += elapsedNanos;
+            maxNanos = Math.max(maxNanos, elapsedNanos);
+            implicitNanos += implicitPartNanos;
+            if (timedOut) {
+                timeouts++;
+            }
+            if (locator != null && locators.size() < MAX_LOCATORS) {
+                locators.add(locator);
+            }
+        }
+
+        // Waits of parallel threads overlap, so a site's share is taken of all time waited, not of wall time
+        private synchronized String format(int rank, long totalWaitNanos) {
+            return String.format(Locale.ROOT,
+                    "%2d. %s: %.1f%% of all wait time (%.2fs in %d waits, max %.2fs, implicit %.2fs, %d timeouts) %s",
+                    rank, key, 100.0 * totalNanos / totalWaitNanos, totalNanos / 1e9, count, maxNanos / 1e9,
+                    implicitNanos / 1e9, timeouts, locators);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package base;
+
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.TestNG;
+import org.testng.annotations.Test;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class HttpOnlyTest {
+
+    private static final AtomicBoolean checked = new AtomicBoolean();
+    private static final AtomicReference<WebDriver> driverSeen = new AtomicReference<>();
+
+    // Suite member run by the test below; the fixture group keeps Gradle from running it directly
+    @HttpOnly
+    static class ServedHtmlChecks extends BaseTest {
+        @Test(groups = "fixture")
+        public void checksServedHtml() {
+            driverSeen.set(driver);
+            Assert.assertNotNull(http());
+            checked.set(true);
+        }
+    }
+
+    @Test(description = "Verify a class of @HttpOnly tests runs without creating a driver")
+    public void testHttpOnlyBlockCreatesNoDriver() {
+        XmlSuite suite = new XmlSuite();
+        suite.setName("HttpOnlySuite");
+        XmlTest test = new XmlTest(suite);
+        test.setName("LoginHttpTests");
+        test.setParameters(Collections.singletonMap("browser", "chrome"));
+        test.setXmlClasses(Collections.singletonList(new XmlClass(ServedHtmlChecks.class)));
+
+        TestNG testng = new TestNG();
+        testng.setXmlSuites(Collections.singletonList(suite));
+        testng.setUseDefaultListeners(false);
+        testng.setVerbose(0);
+        testng.run();
+
+        Assert.assertFalse(testng.hasFailure(), "setUp should not have tried to start chrome");
+        Assert.assertTrue(checked.get(), "The @HttpOnly test should have run");
+        Assert.assertNull(driverSeen.get(), "No driver should have been created");
+    }
+}
@@ -0,0 +1,127 @@
+package pages;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class FastChecksTest {
+
+    private static final By SPINNER = By.id("spinner");
+
+    /**
+     * Driver without a browser: findElements returns what the supplier gives and implicit waits are recorded in millis
+     */
+    private static final class StubDriver {
+
+        final List<Long> implicitWaits = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger lookups = new AtomicInteger();
+        final WebDriver driver;
+
+        StubDriver(Supplier<List<WebElement>> elements) {
+            WebDriver.Timeouts timeouts = stub(WebDriver.Timeouts.class, (name, args) -> {
+                if ("implicitlyWait".equals(name)) {
+                    implicitWaits.add(((TimeUnit) args[1]).toMillis((Long) args[0]));
+                }
+                return null;
+            });
+            WebDriver.Options options = stub(WebDriver.Options.class, (name, args) -> "timeouts".equals(name) ? timeouts : null);
+            driver = stub(WebDriver.class, (name, args) -> {
+                if ("manage".equals(name)) {
+                    return options;
+                }
+                if ("findElements".equals(name)) {
+                    lookups.incrementAndGet();
+                    return elements.get();
+                }
+                return null;
+            });
+        }
+    }
+
+    private interface Handler {
+        Object handle(String methodName, Object[] args);
+    }
+
+    private static <T> T stub(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return type.getSimpleName() + " stub";
+                default:
+                    return handler.handle(method.getName(), args);
+            }
+        }));
+    }
+
+    private static WebElement element(boolean displayed) {
+        return stub(WebElement.class, (name, args) -> "isDisplayed".equals(name) ? displayed : null);
+    }
+
+    private static WebElement staleElement() {
+        return stub(WebElement.class, (name, args) -> {
+            throw new StaleElementReferenceException("element is not attached to the page document");
+        });
+    }
+
+    @Test(description = "Verify isPresentNow sees displayed elements only and restores the configured implicit wait")
+    public void testIsPresentNow() {
+        StubDriver displayed = new StubDriver(() -> Collections.singletonList(element(true)));
+        StubDriver hidden = new StubDriver(() -> Collections.singletonList(element(false)));
+        StubDriver stale = new StubDriver(() -> Collections.singletonList(staleElement()));
+
+        Assert.assertTrue(FastChecks.isPresentNow(displayed.driver, SPINNER));
+        Assert.assertFalse(FastChecks.isPresentNow(hidden.driver, SPINNER));
+        Assert.assertFalse(FastChecks.isPresentNow(stale.driver, SPINNER), "A stale element is no longer displayed");
+        // nothing recorded for these sessions: browser.implicit.wait (10s) is restored
+        Assert.assertEquals(displayed.implicitWaits, Arrays.asList(0L, 10000L));
+    }
+
+    @Test(description = "Verify isAbsent restores the implicit wait the session was set to, not the configured one")
+    public void testIsAbsentRestoresRecordedImplicitWait() {
+        StubDriver stub = new StubDriver(Collections::emptyList);
+        FastChecks.setImplicitWait(stub.driver, Duration.ofMillis(2500));
+
+        Assert.assertTrue(FastChecks.isAbsent(stub.driver, SPINNER));
+        Assert.assertEquals(stub.implicitWaits, Arrays.asList(2500L, 0L, 2500L));
+
+        stub.implicitWaits.clear();
+        FastChecks.setImplicitWait(stub.driver, Duration.ZERO);
+        Assert.assertTrue(FastChecks.isAbsent(stub.driver, SPINNER));
+        Assert.assertEquals(stub.implicitWaits, Collections.singletonList(0L),
+                "A session without an implicit wait needs no switching");
+    }
+
+    @Test(description = "Verify waitForAbsence polls until the element is gone and gives up after the window")
+    public void testWaitForAbsence() {
+        AtomicInteger polls = new AtomicInteger();
+        StubDriver goneOnThirdPoll = new StubDriver(() -> polls.incrementAndGet() < 3
+                ? Collections.singletonList(element(true)) : Collections.<WebElement>emptyList());
+        Assert.assertTrue(FastChecks.waitForAbsence(goneOnThirdPoll.driver, SPINNER, Duration.ofSeconds(5)));
+        Assert.assertEquals(goneOnThirdPoll.lookups.get(), 3);
+        Assert.assertEquals(goneOnThirdPoll.implicitWaits, Arrays.asList(0L, 10000L));
+
+        StubDriver stuck = new StubDriver(() -> Collections.singletonList(element(true)));
+        long start = System.nanoTime();
+        Assert.assertFalse(FastChecks.waitForAbsence(stuck.driver, SPINNER, Duration.ofMillis(300)));
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000,
+                "The wait is bounded by the window, not the implicit wait");
+        Assert.assertEquals(stuck.implicitWaits, Arrays.asList(0L, 10000L));
+    }
+}
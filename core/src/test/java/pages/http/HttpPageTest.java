@@ -0,0 +1,42 @@
+package pages.http;
+
+import org.jsoup.Jsoup;
+import org.openqa.selenium.By;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class HttpPageTest {
+
+    private static final String HTML = "<html><head><title>Login</title></head><body>"
+            + "<form action='LoginAction.do'><input id='userName'><input name='password' type='password'>"
+            + "<input type='hidden' name='token' value='t1'><button type='submit'>Sign in</button></form>"
+            + "<div class='error-message' style='display: none'>Invalid</div>"
+            + "<div hidden><span class='notice'>Later</span></div>"
+            + "<a href='/help'>Help</a><a href='/forgot'>Forgot Password?</a></body></html>";
+
+    private final HttpPage page = new HttpPage("http://localhost/login", 200, Jsoup.parse(HTML));
+
+    @Test(description = "Verify every Selenium locator kind finds elements in the parsed page")
+    public void testSeleniumLocators() {
+        Assert.assertTrue(page.isPresent(By.id("userName")));
+        Assert.assertTrue(page.isPresent(By.name("password")));
+        Assert.assertTrue(page.isPresent(By.className("error-message")));
+        Assert.assertTrue(page.isPresent(By.tagName("form")));
+        Assert.assertTrue(page.isPresent(By.cssSelector("form[action*='LoginAction']")));
+        Assert.assertTrue(page.isPresent(By.xpath("//*[@type='submit']")));
+        Assert.assertTrue(page.isPresent(By.linkText("Help")));
+        Assert.assertTrue(page.isPresent(By.partialLinkText("Forgot")));
+        Assert.assertFalse(page.isPresent(By.id("missing")));
+        Assert.assertEquals(page.getTitle(), "Login");
+        Assert.assertEquals(page.getText(By.xpath("//*[@type='submit']")), "Sign in");
+        Assert.assertEquals(page.getAttribute(By.name("token"), "value"), "t1");
+    }
+
+    @Test(description = "Verify statically hidden elements are present but not displayed")
+    public void testStaticVisibility() {
+        Assert.assertTrue(page.isDisplayed(By.id("userName")));
+        Assert.assertFalse(page.isDisplayed(By.name("token")), "type=hidden");
+        Assert.assertFalse(page.isDisplayed(By.className("error-message")), "inline display:none");
+        Assert.assertFalse(page.isDisplayed(By.className("notice")), "hidden ancestor");
+    }
+}
@@ -0,0 +1,77 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+
+public class ConfigSnapshotTest {
+
+    private static Properties properties(String... keysAndValues) {
+        Properties properties = new Properties();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            properties.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return properties;
+    }
+
+    private static Properties base() {
+        return properties("app.base.url", "https://staging", "browser.implicit.wait", "10",
+                "browser.explicit.wait", "20", "trace.enabled", "false", "flaky.flip.threshold", "0.2");
+    }
+
+    @Test(description = "Verify later layers override earlier ones")
+    public void testLayerPrecedence() {
+        Map<String, String> environment = new HashMap<>();
+        environment.put("BROWSER_EXPLICIT_WAIT", "30");
+        environment.put("BROWSER_IMPLICIT_WAIT", "7");
+        ConfigSnapshot snapshot = new ConfigSnapshot(base(), "dev",
+                properties("app.base.url", "http://dev", "browser.implicit.wait", "5"),
+                environment, properties("browser.implicit.wait", "3"));
+
+        Assert.assertEquals(snapshot.get("app.base.url"), "http://dev");
+        Assert.assertEquals(snapshot.getInt("browser.explicit.wait"), 30);
+        Assert.assertEquals(snapshot.getInt("browser.implicit.wait"), 3);
+        Assert.assertEquals(snapshot.sourceOf("app.base.url"), "config-dev.properties");
+        Assert.assertEquals(snapshot.sourceOf("browser.explicit.wait"), "environment BROWSER_EXPLICIT_WAIT");
+        Assert.assertEquals(snapshot.sourceOf("browser.implicit.wait"), "system property");
+        Assert.assertTrue(snapshot.validate().isEmpty());
+    }
+
+    @Test(description = "Verify typed values are parsed when the snapshot is built")
+    public void testTypedValues() {
+        ConfigSnapshot snapshot = new ConfigSnapshot(base(), "", new Properties(), Collections.<String, String>emptyMap(),
+                properties("trace.enabled", "TRUE", "flaky.quarantine.tests", "A.a, ,B.b"));
+
+        Assert.assertEquals(snapshot.getInt("browser.implicit.wait"), 10);
+        Assert.assertEquals(snapshot.getInt("app.base.url", 4), 4);
+        Assert.assertEquals(snapshot.getDouble("flaky.flip.threshold", 1.0), 0.2);
+        Assert.assertTrue(snapshot.getBoolean("trace.enabled"));
+        Assert.assertEquals(snapshot.getList("flaky.quarantine.tests"), Arrays.asList("A.a", "B.b"));
+        Assert.assertTrue(snapshot.getList("missing.key").isEmpty());
+    }
+
+    @Test(description = "Verify overrides that change a value's type are reported")
+    public void testValidationRejectsWrongTypes() {
+        ConfigSnapshot snapshot = new ConfigSnapshot(base(), "dev", properties("browser.implicit.wait", "ten"),
+                Collections.singletonMap("TRACE_ENABLED", "yes"), properties("flaky.flip.threshold", "high"));
+
+        Assert.assertEquals(snapshot.validate().size(), 3);
+        Assert.assertTrue(snapshot.validate().contains("browser.implicit.wait=ten (from config-dev.properties) is not an integer"));
+    }
+
+    @Test(description = "Verify changed keys are found between two snapshots")
+    public void testChangedKeys() {
+        ConfigSnapshot before = new ConfigSnapshot(base(), "", new Properties(),
+                Collections.<String, String>emptyMap(), new Properties());
+        ConfigSnapshot after = new ConfigSnapshot(base(), "dev", properties("logging.level", "DEBUG"),
+                Collections.<String, String>emptyMap(), properties("browser.implicit.wait", "4", "user.timezone", "UTC"));
+
+        Assert.assertEquals(after.changedKeys(before), new TreeSet<>(Arrays.asList("browser.implicit.wait", "logging.level")));
+    }
+}
@@ -0,0 +1,120 @@
+package utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Stand-in for the application under test in unit tests: an HTTP server on a free localhost port
+ * whose paths are answered by the handlers a test registers
+ */
+public final class LocalHttpApp {
+
+    private final HttpServer server;
+
+    /**
+     * Binds a free localhost port; register routes, then call {@link #start()}
+     * @throws IOException if no port can be bound
+     */
+    public LocalHttpApp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    }
+
+    /**
+     * Answers requests under a path
+     * @param path Path prefix, e.g. "/app/login"
+     * @param handler Handler of the requests
+     * @return This application
+     */
+    public LocalHttpApp route(String path, HttpHandler handler) {
+        server.createContext(path, handler);
+        return this;
+    }
+
+    /**
+     * Starts serving the registered routes
+     * @return This application
+     */
+    public LocalHttpApp start() {
+        server.start();
+        return this;
+    }
+
+    /**
+     * Stops the server; requests then fail to connect
+     */
+    public void stop() {
+        server.stop(0);
+    }
+
+    /**
+     * Gets the origin the application is served on
+     * @return "http://localhost:port"
+     */
+    public String origin() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Sends a response and closes the exchange; an empty body is sent without one
+     * @param http Exchange to answer
+     * @param status HTTP status
+     * @param contentType Content-Type header
+     * @param body Response body
+     * @throws IOException if the response cannot be written
+     */
+    public static void respond(HttpExchange http, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        http.getResponseHeaders().add("Content-Type", contentType);
+        http.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            http.getResponseBody().write(bytes);
+        }
+        http.close();
+    }
+
+    /**
+     * Reads a response body, or the error body of a 4xx/5xx response
+     * @param connection Connection to read
+     * @return The body, empty if there is none
+     * @throws IOException if the body cannot be read
+     */
+    public static byte[] bodyBytes(HttpURLConnection connection) throws IOException {
+        try (InputStream in = connection.getResponseCode() >= 400 ? connection.getErrorStream() : connection.getInputStream()) {
+            return in == null ? new byte[0] : readAll(in);
+        }
+    }
+
+    /**
+     * Reads a response body as UTF-8 text, or the error body of a 4xx/5xx response
+     * @param connection Connection to read
+     * @return The body, empty if there is none
+     * @throws IOException if the body cannot be read
+     */
+    public static String body(HttpURLConnection connection) throws IOException {
+        return new String(bodyBytes(connection), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a stream to its end
+     * @param in Stream to read; not closed
+     * @return Everything read
+     * @throws IOException if the stream cannot be read
+     */
+    public static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        for (int read; (read = in.read(buffer)) != -1; ) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,156 @@
+package utils.data;
+
+import com.google.gson.stream.JsonReader;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DataFilesTest {
+
+    private static RowIterator csv(String content) {
+        return new CsvRowIterator(new BufferedReader(new StringReader(content)), "test.csv");
+    }
+
+    private static List<String> column(RowIterator rows, String name) {
+        List<String> values = new ArrayList<>();
+        while (rows.hasNext()) {
+            values.add(rows.next().get(name));
+        }
+        return values;
+    }
+
+    @Test(description = "Verify CSV rows are read with quoted fields, blank lines and missing trailing fields")
+    public void testCsvRows() {
+        RowIterator rows = csv("curve,label,notes\n"
+                + "NYMEX_NG,\"Henry Hub, front month\",\"said \"\"hi\"\"\"\n"
+                + "\n"
+                + "ICE_BRENT,\"two\nlines\"\n");
+
+        Map<String, String> first = rows.next();
+        Assert.assertEquals(first.get("label"), "Henry Hub, front month");
+        Assert.assertEquals(first.get("notes"), "said \"hi\"");
+        Map<String, String> second = rows.next();
+        Assert.assertEquals(second.get("label"), "two\nlines");
+        Assert.assertEquals(second.get("notes"), "");
+        Assert.assertFalse(rows.hasNext());
+    }
+
+    @Test(description = "Verify JSON array objects are streamed as rows")
+    public void testJsonRows() {
+        RowIterator rows = new JsonRowIterator(new JsonReader(new StringReader(
+                "[{\"username\":\"u1\",\"id\":7,\"admin\":true,\"tags\":[\"a\"]},{\"username\":\"u2\",\"id\":null}]")));
+
+        Map<String, String> first = rows.next();
+        Assert.assertEquals(first.get("id"), "7");
+        Assert.assertEquals(first.get("admin"), "true");
+        Assert.assertFalse(first.containsKey("tags"));
+        Assert.assertEquals(column(rows, "username"), Arrays.asList("u2"));
+    }
+
+    @Test(description = "Verify shards of a file are disjoint and together cover every row")
+    public void testShardsAreDisjoint() {
+        String content = "id\n1\n2\n3\n4\n5\n";
+
+        Assert.assertEquals(column(csv(content).shard(0, 2), "id"), Arrays.asList("1", "3", "5"));
+        Assert.assertEquals(column(csv(content).shard(1, 2), "id"), Arrays.asList("2", "4"));
+        Assert.assertEquals(column(csv(content).shard(0, 1), "id"), Arrays.asList("1", "2", "3", "4", "5"));
+    }
+
+    @Test(description = "Verify a user is leased to only one session at a time")
+    public void testCredentialPoolLeasesExclusively() throws Exception {
+        CredentialPool pool = new CredentialPool(Arrays.asList(new String[]{"u1", "p1"}, new String[]{"u2", "p2"}), 5000);
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        List<String> inUse = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger conflicts = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(8);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 8; i++) {
+            executor.submit(() -> {
+                try (CredentialPool.Lease lease = pool.lease()) {
+                    if (inUse.contains(lease.getUsername())) {
+                        conflicts.incrementAndGet();
+                    }
+                    inUse.add(lease.getUsername());
+                    maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                    Thread.sleep(20);
+                    concurrent.decrementAndGet();
+                    inUse.remove(lease.getUsername());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        Assert.assertEquals(conflicts.get(), 0);
+        Assert.assertEquals(maxConcurrent.get(), 2);
+        Assert.assertEquals(pool.available(), 2);
+    }
+
+    @Test(description = "Verify pools sharing a lock directory, like parallel test JVMs, never lease the same user")
+    public void testCredentialLocksAreSharedAcrossPools() throws Exception {
+        Path lockDirectory = Files.createTempDirectory("credential-locks");
+        List<String[]> users = Arrays.asList(new String[]{"u1", "p1"}, new String[]{"u2", "p2"});
+        CredentialPool fork1 = new CredentialPool(users, 300, lockDirectory);
+        CredentialPool fork2 = new CredentialPool(users, 300, lockDirectory);
+
+        CredentialPool.Lease first = fork1.lease();
+        CredentialPool.Lease second = fork2.lease();
+        Assert.assertNotEquals(second.getUsername(), first.getUsername());
+        try {
+            fork2.lease();
+            Assert.fail("Both users are leased, one by each pool");
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains("other test JVMs"), e.getMessage());
+        }
+        first.close();
+        try (CredentialPool.Lease released = fork2.lease()) {
+            Assert.assertEquals(released.getUsername(), first.getUsername());
+        }
+        second.close();
+    }
+
+    @Test(description = "Verify too few users for the worker JVMs fail early with the number missing")
+    public void testTooFewUsersForWorkers() {
+        CredentialPool.requireUserPerWorker("users.csv", 4, 2, 2);
+        try {
+            CredentialPool.requireUserPerWorker("users.csv", 3, 1, 4);
+            Assert.fail("Three users cannot serve four forks");
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains("add at least 1 more"), e.getMessage());
+        }
+    }
+
+    @Test(description = "Verify leasing from an exhausted pool fails after the timeout")
+    public void testCredentialPoolTimeout() {
+        CredentialPool pool = new CredentialPool(Arrays.<String[]>asList(new String[]{"u1", "p1"}), 50);
+        CredentialPool.Lease lease = pool.lease();
+        try {
+            pool.lease();
+            Assert.fail("Second lease should time out");
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains("No free test user"));
+        }
+        lease.close();
+        lease.close();
+        Assert.assertEquals(pool.available(), 1);
+    }
+}
@@ -0,0 +1,102 @@
+package utils.history;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class FlakinessDetectorTest {
+
+    private static final String FLAKY = "LoginTest.testSuccessfulLogin";
+    private static final String STABLE = "LoginTest.testLoginPageElements";
+
+    private static List<TestOutcome> history(String testId, String statuses) {
+        List<TestOutcome> outcomes = new ArrayList<>();
+        long timestamp = 1000L;
+        for (char status : statuses.toCharArray()) {
+            TestOutcome.Status outcome = status == 'P' ? TestOutcome.Status.PASS
+                    : status == 'F' ? TestOutcome.Status.FAIL : TestOutcome.Status.SKIP;
+            outcomes.add(new TestOutcome(timestamp++, "AutomationSuite", "LoginTests", testId, outcome, 100L,
+                    outcome == TestOutcome.Status.FAIL ? "TimeoutException@LoginPage.login: title" : ""));
+        }
+        return outcomes;
+    }
+
+    @Test(description = "Verify flip rate counts status changes between consecutive runs")
+    public void testFlipRate() {
+        List<TestOutcome> outcomes = history(FLAKY, "PFPPFP");
+        FlakinessDetector detector = new FlakinessDetector(outcomes, 20, 5, 0.2, Collections.<String>emptyList());
+
+        FlakinessDetector.TestStats stats = detector.statsFor(FLAKY);
+        Assert.assertEquals(stats.getRuns(), 6);
+        Assert.assertEquals(stats.getFailures(), 2);
+        Assert.assertEquals(stats.getFlips(), 4);
+        Assert.assertEquals(stats.getFlipRate(), 0.8, 0.0001);
+        Assert.assertEquals(stats.getDominantSignature(), "TimeoutException@LoginPage.login: title");
+        Assert.assertTrue(detector.isFlaky(FLAKY), "Alternating test should be flaky");
+    }
+
+    @Test(description = "Verify browser/profile ids keep separate histories and quarantine covers every combination")
+    public void testCombinationsAreTrackedSeparately() {
+        List<TestOutcome> outcomes = history(FLAKY + " [firefox/default]", "PFPFPF");
+        outcomes.addAll(history(FLAKY + " [chrome/default]", "PPPPPP"));
+        FlakinessDetector detector = new FlakinessDetector(outcomes, 20, 5, 0.2, Collections.singletonList(STABLE));
+
+        Assert.assertTrue(detector.isFlaky(FLAKY + " [firefox/default]"));
+        Assert.assertFalse(detector.isFlaky(FLAKY + " [chrome/default]"), "Firefox flips should not mark Chrome flaky");
+        Assert.assertEquals(detector.flakyIdsOf(FLAKY), Collections.singletonList(FLAKY + " [firefox/default]"));
+        Assert.assertTrue(detector.isFlaky(STABLE + " [chrome/mobile]"), "Quarantined method ids cover every combination");
+    }
+
+    @Test(description = "Verify skips are ignored and stable tests are not flagged")
+    public void testStableTestIsNotFlaky() {
+        List<TestOutcome> outcomes = history(STABLE, "PPSPPPP");
+        FlakinessDetector detector = new FlakinessDetector(outcomes, 20, 5, 0.2, Collections.<String>emptyList());
+
+        Assert.assertEquals(detector.statsFor(STABLE).getRuns(), 6);
+        Assert.assertFalse(detector.isFlaky(STABLE), "Always passing test should not be flaky");
+        Assert.assertTrue(detector.isStable(STABLE), "Always passing test should be stable");
+    }
+
+    @Test(description = "Verify tests need the minimum number of runs and only the window is considered")
+    public void testWindowAndMinimumRuns() {
+        FlakinessDetector tooFewRuns = new FlakinessDetector(history(FLAKY, "PFP"), 20, 5, 0.2,
+                Collections.<String>emptyList());
+        Assert.assertFalse(tooFewRuns.isFlaky(FLAKY), "Three runs are not enough to classify a test");
+
+        FlakinessDetector recentOnly = new FlakinessDetector(history(FLAKY, "PFPFPFPPPPPP"), 6, 5, 0.2,
+                Collections.<String>emptyList());
+        Assert.assertEquals(recentOnly.statsFor(FLAKY).getFlips(), 0);
+        Assert.assertFalse(recentOnly.isFlaky(FLAKY), "Old flips outside the window should not count");
+    }
+
+    @Test(description = "Verify quarantined tests are always treated as flaky")
+    public void testQuarantinedTest() {
+        FlakinessDetector detector = new FlakinessDetector(Collections.<TestOutcome>emptyList(), 20, 5, 0.2,
+                Collections.singletonList(STABLE));
+        Assert.assertTrue(detector.isFlaky(STABLE), "Quarantined test should be flaky");
+    }
+
+    @Test(description = "Verify failure signatures mask run-specific numbers")
+    public void testSignatureMasksNumbers() {
+        String first = FlakinessDetector.signatureOf(new IllegalStateException("waited 20 seconds for id 1483"));
+        String second = FlakinessDetector.signatureOf(new IllegalStateException("waited 21 seconds for id 1487"));
+        Assert.assertEquals(first, second);
+        Assert.assertTrue(first.startsWith("IllegalStateException@FlakinessDetectorTest."), first);
+    }
+
+    @Test(description = "Verify outcomes survive a round trip through the history line format")
+    public void testOutcomeLineRoundTrip() {
+        TestOutcome outcome = new TestOutcome(42L, "Suite", "Tests", FLAKY, TestOutcome.Status.FAIL, 1234L,
+                "Error\twith\ttabs");
+        TestOutcome parsed = TestOutcome.fromLine(outcome.toLine());
+        Assert.assertNotNull(parsed);
+        Assert.assertEquals(parsed.getTestId(), FLAKY);
+        Assert.assertEquals(parsed.getStatus(), TestOutcome.Status.FAIL);
+        Assert.assertEquals(parsed.getDurationMillis(), 1234L);
+        Assert.assertEquals(parsed.getSignature(), "Error with tabs");
+        Assert.assertNull(TestOutcome.fromLine("not a history line"));
+    }
+}
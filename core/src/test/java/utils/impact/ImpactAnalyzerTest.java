@@ -0,0 +1,105 @@
+package utils.impact;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlPackage;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+import utils.history.FlakinessDetectorTest;
+import utils.history.TestOutcome;
+import utils.scheduling.ShardPlannerTest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ImpactAnalyzerTest {
+
+    private ImpactAnalyzer analyzer;
+
+    private static Path classDirectoryOf(Class<?> type) throws Exception {
+        return Paths.get(type.getProtectionDomain().getCodeSource().getLocation().toURI());
+    }
+
+    private static XmlSuite suite() {
+        XmlSuite suite = new XmlSuite();
+        suite.setName("UnitSuite");
+        XmlTest history = new XmlTest(suite);
+        history.setName("HistoryTests");
+        history.setXmlClasses(Collections.singletonList(new XmlClass(FlakinessDetectorTest.class.getName(), false)));
+        XmlTest scheduling = new XmlTest(suite);
+        scheduling.setName("SchedulingTests");
+        scheduling.setXmlClasses(Collections.singletonList(new XmlClass(ShardPlannerTest.class.getName(), false)));
+        return suite;
+    }
+
+    @BeforeClass
+    public void buildGraph() throws Exception {
+        DependencyGraph graph = DependencyGraph.build(Arrays.asList(
+                classDirectoryOf(TestOutcome.class), classDirectoryOf(ImpactAnalyzerTest.class)));
+        analyzer = new ImpactAnalyzer(graph, "(?i).*\\.md$");
+    }
+
+    @Test(description = "Verify a changed class selects only the tests that depend on it")
+    public void testChangedClassSelectsDependentTests() {
+        XmlSuite impacted = analyzer.select(suite(),
+                Collections.singletonList("core/src/main/java/utils/history/FlakinessDetector.java"));
+        Assert.assertEquals(impacted.getTests().size(), 1);
+        Assert.assertEquals(impacted.getTests().get(0).getName(), "HistoryTests");
+
+        impacted = analyzer.select(suite(),
+                Collections.singletonList("core/src/main/java/utils/scheduling/LongestFirstPlanner.java"));
+        Assert.assertEquals(impacted.getTests().size(), 1);
+        Assert.assertEquals(impacted.getTests().get(0).getName(), "SchedulingTests");
+    }
+
+    @Test(description = "Verify transitive dependencies are followed")
+    public void testTransitiveDependencySelectsTests() {
+        // ShardPlannerTest reaches TestOutcome through ShardPlanner, DurationEstimator and TestHistoryStore
+        XmlSuite impacted = analyzer.select(suite(),
+                Collections.singletonList("core/src/main/java/utils/history/TestOutcome.java"));
+        Assert.assertEquals(impacted.getTests().size(), 2);
+    }
+
+    @Test(description = "Verify unrecognised changes fall back to the full suite")
+    public void testUnrecognisedChangeRunsFullSuite() {
+        XmlSuite full = suite();
+        XmlSuite impacted = analyzer.select(full,
+                Arrays.asList("core/src/main/java/utils/history/TestOutcome.java", "core/src/main/resources/config.properties"));
+
+        Assert.assertSame(impacted, full);
+    }
+
+    @Test(description = "Verify ignored files do not select any tests")
+    public void testIgnoredChangeSelectsNothing() {
+        XmlSuite impacted = analyzer.select(suite(), Collections.singletonList("README.md"));
+
+        Assert.assertTrue(impacted.getTests().isEmpty(), "Documentation changes should not select tests");
+    }
+
+    @Test(description = "Verify source paths map to class names")
+    public void testClassNameOfSourcePath() {
+        Assert.assertEquals(ImpactAnalyzer.classNameOf("market-analyzer/src/main/java/pages/LoginPage.java"), "pages.LoginPage");
+        Assert.assertEquals(ImpactAnalyzer.classNameOf("market-analyzer/src/test/java/LoginTest.java"), "LoginTest");
+        Assert.assertNull(ImpactAnalyzer.classNameOf("market-analyzer/build.gradle"));
+    }
+
+    @Test(description = "Verify <packages> of a block are kept, since they are not resolved to classes")
+    public void testPackagesAreKept() {
+        XmlSuite full = suite();
+        XmlTest packaged = new XmlTest(full);
+        packaged.setName("PackagedTests");
+        packaged.setXmlPackages(Collections.singletonList(new XmlPackage("utils.retry")));
+
+        XmlSuite impacted = analyzer.select(full,
+                Collections.singletonList("core/src/main/java/utils/history/FlakinessDetector.java"));
+        Assert.assertEquals(impacted.getTests().size(), 2);
+        XmlTest kept = impacted.getTests().get(1);
+        Assert.assertEquals(kept.getName(), "PackagedTests");
+        Assert.assertEquals(kept.getXmlPackages().size(), 1);
+        Assert.assertEquals(kept.getXmlPackages().get(0).getName(), "utils.retry");
+    }
+}
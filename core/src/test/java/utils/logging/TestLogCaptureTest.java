@@ -0,0 +1,75 @@
+package utils.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class TestLogCaptureTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(TestLogCaptureTest.class);
+
+    @Test(description = "Verify concurrent invocations of the same test keep their lines in separate logs")
+    public void testConcurrentInvocationsDoNotShareBuffers() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            Future<Path> first = threads.submit(() -> invocation("first row", bothStarted));
+            Future<Path> second = threads.submit(() -> invocation("second row", bothStarted));
+            String firstLog = new String(Files.readAllBytes(first.get(10, TimeUnit.SECONDS)), StandardCharsets.UTF_8);
+            String secondLog = new String(Files.readAllBytes(second.get(10, TimeUnit.SECONDS)), StandardCharsets.UTF_8);
+
+            Assert.assertTrue(firstLog.contains("first row") && !firstLog.contains("second row"), firstLog);
+            Assert.assertTrue(secondLog.contains("second row") && !secondLog.contains("first row"), secondLog);
+            Assert.assertNotEquals(first.get(), second.get(), "Each failed invocation gets its own file");
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    private static Path invocation(String row, CountDownLatch bothStarted) throws InterruptedException {
+        String invocationId = TestLogCapture.begin("DataTest.testRow");
+        bothStarted.countDown();
+        bothStarted.await(5, TimeUnit.SECONDS);
+        logger.info("Checking {}", row);
+        return TestLogCapture.end(invocationId, true);
+    }
+
+    @Test(description = "Verify a test run inside another hands the thread's capture back to the outer test")
+    public void testNestedCaptureRestoresOuterTest() throws Exception {
+        String outer = TestLogCapture.begin("DeferredRetries.retry");
+        String inner = TestLogCapture.begin("LoginTest.testSuccessfulLogin");
+        logger.info("inner line");
+        TestLogCapture.end(inner, false);
+        logger.info("outer line");
+        Path outerLog = TestLogCapture.end(outer, true);
+
+        String content = new String(Files.readAllBytes(outerLog), StandardCharsets.UTF_8);
+        Assert.assertTrue(content.contains("outer line"), content);
+        Assert.assertFalse(content.contains("inner line"), content);
+        Files.deleteIfExists(outerLog);
+    }
+
+    @Test(description = "Verify output printed without a final newline still reaches the test's log")
+    public void testTrailingPartialLineIsCaptured() throws Exception {
+        StdoutRedirector.install();
+        String invocationId = TestLogCapture.begin("PrintingTest.testProgress");
+        System.out.println("first line");
+        System.out.print("progress: 100%");
+        Path log = TestLogCapture.end(invocationId, true);
+
+        String content = new String(Files.readAllBytes(log), StandardCharsets.UTF_8);
+        Assert.assertTrue(content.contains("first line"), content);
+        Assert.assertTrue(content.contains("progress: 100%"), content);
+        Files.deleteIfExists(log);
+    }
+}
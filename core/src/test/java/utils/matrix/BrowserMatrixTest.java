@@ -0,0 +1,78 @@
+package utils.matrix;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class BrowserMatrixTest {
+
+    private static XmlSuite suite(String... blocks) {
+        XmlSuite suite = new XmlSuite();
+        suite.setName("AutomationSuite");
+        suite.setThreadCount(2);
+        for (String block : blocks) {
+            XmlTest test = new XmlTest(suite);
+            test.setName(block);
+            test.addParameter("browser", "edge");
+            test.setXmlClasses(Collections.singletonList(new XmlClass("LoginTest", false)));
+        }
+        return suite;
+    }
+
+    @Test(description = "Verify each block is copied once per browser and profile with its parameters")
+    public void testBlocksAreExpandedPerCombination() {
+        XmlSuite suite = suite("LoginTests", "ProfileCreationTests");
+
+        BrowserMatrix.expand(suite, Arrays.asList("chrome", "firefox"), Arrays.asList("default", "mobile"));
+
+        Assert.assertEquals(suite.getTests().size(), 8);
+        XmlTest copy = suite.getTests().get(3);
+        Assert.assertEquals(copy.getName(), "LoginTests [firefox/mobile]");
+        Assert.assertEquals(copy.getParameter("browser"), "firefox");
+        Assert.assertEquals(copy.getParameter("profile"), "mobile");
+        Assert.assertEquals(copy.getXmlClasses().get(0).getName(), "LoginTest");
+        Assert.assertEquals(suite.getParallel(), XmlSuite.ParallelMode.TESTS);
+        Assert.assertEquals(suite.getThreadCount(), 8);
+    }
+
+    @Test(description = "Verify a suite expanded by both the matrix listener and the scheduler is expanded once")
+    public void testSuiteIsExpandedOnce() {
+        XmlSuite suite = suite("LoginTests");
+
+        BrowserMatrix.expand(suite, Arrays.asList("chrome", "firefox"), Collections.<String>emptyList());
+        BrowserMatrix.expand(suite, Arrays.asList("chrome", "firefox"), Collections.<String>emptyList());
+
+        Assert.assertEquals(suite.getTests().size(), 2);
+        Assert.assertEquals(suite.getTests().get(1).getName(), "LoginTests [firefox/default]");
+        Assert.assertEquals(suite.getThreadCount(), 4);
+    }
+
+    @Test(description = "Verify duration history names carry the browser and profile exactly once")
+    public void testBlockNamesIncludeCombination() {
+        XmlSuite suite = suite("LoginTests");
+        Assert.assertEquals(BrowserMatrix.blockNameOf(suite.getTests().get(0)), "LoginTests [edge/default]");
+
+        BrowserMatrix.expand(suite, Collections.singletonList("firefox"), Collections.singletonList("mobile"));
+
+        XmlTest copy = suite.getTests().get(0);
+        Assert.assertEquals(BrowserMatrix.blockNameOf(copy), "LoginTests [firefox/mobile]");
+        Assert.assertEquals(BrowserMatrix.combinationSuffixOf(copy), " [firefox/mobile]");
+        Assert.assertEquals(BrowserMatrix.withoutCombination("LoginTest.testSuccessfulLogin [firefox/mobile]"),
+                "LoginTest.testSuccessfulLogin");
+    }
+
+    @Test(description = "Verify the suite is unchanged without matrix browsers")
+    public void testEmptyMatrixKeepsSuite() {
+        XmlSuite suite = suite("LoginTests");
+
+        BrowserMatrix.expand(suite, Collections.<String>emptyList(), Collections.<String>emptyList());
+
+        Assert.assertEquals(suite.getTests().size(), 1);
+        Assert.assertEquals(suite.getTests().get(0).getParameter("browser"), "edge");
+    }
+}
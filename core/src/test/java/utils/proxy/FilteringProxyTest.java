@@ -0,0 +1,120 @@
+package utils.proxy;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import utils.LocalHttpApp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FilteringProxyTest {
+
+    private LocalHttpApp application;
+    private String applicationOrigin;
+    private final AtomicInteger fontRequests = new AtomicInteger();
+    private FilteringProxy proxy;
+
+    @BeforeMethod
+    public void start() throws IOException {
+        application = new LocalHttpApp();
+        applicationOrigin = application.origin();
+        application.route("/app/login", http -> respond(http, "text/html", "<h1>Login</h1>"));
+        application.route("/app/font.woff2", http -> {
+            fontRequests.incrementAndGet();
+            respond(http, "font/woff2", "font");
+        });
+        application.route("/app/logo.png", http -> respond(http, "image/png", "png"));
+        application.route("/app/echo", http -> {
+            try (InputStream in = http.getRequestBody()) {
+                respond(http, "text/plain", new String(LocalHttpApp.readAll(in), StandardCharsets.UTF_8));
+            }
+        });
+        application.start();
+        proxy = new FilteringProxy(new ProxyRules(Collections.<String>emptyList(),
+                Collections.singletonList("*.woff2"), Collections.singletonList("*.png")), false);
+        proxy.start();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void stop() {
+        if (proxy != null) {
+            proxy.stop();
+        }
+        if (application != null) {
+            application.stop();
+        }
+    }
+
+    private static void respond(HttpExchange http, String contentType, String body) throws IOException {
+        LocalHttpApp.respond(http, 200, contentType, body);
+    }
+
+    private HttpURLConnection get(String path, String referer) throws IOException {
+        String[] address = proxy.getAddress().split(":");
+        Proxy http = new Proxy(Proxy.Type.HTTP, new InetSocketAddress(address[0], Integer.parseInt(address[1])));
+        HttpURLConnection connection = (HttpURLConnection) new URL(applicationOrigin + path).openConnection(http);
+        if (referer != null) {
+            connection.setRequestProperty("Referer", applicationOrigin + referer);
+        }
+        return connection;
+    }
+
+    @Test(description = "Verify the proxy forwards allowed requests, denies and stubs matching ones and counts them per page")
+    public void testFiltersRequestsAndReportsPerPage() throws IOException {
+        HttpURLConnection page = get("/app/login", null);
+        Assert.assertEquals(LocalHttpApp.body(page), "<h1>Login</h1>");
+
+        HttpURLConnection font = get("/app/font.woff2", "/app/login");
+        Assert.assertEquals(font.getResponseCode(), 403, "Denied font should be forbidden");
+        Assert.assertEquals(fontRequests.get(), 0, "Denied font should not reach the application");
+
+        HttpURLConnection logo = get("/app/logo.png?v=2", "/app/login");
+        Assert.assertEquals(logo.getResponseCode(), 200);
+        Assert.assertEquals(logo.getContentType(), "image/gif");
+        Assert.assertEquals(new String(LocalHttpApp.bodyBytes(logo), 0, 3, StandardCharsets.US_ASCII), "GIF", "Stubbed image should be a GIF");
+
+        List<String> report = proxy.report();
+        String loginRow = report.stream().filter(line -> line.startsWith(applicationOrigin + "/app/login "))
+                .findFirst().orElseThrow(AssertionError::new);
+        Assert.assertEquals(Arrays.asList(loginRow.trim().split("\\s+")).subList(1, 4), Arrays.asList("1", "1", "1"),
+                "Allowed, denied and stubbed counts of the login page: " + loginRow);
+        Assert.assertTrue(report.get(report.size() - 1).startsWith("Total: 2 request(s) saved"), report.toString());
+    }
+
+    @Test(description = "Verify a request body sent with Transfer-Encoding: chunked reaches the application whole")
+    public void testRelaysChunkedRequestBody() throws IOException {
+        HttpURLConnection post = get("/app/echo", null);
+        post.setRequestMethod("POST");
+        post.setDoOutput(true);
+        post.setChunkedStreamingMode(4);
+        try (OutputStream out = post.getOutputStream()) {
+            out.write("user=alice&password=secret".getBytes(StandardCharsets.UTF_8));
+        }
+        Assert.assertEquals(post.getResponseCode(), 200);
+        Assert.assertEquals(LocalHttpApp.body(post), "user=alice&password=secret");
+    }
+
+    @Test(description = "Verify allow rules win over deny and stub rules and globs match with or without the query")
+    public void testRuleOrder() {
+        ProxyRules rules = new ProxyRules(Collections.singletonList("*logo.png"),
+                Arrays.asList("*.png", "*tracker.example*"), Collections.singletonList("*.svg"));
+        Assert.assertEquals(rules.decide("http://app/img/logo.png"), ProxyRules.Decision.ALLOW);
+        Assert.assertEquals(rules.decide("http://app/img/banner.PNG?cache=1"), ProxyRules.Decision.DENY);
+        Assert.assertEquals(rules.decide("https://tracker.example:443/"), ProxyRules.Decision.DENY);
+        Assert.assertEquals(rules.decide("http://app/icons/menu.svg?v=3"), ProxyRules.Decision.STUB);
+        Assert.assertEquals(rules.decide("http://app/login"), ProxyRules.Decision.ALLOW);
+    }
+}
@@ -0,0 +1,97 @@
+package utils.remote;
+
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class NodeSchedulerTest {
+
+    private static final WebDriver DRIVER = (WebDriver) Proxy.newProxyInstance(WebDriver.class.getClassLoader(),
+            new Class<?>[]{WebDriver.class}, (proxy, method, args) -> null);
+
+    private static GridNode node(String host, int sessions) {
+        return GridNode.parse("http://" + host + ":4444/wd/hub|" + sessions, 1);
+    }
+
+    private static String hostOf(NodeScheduler.Session session) {
+        return session.getNode().getUrl().getHost();
+    }
+
+    @Test(description = "Verify sessions go to the node with the lowest share of busy slots")
+    public void testLeastLoadedNodeIsChosen() {
+        NodeScheduler scheduler = new NodeScheduler(Arrays.asList(node("a", 2), node("b", 1)),
+                (url, capabilities) -> DRIVER, 1000, 3, 1000);
+
+        Assert.assertEquals(hostOf(scheduler.acquire(DesiredCapabilities.chrome())), "a");
+        Assert.assertEquals(hostOf(scheduler.acquire(DesiredCapabilities.chrome())), "b");
+        Assert.assertEquals(hostOf(scheduler.acquire(DesiredCapabilities.chrome())), "a");
+    }
+
+    @Test(description = "Verify a request waits while every slot is busy and proceeds when one is released")
+    public void testRequestsQueueWhenSaturated() throws Exception {
+        NodeScheduler scheduler = new NodeScheduler(Collections.singletonList(node("a", 1)),
+                (url, capabilities) -> DRIVER, 5000, 3, 1000);
+        NodeScheduler.Session first = scheduler.acquire(DesiredCapabilities.chrome());
+
+        CompletableFuture<NodeScheduler.Session> second =
+                CompletableFuture.supplyAsync(() -> scheduler.acquire(DesiredCapabilities.chrome()));
+        try {
+            second.get(200, TimeUnit.MILLISECONDS);
+            Assert.fail("Second session should wait for a free slot");
+        } catch (TimeoutException e) {
+            // still queued
+        }
+        first.release();
+        first.release();
+
+        Assert.assertEquals(hostOf(second.get(5, TimeUnit.SECONDS)), "a");
+        Assert.assertEquals(second.get().getNode().getActiveSessions(), 1);
+    }
+
+    @Test(description = "Verify a failing node is marked unhealthy and skipped")
+    public void testFailingNodeIsSkipped() {
+        Map<String, Integer> attempts = new ConcurrentHashMap<>();
+        NodeScheduler.SessionFactory factory = (URL url, Capabilities capabilities) -> {
+            attempts.merge(url.getHost(), 1, Integer::sum);
+            if ("a".equals(url.getHost())) {
+                throw new WebDriverException("connection refused");
+            }
+            return DRIVER;
+        };
+        NodeScheduler scheduler = new NodeScheduler(Arrays.asList(node("a", 4), node("b", 1)), factory, 1000, 1, 60_000);
+
+        NodeScheduler.Session session = scheduler.acquire(DesiredCapabilities.firefox());
+        Assert.assertEquals(hostOf(session), "b");
+        session.release();
+        Assert.assertEquals(hostOf(scheduler.acquire(DesiredCapabilities.firefox())), "b");
+
+        Assert.assertEquals(attempts.get("a"), Integer.valueOf(1));
+        Assert.assertTrue(scheduler.describe().contains("unhealthy"));
+    }
+
+    @Test(description = "Verify a request fails when no slot frees up within the queue timeout")
+    public void testQueueTimeout() {
+        NodeScheduler scheduler = new NodeScheduler(Collections.singletonList(node("a", 1)),
+                (url, capabilities) -> DRIVER, 50, 3, 1000);
+        scheduler.acquire(DesiredCapabilities.chrome());
+        try {
+            scheduler.acquire(DesiredCapabilities.chrome());
+            Assert.fail("Second session should time out");
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains("within 50 ms"));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package utils.replay;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import utils.LocalHttpApp;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AssetCacheTest {
+
+    private LocalHttpApp application;
+    private String applicationOrigin;
+    private final AtomicInteger bundleRequests = new AtomicInteger();
+    private final AtomicInteger themeRequests = new AtomicInteger();
+    private final AtomicInteger themeDownloads = new AtomicInteger();
+    private final AtomicInteger pageRequests = new AtomicInteger();
+
+    @BeforeMethod
+    public void startApplication() throws IOException {
+        for (AtomicInteger counter : Arrays.asList(bundleRequests, themeRequests, themeDownloads, pageRequests)) {
+            counter.set(0);
+        }
+        application = new LocalHttpApp();
+        applicationOrigin = application.origin();
+        application.route("/app/ext-all.js", http -> {
+            bundleRequests.incrementAndGet();
+            http.getResponseHeaders().add("Cache-Control", "public, max-age=3600");
+            LocalHttpApp.respond(http, 200, "application/javascript", "Ext.define();");
+        });
+        application.route("/app/theme.css", http -> {
+            themeRequests.incrementAndGet();
+            http.getResponseHeaders().add("Cache-Control", "no-cache");
+            http.getResponseHeaders().add("ETag", "\"v1\"");
+            if ("\"v1\"".equals(http.getRequestHeaders().getFirst("If-None-Match"))) {
+                LocalHttpApp.respond(http, 304, "text/css", "");
+            } else {
+                themeDownloads.incrementAndGet();
+                LocalHttpApp.respond(http, 200, "text/css", "body {}");
+            }
+        });
+        application.route("/app/home", http -> {
+            pageRequests.incrementAndGet();
+            http.getResponseHeaders().add("Cache-Control", "no-store");
+            LocalHttpApp.respond(http, 200, "text/html", "visit " + pageRequests.get());
+        });
+        application.start();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void stopApplication() {
+        if (application != null) {
+            application.stop();
+        }
+    }
+
+    private static String body(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        Assert.assertEquals(connection.getResponseCode(), 200, url);
+        return LocalHttpApp.body(connection);
+    }
+
+    private StandInServer start(AssetCache cache) throws IOException {
+        StandInServer server = new StandInServer(applicationOrigin + "/app/home", cache, Collections.singletonList("_dc"));
+        server.start(0);
+        return server;
+    }
+
+    @Test(description = "Verify fresh assets are served from the cache, no-cache ones revalidated and no-store ones always forwarded")
+    public void testCachesAccordingToHeaders() throws IOException {
+        AssetCache cache = new AssetCache(null, 1024 * 1024);
+        StandInServer server = start(cache);
+        try {
+            String local = server.getBaseUrl().replace("/app/home", "");
+            for (int session = 1; session <= 3; session++) {
+                Assert.assertEquals(body(local + "/app/ext-all.js?_dc=" + session), "Ext.define();");
+                Assert.assertEquals(body(local + "/app/theme.css"), "body {}");
+                Assert.assertEquals(body(local + "/app/home"), "visit " + session);
+            }
+        } finally {
+            server.stop();
+        }
+        Assert.assertEquals(bundleRequests.get(), 1, "A fresh asset should be downloaded once");
+        Assert.assertEquals(themeRequests.get(), 3, "A no-cache asset should be revalidated on every use");
+        Assert.assertEquals(themeDownloads.get(), 1, "A revalidated asset should not be downloaded again");
+        Assert.assertEquals(pageRequests.get(), 3, "A no-store page should never be cached");
+        Assert.assertTrue(cache.summary().startsWith("Asset cache: 2 hit(s), 2 revalidated, 5 miss(es), 44% hit rate"), cache.summary());
+    }
+
+    @Test(description = "Verify a saved cache is loaded by a later run and answers without the network")
+    public void testCacheIsReusedAcrossRuns() throws IOException {
+        Path directory = Files.createTempDirectory("asset-cache");
+        AssetCache firstRun = new AssetCache(directory, 1024 * 1024);
+        StandInServer server = start(firstRun);
+        try {
+            body(server.getBaseUrl().replace("/app/home", "/app/ext-all.js"));
+        } finally {
+            server.stop();
+        }
+
+        AssetCache secondRun = new AssetCache(directory, 1024 * 1024);
+        secondRun.load();
+        server = start(secondRun);
+        try {
+            Assert.assertEquals(body(server.getBaseUrl().replace("/app/home", "/app/ext-all.js")), "Ext.define();");
+        } finally {
+            server.stop();
+        }
+        Assert.assertEquals(bundleRequests.get(), 1, "The second run should answer from the saved cache");
+    }
+
+    @Test(description = "Verify freshness follows s-maxage, max-age, Expires and Last-Modified, and uncacheable responses are refused")
+    public void testLifetime() {
+        long now = 1_700_000_000_000L;
+        Assert.assertEquals(AssetCache.lifetimeMillis(headers("Cache-Control", "max-age=60, s-maxage=600"), now), 600_000);
+        Assert.assertEquals(AssetCache.lifetimeMillis(headers("Date", "Tue, 14 Nov 2023 22:13:20 GMT",
+                "Expires", "Tue, 14 Nov 2023 22:23:20 GMT"), now), 600_000);
+        Assert.assertEquals(AssetCache.lifetimeMillis(headers("Date", "Tue, 14 Nov 2023 22:13:20 GMT",
+                "Last-Modified", "Tue, 14 Nov 2023 20:33:20 GMT"), now), 600_000, "A tenth of the age");
+        Assert.assertEquals(AssetCache.lifetimeMillis(headers("Expires", "0"), now), 0);
+        Assert.assertEquals(AssetCache.lifetimeMillis(headers("Cache-Control", "no-cache", "ETag", "\"a\""), now), 0);
+        Assert.assertEquals(AssetCache.lifetimeMillis(headers("Cache-Control", "private, max-age=60"), now), -1);
+        Assert.assertEquals(AssetCache.lifetimeMillis(headers("Cache-Control", "max-age=60", "Set-Cookie", "a=b"), now), -1);
+        Assert.assertEquals(AssetCache.lifetimeMillis(headers("Cache-Control", "max-age=60", "Vary", "Cookie"), now), -1);
+        Assert.assertEquals(AssetCache.lifetimeMillis(headers("Cache-Control", "max-age=60", "Vary", "Accept-Encoding"), now), 60_000);
+        Assert.assertEquals(AssetCache.lifetimeMillis(headers("Content-Type", "text/html"), now), -1);
+    }
+
+    private static Map<String, List<String>> headers(String... namesAndValues) {
+        Map<String, List<String>> headers = new HashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            headers.put(namesAndValues[i], Arrays.asList(namesAndValues[i + 1]));
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,115 @@
+package utils.replay;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import utils.LocalHttpApp;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StandInServerTest {
+
+    private LocalHttpApp application;
+    private String applicationOrigin;
+    private final AtomicInteger polls = new AtomicInteger();
+    private Path directory;
+
+    @BeforeMethod
+    public void startApplication() throws IOException {
+        application = new LocalHttpApp();
+        applicationOrigin = application.origin();
+        application.route("/app/login", http -> respond(http, 200,
+                "<a href='" + applicationOrigin + "/app/help'>Help</a>"));
+        application.route("/app/start", http -> {
+            http.getResponseHeaders().add("Location", applicationOrigin + "/app/login");
+            http.getResponseHeaders().add("Set-Cookie", "JSESSIONID=abc; Domain=localhost; Path=/; Secure; HttpOnly");
+            respond(http, 302, "");
+        });
+        application.route("/app/status", http -> respond(http, 200, "poll " + polls.incrementAndGet()));
+        application.start();
+        directory = Files.createTempDirectory("recording");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void stopApplication() {
+        if (application != null) {
+            application.stop();
+        }
+    }
+
+    private static void respond(HttpExchange http, int status, String body) throws IOException {
+        LocalHttpApp.respond(http, status, "text/html; charset=UTF-8", body);
+    }
+
+    private static HttpURLConnection get(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setInstanceFollowRedirects(false);
+        return connection;
+    }
+
+    private StandInServer record() throws IOException {
+        StandInServer recorder = new StandInServer(StandInServer.Mode.RECORD, applicationOrigin + "/app/start",
+                directory, 0, Collections.singletonList("ts"));
+        recorder.start(0);
+        return recorder;
+    }
+
+    @Test(description = "Verify a recorded run replays identically with the application offline")
+    public void testRecordThenReplayOffline() throws IOException {
+        StandInServer recorder = record();
+        String local = recorder.getBaseUrl().replace("/app/start", "");
+        HttpURLConnection start = get(recorder.getBaseUrl());
+        Assert.assertEquals(start.getResponseCode(), 302);
+        Assert.assertEquals(start.getHeaderField("Location"), local + "/app/login");
+        Assert.assertEquals(start.getHeaderField("Set-Cookie"), "JSESSIONID=abc; Path=/; HttpOnly");
+        Assert.assertEquals(LocalHttpApp.body(get(local + "/app/login")), "<a href='" + local + "/app/help'>Help</a>");
+        recorder.stop();
+        application.stop();
+        application = null;
+
+        StandInServer replayer = new StandInServer(StandInServer.Mode.REPLAY, "http://unused/app/start",
+                directory, 0, Collections.emptyList());
+        replayer.start(0);
+        try {
+            String replayed = replayer.getBaseUrl().replace("/app/start", "");
+            Assert.assertNotEquals(replayed, local, "Replay should run on a new port");
+            HttpURLConnection replayedStart = get(replayer.getBaseUrl());
+            Assert.assertEquals(replayedStart.getResponseCode(), 302);
+            Assert.assertEquals(replayedStart.getHeaderField("Location"), replayed + "/app/login");
+            Assert.assertEquals(LocalHttpApp.body(get(replayed + "/app/login")), "<a href='" + replayed + "/app/help'>Help</a>");
+            Assert.assertEquals(get(replayed + "/app/unknown").getResponseCode(), 404);
+        } finally {
+            replayer.stop();
+        }
+    }
+
+    @Test(description = "Verify repeated requests replay in recorded order and ignored parameters do not affect matching")
+    public void testRepeatedRequestsReplayInOrder() throws IOException {
+        StandInServer recorder = record();
+        String local = recorder.getBaseUrl().replace("/app/start", "");
+        Assert.assertEquals(LocalHttpApp.body(get(local + "/app/status?ts=1")), "poll 1");
+        Assert.assertEquals(LocalHttpApp.body(get(local + "/app/status?ts=2")), "poll 2");
+        recorder.stop();
+
+        StandInServer replayer = new StandInServer(StandInServer.Mode.REPLAY, "http://unused/app/start",
+                directory, 0, Collections.singletonList("ts"));
+        replayer.start(0);
+        try {
+            String replayed = replayer.getBaseUrl().replace("/app/start", "");
+            Assert.assertEquals(LocalHttpApp.body(get(replayed + "/app/status?ts=99")), "poll 1");
+            Assert.assertEquals(LocalHttpApp.body(get(replayed + "/app/status?ts=100")), "poll 2");
+            Assert.assertEquals(LocalHttpApp.body(get(replayed + "/app/status")), "poll 2", "The last response should repeat");
+            Assert.assertEquals(polls.get(), 2, "Replay should not reach the application");
+        } finally {
+            replayer.stop();
+        }
+    }
+}
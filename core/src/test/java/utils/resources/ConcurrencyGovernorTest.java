@@ -0,0 +1,40 @@
+package utils.resources;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ConcurrencyGovernorTest {
+
+    // 1 to 8 sessions, load limits 1.0 / 0.7 per core, 1024 MB reserve, 500 MB per unmeasured session
+    private final GovernorPolicy policy = new GovernorPolicy(1, 8, 1.0, 0.7, 1024, 500);
+
+    @Test(description = "Verify the limit is halved when available memory drops below half the reserve")
+    public void testCriticalMemoryHalvesLimit() {
+        Assert.assertEquals(policy.next(6, 0.2, 400, 3000, 6, 2), 3);
+        Assert.assertTrue(policy.reason().startsWith("memory critical"));
+        Assert.assertEquals(policy.next(1, 0.2, 400, 3000, 1, 0), 1, "Limit should not drop below the minimum");
+    }
+
+    @Test(description = "Verify the limit drops by one under high load or low memory")
+    public void testPressureLowersLimit() {
+        Assert.assertEquals(policy.next(4, 1.5, 8000, 2000, 4, 0), 3);
+        Assert.assertTrue(policy.reason().startsWith("load"));
+        Assert.assertEquals(policy.next(4, 0.2, 900, 2000, 4, 0), 3);
+        Assert.assertTrue(policy.reason().startsWith("memory low"));
+    }
+
+    @Test(description = "Verify the limit rises by one only when sessions wait and there is room for another")
+    public void testHeadroomRaisesLimit() {
+        Assert.assertEquals(policy.next(4, 0.3, 8000, 2000, 4, 1), 5);
+        Assert.assertEquals(policy.next(4, 0.3, 8000, 2000, 4, 0), 4, "Nobody waiting");
+        Assert.assertEquals(policy.next(4, 0.8, 8000, 2000, 4, 1), 4, "Load between the limits");
+        Assert.assertEquals(policy.next(4, 0.3, 1200, 2000, 4, 1), 4, "Another ~500 MB session would eat the reserve");
+        Assert.assertEquals(policy.next(8, 0.3, 8000, 2000, 8, 1), 8, "Limit should not exceed the maximum");
+    }
+
+    @Test(description = "Verify unknown metrics do not block raising the limit")
+    public void testUnknownMetrics() {
+        Assert.assertEquals(policy.next(2, -1, -1, -1, 2, 3), 3);
+        Assert.assertEquals(policy.next(2, -1, -1, -1, 1, 0), 2);
+    }
+}
@@ -0,0 +1,134 @@
+package utils.resources;
+
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+public class ProcessReaperTest {
+
+    @BeforeMethod
+    public void requireProcFs() {
+        if (!ProcessTable.isSupported()) {
+            throw new SkipException("Process tracking needs /proc");
+        }
+    }
+
+    /**
+     * Starts a stand-in for a driver: a shell with a --port argument that starts a long-running child
+     */
+    private static Process startFakeDriver(int port) throws Exception {
+        Process driver = new ProcessBuilder("sh", "-c", "sleep 300 & wait", "--port=" + port).start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (ProcessTable.read().treeOf(pidOf(port)).size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        return driver;
+    }
+
+    private static int pidOf(int port) {
+        for (ProcessTable.Entry entry : ProcessTable.read().all()) {
+            if (ProcessTable.commandLine(entry.pid).endsWith("--port=" + port)) {
+                return entry.pid;
+            }
+        }
+        return -1;
+    }
+
+    @Test(description = "Verify processes that outlive their driver are killed and counted as leaked")
+    public void testSurvivorsAreKilledAfterQuit() throws Exception {
+        int port = 40000 + (int) (System.nanoTime() % 10000);
+        Process driver = startFakeDriver(port);
+        ProcessReaper.SessionProcesses session = ProcessReaper.track(port);
+        Assert.assertNotNull(session, "Driver process should be found by its --port argument");
+        ProcessTable.Entry child = null;
+        for (ProcessTable.Entry entry : session.known()) {
+            if ("sleep".equals(entry.name)) {
+                child = entry;
+            }
+        }
+        Assert.assertNotNull(child, "The driver's child should be tracked");
+
+        // "quit" kills only the driver; its child is left running under init
+        driver.destroyForcibly().waitFor(5, TimeUnit.SECONDS);
+        Assert.assertTrue(ProcessTable.read().isAlive(child.pid, child.startTicks));
+
+        Assert.assertEquals(session.reap(), 1);
+        Thread.sleep(200);
+        // the killed child may linger as a zombie until init reaps it
+        Assert.assertTrue(session.alive(ProcessTable.read()).isEmpty());
+        Assert.assertTrue(ProcessReaper.summary().contains("leaked process(es) killed after quit"));
+    }
+
+    @Test(description = "Verify resident memory is read in kilobytes whatever the kernel's page size")
+    public void testResidentMemoryMatchesVmRss() throws Exception {
+        long vmRssKb = 0;
+        for (String line : Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.UTF_8)) {
+            if (line.startsWith("VmRSS:")) {
+                vmRssKb = Long.parseLong(line.replaceAll("[^0-9]", ""));
+            }
+        }
+        long rssKb = ProcessTable.read().get(Integer.parseInt(ResourceAllocator.processId())).rssKb;
+        // both are read a moment apart from a running JVM, so allow for some growth or collection in between
+        Assert.assertTrue(Math.abs(rssKb - vmRssKb) < vmRssKb / 4, rssKb + " KB vs VmRSS " + vmRssKb + " KB");
+    }
+
+    @Test(description = "Verify processes listed in the registry of a dead JVM are killed, and the registry removed")
+    public void testOrphansOfDeadJvmAreKilled() throws Exception {
+        Process orphan = new ProcessBuilder("sleep", "300").start();
+        ProcessTable.Entry entry = null;
+        for (ProcessTable.Entry candidate : ProcessTable.read().all()) {
+            if ("sleep".equals(candidate.name) && ProcessTable.commandLine(candidate.pid).equals("sleep 300")
+                    && candidate.ppid == Integer.parseInt(ResourceAllocator.processId())) {
+                entry = candidate;
+            }
+        }
+        Assert.assertNotNull(entry);
+
+        Path registry = Files.createTempDirectory("process-registry");
+        // pid 1 never has this start time, so the owning JVM counts as gone
+        Path file = registry.resolve("1-999999999.pids");
+        Files.write(file, Collections.singletonList(entry.pid + " " + entry.startTicks + " sleep"), StandardCharsets.UTF_8);
+
+        ProcessReaper.reapOrphans(registry, Collections.emptyList());
+
+        Assert.assertTrue(orphan.waitFor(5, TimeUnit.SECONDS), "Orphan should have been killed");
+        Assert.assertFalse(Files.exists(file));
+    }
+
+    @Test(description = "Verify unregistered orphans are left alone unless killing them by name is asked for")
+    public void testUnregisteredOrphansNeedOptIn() throws Exception {
+        // the shell exits at once, leaving its sleep to init
+        String marker = "sleep " + (300 + (int) (System.nanoTime() % 1000));
+        new ProcessBuilder("sh", "-c", marker + " > /dev/null 2>&1 &").start().waitFor(5, TimeUnit.SECONDS);
+        ProcessTable.Entry orphan = null;
+        for (ProcessTable.Entry candidate : ProcessTable.read().all()) {
+            if (ProcessTable.commandLine(candidate.pid).equals(marker)) {
+                orphan = candidate;
+            }
+        }
+        Assert.assertNotNull(orphan);
+        if (orphan.ppid != 1) {
+            ProcessTable.kill(orphan.pid);
+            throw new SkipException("Orphans are adopted by a subreaper here, not pid 1");
+        }
+        Path emptyRegistry = Files.createTempDirectory("process-registry");
+
+        ProcessReaper.reapOrphans(emptyRegistry, Collections.emptyList());
+        Assert.assertTrue(ProcessTable.read().isAlive(orphan.pid, orphan.startTicks), "Only registered processes are reaped by default");
+
+        ProcessReaper.reapOrphans(emptyRegistry, Collections.singletonList("sleep"));
+        Thread.sleep(200);
+        // the killed orphan may linger as a zombie until init reaps it
+        ProcessTable.Entry after = ProcessTable.read().get(orphan.pid);
+        Assert.assertTrue(after == null || after.startTicks != orphan.startTicks || after.isZombie(),
+                "Named orphans are reaped when asked for");
+    }
+}
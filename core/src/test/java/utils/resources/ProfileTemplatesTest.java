@@ -0,0 +1,56 @@
+package utils.resources;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class ProfileTemplatesTest {
+
+    @Test(description = "Verify a clone has the template's files but not its lock files or ready marker")
+    public void testCloneSkipsLockFiles() throws IOException {
+        Path template = Files.createTempDirectory("template");
+        Files.createDirectories(template.resolve("Default/Cache/Cache_Data"));
+        Files.write(template.resolve("Default/Cache/Cache_Data/data_1"), "ext-all.js".getBytes(StandardCharsets.UTF_8));
+        Files.write(template.resolve("First Run"), new byte[0]);
+        Files.write(template.resolve("SingletonLock"), new byte[0]);
+        Files.write(template.resolve(".template-ready"), new byte[0]);
+        Path clone = Files.createTempDirectory("clone");
+        try {
+            ProfileTemplates.copy(template, clone);
+            Assert.assertEquals(new String(Files.readAllBytes(clone.resolve("Default/Cache/Cache_Data/data_1")), StandardCharsets.UTF_8),
+                    "ext-all.js");
+            Assert.assertTrue(Files.exists(clone.resolve("First Run")), "First-run sentinel should be cloned");
+            Assert.assertFalse(Files.exists(clone.resolve("SingletonLock")), "Lock file should not be cloned");
+            Assert.assertFalse(Files.exists(clone.resolve(".template-ready")), "Ready marker should not be cloned");
+            Files.write(clone.resolve("Default/Cache/Cache_Data/data_1"), "changed".getBytes(StandardCharsets.UTF_8));
+            Assert.assertEquals(new String(Files.readAllBytes(template.resolve("Default/Cache/Cache_Data/data_1")), StandardCharsets.UTF_8),
+                    "ext-all.js", "Writing to a clone should not change the template");
+        } finally {
+            ResourceAllocator.deleteRecursively(template);
+            ResourceAllocator.deleteRecursively(clone);
+        }
+    }
+
+    @Test(description = "Verify preferences are merged into the Preferences file, keeping what the browser wrote")
+    public void testMergePreferences() throws IOException {
+        Path preferences = Files.createTempDirectory("profile").resolve("Default/Preferences");
+        Files.createDirectories(preferences.getParent());
+        Files.write(preferences, "{\"profile\":{\"name\":\"Person 1\"},\"translate\":true}".getBytes(StandardCharsets.UTF_8));
+        ProfileTemplates.mergePreferences(preferences, Arrays.asList(
+                "profile.default_content_setting_values.notifications=2", "translate.enabled=false", "homepage=about:blank"));
+        JsonObject merged = JsonParser.parseString(new String(Files.readAllBytes(preferences), StandardCharsets.UTF_8)).getAsJsonObject();
+        Assert.assertEquals(merged.getAsJsonObject("profile").get("name").getAsString(), "Person 1");
+        Assert.assertEquals(merged.getAsJsonObject("profile").getAsJsonObject("default_content_setting_values")
+                .get("notifications").getAsInt(), 2);
+        Assert.assertFalse(merged.getAsJsonObject("translate").get("enabled").getAsBoolean());
+        Assert.assertEquals(merged.get("homepage").getAsString(), "about:blank");
+        ResourceAllocator.deleteRecursively(preferences.getParent().getParent());
+    }
+}
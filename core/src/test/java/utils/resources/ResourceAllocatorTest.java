@@ -0,0 +1,42 @@
+package utils.resources;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import utils.ConfigManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ResourceAllocatorTest {
+
+    @Test(description = "Verify artifact paths of the shared root and of every worker are listed for retention")
+    public void testAllArtifactPathsCoverEveryWorker() throws IOException {
+        Path root = Files.createTempDirectory("artifacts");
+        Files.createDirectories(root.resolve("workers/fork-1"));
+        Files.createDirectories(root.resolve("workers/shard-2"));
+        String previousRoot = System.getProperty("artifacts.root");
+        System.setProperty("artifacts.root", root.toString());
+        ConfigManager.reload();
+        try {
+            Assert.assertEquals(ResourceAllocator.allArtifactPaths("screenshots").stream().sorted().toArray(), Arrays.asList(
+                    root.resolve("screenshots"),
+                    root.resolve("workers/fork-1/screenshots"),
+                    root.resolve("workers/shard-2/screenshots")).toArray());
+            Path absolute = Paths.get("/var/screenshots");
+            Assert.assertEquals(ResourceAllocator.allArtifactPaths(absolute.toString()), Collections.singletonList(absolute),
+                    "An absolute path is shared by all workers");
+        } finally {
+            if (previousRoot != null) {
+                System.setProperty("artifacts.root", previousRoot);
+            } else {
+                System.clearProperty("artifacts.root");
+            }
+            ConfigManager.reload();
+            ResourceAllocator.deleteRecursively(root);
+        }
+    }
+}
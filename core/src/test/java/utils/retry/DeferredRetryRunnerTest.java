@@ -0,0 +1,180 @@
+package utils.retry;
+
+import org.openqa.selenium.TimeoutException;
+import org.testng.Assert;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestNGListener;
+import org.testng.ITestResult;
+import org.testng.TestNG;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+import utils.ConfigManager;
+import utils.scheduling.DurationScheduler;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DeferredRetryRunnerTest {
+
+    private static final AtomicInteger flakyRuns = new AtomicInteger();
+    private static final AtomicInteger brokenRuns = new AtomicInteger();
+
+    private String previousHistoryDirectory;
+
+    // Suite members run by the tests below; the fixture group keeps Gradle from running them directly
+    static class FlakyOnce {
+        @Test(groups = "fixture")
+        public void timesOutOnce() {
+            if (flakyRuns.incrementAndGet() == 1) {
+                throw new TimeoutException("Expected condition failed");
+            }
+        }
+    }
+
+    static class AlwaysTimesOut {
+        @Test(groups = "fixture")
+        public void timesOut() {
+            brokenRuns.incrementAndGet();
+            throw new TimeoutException("Expected condition failed");
+        }
+    }
+
+    static class FailsAssertion {
+        @Test(groups = "fixture")
+        public void fails() {
+            Assert.fail("wrong value");
+        }
+    }
+
+    @BeforeClass
+    public void isolateHistory() throws Exception {
+        previousHistoryDirectory = System.getProperty("history.directory");
+        System.setProperty("history.directory", Files.createTempDirectory("retry-history").toString());
+        ConfigManager.reload();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void restoreHistory() {
+        if (previousHistoryDirectory != null) {
+            System.setProperty("history.directory", previousHistoryDirectory);
+        } else {
+            System.clearProperty("history.directory");
+        }
+        ConfigManager.reload();
+    }
+
+    @BeforeMethod
+    public void resetCounters() {
+        flakyRuns.set(0);
+        brokenRuns.set(0);
+    }
+
+    private static XmlSuite suite(String name, Class<?>... testClasses) {
+        XmlSuite suite = new XmlSuite();
+        suite.setName(name);
+        suite.setParallel(XmlSuite.ParallelMode.TESTS);
+        suite.setThreadCount(2);
+        suite.setListeners(Arrays.asList(DurationScheduler.class.getName(),
+                RetryAnnotationTransformer.class.getName(), DeferredRetryRunner.class.getName()));
+        for (Class<?> testClass : testClasses) {
+            XmlTest test = new XmlTest(suite);
+            test.setName(testClass.getSimpleName() + "Tests");
+            test.setXmlClasses(Collections.singletonList(new XmlClass(testClass)));
+        }
+        return suite;
+    }
+
+    private static TestNG run(XmlSuite suite, ResultCollector collector) {
+        TestNG testng = new TestNG();
+        testng.setXmlSuites(Collections.singletonList(suite));
+        testng.setUseDefaultListeners(false);
+        testng.setVerbose(0);
+        testng.addListener((ITestNGListener) collector);
+        testng.run();
+        return testng;
+    }
+
+    @Test(description = "Verify a transient failure that passes on retry leaves a passing run")
+    public void testRecoveredFailureDoesNotFailTheRun() {
+        ResultCollector collector = new ResultCollector();
+        TestNG testng = run(suite("RecoveredSuite", FlakyOnce.class), collector);
+
+        Assert.assertEquals(flakyRuns.get(), 2, "The failure should have been retried once");
+        Assert.assertEquals(collector.skipped, Collections.singletonList("timesOutOnce"),
+                "The first attempt is reported as skipped, not failed");
+        Assert.assertEquals(collector.passed, Collections.singletonList("retry"));
+        Assert.assertTrue(collector.failed.isEmpty(), collector.failed.toString());
+        Assert.assertEquals(testng.getStatus(), 0, "The recovered test's skip is dropped from the run");
+    }
+
+    @Test(description = "Verify a test that keeps failing fails the retry block after test.retry.count attempts")
+    public void testPersistentFailureFailsTheRun() {
+        ResultCollector collector = new ResultCollector();
+        TestNG testng = run(suite("BrokenSuite", AlwaysTimesOut.class), collector);
+
+        Assert.assertEquals(brokenRuns.get(), 1 + RetryPolicy.maxRetries());
+        Assert.assertEquals(collector.failed, Collections.singletonList("retry"));
+        Assert.assertTrue(testng.hasFailure(), "The run should fail");
+    }
+
+    @Test(description = "Verify failures that are not transient fail immediately and are not retried")
+    public void testAssertionFailureIsNotDeferred() {
+        ResultCollector collector = new ResultCollector();
+        TestNG testng = run(suite("AssertionSuite", FailsAssertion.class), collector);
+
+        Assert.assertEquals(collector.failed, Collections.singletonList("fails"));
+        Assert.assertTrue(collector.skipped.isEmpty(), collector.skipped.toString());
+        Assert.assertTrue(testng.hasFailure());
+    }
+
+    /**
+     * Collects the method names of the main run's outcomes
+     */
+    public static class ResultCollector implements ITestListener {
+
+        final List<String> passed = Collections.synchronizedList(new ArrayList<>());
+        final List<String> failed = Collections.synchronizedList(new ArrayList<>());
+        final List<String> skipped = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void onTestSuccess(ITestResult result) {
+            passed.add(result.getMethod().getMethodName());
+        }
+
+        @Override
+        public void onTestFailure(ITestResult result) {
+            failed.add(result.getMethod().getMethodName());
+        }
+
+        @Override
+        public void onTestSkipped(ITestResult result) {
+            skipped.add(result.getMethod().getMethodName());
+        }
+
+        @Override
+        public void onTestStart(ITestResult result) {
+        }
+
+        @Override
+        public void onTestFailedButWithinSuccessPercentage(ITestResult result) {
+        }
+
+        @Override
+        public void onStart(ITestContext context) {
+        }
+
+        @Override
+        public void onFinish(ITestContext context) {
+        }
+    }
+}
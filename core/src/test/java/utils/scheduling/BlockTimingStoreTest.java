@@ -0,0 +1,28 @@
+package utils.scheduling;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class BlockTimingStoreTest {
+
+    @Test(description = "Verify compaction keeps the most recent samples of each block, oldest first")
+    public void testCompactKeepsLatestSamplesPerBlock() throws Exception {
+        BlockTimingStore store = new BlockTimingStore(Files.createTempDirectory("block-timings"));
+        for (long millis = 1; millis <= 5; millis++) {
+            store.append("Suite", "LoginTests", millis * 1000);
+        }
+        store.append("Suite", "ProfileTests", 7000);
+
+        store.compact("Suite", 3);
+
+        Map<String, List<Long>> durations = store.load("Suite");
+        Assert.assertEquals(durations.get("LoginTests"), Arrays.asList(3000L, 4000L, 5000L));
+        Assert.assertEquals(durations.get("ProfileTests"), Collections.singletonList(7000L));
+    }
+}
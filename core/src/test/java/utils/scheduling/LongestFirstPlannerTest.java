@@ -0,0 +1,51 @@
+package utils.scheduling;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class LongestFirstPlannerTest {
+
+    private static Map<String, Long> estimates(Object... nameAndMillis) {
+        Map<String, Long> estimates = new LinkedHashMap<>();
+        for (int i = 0; i < nameAndMillis.length; i += 2) {
+            estimates.put((String) nameAndMillis[i], ((Number) nameAndMillis[i + 1]).longValue());
+        }
+        return estimates;
+    }
+
+    @Test(description = "Verify items are ordered longest first with declaration order breaking ties")
+    public void testLongestFirstOrder() {
+        Map<String, Long> estimates = estimates("LoginTests", 300, "ProfileCreationTests", 1200,
+                "ScreenshotDemoTests", 300, "PageFactoryDemoTests", 700);
+
+        Assert.assertEquals(LongestFirstPlanner.longestFirst(estimates),
+                Arrays.asList("ProfileCreationTests", "PageFactoryDemoTests", "LoginTests", "ScreenshotDemoTests"));
+    }
+
+    @Test(description = "Verify the slow item gets a worker to itself and the makespan is the busiest worker")
+    public void testPlanBalancesWorkers() {
+        Map<String, Long> estimates = estimates("A", 300, "B", 1200, "C", 700, "D", 400);
+
+        LongestFirstPlanner.Plan plan = LongestFirstPlanner.plan(estimates, 2);
+        Assert.assertEquals(plan.itemsOf(0), Arrays.asList("B"));
+        Assert.assertEquals(plan.itemsOf(1), Arrays.asList("C", "D", "A"));
+        Assert.assertEquals(plan.getMakespan(), 1400L);
+    }
+
+    @Test(description = "Verify the same estimates always produce the same plan")
+    public void testPlanIsDeterministic() {
+        Map<String, Long> estimates = estimates("A", 500, "B", 500, "C", 500, "D", 500, "E", 500);
+
+        LongestFirstPlanner.Plan first = LongestFirstPlanner.plan(estimates, 3);
+        LongestFirstPlanner.Plan second = LongestFirstPlanner.plan(estimates, 3);
+        for (int worker = 0; worker < 3; worker++) {
+            Assert.assertEquals(first.itemsOf(worker), second.itemsOf(worker));
+        }
+        Assert.assertEquals(first.itemsOf(0), Arrays.asList("A", "D"));
+        Assert.assertEquals(first.getMakespan(), 1000L);
+    }
+}
@@ -0,0 +1,48 @@
+package utils.scheduling;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ShardPlannerTest {
+
+    private static Map<String, Long> suiteEstimates() {
+        Map<String, Long> estimates = new LinkedHashMap<>();
+        estimates.put("LoginTests", 40_000L);
+        estimates.put("ProfileCreationTests", 180_000L);
+        estimates.put("ScreenshotDemoTests", 60_000L);
+        estimates.put("PageFactoryDemoTests", 90_000L);
+        return estimates;
+    }
+
+    @Test(description = "Verify shards are balanced by duration")
+    public void testShardsAreBalanced() {
+        Map<String, Integer> shards = ShardPlanner.assign(suiteEstimates(), 2);
+
+        Assert.assertEquals(shards.get("ProfileCreationTests"), Integer.valueOf(0));
+        Assert.assertEquals(shards.get("PageFactoryDemoTests"), Integer.valueOf(1));
+        Assert.assertEquals(shards.get("ScreenshotDemoTests"), Integer.valueOf(1));
+        Assert.assertEquals(shards.get("LoginTests"), Integer.valueOf(1));
+    }
+
+    @Test(description = "Verify the same estimates always give the same shards")
+    public void testAssignmentIsStable() {
+        Assert.assertEquals(ShardPlanner.assign(suiteEstimates(), 3), ShardPlanner.assign(suiteEstimates(), 3));
+    }
+
+    @Test(description = "Verify a written plan reads back unchanged")
+    public void testPlanRoundTrip() throws Exception {
+        Map<String, Integer> shards = ShardPlanner.assign(suiteEstimates(), 3);
+        Path file = Files.createTempFile("shard-plan", ".properties");
+        try {
+            ShardPlanner.write(shards, file);
+            Assert.assertEquals(ShardPlanner.read(file), shards);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package utils.throughput;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import utils.tracing.PhaseTimer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ThroughputReportTest {
+
+    private static ThroughputReport.Run run(int number, long wallMillis, double launchMillis, double screenshotMillis) {
+        Map<String, PhaseTimer.PhaseTotal> phases = new LinkedHashMap<>();
+        phases.put("BROWSER_LAUNCH", new PhaseTimer.PhaseTotal(launchMillis, 2));
+        phases.put("SCREENSHOTS", new PhaseTimer.PhaseTotal(screenshotMillis, 10));
+        return new ThroughputReport.Run(number, 10, 0, 0, wallMillis, phases);
+    }
+
+    @Test(description = "Verify tests/min and per-test phase times are the medians of the runs")
+    public void testMedians() {
+        ThroughputReport report = new ThroughputReport("suite", "2024-01-15T10:30");
+        report.add(run(1, 60_000, 4_000, 1_000));
+        report.add(run(2, 120_000, 40_000, 3_000));
+        report.add(run(3, 30_000, 5_000, 2_000));
+        Assert.assertEquals(report.getTestsPerMinute(), 10.0, 0.001, "Median of 10, 5 and 20 tests/min");
+        Assert.assertEquals(report.getPhaseMillisPerTest("BROWSER_LAUNCH"), 500.0, 0.001, "The slow run should not decide");
+        Assert.assertEquals(report.getPhaseMillisPerTest("SCREENSHOTS"), 200.0, 0.001);
+        Assert.assertEquals(report.getPhaseMillisPerTest("LOGIN"), 0.0, 0.001, "A phase never entered takes no time");
+    }
+
+    @Test(description = "Verify a saved report serves as baseline and only slowdowns beyond both thresholds are regressions")
+    public void testRegressionsAgainstSavedBaseline() throws IOException {
+        ThroughputReport before = new ThroughputReport("suite", "2024-01-15T10:30");
+        before.add(run(1, 60_000, 5_000, 1_000));
+        Path file = Files.createTempDirectory("throughput").resolve("baseline.json");
+        before.save(file);
+        ThroughputReport baseline = ThroughputReport.load(file);
+
+        ThroughputReport unchanged = new ThroughputReport("suite", "2024-01-16T10:30");
+        unchanged.add(run(1, 63_000, 5_400, 1_400));
+        Assert.assertEquals(unchanged.regressionsAgainst(baseline, 15, 50), Collections.<String>emptyList(),
+                "5% slower overall and +40 ms/test screenshots are within the thresholds");
+
+        ThroughputReport slower = new ThroughputReport("suite", "2024-01-17T10:30");
+        slower.add(run(1, 80_000, 5_000, 2_000));
+        List<String> regressions = slower.regressionsAgainst(baseline, 15, 50);
+        Assert.assertEquals(regressions.size(), 2, regressions.toString());
+        Assert.assertTrue(regressions.get(0).startsWith("Throughput dropped from 10.0 to 7.5 tests/min"), regressions.get(0));
+        Assert.assertTrue(regressions.get(1).startsWith("SCREENSHOTS rose from 100 to 200 ms/test"), regressions.get(1));
+    }
+
+    @Test(description = "Verify a regressed report does not become the baseline, so a rerun at the same speed still fails")
+    public void testRegressedReportIsNotTheNextBaseline() throws IOException {
+        Path reports = Files.createTempDirectory("throughput-reports");
+        ThroughputReport first = new ThroughputReport("suite", "2024-01-15T10:30");
+        first.add(run(1, 60_000, 5_000, 1_000));
+        Assert.assertEquals(ThroughputHarness.saveAndCompare(first, reports, "2024-01-15_10-30-00"), 0);
+
+        ThroughputReport regressed = new ThroughputReport("suite", "2024-01-16T10:30");
+        regressed.add(run(1, 80_000, 5_000, 1_000));
+        Assert.assertEquals(ThroughputHarness.saveAndCompare(regressed, reports, "2024-01-16_10-30-00"), 1);
+        Assert.assertTrue(Files.exists(reports.resolve("regressed").resolve("throughput_suite_2024-01-16_10-30-00.json")),
+                "The regressed report is kept for inspection");
+
+        ThroughputReport rerun = new ThroughputReport("suite", "2024-01-16T11:30");
+        rerun.add(run(1, 80_000, 5_000, 1_000));
+        Assert.assertEquals(ThroughputHarness.saveAndCompare(rerun, reports, "2024-01-16_11-30-00"), 1,
+                "The rerun is compared with the first report, not the regressed one");
+        Assert.assertFalse(Files.exists(reports.resolve("throughput_suite_2024-01-16_11-30-00.json")));
+    }
+}
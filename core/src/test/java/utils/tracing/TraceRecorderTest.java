@@ -0,0 +1,89 @@
+package utils.tracing;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class TraceRecorderTest {
+
+    private static JsonObject write(TraceRecorder.TraceBuffer buffer) throws IOException {
+        StringWriter json = new StringWriter();
+        buffer.writeJson(json);
+        return JsonParser.parseString(json.toString()).getAsJsonObject();
+    }
+
+    private static List<JsonObject> eventsOfPhase(JsonObject trace, String phase) {
+        List<JsonObject> events = new ArrayList<>();
+        for (JsonElement event : trace.getAsJsonArray("traceEvents")) {
+            if (phase.equals(event.getAsJsonObject().get("ph").getAsString())) {
+                events.add(event.getAsJsonObject());
+            }
+        }
+        return events;
+    }
+
+    @Test(description = "Verify spans are exported as complete trace events with thread names and escaped arguments")
+    public void testTraceEventFields() throws IOException {
+        TraceRecorder.TraceBuffer buffer = new TraceRecorder.TraceBuffer(100);
+        long start = System.nanoTime();
+        buffer.add("webdriver", "driver.findElement", start, start + TimeUnit.MILLISECONDS.toNanos(3),
+                Collections.singletonMap("by", "By.cssSelector: a[title=\"Log in\"]"));
+
+        JsonObject trace = write(buffer);
+        Assert.assertEquals(trace.get("displayTimeUnit").getAsString(), "ms");
+
+        List<JsonObject> threads = eventsOfPhase(trace, "M");
+        Assert.assertEquals(threads.size(), 1);
+        Assert.assertEquals(threads.get(0).get("name").getAsString(), "thread_name");
+        Assert.assertEquals(threads.get(0).get("tid").getAsLong(), Thread.currentThread().getId());
+        Assert.assertEquals(threads.get(0).getAsJsonObject("args").get("name").getAsString(), Thread.currentThread().getName());
+
+        List<JsonObject> spans = eventsOfPhase(trace, "X");
+        Assert.assertEquals(spans.size(), 1);
+        JsonObject span = spans.get(0);
+        Assert.assertEquals(span.get("cat").getAsString(), "webdriver");
+        Assert.assertEquals(span.get("name").getAsString(), "driver.findElement");
+        Assert.assertEquals(span.get("pid").getAsLong(), threads.get(0).get("pid").getAsLong());
+        Assert.assertEquals(span.get("tid").getAsLong(), Thread.currentThread().getId());
+        Assert.assertEquals(span.get("dur").getAsLong(), 3000L, "Durations are in microseconds");
+        long nowMicros = System.currentTimeMillis() * 1000L;
+        Assert.assertTrue(Math.abs(nowMicros - span.get("ts").getAsLong()) < TimeUnit.MINUTES.toMicros(1),
+                "Timestamps are epoch microseconds");
+        Assert.assertEquals(span.getAsJsonObject("args").get("by").getAsString(), "By.cssSelector: a[title=\"Log in\"]");
+    }
+
+    @Test(description = "Verify events beyond trace.max.events are dropped and counted")
+    public void testMaxEventsCap() throws IOException {
+        TraceRecorder.TraceBuffer buffer = new TraceRecorder.TraceBuffer(2);
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            buffer.add("page", "action-" + i, start, start, null);
+        }
+
+        Assert.assertEquals(buffer.size(), 2);
+        Assert.assertEquals(buffer.dropped(), 3L);
+        List<JsonObject> spans = eventsOfPhase(write(buffer), "X");
+        Assert.assertEquals(spans.size(), 2);
+        Assert.assertEquals(spans.get(0).get("name").getAsString(), "action-0");
+        Assert.assertEquals(spans.get(1).get("name").getAsString(), "action-1");
+        Assert.assertFalse(spans.get(0).has("args"), "Spans without arguments have no args object");
+    }
+
+    @Test(description = "Verify disabled tracing hands out spans that record nothing")
+    public void testDisabledSpansAreNoOps() {
+        Assert.assertFalse(TraceRecorder.isEnabled(), "Unit tests run untraced");
+        try (TraceRecorder.Span span = TraceRecorder.begin("page", "click")) {
+            Assert.assertSame(span.arg("locator", "By.id: submit"), span);
+        }
+        Assert.assertNull(TraceRecorder.writeTrace(), "Nothing is written when tracing is disabled");
+    }
+}
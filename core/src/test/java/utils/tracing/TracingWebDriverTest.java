@@ -0,0 +1,90 @@
+package utils.tracing;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TracingWebDriverTest {
+
+    private static final byte[] SCREENSHOT = {1, 2, 3};
+
+    /**
+     * Driver without a browser that also takes screenshots and runs scripts, recording the script arguments it receives
+     */
+    private static final class StubDriver {
+
+        final List<Object> scriptArguments = Collections.synchronizedList(new ArrayList<>());
+        final WebDriver driver = (WebDriver) Proxy.newProxyInstance(WebDriver.class.getClassLoader(),
+                new Class<?>[]{WebDriver.class, TakesScreenshot.class, JavascriptExecutor.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "StubDriver";
+                        case "getScreenshotAs":
+                            return SCREENSHOT;
+                        case "executeScript":
+                            scriptArguments.addAll(Arrays.asList((Object[]) args[1]));
+                            return "done";
+                        case "getTitle":
+                            return "Stub page";
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private static WebElement element() {
+        return (WebElement) Proxy.newProxyInstance(WebElement.class.getClassLoader(), new Class<?>[]{WebElement.class},
+                (proxy, method, args) -> "equals".equals(method.getName()) ? proxy == args[0] : null);
+    }
+
+    @Test(description = "Verify the decorated driver can still be cast to TakesScreenshot and JavascriptExecutor")
+    public void testDecoratorKeepsDriverInterfaces() {
+        StubDriver stub = new StubDriver();
+        WebDriver traced = (WebDriver) TracingWebDriver.wrap(stub.driver, "driver");
+
+        Assert.assertNotSame(traced, stub.driver);
+        Assert.assertTrue(traced instanceof TakesScreenshot);
+        Assert.assertTrue(traced instanceof JavascriptExecutor);
+        Assert.assertEquals(((TakesScreenshot) traced).getScreenshotAs(OutputType.BYTES), SCREENSHOT);
+        Assert.assertEquals(traced.getTitle(), "Stub page");
+        Assert.assertSame(TracingWebDriver.unwrap(traced), stub.driver);
+        Assert.assertTrue(traced.equals(stub.driver), "The decorator equals the driver it wraps");
+        Assert.assertEquals(traced.hashCode(), stub.driver.hashCode());
+    }
+
+    @Test(description = "Verify decorated elements are unwrapped before they reach the real driver")
+    public void testScriptArgumentsAreUnwrapped() {
+        StubDriver stub = new StubDriver();
+        JavascriptExecutor traced = (JavascriptExecutor) TracingWebDriver.wrap(stub.driver, "driver");
+        WebElement element = element();
+        WebElement tracedElement = (WebElement) TracingWebDriver.wrap(element, "element");
+
+        Assert.assertEquals(traced.executeScript("arguments[0].click()", tracedElement, "plain"), "done");
+        Assert.assertSame(stub.scriptArguments.get(0), element, "The driver must receive its own element");
+        Assert.assertEquals(stub.scriptArguments.get(1), "plain");
+    }
+
+    @Test(description = "Verify wrapping is skipped when neither tracing nor wait profiling is enabled")
+    public void testWrapIfEnabledLeavesDriverAlone() {
+        StubDriver stub = new StubDriver();
+        Assert.assertFalse(TraceRecorder.isEnabled() || WaitProfiler.isEnabled(), "Unit tests run untraced");
+        Assert.assertSame(TracingWebDriver.wrapIfEnabled(stub.driver), stub.driver);
+        Assert.assertSame(TracingWebDriver.unwrap(stub.driver), stub.driver);
+        Assert.assertNull(TracingWebDriver.wrapIfEnabled(null));
+    }
+}
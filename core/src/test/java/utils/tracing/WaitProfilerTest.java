@@ -0,0 +1,48 @@
+package utils.tracing;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class WaitProfilerTest {
+
+    private static List<String> linesAbout(String caller) {
+        List<String> lines = new ArrayList<>();
+        for (String line : WaitProfiler.buildReport()) {
+            if (line.contains(caller)) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    @Test(description = "Verify the wait report ranks wait sites by total time and aggregates their waits")
+    public void testReportRanksWaitSitesByTotalTime() {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        WaitProfiler.record("RankedPage.openMenu", "waitForElementVisible", "visibilityOf", "By.id: menu",
+                second, 0L, false);
+        WaitProfiler.record("RankedPage.submit", "waitForElementClickable", "elementToBeClickable", "By.id: submit",
+                3 * second, second, true);
+        WaitProfiler.record("RankedPage.submit", "waitForElementClickable", "elementToBeClickable", "By.id: submit",
+                2 * second, 0L, false);
+
+        List<String> lines = linesAbout("RankedPage.");
+        Assert.assertEquals(lines.size(), 2, lines.toString());
+        Assert.assertTrue(lines.get(0).contains("RankedPage.submit \u2192 waitForElementClickable [elementToBeClickable]"),
+                lines.get(0));
+        Assert.assertTrue(lines.get(0).contains("(5.00s in 2 waits, max 3.00s, implicit 1.00s, 1 timeouts) [By.id: submit]"),
+                lines.get(0));
+        Assert.assertTrue(lines.get(1).contains("RankedPage.openMenu \u2192 waitForElementVisible [visibilityOf]"),
+                lines.get(1));
+        Assert.assertTrue(lines.get(1).contains("(1.00s in 1 waits, max 1.00s, implicit 0.00s, 0 timeouts)"), lines.get(1));
+        Assert.assertTrue(lines.get(0).contains("% of all wait time"), lines.get(0));
+
+        int submitRank = Integer.parseInt(lines.get(0).trim().split("\\.")[0]);
+        int menuRank = Integer.parseInt(lines.get(1).trim().split("\\.")[0]);
+        Assert.assertTrue(submitRank < menuRank, "The costlier wait site ranks first");
+        Assert.assertTrue(WaitProfiler.buildReport().get(0).startsWith("=== Wait profile:"));
+    }
+}
@@ -0,0 +1,42 @@
+package pages;
+
+import pages.http.HttpPage;
+import pages.http.HttpSession;
+import pages.locators.LoginPageLocators;
+import utils.ConfigManager;
+
+/**
+ * Login page fetched over HTTP without a browser, for checks on the served HTML
+ */
+public class HttpLoginPage implements LoginView {
+
+    private final HttpPage page;
+
+    public HttpLoginPage(HttpPage page) {
+        this.page = page;
+    }
+
+    /**
+     * Fetches the login page at app.base.url
+     * @param session HTTP session of the test
+     * @return Login page
+     */
+    public static HttpLoginPage open(HttpSession session) {
+        return new HttpLoginPage(session.open(ConfigManager.getBaseUrl()));
+    }
+
+    @Override
+    public boolean isLoginPageDisplayed() {
+        return page.isDisplayed(LoginPageLocators.USERNAME_FIELD) && page.isDisplayed(LoginPageLocators.PASSWORD_FIELD);
+    }
+
+    @Override
+    public boolean isErrorMessageAbsent() {
+        return !page.isDisplayed(LoginPageLocators.ERROR_MESSAGE);
+    }
+
+    @Override
+    public String getPageTitle() {
+        return page.getTitle();
+    }
+}
@@ -2,9 +2,11 @@ package pages;
 
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
+import pages.locators.LoginPageLocators;
 import utils.ConfigManager;
+import utils.tracing.PhaseTimer;
 
-public class LoginPage extends BasePage {
+public class LoginPage extends BasePage implements LoginView {
     
     // Locators
     private static final By USERNAME_FIELD = By.id("userName");
@@ -35,17 +37,26 @@ public class LoginPage extends BasePage {
     }
     
     public void login(String username, String password) {
-        waitForLoginPageToLoad();
-        enterUsername(username);
-        enterPassword(password);
-        clickLoginButton();
-        waitForPageTitle(ConfigManager.getProperty("app.dashboard.title"));
+        try (PhaseTimer.Timing timing = PhaseTimer.start(PhaseTimer.Phase.LOGIN)) {
+            waitForLoginPageToLoad();
+            enterUsername(username);
+            enterPassword(password);
+            clickLoginButton();
+            waitForPageTitle(ConfigManager.getProperty("app.dashboard.title"));
+        }
     }
     
+    @Override
     public boolean isLoginPageDisplayed() {
         return isElementDisplayed(USERNAME_FIELD) && isElementDisplayed(PASSWORD_FIELD);
     }
     
+    @Override
+    public boolean isErrorMessageAbsent() {
+        return isAbsent(LoginPageLocators.ERROR_MESSAGE);
+    }
+    
+    @Override
     public String getPageTitle() {
         return driver.getTitle();
     }
@@ -3,6 +3,7 @@ package pages;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.FindBy;
+import utils.tracing.PhaseTimer;
 
 /**
  * Login Page using PageFactory pattern
@@ -86,11 +87,13 @@ public class LoginPageFactory extends BasePageFactory {
      * @param password Password to enter
      */
     public void login(String username, String password) {
-        waitForLoginPageToLoad();
-        enterUsername(username);
-        enterPassword(password);
-        clickLoginButton();
-        waitForPageTitle(DASHBOARD_TITLE);
+        try (PhaseTimer.Timing timing = PhaseTimer.start(PhaseTimer.Phase.LOGIN)) {
+            waitForLoginPageToLoad();
+            enterUsername(username);
+            enterPassword(password);
+            clickLoginButton();
+            waitForPageTitle(DASHBOARD_TITLE);
+        }
     }
     
     /**
@@ -133,6 +136,14 @@ public class LoginPageFactory extends BasePageFactory {
         return isElementDisplayed(errorMessage);
     }
     
+    /**
+     * Check that no error message is shown, without waiting for the explicit wait timeout
+     * @return true if the error message is missing or hidden
+     */
+    public boolean isErrorMessageAbsent() {
+        return isAbsent(errorMessage);
+    }
+    
     /**
      * Check if logo is displayed
      * @return true if logo is displayed
@@ -0,0 +1,14 @@
+package pages;
+
+/**
+ * Static checks on the login page, served either by a browser ({@link LoginPage})
+ * or by a plain HTTP fetch ({@link HttpLoginPage})
+ */
+public interface LoginView {
+
+    boolean isLoginPageDisplayed();
+
+    boolean isErrorMessageAbsent();
+
+    String getPageTitle();
+}
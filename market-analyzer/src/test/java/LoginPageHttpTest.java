@@ -0,0 +1,26 @@
+import base.BaseTest;
+import base.HttpOnly;
+import pages.HttpLoginPage;
+import pages.LoginView;
+import utils.ConfigManager;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Login page checks on the served HTML. Every test here is {@link HttpOnly}, so its &lt;test&gt; block starts no browser.
+ */
+@HttpOnly
+public class LoginPageHttpTest extends BaseTest {
+
+    @Test(description = "Verify login page elements are present")
+    public void testLoginPageElements() {
+        // Title and form fields are in the served HTML, so no browser is needed
+        LoginView loginPage = HttpLoginPage.open(http());
+        
+        Assert.assertTrue(loginPage.isLoginPageDisplayed(), "Login page should be displayed");
+        Assert.assertEquals(loginPage.getPageTitle(), ConfigManager.getProperty("app.login.title"), 
+                           "Login page title should match expected");
+        
+        System.out.println("Login page elements test completed successfully");
+    }
+}
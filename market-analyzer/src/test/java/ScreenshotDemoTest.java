@@ -1,4 +1,5 @@
 import base.BaseTest;
+import base.RequiresRealBrowser;
 import pages.LoginPage;
 import utils.ConfigManager;
 import utils.TestAssertions;
@@ -9,6 +10,7 @@ import org.testng.annotations.Test;
  * Demo test class showcasing screenshot functionality
  * Demonstrates various screenshot capture scenarios
  */
+@RequiresRealBrowser
 public class ScreenshotDemoTest extends BaseTest {
 
     @Test(description = "Demo: Manual screenshot capture during test execution")